@@ -0,0 +1,176 @@
+package com.huntercollab.app.network.loopjtasks;
+
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+//@brief:
+//CollabDecoder.java against the JSONArray tree path it replaced (treeDecode() below, as in GetCollabsData.setCollabDetails)
+//Runs on a device, android.util.JsonReader is not in the JVM unit test stubs
+@RunWith(AndroidJUnit4.class)
+public class CollabDecoderTest {
+
+    private static final String TAG = "CollabDecoderTest";
+
+    @Test
+    public void decodesLikeTheTreePath() throws Exception {
+        String body = payload(200, 1);
+        assertSame(treeDecode(body), CollabDecoder.readCollabs(new StringReader(body)));
+    }
+
+    @Test
+    public void collabsMissingAFieldAreSkipped() throws Exception {
+        JSONArray array = new JSONArray(payload(3, 2));
+        array.getJSONObject(1).remove("members");
+        array.put("not a collab");
+        String body = array.toString();
+
+        ArrayList<CollabModel> decoded = CollabDecoder.readCollabs(new StringReader(body));
+        assertEquals(2, decoded.size());
+        assertEquals(0, decoded.get(0).getId());
+        assertEquals(2, decoded.get(1).getId());
+        assertSame(treeDecode(body), decoded);
+    }
+
+    @Test
+    public void scalarsAreReadAsStringsLikeGetString() throws Exception {
+        JSONArray array = new JSONArray(payload(1, 3));
+        JSONObject collab = array.getJSONObject(0);
+        collab.put("location", JSONObject.NULL);
+        collab.put("title", 42);
+        collab.put("skills", new JSONArray().put(7).put(true));
+        String body = array.toString();
+
+        CollabModel decoded = CollabDecoder.readCollabs(new StringReader(body)).get(0);
+        assertEquals("null", decoded.getLocation());
+        assertEquals("42", decoded.getTitle());
+        assertSame(treeDecode(body), CollabDecoder.readCollabs(new StringReader(body)));
+    }
+
+    //@brief: Decode time of both paths on 1k and 10k collab payloads, results in logcat
+    @Test
+    public void benchmark() throws Exception {
+        for (int count : new int[]{1000, 10000}) {
+            String body = payload(count, count);
+            //Warm up both paths before timing
+            for (int i = 0; i < 3; i++) {
+                treeDecode(body);
+                CollabDecoder.readCollabs(new StringReader(body));
+            }
+            long tree = time(body, true);
+            long streaming = time(body, false);
+            Log.i(TAG, count + " collabs (" + body.length() / 1024 + " KB): JSONArray " + tree / 1000000
+                    + " ms, JsonReader " + streaming / 1000000 + " ms");
+            assertEquals(count, CollabDecoder.readCollabs(new StringReader(body)).size());
+        }
+    }
+
+    //@return: best of 5 runs in ns
+    private static long time(String body, boolean tree) throws Exception {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            if (tree) {
+                treeDecode(body);
+            } else {
+                CollabDecoder.readCollabs(new StringReader(body));
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    //@brief: Response body of 'count' collabs shaped like the '/collab/*' answers
+    private static String payload(int count, long seed) throws JSONException {
+        Random random = new Random(seed);
+        JSONArray array = new JSONArray();
+        for (int i = 0; i < count; i++) {
+            JSONObject collab = new JSONObject();
+            collab.put("_id", new JSONObject().put("$oid", Long.toHexString(random.nextLong())));
+            collab.put("owner", "user" + random.nextInt(1000) + "@hunter.cuny.edu");
+            collab.put("size", 1 + random.nextInt(10));
+            collab.put("duration", 3600000L * (1 + random.nextInt(100)));
+            collab.put("date", 1546300800000L + random.nextInt(1000000));
+            collab.put("location", "Room " + random.nextInt(1000));
+            collab.put("status", random.nextBoolean());
+            collab.put("title", "Collab \"" + i + "\"");
+            collab.put("description", "Working on project " + i + " with \u00e9t\u00e9 unicode");
+            collab.put("classes", strings(random, "CSCI ", 3));
+            collab.put("skills", strings(random, "Skill", 5));
+            collab.put("applicants", strings(random, "applicant", 4));
+            collab.put("members", strings(random, "member", 4));
+            collab.put("extra", new JSONObject().put("ignored", true));
+            array.put(collab);
+        }
+        return array.toString();
+    }
+
+    private static JSONArray strings(Random random, String prefix, int max) {
+        JSONArray array = new JSONArray();
+        int n = random.nextInt(max + 1);
+        for (int i = 0; i < n; i++) {
+            array.put(prefix + random.nextInt(500));
+        }
+        return array;
+    }
+
+    //@brief: The JSONArray path CollabDecoder.java replaced
+    private static ArrayList<CollabModel> treeDecode(String body) throws JSONException {
+        JSONArray collabData = new JSONArray(body);
+        ArrayList<CollabModel> collabs = new ArrayList<>();
+        for (int i = 0; i < collabData.length(); i++) {
+            try {
+                JSONObject tmp = collabData.getJSONObject(i);
+                String id = tmp.getJSONObject("_id").getString("$oid");
+                collabs.add(new CollabModel(i, tmp.getString("owner"), tmp.getInt("size"), tmp.getLong("duration"),
+                        tmp.getLong("date"), tmp.getString("location"), tmp.getBoolean("status"), tmp.getString("title"),
+                        tmp.getString("description"), list(tmp.getJSONArray("classes")), list(tmp.getJSONArray("skills")),
+                        list(tmp.getJSONArray("applicants")), list(tmp.getJSONArray("members")), id));
+            } catch (JSONException e) {
+                //Skipped, like before
+            }
+        }
+        return collabs;
+    }
+
+    private static ArrayList<String> list(JSONArray array) throws JSONException {
+        ArrayList<String> list = new ArrayList<>();
+        for (int i = 0; i < array.length(); i++) {
+            list.add(array.get(i).toString());
+        }
+        return list;
+    }
+
+    private static void assertSame(ArrayList<CollabModel> expected, ArrayList<CollabModel> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            CollabModel e = expected.get(i);
+            CollabModel a = actual.get(i);
+            assertEquals(e.getId(), a.getId());
+            assertEquals(e.getCollabId(), a.getCollabId());
+            assertEquals(e.getOwner(), a.getOwner());
+            assertEquals(e.getSize(), a.getSize());
+            assertEquals(e.getDuration(), a.getDuration());
+            assertEquals(e.getDate(), a.getDate());
+            assertEquals(e.getLocation(), a.getLocation());
+            assertEquals(e.getStatus(), a.getStatus());
+            assertEquals(e.getTitle(), a.getTitle());
+            assertEquals(e.getDescription(), a.getDescription());
+            assertEquals(e.getClasses(), a.getClasses());
+            assertEquals(e.getSkills(), a.getSkills());
+            assertEquals(e.getApplicants(), a.getApplicants());
+            assertEquals(e.getMembers(), a.getMembers());
+        }
+    }
+}
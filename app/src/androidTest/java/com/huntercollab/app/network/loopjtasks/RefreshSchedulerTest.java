@@ -0,0 +1,137 @@
+package com.huntercollab.app.network.loopjtasks;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+//@brief:
+//A flood of realtime PINGs through RefreshScheduler.java, as MessagingActivity.java sees it, turns into few downloads
+//Runs on a device, the scheduler lives on the main Looper
+@RunWith(AndroidJUnit4.class)
+public class RefreshSchedulerTest {
+
+    private static final String TAG = "RefreshSchedulerTest";
+    //Short so the tests run fast, the app uses GlobalConfig.REFRESH_COALESCE_WINDOW
+    private static final long WINDOW = 100;
+    //Time a download takes before the screen calls finished()
+    private static final long DOWNLOAD = 50;
+
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private RefreshScheduler refreshes;
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    //@brief: Scheduler whose downloads call finished() after DOWNLOAD ms, like a chatroom download
+    private void createScheduler() throws InterruptedException {
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                refreshes = new RefreshScheduler(new Runnable() {
+                    @Override
+                    public void run() {
+                        fetches.incrementAndGet();
+                        main.postDelayed(new Runnable() {
+                            @Override
+                            public void run() {
+                                refreshes.finished();
+                            }
+                        }, DOWNLOAD);
+                    }
+                }, WINDOW);
+            }
+        });
+    }
+
+    @Test
+    public void burstOfPingsDownloadsOnce() throws Exception {
+        createScheduler();
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 1000; i++) {
+                    refreshes.request();
+                }
+            }
+        });
+        awaitIdle();
+        assertEquals(1, fetches.get());
+        assertEquals(1000, refreshes.getRequests());
+    }
+
+    @Test
+    public void pingsDuringADownloadBecomeOneMore() throws Exception {
+        createScheduler();
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                refreshes.requestNow();
+                for (int i = 0; i < 1000; i++) {
+                    refreshes.request();
+                }
+            }
+        });
+        awaitIdle();
+        assertEquals(2, fetches.get());
+    }
+
+    //@brief: A PING every 5 ms for 2 s: each download covers at least one window, results in logcat
+    @Test
+    public void sustainedPingFlood() throws Exception {
+        createScheduler();
+        final int pings = 400;
+        final long every = 5;
+        final CountDownLatch sent = new CountDownLatch(pings);
+        for (int i = 0; i < pings; i++) {
+            main.postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    refreshes.request();
+                    sent.countDown();
+                }
+            }, i * every);
+        }
+        assertTrue(sent.await(10, TimeUnit.SECONDS));
+        awaitIdle();
+        long flood = pings * every;
+        Log.i(TAG, pings + " PINGs in " + flood + " ms: " + fetches.get() + " downloads");
+        assertTrue(fetches.get() + " downloads", fetches.get() >= 1 && fetches.get() <= flood / WINDOW + 2);
+    }
+
+    //@brief: Runs 'task' on the main thread and waits for it
+    private void onMain(final Runnable task) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        main.post(new Runnable() {
+            @Override
+            public void run() {
+                task.run();
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    //@brief: Waits until nothing is scheduled, queued or in flight
+    private void awaitIdle() throws InterruptedException {
+        final boolean[] idle = {false};
+        for (int i = 0; i < 200 && !idle[0]; i++) {
+            Thread.sleep(2 * WINDOW);
+            onMain(new Runnable() {
+                @Override
+                public void run() {
+                    idle[0] = refreshes.isIdle();
+                }
+            });
+        }
+        assertTrue(idle[0]);
+    }
+}
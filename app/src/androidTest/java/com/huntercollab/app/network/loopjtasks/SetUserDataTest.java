@@ -0,0 +1,135 @@
+package com.huntercollab.app.network.loopjtasks;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.huntercollab.app.network.loopjtasks.http.SharedHttpClient;
+import com.huntercollab.app.network.loopjtasks.http.Transport;
+import com.huntercollab.app.network.loopjtasks.http.TransportResponse;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import cz.msebera.android.httpclient.HttpEntityEnclosingRequest;
+import cz.msebera.android.httpclient.client.methods.CloseableHttpResponse;
+import cz.msebera.android.httpclient.client.methods.HttpUriRequest;
+import cz.msebera.android.httpclient.protocol.HttpContext;
+import cz.msebera.android.httpclient.util.EntityUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+//@brief:
+//Profile edits written into a SetUserData.ProfilePatch, as EditProfileActivity.java and its EditName/GitHub/LinkedIn
+//fragments write them, and the '/user' payload that reaches a local stub (a recording Transport.java)
+@RunWith(AndroidJUnit4.class)
+public class SetUserDataTest {
+
+    private Context context;
+    //Requests the stub received, as "<method> <path> <body>"
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private final List<String> messages = new CopyOnWriteArrayList<>();
+    private CountDownLatch done;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getTargetContext();
+        SharedHttpClient.setTransport(context, new Transport() {
+            @Override
+            public CloseableHttpResponse execute(HttpUriRequest request, HttpContext httpContext) throws IOException {
+                String body = request instanceof HttpEntityEnclosingRequest
+                        ? EntityUtils.toString(((HttpEntityEnclosingRequest) request).getEntity(), "UTF-8") : "";
+                sent.add(request.getMethod() + " " + request.getURI().getPath() + " " + body);
+                return TransportResponse.json(200, "{\"success\":true}");
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        SharedHttpClient.setTransport(context, null);
+    }
+
+    //@brief: Each screen's save sends its one field, EditNameFragment.java, EditGitHubFragment.java, EditLinkedInFragment.java
+    @Test
+    public void eachScreenSendsItsField() throws Exception {
+        save(screen().setName("Ada Lovelace"));
+        save(screen().setGithub("github.com/ada"));
+        save(screen().setLinkedIn("linkedin.com/in/ada"));
+
+        assertEquals(3, sent.size());
+        assertEquals("{\"name\":\"Ada Lovelace\"}", body(0).toString());
+        assertEquals("{\"github\":\"github.com/ada\"}", body(1).toString());
+        assertEquals("{\"linkedin\":\"linkedin.com/in/ada\"}", body(2).toString());
+        assertEquals("[Name Updated, Github Updated, LinkedIn Updated]", messages.toString());
+    }
+
+    //@brief: Fields written into the screen's patch go out as one '/user' request, each with its last value
+    @Test
+    public void writtenFieldsAreOneRequest() throws Exception {
+        SetUserData.ProfilePatch patch = screen();
+        patch.setName("Ada");
+        patch.setGithub("github.com/ada");
+        patch.setLinkedIn("linkedin.com/in/ada");
+        patch.setName("Ada Lovelace");
+        save(patch);
+
+        assertEquals(1, sent.size());
+        JSONObject body = body(0);
+        assertEquals("Ada Lovelace", body.getString("name"));
+        assertEquals("github.com/ada", body.getString("github"));
+        assertEquals("linkedin.com/in/ada", body.getString("linkedin"));
+        assertEquals(3, body.length());
+        assertEquals("[Profile Updated]", messages.toString());
+    }
+
+    //@brief: The exit after a save, like EditProfileActivity.onPause(), sends nothing more
+    @Test
+    public void exitAfterASaveSendsNothing() throws Exception {
+        SetUserData.ProfilePatch patch = screen();
+        save(patch.setName("Ada"));
+        assertFalse(patch.hasChanges());
+
+        save(patch);
+        assertEquals(1, sent.size());
+        assertEquals("[Name Updated, Nothing Updated]", messages.toString());
+    }
+
+    //@return: ProfilePatch of a new EditProfileActivity.java, its results go to 'messages'
+    private SetUserData.ProfilePatch screen() {
+        return new SetUserData(context, new SetUserData.UpdateComplete() {
+            @Override
+            public void dataUpdateComplete(Boolean success, String message) {
+                assertTrue(success);
+                messages.add(message);
+                done.countDown();
+            }
+        }).edit();
+    }
+
+    //@brief: Commits 'patch' and waits for its result, so the next save is not merged into it in the outbox
+    private void save(SetUserData.ProfilePatch patch) throws InterruptedException {
+        done = new CountDownLatch(1);
+        patch.commit();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    //@return: JSONObject body of the 'index'th request, which must be a POST to '/user'
+    private JSONObject body(int index) throws Exception {
+        String[] request = sent.get(index).split(" ", 3);
+        assertEquals("POST", request[0]);
+        assertEquals("/user", request[1]);
+        return new JSONObject(request[2]);
+    }
+}
@@ -0,0 +1,127 @@
+package com.huntercollab.app.network.loopjtasks;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.huntercollab.app.network.loopjtasks.http.SharedHttpClient;
+import com.huntercollab.app.network.loopjtasks.http.Transport;
+import com.huntercollab.app.network.loopjtasks.http.TransportResponse;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import cz.msebera.android.httpclient.HttpEntityEnclosingRequest;
+import cz.msebera.android.httpclient.client.methods.CloseableHttpResponse;
+import cz.msebera.android.httpclient.client.methods.HttpUriRequest;
+import cz.msebera.android.httpclient.protocol.HttpContext;
+import cz.msebera.android.httpclient.util.EntityUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+//@brief:
+//Edits of a collaboration collected in an UpdateCollabData.EditSession, as EditCollabActivity.java and its fragments
+//write them, reach the server as one '/collab/editCollab' request. Requests are answered by a recording Transport.java
+@RunWith(AndroidJUnit4.class)
+public class UpdateCollabDataTest {
+
+    private Context context;
+    //Unique per test, edits of one collab waiting in the outbox are merged
+    private String collabId;
+    //Bodies of the requests sent, as "<method> <path> <body>"
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private final List<Boolean> results = new CopyOnWriteArrayList<>();
+    private CountDownLatch done;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getTargetContext();
+        collabId = UUID.randomUUID().toString();
+        SharedHttpClient.setTransport(context, new Transport() {
+            @Override
+            public CloseableHttpResponse execute(HttpUriRequest request, HttpContext httpContext) throws IOException {
+                String body = request instanceof HttpEntityEnclosingRequest
+                        ? EntityUtils.toString(((HttpEntityEnclosingRequest) request).getEntity(), "UTF-8") : "";
+                sent.add(request.getMethod() + " " + request.getURI().getPath() + " " + body);
+                return TransportResponse.json(200, "{\"success\":true}");
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        SharedHttpClient.setTransport(context, null);
+    }
+
+    @Test
+    public void severalEditsAreOneRequest() throws Exception {
+        UpdateCollabData.EditSession edits = session(1);
+        edits.setTitle("First title");
+        edits.setDescription("Described");
+        edits.setSize(6);
+        edits.setSkills(new ArrayList<>(Arrays.asList("Java", "Git")));
+        edits.setTitle("Second title");
+        edits.commit();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList(true), results);
+        assertEquals(1, sent.size());
+        String[] request = sent.get(0).split(" ", 3);
+        assertEquals("POST", request[0]);
+        assertEquals("/collab/editCollab", request[1]);
+        JSONObject body = new JSONObject(request[2]);
+        assertEquals(collabId, body.getString("id"));
+        assertEquals("Second title", body.getString("title"));
+        assertEquals("Described", body.getString("description"));
+        assertEquals(6, body.getInt("size"));
+        assertEquals("[\"Java\",\"Git\"]", body.getJSONArray("skills").toString());
+        assertEquals(5, body.length());
+        assertFalse(edits.hasChanges());
+    }
+
+    //@brief: A save with nothing written, or the exit after a save, sends nothing
+    @Test
+    public void nothingWrittenSendsNothing() throws Exception {
+        UpdateCollabData.EditSession edits = session(2);
+        edits.commit();
+        edits.setLocation("Room 1001");
+        edits.commit();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        //Like EditCollabActivity.onPause()
+        if (edits.hasChanges()) {
+            edits.commit();
+        }
+
+        assertEquals(Arrays.asList(true, true), results);
+        assertEquals(1, sent.size());
+        JSONObject body = new JSONObject(sent.get(0).split(" ", 3)[2]);
+        assertEquals("Room 1001", body.getString("location"));
+        assertEquals(2, body.length());
+    }
+
+    //@brief: EditSession of 'collabId' whose results go to 'results', 'done' counts them down
+    private UpdateCollabData.EditSession session(int expected) {
+        done = new CountDownLatch(expected);
+        return new UpdateCollabData(context, new UpdateCollabData.UpdateCollabComplete() {
+            @Override
+            public void updateCollabComplete(Boolean success) {
+                results.add(success);
+                done.countDown();
+            }
+        }).edit(collabId);
+    }
+}
@@ -0,0 +1,135 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+//@brief: GETs through ApiClient.java against a StubServer.java: revalidation of cached copies and sharing of identical GETs
+@RunWith(AndroidJUnit4.class)
+public class ApiClientTest {
+
+    private static final String ETAG = "\"v1\"";
+
+    private Context context;
+    private StubServer server;
+    //Unique per test, the response cache lives as long as the app
+    private String path;
+
+    @Before
+    public void setUp() throws Exception {
+        context = InstrumentationRegistry.getTargetContext();
+        server = new StubServer();
+        path = "/" + UUID.randomUUID();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void notModifiedIsServedFromTheCache() throws Exception {
+        server.setResponder(new StubServer.Responder() {
+            @Override
+            public StubServer.Response respond(StubServer.Request request) {
+                if (ETAG.equals(request.headers.get("if-none-match"))) {
+                    return new StubServer.Response(304, null, "ETag: " + ETAG);
+                }
+                return new StubServer.Response(200, "first body", "ETag: " + ETAG);
+            }
+        });
+
+        assertEquals("first body", fetch(server.baseUrl() + path));
+        assertEquals("first body", fetch(server.baseUrl() + path));
+
+        List<StubServer.Request> requests = server.getRequests();
+        assertEquals(2, requests.size());
+        assertNull(requests.get(0).headers.get("if-none-match"));
+        assertEquals(ETAG, requests.get(1).headers.get("if-none-match"));
+    }
+
+    @Test
+    public void changedResponseReplacesTheCachedCopy() throws Exception {
+        final String[] version = {"\"a\""};
+        server.setResponder(new StubServer.Responder() {
+            @Override
+            public StubServer.Response respond(StubServer.Request request) {
+                if (version[0].equals(request.headers.get("if-none-match"))) {
+                    return new StubServer.Response(304, null);
+                }
+                return new StubServer.Response(200, "body " + version[0], "ETag: " + version[0]);
+            }
+        });
+
+        assertEquals("body \"a\"", fetch(server.baseUrl() + path));
+        version[0] = "\"b\"";
+        assertEquals("body \"b\"", fetch(server.baseUrl() + path));
+        assertEquals("body \"b\"", fetch(server.baseUrl() + path));
+        assertEquals("\"b\"", server.getRequests().get(2).headers.get("if-none-match"));
+    }
+
+    @Test
+    public void identicalGetsShareOneRequest() throws Exception {
+        server.setResponder(new StubServer.Responder() {
+            @Override
+            public StubServer.Response respond(StubServer.Request request) throws InterruptedException {
+                //Slow enough for every GET below to join the first
+                Thread.sleep(300);
+                return new StubServer.Response(200, "shared body");
+            }
+        });
+
+        CountDownLatch done = new CountDownLatch(3);
+        List<String> bodies = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ApiClient.get(context, server.baseUrl() + path, null, collect(bodies, done));
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertEquals(1, server.getRequests().size());
+        assertEquals(3, bodies.size());
+        for (String body : bodies) {
+            assertEquals("shared body", body);
+        }
+    }
+
+    //@brief: Sends one GET and waits for its body
+    private String fetch(String url) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        List<String> bodies = new CopyOnWriteArrayList<>();
+        ApiClient.get(context, url, null, collect(bodies, done));
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        return bodies.get(0);
+    }
+
+    private static ApiClient.ResponseListener collect(final List<String> bodies, final CountDownLatch done) {
+        return new ApiClient.ResponseListener() {
+            @Override
+            public void onSuccess(int statusCode, String body) {
+                bodies.add(body);
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(int statusCode, String body, Throwable throwable) {
+                bodies.add("failed " + statusCode);
+                done.countDown();
+            }
+        };
+    }
+}
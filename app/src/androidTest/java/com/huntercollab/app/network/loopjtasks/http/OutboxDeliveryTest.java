@@ -0,0 +1,70 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+//@brief: Mutations sent by Outbox.java to a StubServer.java carry their idempotency key, DELETE included
+@RunWith(AndroidJUnit4.class)
+public class OutboxDeliveryTest {
+
+    private StubServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubServer();
+        server.setResponder(new StubServer.Responder() {
+            @Override
+            public StubServer.Response respond(StubServer.Request request) {
+                return new StubServer.Response(200, "{\"success\":true}");
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void postCarriesTheKey() throws Exception {
+        sendAndCheck("POST");
+    }
+
+    @Test
+    public void deleteCarriesTheKeyAndTheBody() throws Exception {
+        sendAndCheck("DELETE");
+    }
+
+    private void sendAndCheck(String method) throws Exception {
+        final CountDownLatch delivered = new CountDownLatch(1);
+        final Outbox.Status[] status = {null};
+        String key = Outbox.getInstance(InstrumentationRegistry.getTargetContext()).enqueue(method,
+                server.baseUrl() + "/collab/deleteCollabForReal", new JSONObject().put("id", "c1"), new Outbox.StatusListener() {
+                    @Override
+                    public void onStatus(Outbox.Status s, int statusCode, String body) {
+                        status[0] = s;
+                        delivered.countDown();
+                    }
+                });
+        assertTrue(delivered.await(10, TimeUnit.SECONDS));
+        assertEquals(Outbox.Status.DELIVERED, status[0]);
+
+        assertEquals(1, server.getRequests().size());
+        StubServer.Request request = server.getRequests().get(0);
+        assertEquals(method, request.method);
+        assertEquals(key, request.headers.get(Outbox.IDEMPOTENCY_HEADER.toLowerCase()));
+        assertEquals("c1", new JSONObject(request.body).getString("id"));
+    }
+}
@@ -0,0 +1,148 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+//@brief:
+//Minimal HTTP/1.1 server on localhost for instrumented tests, one request per connection
+//Every request is recorded, the answer comes from the Responder the test installs
+class StubServer {
+
+    //@brief: One received request, header names in lower case
+    static class Request {
+        final String method;
+        final String path;
+        final HashMap<String, String> headers = new HashMap<>();
+        String body;
+
+        Request(String method, String path) {
+            this.method = method;
+            this.path = path;
+        }
+    }
+
+    //@brief: Answer of the stub, 'headers' as "Name: value" lines, 'body' may be null
+    static class Response {
+        final int status;
+        final String[] headers;
+        final String body;
+
+        Response(int status, String body, String... headers) {
+            this.status = status;
+            this.body = body;
+            this.headers = headers;
+        }
+    }
+
+    interface Responder {
+        Response respond(Request request) throws InterruptedException;
+    }
+
+    private final ServerSocket socket;
+    private final List<Request> requests = new CopyOnWriteArrayList<>();
+    private volatile Responder responder;
+
+    StubServer() throws IOException {
+        socket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        Thread accept = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!socket.isClosed()) {
+                    try {
+                        final Socket client = socket.accept();
+                        new Thread(new Runnable() {
+                            @Override
+                            public void run() {
+                                serve(client);
+                            }
+                        }, "stub-server-conn").start();
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            }
+        }, "stub-server");
+        accept.setDaemon(true);
+        accept.start();
+    }
+
+    //@return: "http://127.0.0.1:<port>"
+    String baseUrl() {
+        return "http://127.0.0.1:" + socket.getLocalPort();
+    }
+
+    void setResponder(Responder responder) {
+        this.responder = responder;
+    }
+
+    List<Request> getRequests() {
+        return requests;
+    }
+
+    void shutdown() throws IOException {
+        socket.close();
+    }
+
+    private void serve(Socket client) {
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), "UTF-8"));
+            String line = in.readLine();
+            if (line == null) {
+                return;
+            }
+            String[] requestLine = line.split(" ");
+            Request request = new Request(requestLine[0], requestLine[1]);
+            while ((line = in.readLine()) != null && !line.isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    request.headers.put(line.substring(0, colon).trim().toLowerCase(Locale.US), line.substring(colon + 1).trim());
+                }
+            }
+            String length = request.headers.get("content-length");
+            if (length != null) {
+                char[] body = new char[Integer.parseInt(length)];
+                int read = 0;
+                while (read < body.length) {
+                    int n = in.read(body, read, body.length - read);
+                    if (n < 0) {
+                        break;
+                    }
+                    read += n;
+                }
+                //ASCII bodies only, the length is in bytes
+                request.body = new String(body, 0, read);
+            }
+            requests.add(request);
+            Response response = responder.respond(request);
+
+            byte[] body = response.body == null ? new byte[0] : response.body.getBytes("UTF-8");
+            StringBuilder head = new StringBuilder("HTTP/1.1 " + response.status + " Stub\r\n");
+            for (String header : response.headers) {
+                head.append(header).append("\r\n");
+            }
+            head.append("Content-Length: ").append(body.length).append("\r\n");
+            head.append("Connection: close\r\n\r\n");
+            OutputStream out = client.getOutputStream();
+            out.write(head.toString().getBytes("UTF-8"));
+            out.write(body);
+            out.flush();
+        } catch (IOException | InterruptedException e) {
+            //Connection dropped by the client, nothing to answer
+        } finally {
+            try {
+                client.close();
+            } catch (IOException e) {
+                //Nothing....
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.loopj.android.http.RequestParams;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import cz.msebera.android.httpclient.client.methods.CloseableHttpResponse;
+import cz.msebera.android.httpclient.client.methods.HttpGet;
+import cz.msebera.android.httpclient.impl.client.DefaultHttpClient;
+import cz.msebera.android.httpclient.impl.cookie.BasicClientCookie;
+import cz.msebera.android.httpclient.protocol.BasicHttpContext;
+import cz.msebera.android.httpclient.util.EntityUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+//@brief:
+//The transports behind SharedHttpClient.java: requests made through ApiClient.java answered by a FakeBackend.java,
+//sent by UrlConnectionTransport.java to a StubServer.java, and routed by TransportHttpClient.java
+@RunWith(AndroidJUnit4.class)
+public class TransportTest {
+
+    private static final String BASE = "http://fake.huntercollab.test";
+    //Requests sent by the benchmark, one at a time
+    private static final int BENCHMARK_REQUESTS = 500;
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getTargetContext();
+    }
+
+    @After
+    public void tearDown() {
+        SharedHttpClient.setTransport(context, null);
+    }
+
+    @Test
+    public void fakeBackendAnswersAuth() throws Exception {
+        SharedHttpClient.setTransport(context, new FakeBackend(0).seed(3, 0));
+
+        Result login = get("/auth/login", login("user1@hunter.cuny.edu", "password"));
+        assertEquals(200, login.status);
+        JSONObject answer = new JSONObject(login.body);
+        assertTrue(answer.getBoolean("success"));
+        assertEquals("fake-user1@hunter.cuny.edu", answer.getString("token"));
+
+        answer = new JSONObject(get("/auth/login", login("user1@hunter.cuny.edu", "wrong")).body);
+        assertEquals(false, answer.getBoolean("success"));
+        //The failed login left user1 logged in
+        assertEquals("user1@hunter.cuny.edu", new JSONObject(get("/user/", null).body).getString("username"));
+    }
+
+    @Test
+    public void fakeBackendAnswersUser() throws Exception {
+        SharedHttpClient.setTransport(context, new FakeBackend(0).seed(3, 0));
+
+        JSONObject user = new JSONObject(get("/user/user2@hunter.cuny.edu", null).body);
+        assertEquals("User 2", user.getString("name"));
+        assertEquals(404, get("/user/nobody@hunter.cuny.edu", null).status);
+
+        assertEquals(200, post("/user", new JSONObject().put("name", "Ada")).status);
+        assertEquals("Ada", new JSONObject(get("/user/", null).body).getString("name"));
+
+        JSONArray batch = new JSONArray(post("/user/batch", new JSONObject().put("usernames",
+                new JSONArray(Arrays.asList("user1@hunter.cuny.edu", "nobody@hunter.cuny.edu")))).body);
+        assertEquals(1, batch.length());
+        assertEquals("User 1", batch.getJSONObject(0).getString("name"));
+    }
+
+    @Test
+    public void fakeBackendAnswersCollab() throws Exception {
+        SharedHttpClient.setTransport(context, new FakeBackend(0).seed(3, 4));
+
+        JSONArray all = new JSONArray(get("/collab/getAllCollabs", null).body);
+        assertEquals(4, all.length());
+        //user0 is logged in and owns collabs 0 and 3
+        JSONArray mine = new JSONArray(get("/collab/getCollabDetails", null).body);
+        assertEquals(2, mine.length());
+        String id = mine.getJSONObject(0).getJSONObject("_id").getString("$oid");
+
+        JSONObject edit = new JSONObject().put("id", id).put("title", "Renamed")
+                .put("skills", new JSONObject().put("add", new JSONArray().put("Git")).put("remove", new JSONArray()));
+        assertEquals(200, post("/collab/editCollab", edit).status);
+        JSONObject edited = new JSONArray(get("/collab/getCollabDetails", null).body).getJSONObject(0);
+        assertEquals("Renamed", edited.getString("title"));
+        assertEquals("[\"Java\",\"Git\"]", edited.getJSONArray("skills").toString());
+
+        assertEquals(404, post("/collab/editCollab", new JSONObject().put("id", "missing")).status);
+    }
+
+    @Test
+    public void fakeBackendAnswersMessaging() throws Exception {
+        SharedHttpClient.setTransport(context, new FakeBackend(0).seed(3, 1));
+        String collabId = new JSONArray(get("/collab/getCollabDetails", null).body)
+                .getJSONObject(0).getJSONObject("_id").getString("$oid");
+
+        assertEquals(200, post("/messaging/sendMessage", new JSONObject().put("collabId", collabId).put("message", "hello")).status);
+        assertEquals(200, post("/messaging/sendMessage", new JSONObject().put("recipient", "user2@hunter.cuny.edu").put("message", "hi")).status);
+        assertEquals(400, post("/messaging/sendMessage", new JSONObject().put("message", "nobody")).status);
+
+        JSONArray messages = new JSONArray(post("/messaging/getMessages", new JSONObject().put("collabId", collabId)).body)
+                .getJSONObject(0).getJSONArray("messages");
+        assertEquals(1, messages.length());
+        assertEquals("hello", messages.getJSONObject(0).getString("message"));
+        assertEquals("user0@hunter.cuny.edu", messages.getJSONObject(0).getString("sender"));
+
+        JSONArray convos = new JSONArray(get("/messaging/myConvos", null).body);
+        assertEquals(2, convos.length());
+        assertEquals("User 2", convos.getJSONObject(1).getString("title"));
+    }
+
+    //@brief: Requests go out through HttpURLConnection with their method, body and the shared store's cookies, errors keep their body
+    @Test
+    public void urlConnectionTransportSendsToTheServer() throws Exception {
+        StubServer server = new StubServer();
+        try {
+            server.setResponder(new StubServer.Responder() {
+                @Override
+                public StubServer.Response respond(StubServer.Request request) {
+                    if (request.path.startsWith("/missing")) {
+                        return new StubServer.Response(404, "{\"error\":\"Not found\"}");
+                    }
+                    return new StubServer.Response(200, "{\"path\":\"" + request.path + "\"}");
+                }
+            });
+            BasicClientCookie cookie = new BasicClientCookie("token", "abc");
+            cookie.setDomain("127.0.0.1");
+            SharedHttpClient.getCookieStore(context).addCookie(cookie);
+            SharedHttpClient.setTransport(context, new UrlConnectionTransport(SharedHttpClient.getCookieStore(context)));
+
+            assertEquals("{\"path\":\"/user/ada\"}", call(server.baseUrl() + "/user/ada", null, null).body);
+            Result posted = call(server.baseUrl() + "/collab/editCollab", null, new JSONObject().put("id", "c1"));
+            assertEquals(200, posted.status);
+            Result missing = call(server.baseUrl() + "/missing", null, null);
+            assertEquals(404, missing.status);
+            assertEquals("{\"error\":\"Not found\"}", missing.body);
+
+            StubServer.Request get = server.getRequests().get(0);
+            assertEquals("GET", get.method);
+            assertTrue(get.headers.get("cookie"), get.headers.get("cookie").contains("token=abc"));
+            StubServer.Request post = server.getRequests().get(1);
+            assertEquals("POST", post.method);
+            assertEquals("{\"id\":\"c1\"}", post.body);
+            assertTrue(post.headers.get("content-type").startsWith("application/json"));
+        } finally {
+            SharedHttpClient.getCookieStore(context).clear();
+            server.shutdown();
+        }
+    }
+
+    //@brief: The client sends through the current transport, null goes back to loopj's
+    @Test
+    public void transportHttpClientRoutesToTheCurrentTransport() throws Exception {
+        TransportHttpClient client = new TransportHttpClient(new DefaultHttpClient());
+        assertSame(client.LOOPJ, client.getTransport());
+
+        FakeBackend backend = new FakeBackend(0).seed(1, 0);
+        client.setTransport(backend);
+        assertSame(backend, client.getTransport());
+        CloseableHttpResponse response = client.execute(new HttpGet(BASE + "/user/user0@hunter.cuny.edu"), new BasicHttpContext());
+        assertEquals(200, response.getStatusLine().getStatusCode());
+        assertEquals("User 0", new JSONObject(EntityUtils.toString(response.getEntity())).getString("name"));
+
+        client.setTransport(null);
+        assertSame(client.LOOPJ, client.getTransport());
+    }
+
+    //@brief:
+    //Benchmark: ApiClient.java GETs and POSTs answered by a FakeBackend.java without latency, one at a time,
+    //so the time is the client's own: executor hand off, metrics, decoding and the main thread callback
+    @Test
+    public void apiClientAgainstFakeBackend() throws Exception {
+        SharedHttpClient.setTransport(context, new FakeBackend(0).seed(20, 50));
+        long[] times = new long[BENCHMARK_REQUESTS];
+        for (int i = 0; i < BENCHMARK_REQUESTS; i++) {
+            long start = System.nanoTime();
+            Result result = i % 2 == 0
+                    ? get("/user/user" + (i % 20) + "@hunter.cuny.edu", null)
+                    : post("/collab/getRecommendedCollabs", new JSONObject());
+            times[i] = System.nanoTime() - start;
+            assertEquals(200, result.status);
+        }
+        Arrays.sort(times);
+        long total = 0;
+        for (long time : times) {
+            total += time;
+        }
+        System.out.printf(Locale.US, "%d requests through ApiClient against FakeBackend: %.3f ms mean, %.3f ms median, %.3f ms p99%n",
+                BENCHMARK_REQUESTS, total / 1e6 / BENCHMARK_REQUESTS, times[BENCHMARK_REQUESTS / 2] / 1e6,
+                times[BENCHMARK_REQUESTS * 99 / 100] / 1e6);
+    }
+
+    private static RequestParams login(String username, String password) {
+        RequestParams params = new RequestParams();
+        params.put("username", username);
+        params.put("password", password);
+        return params;
+    }
+
+    private Result get(String path, RequestParams params) throws InterruptedException {
+        return call(BASE + path, params, null);
+    }
+
+    private Result post(String path, JSONObject json) throws InterruptedException {
+        return call(BASE + path, null, json);
+    }
+
+    //@brief: Sends a GET, or a POST of 'json', through ApiClient.java and waits for the answer
+    private Result call(String url, RequestParams params, JSONObject json) throws InterruptedException {
+        final Result result = new Result();
+        final CountDownLatch done = new CountDownLatch(1);
+        ApiClient.DecodedListener<String> listener = new ApiClient.DecodedListener<String>() {
+            @Override
+            public void onDecoded(int statusCode, String body) {
+                result.status = statusCode;
+                result.body = body;
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(int statusCode, String body, Throwable throwable) {
+                result.status = statusCode;
+                result.body = body;
+                done.countDown();
+            }
+        };
+        ApiClient.Decoder<String> asText = new ApiClient.Decoder<String>() {
+            @Override
+            public String decode(String body) throws JSONException {
+                return body;
+            }
+        };
+        if (json == null) {
+            ApiClient.get(context, url, params, asText, listener);
+        } else {
+            ApiClient.post(context, url, json, asText, listener);
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        return result;
+    }
+
+    //@brief: Status and body of one answer
+    private static class Result {
+        volatile int status;
+        volatile String body;
+    }
+}
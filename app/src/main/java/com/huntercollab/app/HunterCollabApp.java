@@ -0,0 +1,30 @@
+package com.huntercollab.app;
+
+import android.app.Application;
+
+import com.huntercollab.app.network.loopjtasks.http.AuthSession;
+import com.huntercollab.app.network.loopjtasks.http.Outbox;
+import com.huntercollab.app.network.loopjtasks.realtime.RealtimeHub;
+
+//@brief:
+//Application class, runs once when the process starts
+//Used to set up state that is shared by every screen
+public class HunterCollabApp extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        //@brief: Load the stored auth token once so requests never read it from disk
+        //See: AuthSession.java
+        AuthSession.init(this);
+
+        //@brief: Resume sending changes that were queued but not delivered before the app was closed
+        //See: Outbox.java
+        Outbox.getInstance(this);
+
+        //@brief: One realtime connection for the whole app, open while a screen is visible
+        //See: RealtimeHub.java
+        RealtimeHub.init(this);
+    }
+}
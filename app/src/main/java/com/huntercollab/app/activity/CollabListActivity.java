@@ -28,6 +28,7 @@ import com.example.socialmediaapp.R;
 import com.huntercollab.app.network.loopjtasks.CollabModel;
 import com.huntercollab.app.network.loopjtasks.GetCollabsData;
 import com.huntercollab.app.network.loopjtasks.GetUserData;
+import com.huntercollab.app.network.loopjtasks.http.RequestScope;
 import com.huntercollab.app.utils.GeneralTools;
 import com.huntercollab.app.utils.Interfaces;
 
@@ -56,6 +57,8 @@ public class CollabListActivity extends AppCompatActivity
     public CollabModel errorHandler;
 
     private GetUserData userDetails;
+    //@brief: Requests of this screen, cancelled in onDestroy(), see: RequestScope.java
+    private RequestScope requests;
     private ArrayList<String> skillsArray;
     private ArrayList<String> classesArray;
 
@@ -76,8 +79,9 @@ public class CollabListActivity extends AppCompatActivity
         errorHandler = new CollabModel();
         instance = this;
 
-        collabsClass = new GetCollabsData(getApplicationContext(), instance, instance);
-        userDetails = new GetUserData(getApplicationContext(), instance, instance, instance);
+        requests = new RequestScope(this);
+        collabsClass = new GetCollabsData(requests, instance, instance);
+        userDetails = new GetUserData(requests, instance, instance, instance);
         userDetails.getUserData();
 
         Toolbar myToolbar = (Toolbar) findViewById(R.id.my_toolbar);
@@ -160,6 +164,12 @@ public class CollabListActivity extends AppCompatActivity
 
     }
 
+    @Override
+    protected void onDestroy() {
+        requests.cancel();
+        super.onDestroy();
+    }
+
     //@author: Hugh Leow
     //@brief: Opens the navigation menu for user to use
     //@pre condition: No menu for user to navigate the application
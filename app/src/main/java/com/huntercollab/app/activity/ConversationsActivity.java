@@ -14,13 +14,16 @@ import android.view.View;
 
 import com.example.socialmediaapp.R;
 import com.huntercollab.app.adapter.ConversationAdapter;
+import com.huntercollab.app.network.loopjtasks.MessageModel;
 import com.huntercollab.app.network.loopjtasks.MessagingAPI;
+import com.huntercollab.app.network.loopjtasks.RefreshScheduler;
+import com.huntercollab.app.network.loopjtasks.realtime.RealtimeHub;
 import com.huntercollab.app.utils.GeneralTools;
 
 import java.util.ArrayList;
 
 public class ConversationsActivity extends AppCompatActivity implements ConversationAdapter.ItemClickListener, MessagingAPI.MessageDownloadComplete,
-        MessagingAPI.MessageSendComplete {
+        MessagingAPI.MessageSendComplete, RealtimeHub.Subscriber {
 
     private RecyclerView recyclerView;
     private ConversationAdapter mAdapter;
@@ -31,6 +34,11 @@ public class ConversationsActivity extends AppCompatActivity implements Conversa
 
     private ArrayList<String> arrayOfChatIds = new ArrayList<>();
 
+    //@brief: Gathers realtime events so a burst of them downloads the list once, see: RefreshScheduler.java
+    private RefreshScheduler refreshes;
+    //@brief: Whether the screen is listening to the real time connection, between onStart() and onStop()
+    private boolean listening = false;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -46,7 +54,13 @@ public class ConversationsActivity extends AppCompatActivity implements Conversa
         //API call to retrieve list of active conversations from the database
         //See: MessagingAPI.java
         messages = new MessagingAPI(getApplicationContext(), instance, instance);
-        messages.getListOfMessages();
+        refreshes = new RefreshScheduler(new Runnable() {
+            @Override
+            public void run() {
+                messages.getListOfMessages();
+            }
+        });
+        refreshes.requestNow();
 
         //@author: Hugh Leow
         //@brief: Recycler view to display the list of active conversations inside 'messages'
@@ -123,6 +137,7 @@ public class ConversationsActivity extends AppCompatActivity implements Conversa
     //@post condition: List of active conversations retrieved if success = 'true'
     @Override
     public void messageDownloadComplete(Boolean success) {
+        refreshes.finished();
         if (success) {
             // use a linear layout manager
             layoutManager = new LinearLayoutManager(this);
@@ -136,9 +151,59 @@ public class ConversationsActivity extends AppCompatActivity implements Conversa
             recyclerView.setAdapter(mAdapter);
 
             mAdapter.notifyDataSetChanged();
+
+            if (listening) {
+                subscribeToChats();
+            }
+        }
+    }
+
+    //@brief:
+    //Listens to the app's real time connection while the screen is visible: to every event, so new conversations
+    //show up, and to each conversation's channel, so the server reports on them by themselves, see: RealtimeHub.java
+    @Override
+    protected void onStart() {
+        super.onStart();
+        listening = true;
+        RealtimeHub.getInstance().subscribe(this);
+        subscribeToChats();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        listening = false;
+        RealtimeHub.getInstance().unsubscribe(this);
+    }
+
+    @Override
+    protected void onDestroy() {
+        refreshes.cancel();
+        super.onDestroy();
+    }
+
+    private void subscribeToChats() {
+        for (String chatId : arrayOfChatIds) {
+            RealtimeHub.getInstance().subscribe(this, chatId);
         }
     }
 
+    //@brief: Something happened in a conversation or a new one started, the list is downloaded again
+    @Override
+    public void onRealtimePing() {
+        refreshes.request();
+    }
+
+    @Override
+    public void onRealtimeMessage(String chatId, MessageModel message) {
+        refreshes.request();
+    }
+
+    @Override
+    public void onRealtimeChanged(String channel) {
+        refreshes.request();
+    }
+
     @Override
     public void messageSendComplete(Boolean success) {
 
@@ -1,6 +1,7 @@
 package com.huntercollab.app.activity;
 
 import android.os.Bundle;
+import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentTransaction;
 import android.support.v7.app.AppCompatActivity;
 
@@ -10,13 +11,17 @@ import com.huntercollab.app.fragment.EditCollabLocationFragment;
 import com.huntercollab.app.fragment.EditCollabSizeFragment;
 import com.huntercollab.app.fragment.EditCollabStartFragment;
 import com.huntercollab.app.fragment.EditCollabTitleFragment;
+import com.huntercollab.app.network.loopjtasks.UpdateCollabData;
 import com.example.socialmediaapp.R;
 
-public class EditCollabActivity extends AppCompatActivity implements EditCollabTitleFragment.OnDataPass, EditCollabSizeFragment.OnSizePass {
+public class EditCollabActivity extends AppCompatActivity implements EditCollabTitleFragment.OnDataPass, EditCollabSizeFragment.OnSizePass,
+        UpdateCollabData.UpdateCollabComplete {
 
     private int value = 0;
     private int size = 0;
     public String collabId = "";
+    //@brief: Changes made on this screen, committed as one '/collab/editCollab' request on save or exit
+    private UpdateCollabData.EditSession edits;
 
     //@author: Hugh Leow
     //@brief:
@@ -34,6 +39,7 @@ public class EditCollabActivity extends AppCompatActivity implements EditCollabT
             size = x.getInt("numOfMembers");
             collabId = x.getString("collabId");
         }
+        edits = new UpdateCollabData(this, this).edit(collabId);
 
         // edit collab fragments
         if (value == 1) {
@@ -74,6 +80,39 @@ public class EditCollabActivity extends AppCompatActivity implements EditCollabT
         return collabId;
     }
 
+    //@brief:
+    //Interface function
+    //Used in the fragment(s) to write their changes, the fragment's save calls EditSession.commit()
+    //@return: EditSession of this screen
+    @Override
+    public UpdateCollabData.EditSession onEditPass() {
+        return edits;
+    }
+
+    //@brief:
+    //Interface function for ASYNC HTTP request from UpdateCollabData.java
+    //Passes the result of a save to the fragment shown, which closes the screen or shows the error
+    //@params: [Boolean success]
+    @Override
+    public void updateCollabComplete(Boolean success) {
+        if (isFinishing()) {
+            return;
+        }
+        Fragment shown = getSupportFragmentManager().findFragmentById(R.id.fragmentContainer);
+        if (shown instanceof UpdateCollabData.UpdateCollabComplete) {
+            ((UpdateCollabData.UpdateCollabComplete) shown).updateCollabComplete(success);
+        }
+    }
+
+    //@brief: Leaving the screen commits what was written and not saved yet, nothing is sent if there is none
+    @Override
+    protected void onPause() {
+        super.onPause();
+        if (isFinishing() && edits.hasChanges()) {
+            edits.commit();
+        }
+    }
+
     //@author: Hugh Leow
     //@brief:
     //Interface function
@@ -1,6 +1,7 @@
 package com.huntercollab.app.activity;
 
 import android.os.Bundle;
+import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentTransaction;
 import android.support.v7.app.AppCompatActivity;
 
@@ -8,8 +9,12 @@ import com.example.socialmediaapp.R;
 import com.huntercollab.app.fragment.EditGitHubFragment;
 import com.huntercollab.app.fragment.EditLinkedInFragment;
 import com.huntercollab.app.fragment.EditNameFragment;
+import com.huntercollab.app.network.loopjtasks.SetUserData;
 
-public class EditProfileActivity extends AppCompatActivity {
+public class EditProfileActivity extends AppCompatActivity implements EditNameFragment.OnPatchPass, SetUserData.UpdateComplete {
+
+    //@brief: Changes made on this screen, committed as one '/user' request on save or exit
+    private SetUserData.ProfilePatch patch;
 
     //@author: Hugh Leow
     //@brief:
@@ -26,6 +31,7 @@ public class EditProfileActivity extends AppCompatActivity {
         int value = 0;
         if (x != null)
             value = x.getInt("key");
+        patch = new SetUserData(this, this).edit();
 
         if (value == 1){
             FragmentTransaction editName = getSupportFragmentManager().beginTransaction();
@@ -44,4 +50,37 @@ public class EditProfileActivity extends AppCompatActivity {
         }
     }
 
+    //@brief:
+    //Interface function
+    //Used in the fragment(s) to write their changes, the fragment's save calls ProfilePatch.commit()
+    //@return: ProfilePatch of this screen
+    @Override
+    public SetUserData.ProfilePatch onPatchPass() {
+        return patch;
+    }
+
+    //@brief:
+    //Interface function for ASYNC HTTP request from SetUserData.java
+    //Passes the result of a save to the fragment shown, which closes the screen or shows the error
+    //@params: [Boolean success] [String message]
+    @Override
+    public void dataUpdateComplete(Boolean success, String message) {
+        if (isFinishing()) {
+            return;
+        }
+        Fragment shown = getSupportFragmentManager().findFragmentById(R.id.fragmentContainer);
+        if (shown instanceof SetUserData.UpdateComplete) {
+            ((SetUserData.UpdateComplete) shown).dataUpdateComplete(success, message);
+        }
+    }
+
+    //@brief: Leaving the screen commits what was written and not saved yet, nothing is sent if there is none
+    @Override
+    protected void onPause() {
+        super.onPause();
+        if (isFinishing() && patch.hasChanges()) {
+            patch.commit();
+        }
+    }
+
 }
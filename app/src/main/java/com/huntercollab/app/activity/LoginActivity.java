@@ -14,6 +14,7 @@ import android.widget.Toast;
 
 import com.example.socialmediaapp.R;
 import com.huntercollab.app.network.loopjtasks.DoLogin;
+import com.huntercollab.app.network.loopjtasks.http.ConnectionWarmer;
 
 public class LoginActivity extends AppCompatActivity implements DoLogin.OnDoLoginComplete {
 
@@ -71,6 +72,15 @@ public class LoginActivity extends AppCompatActivity implements DoLogin.OnDoLogi
         });
     }
 
+    //@brief:
+    //Opens connections to the server while the user types, so the login request and the screens after it skip connection setup
+    //See: ConnectionWarmer.java
+    @Override
+    protected void onResume() {
+        super.onResume();
+        ConnectionWarmer.warm(getApplicationContext());
+    }
+
     // sends user to register screen
     private void sendUserToRegisterActivity() {
         Intent registerIntent = new Intent(LoginActivity.this, RegisterActivity.class);
@@ -2,8 +2,6 @@ package com.huntercollab.app.activity;
 
 import android.annotation.SuppressLint;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Message;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
@@ -15,17 +13,21 @@ import android.widget.Toast;
 
 import com.example.socialmediaapp.R;
 import com.huntercollab.app.adapter.MessagesAdapter;
+import com.huntercollab.app.network.loopjtasks.ChatSequence;
+import com.huntercollab.app.network.loopjtasks.LocalEchoes;
 import com.huntercollab.app.network.loopjtasks.GetUserData;
 import com.huntercollab.app.network.loopjtasks.MessageModel;
 import com.huntercollab.app.network.loopjtasks.MessagingAPI;
-import com.huntercollab.app.network.loopjtasks.realtime.RealtimeAsync;
+import com.huntercollab.app.network.loopjtasks.RefreshScheduler;
+import com.huntercollab.app.network.loopjtasks.http.RequestScope;
+import com.huntercollab.app.network.loopjtasks.realtime.RealtimeHub;
 import com.huntercollab.app.utils.Interfaces;
 
 import java.util.ArrayList;
 import java.util.Collections;
 
 public class MessagingActivity extends AppCompatActivity implements MessagingAPI.MessageDownloadComplete, MessagingAPI.MessageSendComplete,
-        Interfaces.DownloadComplete {
+        Interfaces.DownloadComplete, RealtimeHub.Subscriber {
     private RecyclerView mMessageRecycler;
     private MessagesAdapter mMessageAdapter;
     private RecyclerView.LayoutManager layoutManager;
@@ -36,6 +38,10 @@ public class MessagingActivity extends AppCompatActivity implements MessagingAPI
     //@author: Hugh Leow
     //@brief: Array that holds the message objects retrieved from the database
     private ArrayList<MessageModel> messages = new ArrayList<>();
+    //@brief: Checks messages pushed over the real time connection against the ones shown, see: ChatSequence.java
+    private final ChatSequence sequence = new ChatSequence();
+    //@brief: Messages sent from this screen, shown before the server pushes them back, see: LocalEchoes.java
+    private final LocalEchoes echoes = new LocalEchoes();
 
     private String messageToSend;
     private EditText typeMessage;
@@ -45,9 +51,12 @@ public class MessagingActivity extends AppCompatActivity implements MessagingAPI
     private GetUserData userDetails;
 
     private MessagingAPI messagingAPI;
-    private RealtimeAsync realtimeAync;
-
-    private Handler mHandlerThread;
+    //@brief: Requests of this screen, cancelled in onDestroy(), see: RequestScope.java
+    private RequestScope requests;
+    //@brief: Gathers refresh requests so a burst of PINGs downloads the chatroom once, see: RefreshScheduler.java
+    private RefreshScheduler refreshes;
+    //@brief: The screen was paused, pushes to the chatroom were not heard since, see: onResume()
+    private boolean paused = false;
 
     @SuppressLint("ClickableViewAccessibility")
     @Override
@@ -56,6 +65,7 @@ public class MessagingActivity extends AppCompatActivity implements MessagingAPI
         setContentView(R.layout.activity_message_list);
 
         instance = this;
+        requests = new RequestScope(this);
         typeMessage = (EditText) findViewById(R.id.edittext_chatbox);
         sendMessage = (Button) findViewById(R.id.button_chatbox_send);
 
@@ -64,7 +74,7 @@ public class MessagingActivity extends AppCompatActivity implements MessagingAPI
         //Used for API call for current user data
         //for checks when building the recycler view for display
         //See: GetUserData.java
-        userDetails = new GetUserData(getApplicationContext(), instance, null, null);
+        userDetails = new GetUserData(requests, instance, null, null);
         userDetails.getUserData();
 
         //@author: Hugh Leow
@@ -77,7 +87,14 @@ public class MessagingActivity extends AppCompatActivity implements MessagingAPI
         //@brief:
         //Used for API call to retrieve messages from the database
         //See: MessagingAPI.java
-        messagingAPI = new MessagingAPI(getApplicationContext(), this, this);
+        messagingAPI = new MessagingAPI(requests, this, this);
+        refreshes = new RefreshScheduler(new Runnable() {
+            @Override
+            public void run() {
+                sequence.fetchStarted();
+                messagingAPI.retrieveChatroom(0, chatId);
+            }
+        });
 
         //@author: Hugh Leow
         //@brief:
@@ -120,6 +137,8 @@ public class MessagingActivity extends AppCompatActivity implements MessagingAPI
                     sendMessage.setEnabled(true);
                 }
                 else {
+                    //Registered now, the server may push the message back before the send completes
+                    echoes.sending(messageToSend);
                     messagingAPI.sendMessage(messageToSend, chatId);
                 }
 
@@ -153,6 +172,7 @@ public class MessagingActivity extends AppCompatActivity implements MessagingAPI
     //@post condition: Messages retrieved successfully for chatroom if success = 'true'
     @Override
     public void messageDownloadComplete(Boolean success) {
+        refreshes.finished();
         if (success) {
             messages = messagingAPI.getMessages();
             Collections.reverse(messages);
@@ -160,13 +180,23 @@ public class MessagingActivity extends AppCompatActivity implements MessagingAPI
             mMessageAdapter.setMessages(messages);
             mMessageAdapter.notifyDataSetChanged();
             mMessageRecycler.scrollToPosition(mMessageAdapter.getItemCount() - 1);
+
+            //The page holds every message sent so far, pushes that came during the download are checked against it
+            echoes.pageLoaded();
+            RealtimeHub.getInstance().markSeen(chatId, messagingAPI.getLatestSeq());
+            for (MessageModel pushed : sequence.pageLoaded(messagingAPI.getLatestSeq())) {
+                onRealtimeMessage(chatId, pushed);
+            }
+        }
+        else {
+            sequence.fetchFailed();
         }
     }
 
     //@author: Hugh Leow
     //@brief:
     //Interface function for ASYNC HTTP request from MessagingAPI.java
-    //If sending a message is successful, we add the message to the user's screen locally
+    //If sending a message is successful, we add the message to the user's screen locally, unless the server already pushed it back
     //See: MessagingAPI.java
     //@params: [Boolean success]
     //@pre condition: User message not sent to database
@@ -175,11 +205,16 @@ public class MessagingActivity extends AppCompatActivity implements MessagingAPI
     public void messageSendComplete(Boolean success) {
         if (success) {
             typeMessage.getText().clear();
-            MessageModel tmp = new MessageModel(user, messageToSend, System.currentTimeMillis(), "");
-            messages.add(tmp);
-            mMessageAdapter.notifyDataSetChanged();
+            MessageModel tmp = echoes.sent(user, messageToSend);
+            if (tmp != null) {
+                messages.add(tmp);
+                mMessageAdapter.notifyDataSetChanged();
+            }
             sendMessage.setEnabled(true);
         }
+        else {
+            echoes.failed(messageToSend);
+        }
     }
 
     //@author: Hugh Leow
@@ -193,66 +228,119 @@ public class MessagingActivity extends AppCompatActivity implements MessagingAPI
     public void downloadComplete(Boolean success) {
         user = userDetails.getUserName();
         mMessageAdapter.setUser(user);
-        messagingAPI.retrieveChatroom(0, chatId);
+        refreshes.requestNow();
     }
 
     //@author: Hugh Leow
-    //@brief: Refreshes the chatroom when user resumes the application
+    //@brief: Refreshes the chatroom when user resumes the application, calls close together share one download
     //@pre condition: Chatroom not up to date
     //@post condition: Chatroom is up to date
     public void refreshChatroom() {
-        messagingAPI.retrieveChatroom(0, chatId);
+        refreshes.request();
     }
 
-    @SuppressLint("HandlerLeak")
+    //@brief:
+    //Listens to the chatroom again, coming back from a pause the messages pushed meanwhile are asked for from the last one shown
+    //A server that cannot resume (v1, or not connected) has the chatroom downloaded instead
+    //@pre condition: Chatroom not listening to the real time server
+    //@post condition: Chatroom listening, and catching up if it was paused
     @Override
     protected void onResume() {
         super.onResume();
-        mHandlerThread = new Handler() {
-            @Override
-            public void handleMessage(Message msg) {
-                super.handleMessage(msg);
+        if (paused && !user.isEmpty()) {
+            if (!RealtimeHub.getInstance().resubscribe(this, chatId, sequence.getLast())) {
                 refreshChatroom();
             }
-        };
-        this.startRealtimeConnection();
+        } else {
+            this.startRealtimeConnection();
+        }
+        paused = false;
     }
 
     @Override
     protected void onPause() {
         super.onPause();
-        System.out.println("OnStop Called. Clearing RMS Connection.");
+        paused = true;
         this.killRealtimeConnection();
     }
 
     //@author: Hugh Leow & Ram Vakada
-    //@brief: Starts the real time connection to the server
-    //@pre condition: Connection to real time server not established
-    //@post condition: Connection to real time server established
+    //@brief:
+    //Listens to this chatroom's channel on the app's real time connection, each PING from it refreshes the chatroom
+    //The connection is shared with the other screens and stays open between chats, see: RealtimeHub.java
+    //@pre condition: Chatroom not listening to the real time server
+    //@post condition: Chatroom listening to the real time server
     public void startRealtimeConnection() {
-        this.killRealtimeConnection();
-        this.realtimeAync = new RealtimeAsync();
-        //Start realtime connection
-        this.realtimeAync.execute(this);
+        RealtimeHub.getInstance().subscribe(this, chatId);
     }
 
     //@author: Hugh Leow & Ram Vakada
-    //@brief: Stops the real time connection to the server
-    //@pre condition: Connection to the real time server is open
-    //@post condition: Connection to the real time server is closed
+    //@brief: Stops listening to the real time connection, the connection itself stays open for the app
+    //@pre condition: Chatroom listening to the real time server
+    //@post condition: Chatroom not listening to the real time server
     public void killRealtimeConnection() {
-        if (this.realtimeAync != null) {
-            this.realtimeAync.killConn();
-            this.realtimeAync.cancel(true);
+        RealtimeHub.getInstance().unsubscribe(this);
+    }
+
+    //@brief: PING from the real time server, on the main thread
+    @Override
+    public void onRealtimePing() {
+        refreshChatroom();
+    }
+
+    //@brief:
+    //Message pushed by the real time server, on the main thread
+    //Added to the chatroom when it follows the last message shown, otherwise the chatroom is downloaded again
+    //@params: [String pushedChatId] [MessageModel message]
+    //@pre condition: Message not shown
+    //@post condition: Message shown, or chatroom being refreshed
+    @Override
+    public void onRealtimeMessage(String pushedChatId, MessageModel message) {
+        //Before the user is known the first download has not started, it will include the message
+        if (!pushedChatId.equals(chatId) || user.isEmpty()) {
+            return;
+        }
+        switch (sequence.pushed(message)) {
+            case ChatSequence.ADD:
+                addPushedMessage(message);
+                RealtimeHub.getInstance().markSeen(chatId, message.getSeq());
+                break;
+            case ChatSequence.REFETCH:
+                //The download shows it, a send of it still in flight must not show it again
+                echoes.pushed(user, message);
+                refreshChatroom();
+                break;
         }
     }
 
+    //@brief: Something else changed in the chatroom, downloads it again
+    //@params: [String channel]
     @Override
-    public void onStop() {
-        super.onStop();
+    public void onRealtimeChanged(String channel) {
+        if (channel.equals(chatId)) {
+            refreshChatroom();
+        }
     }
 
-    public Handler getHandlerThread() {
-        return mHandlerThread;
+    //@brief: Shows a pushed message, one this screen sent and already shows is only replaced by the server's copy
+    //@params: [MessageModel message]
+    private void addPushedMessage(MessageModel message) {
+        MessageModel echo = echoes.pushed(user, message);
+        int position = echo != null ? messages.indexOf(echo) : -1;
+        if (position >= 0) {
+            messages.set(position, message);
+            mMessageAdapter.notifyItemChanged(position);
+            return;
+        }
+        messages.add(message);
+        mMessageAdapter.notifyItemInserted(messages.size() - 1);
+        mMessageRecycler.scrollToPosition(mMessageAdapter.getItemCount() - 1);
+    }
+
+    @Override
+    protected void onDestroy() {
+        refreshes.cancel();
+        requests.cancel();
+        super.onDestroy();
     }
 }
@@ -0,0 +1,72 @@
+package com.huntercollab.app.activity;
+
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.view.View;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import com.example.socialmediaapp.R;
+import com.huntercollab.app.network.loopjtasks.http.NetworkMetrics;
+
+import java.io.File;
+import java.io.IOException;
+
+//@brief:
+//Debug screen showing the per endpoint request metrics from NetworkMetrics.java
+//Opened from the menu of ProfileActivity.java in debug builds
+public class NetworkMetricsActivity extends AppCompatActivity {
+
+    private TextView report;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_network_metrics);
+
+        report = (TextView) findViewById(R.id.metrics_report);
+        Button refresh = (Button) findViewById(R.id.metrics_refresh);
+        Button export = (Button) findViewById(R.id.metrics_export);
+        Button reset = (Button) findViewById(R.id.metrics_reset);
+
+        refresh.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                showReport();
+            }
+        });
+
+        //@brief: Writes the report to a file that can be pulled with adb
+        export.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                try {
+                    File file = NetworkMetrics.dump(getApplicationContext());
+                    Toast.makeText(getApplicationContext(), "Saved to " + file.getPath(), Toast.LENGTH_LONG).show();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    Toast.makeText(getApplicationContext(), "Export failed", Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
+
+        reset.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                NetworkMetrics.reset();
+                showReport();
+            }
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showReport();
+    }
+
+    private void showReport() {
+        report.setText(NetworkMetrics.report());
+    }
+}
@@ -17,6 +17,7 @@ import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import com.example.socialmediaapp.BuildConfig;
 import com.example.socialmediaapp.R;
 import com.huntercollab.app.network.loopjtasks.GetUserData;
 import com.huntercollab.app.utils.GeneralTools;
@@ -166,6 +167,7 @@ public class ProfileActivity extends AppCompatActivity implements Interfaces.Dow
     public boolean onCreateOptionsMenu(Menu menu) {
         MenuInflater inflater = getMenuInflater();
         inflater.inflate(R.menu.navigation_menu, menu);
+        menu.findItem(R.id.nav_network_metrics).setVisible(BuildConfig.DEBUG);
         return true;
     }
 
@@ -186,6 +188,10 @@ public class ProfileActivity extends AppCompatActivity implements Interfaces.Dow
                 Intent messageIntent = new Intent(this, ConversationsActivity.class);
                 this.startActivity(messageIntent);
                 return true;
+            case R.id.nav_network_metrics:
+                Intent metricsIntent = new Intent(this, NetworkMetricsActivity.class);
+                this.startActivity(metricsIntent);
+                return true;
             case R.id.nav_logout:
                 GeneralTools.doRestart(this);
                 finish();
@@ -16,4 +16,54 @@ public class GlobalConfig {
     public static final int RMS_PORT = 8484;
     public static final String BASE_API_URL = "http://" + HOST + ":" + PORT;
 
+    //@brief: Settings for the shared HTTP client, see: SharedHttpClient.java
+    public static final int HTTP_MAX_CONNECTIONS = 6;
+    public static final int HTTP_TIMEOUT = 30 * 1000;
+    public static final int HTTP_KEEP_ALIVE = 30 * 1000;
+    //@brief: Max disk space for cached GET responses, see: DiskResponseCache.java
+    public static final long HTTP_CACHE_SIZE = 4 * 1024 * 1024;
+    //@brief: Max member profile GETs in flight when '/user/batch' is unavailable, see: GetMembersData.java
+    public static final int MEMBER_LOOKUP_CONCURRENCY = 4;
+    //@brief: Retries for idempotent requests, delay doubles from BASE up to MAX with full jitter, see: RetryPolicy.java
+    public static final int HTTP_MAX_ATTEMPTS = 4;
+    public static final int HTTP_RETRY_BASE_DELAY = 500;
+    public static final int HTTP_RETRY_MAX_DELAY = 8 * 1000;
+    //@brief: Send skill and class list edits as add/remove deltas, only once the server accepts them, see: ListDelta.java
+    public static final boolean LIST_DELTAS = false;
+    //@brief: Consecutive failures before requests to a host fail fast, and how long before one trial request, see: CircuitBreaker.java
+    public static final int BREAKER_FAILURE_THRESHOLD = 5;
+    public static final int BREAKER_OPEN_TIME = 15 * 1000;
+    //@brief: How long a trial request may stay unanswered before another request is let through as the trial, see: CircuitBreaker.java
+    public static final int BREAKER_TRIAL_TIMEOUT = 2 * HTTP_TIMEOUT;
+    //@brief: Connections opened to the API while the login form is shown, and how long a prefetched response is kept, see: ConnectionWarmer.java
+    public static final int PREWARM_CONNECTIONS = 3;
+    public static final int PREFETCH_MAX_AGE = 30 * 1000;
+    //@brief: How long a realtime socket opened ahead of time may wait unused before it is replaced, see: RMSConnector.java
+    public static final int RMS_PREWARM_IDLE = 10 * 1000;
+    //@brief: Largest RMS frame accepted, a longer length means a broken stream, see: RMSFrameDecoder.java
+    public static final int RMS_MAX_FRAME = 1024 * 1024;
+    //@brief: Highest RMS frame format offered to the server, 1 never offers v2, see: RMSProtocol.java
+    public static final int RMS_PROTOCOL_VERSION = 2;
+    //@brief: Time allowed to connect to the realtime server, and again to get the answer to the auth token, see: RealtimeClient.java
+    public static final int RMS_TIMEOUT = 15 * 1000;
+    //@brief: Time a v2 server has to answer the version offer, after it the session goes on in v1, see: RealtimeClient.java
+    public static final int RMS_VERSION_TIMEOUT = 5 * 1000;
+    //@brief: How long a server found to speak only v1 is not offered v2, across app restarts, see: RealtimeHub.java
+    public static final long RMS_VERSION_RECHECK = 24 * 60 * 60 * 1000L;
+    //@brief: How long the app's realtime session stays open after the last screen is stopped, see: RealtimeHub.java
+    public static final int RMS_BACKGROUND_LINGER = 30 * 1000;
+    //@brief: Quiet time before the client checks that the realtime server is there, and how long it waits for the answer, see: RealtimeClient.java
+    public static final int RMS_HEARTBEAT_INTERVAL = 20 * 1000;
+    public static final int RMS_HEARTBEAT_TIMEOUT = 10 * 1000;
+    //@brief: Reconnect delays after the realtime connection is lost, doubling from BASE up to MAX with full jitter, see: RealtimeHub.java
+    public static final int RMS_RECONNECT_BASE_DELAY = 1000;
+    public static final int RMS_RECONNECT_MAX_DELAY = 60 * 1000;
+    //@brief: Refresh requests within this time share one download, see: RefreshScheduler.java
+    public static final int REFRESH_COALESCE_WINDOW = 250;
+    //@brief: Transport used by the shared HTTP client: "loopj", "urlconnection" or "fake" (no network), see: Transport.java
+    public static final String HTTP_TRANSPORT = "loopj";
+    //public static final String HTTP_TRANSPORT = "fake";
+    //@brief: Fixed response delay of the fake backend, see: FakeBackend.java
+    public static final int FAKE_BACKEND_LATENCY = 50;
+
 }
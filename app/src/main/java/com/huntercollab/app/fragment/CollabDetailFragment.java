@@ -27,8 +27,10 @@ import com.huntercollab.app.activity.CollabDetailActivity;
 import com.huntercollab.app.activity.CollabListActivity;
 import com.huntercollab.app.activity.EditCollabActivity;
 import com.huntercollab.app.network.loopjtasks.CollabModel;
+import com.huntercollab.app.network.loopjtasks.GetMembersData;
 import com.huntercollab.app.network.loopjtasks.GetUserData;
 import com.huntercollab.app.network.loopjtasks.JoinDropCollab;
+import com.huntercollab.app.network.loopjtasks.http.RequestScope;
 import com.huntercollab.app.utils.Interfaces;
 
 import java.text.DateFormat;
@@ -46,8 +48,8 @@ import static android.view.View.VISIBLE;
  * on handsets.
  */
 public class CollabDetailFragment extends Fragment implements JoinDropCollab.JoinComplete, JoinDropCollab.LeaveComplete,
-        JoinDropCollab.EditComplete, JoinDropCollab.DeleteComplete, Interfaces.DownloadComplete, Interfaces.DownloadProfleComplete,
-        Interfaces.OwnerDownloadComplete {
+        JoinDropCollab.EditComplete, JoinDropCollab.DeleteComplete, Interfaces.DownloadComplete,
+        Interfaces.OwnerDownloadComplete, GetMembersData.MembersDownloadComplete {
     /**
      * The fragment argument representing the item ID that this fragment
      * represents.
@@ -90,8 +92,10 @@ public class CollabDetailFragment extends Fragment implements JoinDropCollab.Joi
     private FloatingActionButton fab;
 
     private GetUserData userDetails;
-    private GetUserData memberDetails;
+    private GetMembersData memberDetails;
     private GetUserData ownerDetails;
+    //@brief: Requests of this fragment's views, cancelled in onDestroyView(), see: RequestScope.java
+    private RequestScope requests;
     private ArrayList<String> membersArray;
     private ArrayList<String> skillsArray;
     private ArrayList<String> classesArray;
@@ -132,6 +136,7 @@ public class CollabDetailFragment extends Fragment implements JoinDropCollab.Joi
         View rootView = inflater.inflate(R.layout.collab_detail, container, false);
 
         instance = this;
+        requests = new RequestScope(getContext());
 
         //@author: Hugh Leow
         //@brief: Collab ID that is associated with this fragment and the information that will be displayed
@@ -139,15 +144,16 @@ public class CollabDetailFragment extends Fragment implements JoinDropCollab.Joi
 
         //@author: Hugh Leow & Edwin Quintuna
         //@brief: API call to retrieve logged in user's information
-        userDetails = new GetUserData(getContext(), instance, instance, instance);
+        userDetails = new GetUserData(requests, instance, null, instance);
         //@author: Hugh Leow
         //@brief: API call to retrieve information of members of the collaboration
         //Used to get each member's names for display rather than e-mails
-        memberDetails = new GetUserData(getContext(), instance, instance, instance);
+        //All members are resolved in one batched lookup, see: GetMembersData.java
+        memberDetails = new GetMembersData(requests, instance);
         //@author: Hugh Leow
         //@brief: API call to retrieve information of the owner of the collaboration
         //Used to get owner name for display rather than e-mail
-        ownerDetails = new GetUserData(getContext(), instance, instance, instance);
+        ownerDetails = new GetUserData(requests, instance, null, instance);
         userDetails.getUserData();
 
         //@author: Hugh Leow
@@ -203,10 +209,7 @@ public class CollabDetailFragment extends Fragment implements JoinDropCollab.Joi
             membersArray = getArguments().getStringArrayList("members");
             if (membersArray != null){
                 membersArrayNicknames.clear();
-                int len = membersArray.size();
-                for (int i = 0; i < len; i++){
-                    memberDetails.getOtherUserData(membersArray.get(i));
-                }
+                memberDetails.getMembersData(membersArray);
             }
 
             // populate start time
@@ -252,7 +255,7 @@ public class CollabDetailFragment extends Fragment implements JoinDropCollab.Joi
             joinCollab.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View v) {
-                        doJoinCollab = new JoinDropCollab(getContext(), instance, instance, instance, instance);
+                        doJoinCollab = new JoinDropCollab(requests, instance, instance, instance, instance);
                         String collabId = getArguments().getString("collabId");
                         doJoinCollab.joinCollab(collabId);
                         joinCollab.setEnabled(false);
@@ -278,7 +281,7 @@ public class CollabDetailFragment extends Fragment implements JoinDropCollab.Joi
                         builder.setPositiveButton("YES", new DialogInterface.OnClickListener() {
                             public void onClick(DialogInterface dialog, int which) {
                                 // delete the collab on yes click
-                                doDeleteCollab = new JoinDropCollab(getContext(), instance, instance, instance, instance);
+                                doDeleteCollab = new JoinDropCollab(requests, instance, instance, instance, instance);
                                 String collabId = getArguments().getString("collabId");
                                 doDeleteCollab.deleteCollab(collabId);
                                 Intent collabIntent = new Intent(getContext(), CollabListActivity.class);
@@ -297,7 +300,7 @@ public class CollabDetailFragment extends Fragment implements JoinDropCollab.Joi
                         AlertDialog alert = builder.create();
                         alert.show();
                     } else {
-                        doLeaveCollab = new JoinDropCollab(getContext(), instance, instance, instance, instance);
+                        doLeaveCollab = new JoinDropCollab(requests, instance, instance, instance, instance);
                         String collabId = getArguments().getString("collabId");
                         doLeaveCollab.leaveCollab(collabId);
                         leaveCollab.setEnabled(false);
@@ -431,7 +434,7 @@ public class CollabDetailFragment extends Fragment implements JoinDropCollab.Joi
                     builder.setPositiveButton("YES", new DialogInterface.OnClickListener() {
                         public void onClick(DialogInterface dialog, int which) {
                             // delete the collab on yes click
-                            doDeleteCollab = new JoinDropCollab(getContext(), instance, instance, instance, instance);
+                            doDeleteCollab = new JoinDropCollab(requests, instance, instance, instance, instance);
                             String collabId = getArguments().getString("collabId");
                             doDeleteCollab.deleteCollab(collabId);
                             Intent collabIntent = new Intent(getContext(), CollabListActivity.class);
@@ -457,6 +460,13 @@ public class CollabDetailFragment extends Fragment implements JoinDropCollab.Joi
         return rootView;
     }
 
+    //@brief: Callbacks of this fragment update its views, so its requests end with them
+    @Override
+    public void onDestroyView() {
+        requests.cancel();
+        super.onDestroyView();
+    }
+
     //@author: Hugh leow
     //@brief:
     // bundle + key to pass parameter to EditCollabActivity.java
@@ -717,17 +727,20 @@ public class CollabDetailFragment extends Fragment implements JoinDropCollab.Joi
 
     //@author: Hugh Leow
     //@brief:
-    //Interface function for ASYNC HTTP request from GetUserData.java
-    //If data is successfully retrieved from the database, retrieve 'preferred names' of the members of the collaboration and display it accordingly
-    //@params: [Boolean success]
+    //Interface function for ASYNC HTTP request from GetMembersData.java
+    //If data is successfully retrieved from the database, display the 'preferred names' of the members of the collaboration
+    //Members arrive in the same order as 'membersArray'
+    //@params: [Boolean success] [ArrayList<String> usernames] [ArrayList<String> nicknames]
     //@pre condition: Member data not retrieved, emails show instead of names
     //@post condition: Member data retrieved, and 'preferred names' now show
     @Override
-    public void downloadProfileComplete(Boolean success) {
+    public void membersDownloadComplete(Boolean success, ArrayList<String> usernames, ArrayList<String> nicknames) {
         if (success) {
-            membersArrayForRecyclerView.add(memberDetails.getUserName());
-            membersArrayNicknames.add(memberDetails.getUserNickname());
-            collabMembers.append(memberDetails.getUserNickname() + "\n");
+            membersArrayForRecyclerView.addAll(usernames);
+            membersArrayNicknames.addAll(nicknames);
+            for (String nickname : nicknames) {
+                collabMembers.append(nickname + "\n");
+            }
         }
     }
 
@@ -26,7 +26,6 @@ public class EditCollabDescripFragment extends Fragment implements UpdateCollabD
     private EditText editDescrip;
     private Button saveDescripButton;
     private EditCollabDescripFragment instance = null;
-    private UpdateCollabData updateDescription;
 
     @Override
     public void onAttach(Context context) {
@@ -58,8 +57,8 @@ public class EditCollabDescripFragment extends Fragment implements UpdateCollabD
             @Override
             public void onClick(View v) {
                 String newDescrip = editDescrip.getText().toString();
-                updateDescription = new UpdateCollabData(getContext(), instance);
-                updateDescription.updateCollabDescription(newDescrip, collabid);
+                //Written into the screen's EditSession, which sends it, see: EditCollabActivity.java
+                dataPasser.onEditPass().setDescription(newDescrip).commit();
                 saveDescripButton.setEnabled(false);
             }
         });
@@ -26,7 +26,6 @@ public class EditCollabEndFragment extends Fragment implements UpdateCollabData.
     private EditText editDuration;
     private Button saveDurationButton;
     private EditCollabEndFragment instance = null;
-    private UpdateCollabData updateDuration;
 
     private boolean allowRefresh = true;
 
@@ -69,8 +68,8 @@ public class EditCollabEndFragment extends Fragment implements UpdateCollabData.
                 }
                 collabDurationLong *= 86400000;
                 //newDuration = Long.toString(collabDurationLong);
-                updateDuration = new UpdateCollabData(getContext(), instance);
-                updateDuration.updateCollabEndDate(collabDurationLong, collabid);
+                //Written into the screen's EditSession, which sends it, see: EditCollabActivity.java
+                dataPasser.onEditPass().setEndDate(collabDurationLong).commit();
                 saveDurationButton.setEnabled(false);
             }
         });
@@ -26,7 +26,6 @@ public class EditCollabLocationFragment extends Fragment implements UpdateCollab
     private EditText editLocation;
     private Button saveLocationButton;
     private EditCollabLocationFragment instance = null;
-    private UpdateCollabData updateLocation;
 
     @Override
     public void onAttach(Context context) {
@@ -58,8 +57,8 @@ public class EditCollabLocationFragment extends Fragment implements UpdateCollab
             @Override
             public void onClick(View v) {
                 String newLocation = editLocation.getText().toString();
-                updateLocation = new UpdateCollabData(getContext(), instance);
-                updateLocation.updateCollabLocation(newLocation, collabid);
+                //Written into the screen's EditSession, which sends it, see: EditCollabActivity.java
+                dataPasser.onEditPass().setLocation(newLocation).commit();
                 saveLocationButton.setEnabled(false);
             }
         });
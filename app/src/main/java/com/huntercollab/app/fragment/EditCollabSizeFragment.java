@@ -27,7 +27,6 @@ public class EditCollabSizeFragment extends Fragment implements UpdateCollabData
     private EditText editSize;
     private Button saveSizeButton;
     private EditCollabSizeFragment instance = null;
-    private UpdateCollabData updateSize;
 
     @Override
     public void onAttach(Context context) {
@@ -67,8 +66,8 @@ public class EditCollabSizeFragment extends Fragment implements UpdateCollabData
                     t.setGravity(Gravity.TOP|Gravity.CENTER_HORIZONTAL, 0, 0);
                     t.show();
                 } else {
-                    updateSize = new UpdateCollabData(getContext(), instance);
-                    updateSize.updateCollabSize(sizeInt, collabid);
+                    //Written into the screen's EditSession, which sends it, see: EditCollabActivity.java
+                    dataPasser.onEditPass().setSize(sizeInt).commit();
                     saveSizeButton.setEnabled(false);
                 }
 
@@ -40,7 +40,6 @@ public class EditCollabStartFragment extends Fragment implements UpdateCollabDat
     private long dateTimeInMS;
 
     private EditCollabStartFragment instance = null;
-    private UpdateCollabData updateStart;
 
     @Override
     public void onAttach(Context context) {
@@ -156,8 +155,8 @@ public class EditCollabStartFragment extends Fragment implements UpdateCollabDat
                     dateTimeInMS = collabDateTime.getTimeInMillis();
                     long dateTime = dateTimeInMS;
 
-                    updateStart = new UpdateCollabData(getContext(), instance);
-                    updateStart.updateCollabStartDate(dateTime, collabid);
+                    //Written into the screen's EditSession, which sends it, see: EditCollabActivity.java
+                    dataPasser.onEditPass().setStartDate(dateTime).commit();
                     saveStartButton.setEnabled(false);
                 }
             }
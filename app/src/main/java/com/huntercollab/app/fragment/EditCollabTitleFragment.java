@@ -26,7 +26,6 @@ public class EditCollabTitleFragment extends Fragment implements UpdateCollabDat
     private EditText editTitle;
     private Button saveTitleButton;
     private EditCollabTitleFragment instance = null;
-    private UpdateCollabData updateTitle;
 
     @Override
     public void onAttach(Context context) {
@@ -58,8 +57,8 @@ public class EditCollabTitleFragment extends Fragment implements UpdateCollabDat
             @Override
             public void onClick(View v) {
                 String newTitle = editTitle.getText().toString();
-                updateTitle = new UpdateCollabData(getContext(), instance);
-                updateTitle.updateCollabTitle(newTitle, collabid);
+                //Written into the screen's EditSession, which sends it, see: EditCollabActivity.java
+                dataPasser.onEditPass().setTitle(newTitle).commit();
                 saveTitleButton.setEnabled(false);
             }
         });
@@ -89,5 +88,8 @@ public class EditCollabTitleFragment extends Fragment implements UpdateCollabDat
 
     public interface OnDataPass{
         public String onDataPass();
+
+        //Changes of the screen, see: EditCollabActivity.java
+        public UpdateCollabData.EditSession onEditPass();
     }
 }
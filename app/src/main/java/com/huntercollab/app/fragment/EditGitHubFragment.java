@@ -1,5 +1,6 @@
 package com.huntercollab.app.fragment;
 
+import android.content.Context;
 import android.os.Bundle;
 import android.support.v4.app.Fragment;
 import android.view.Gravity;
@@ -23,7 +24,14 @@ public class EditGitHubFragment extends Fragment implements SetUserData.UpdateCo
     private EditText editGithub;
     private Button saveGithubButton;
     private EditGitHubFragment instance = null;
-    private SetUserData updateGithub;
+
+    EditNameFragment.OnPatchPass patchPasser;
+
+    @Override
+    public void onAttach(Context context) {
+        super.onAttach(context);
+        patchPasser = (EditNameFragment.OnPatchPass) context;
+    }
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
@@ -44,8 +52,8 @@ public class EditGitHubFragment extends Fragment implements SetUserData.UpdateCo
             @Override
             public void onClick(View v) {
                 String newGithub = editGithub.getText().toString();
-                updateGithub = new SetUserData(getContext(), instance);
-                updateGithub.setUserGithub(newGithub);
+                //Written into the screen's ProfilePatch, which sends it, see: EditProfileActivity.java
+                patchPasser.onPatchPass().setGithub(newGithub).commit();
                 saveGithubButton.setEnabled(false);
             }
         });
@@ -1,5 +1,6 @@
 package com.huntercollab.app.fragment;
 
+import android.content.Context;
 import android.os.Bundle;
 import android.support.v4.app.Fragment;
 import android.view.Gravity;
@@ -23,7 +24,14 @@ public class EditLinkedInFragment extends Fragment implements SetUserData.Update
     private EditText editLinkedIn;
     private Button saveLinkedInButton;
     private EditLinkedInFragment instance = null;
-    private SetUserData updateLinkedIn;
+
+    EditNameFragment.OnPatchPass patchPasser;
+
+    @Override
+    public void onAttach(Context context) {
+        super.onAttach(context);
+        patchPasser = (EditNameFragment.OnPatchPass) context;
+    }
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
@@ -44,8 +52,8 @@ public class EditLinkedInFragment extends Fragment implements SetUserData.Update
             @Override
             public void onClick(View v) {
                 String newLinkedIn = editLinkedIn.getText().toString();
-                updateLinkedIn = new SetUserData(getContext(), instance);
-                updateLinkedIn.setUserLinkedIn(newLinkedIn);
+                //Written into the screen's ProfilePatch, which sends it, see: EditProfileActivity.java
+                patchPasser.onPatchPass().setLinkedIn(newLinkedIn).commit();
                 saveLinkedInButton.setEnabled(false);
             }
         });
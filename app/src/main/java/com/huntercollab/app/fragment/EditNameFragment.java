@@ -1,5 +1,6 @@
 package com.huntercollab.app.fragment;
 
+import android.content.Context;
 import android.os.Bundle;
 import android.support.v4.app.Fragment;
 import android.view.Gravity;
@@ -23,7 +24,14 @@ public class EditNameFragment extends Fragment implements SetUserData.UpdateComp
     private EditText editName;
     private Button saveNameButton;
     private EditNameFragment instance = null;
-    private SetUserData updateName;
+
+    OnPatchPass patchPasser;
+
+    @Override
+    public void onAttach(Context context) {
+        super.onAttach(context);
+        patchPasser = (OnPatchPass) context;
+    }
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
@@ -44,8 +52,8 @@ public class EditNameFragment extends Fragment implements SetUserData.UpdateComp
             @Override
             public void onClick(View v) {
                 String newName = editName.getText().toString();
-                updateName = new SetUserData(getContext(), instance);
-                updateName.setUserNickname(newName);
+                //Written into the screen's ProfilePatch, which sends it, see: EditProfileActivity.java
+                patchPasser.onPatchPass().setName(newName).commit();
                 saveNameButton.setEnabled(false);
             }
         });
@@ -72,4 +80,9 @@ public class EditNameFragment extends Fragment implements SetUserData.UpdateComp
             saveNameButton.setEnabled(true);
         }
     }
+
+    public interface OnPatchPass{
+        //Changes of the screen, see: EditProfileActivity.java
+        public SetUserData.ProfilePatch onPatchPass();
+    }
 }
@@ -0,0 +1,84 @@
+package com.huntercollab.app.network.loopjtasks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+//@brief:
+//Decides whether a message pushed over the realtime connection (see: RealtimeHub.java) can be added to an open chat
+//The server numbers each chat's messages 1, 2, 3... ('seq'), the first page of '/messaging/getMessages' tells the last one
+//A pushed message that follows the last one is added, an older one is already shown, anything else means messages were missed
+//and the chat is downloaded again. Pushes that arrive during that download are held and checked once it is done
+//Without numbers from the server every push asks for a download, which is how the chat refreshed before
+//Main thread only
+public class ChatSequence {
+
+    public static final long UNKNOWN = -1;
+
+    //@brief: What to do with a pushed message, see: pushed()
+    public static final int ADD = 0;
+    public static final int SKIP = 1;
+    public static final int REFETCH = 2;
+
+    private static final Comparator<MessageModel> BY_SEQ = new Comparator<MessageModel>() {
+        @Override
+        public int compare(MessageModel a, MessageModel b) {
+            return a.getSeq() < b.getSeq() ? -1 : (a.getSeq() == b.getSeq() ? 0 : 1);
+        }
+    };
+
+    private long last = UNKNOWN;
+    private boolean fetching = false;
+    private final ArrayList<MessageModel> held = new ArrayList<>();
+
+    //@brief: The chat is being downloaded, pushes are held until pageLoaded() or fetchFailed()
+    public void fetchStarted() {
+        fetching = true;
+    }
+
+    //@brief: The first page arrived
+    //@params: [long latestSeq] number of its newest message, UNKNOWN if the server did not send numbers
+    //@return: ArrayList<MessageModel> pushes held during the download, oldest first, to be passed to pushed() again
+    public ArrayList<MessageModel> pageLoaded(long latestSeq) {
+        fetching = false;
+        last = latestSeq;
+        ArrayList<MessageModel> pending = new ArrayList<>(held);
+        held.clear();
+        Collections.sort(pending, BY_SEQ);
+        return pending;
+    }
+
+    //@brief: The download failed, the next push downloads again
+    public void fetchFailed() {
+        fetching = false;
+        last = UNKNOWN;
+        held.clear();
+    }
+
+    //@return: long number of the last message shown, UNKNOWN before the first page or without numbers from the server
+    public long getLast() {
+        return last;
+    }
+
+    //@brief: Checks a message pushed for this chat
+    //@params: [MessageModel message]
+    //@return: int ADD (show it), SKIP (already shown, or held during a download) or REFETCH (download the chat)
+    public int pushed(MessageModel message) {
+        if (fetching) {
+            held.add(message);
+            return SKIP;
+        }
+        long seq = message.getSeq();
+        if (last == UNKNOWN || seq == UNKNOWN) {
+            return REFETCH;
+        }
+        if (seq <= last) {
+            return SKIP;
+        }
+        if (seq != last + 1) {
+            return REFETCH;
+        }
+        last = seq;
+        return ADD;
+    }
+}
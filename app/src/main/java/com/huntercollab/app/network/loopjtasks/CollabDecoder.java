@@ -0,0 +1,213 @@
+package com.huntercollab.app.network.loopjtasks;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+
+//@brief:
+//Streaming decoder for the '/collab/*' responses
+//Reads the JSON array token by token straight into CollabModel(s), no JSONArray/JSONObject tree is built
+//See: GetCollabsData.java
+public class CollabDecoder {
+
+    //Bit for each field that must be present, a collab missing any of them is skipped like before
+    private static final int ID = 1;
+    private static final int OWNER = 1 << 1;
+    private static final int SIZE = 1 << 2;
+    private static final int DURATION = 1 << 3;
+    private static final int LOCATION = 1 << 4;
+    private static final int STATUS = 1 << 5;
+    private static final int TITLE = 1 << 6;
+    private static final int DESCRIPTION = 1 << 7;
+    private static final int DATE = 1 << 8;
+    private static final int CLASSES = 1 << 9;
+    private static final int SKILLS = 1 << 10;
+    private static final int APPLICANTS = 1 << 11;
+    private static final int MEMBERS = 1 << 12;
+    private static final int REQUIRED = (1 << 13) - 1;
+
+    //@brief: Decodes a JSON array of collaborations
+    //@params: [Reader in]
+    //@pre condition: 'in' positioned at the start of the response body
+    //@post condition: 'in' fully consumed
+    //@return: ArrayList<CollabModel> in response order
+    public static ArrayList<CollabModel> readCollabs(Reader in) throws IOException {
+        ArrayList<CollabModel> collabs = new ArrayList<>();
+        JsonReader reader = new JsonReader(in);
+        try {
+            reader.beginArray();
+            int index = 0;
+            while (reader.hasNext()) {
+                CollabModel collab = readCollab(reader, index++);
+                if (collab != null) {
+                    collabs.add(collab);
+                }
+            }
+            reader.endArray();
+        } finally {
+            reader.close();
+        }
+        return collabs;
+    }
+
+    //@brief: Decodes one collaboration object
+    //@params: [JsonReader reader] [int index]
+    //@return: CollabModel, or null if a required field is missing
+    private static CollabModel readCollab(JsonReader reader, int index) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        String id = null;
+        String owner = null;
+        int size = 0;
+        long duration = 0;
+        long date = 0;
+        String location = null;
+        Boolean status = null;
+        String title = null;
+        String description = null;
+        ArrayList<String> classes = null;
+        ArrayList<String> skills = null;
+        ArrayList<String> applicants = null;
+        ArrayList<String> members = null;
+        int seen = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL && !isStringField(name)) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "_id":
+                    id = readObjectId(reader);
+                    if (id != null) seen |= ID;
+                    break;
+                case "owner":
+                    owner = readString(reader);
+                    seen |= OWNER;
+                    break;
+                case "size":
+                    size = reader.nextInt();
+                    seen |= SIZE;
+                    break;
+                case "duration":
+                    duration = reader.nextLong();
+                    seen |= DURATION;
+                    break;
+                case "date":
+                    date = reader.nextLong();
+                    seen |= DATE;
+                    break;
+                case "location":
+                    location = readString(reader);
+                    seen |= LOCATION;
+                    break;
+                case "status":
+                    status = readBoolean(reader);
+                    seen |= STATUS;
+                    break;
+                case "title":
+                    title = readString(reader);
+                    seen |= TITLE;
+                    break;
+                case "description":
+                    description = readString(reader);
+                    seen |= DESCRIPTION;
+                    break;
+                case "classes":
+                    classes = readStringArray(reader);
+                    seen |= CLASSES;
+                    break;
+                case "skills":
+                    skills = readStringArray(reader);
+                    seen |= SKILLS;
+                    break;
+                case "applicants":
+                    applicants = readStringArray(reader);
+                    seen |= APPLICANTS;
+                    break;
+                case "members":
+                    members = readStringArray(reader);
+                    seen |= MEMBERS;
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (seen != REQUIRED) {
+            return null;
+        }
+        return new CollabModel(index, owner, size, duration, date,
+                location, status, title, description, classes, skills, applicants, members, id);
+    }
+
+    private static boolean isStringField(String name) {
+        return name.equals("owner") || name.equals("location") || name.equals("title") || name.equals("description");
+    }
+
+    //@brief: Reads {"$oid": "..."}
+    private static String readObjectId(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+        String oid = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("$oid")) {
+                oid = readString(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return oid;
+    }
+
+    //@brief: Reads any scalar as a String, the same way JSONObject.getString() converts it
+    private static String readString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return "null";
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return String.valueOf(reader.nextBoolean());
+        }
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private static Boolean readBoolean(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.STRING) {
+            return "true".equalsIgnoreCase(reader.nextString());
+        }
+        return reader.nextBoolean();
+    }
+
+    private static ArrayList<String> readStringArray(JsonReader reader) throws IOException {
+        ArrayList<String> values = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String value = readString(reader);
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        reader.endArray();
+        return values;
+    }
+}
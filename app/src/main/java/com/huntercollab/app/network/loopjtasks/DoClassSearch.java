@@ -42,13 +42,13 @@ public class DoClassSearch {
     //@post condition: Data set for autocomplete matches user input
     public void doClassSearch(String constraint){
 
-        AsyncHttpClient asyncHttpClient = GeneralTools.createAsyncHttpClient(context);
+        AsyncHttpClient asyncHttpClient = GeneralTools.getAsyncHttpClient(context);
 
         requestParams = new RequestParams();
         requestParams.put("query", constraint);
 
         asyncHttpClient.get
-                (GlobalConfig.BASE_API_URL + "/search/classes",
+                (context, GlobalConfig.BASE_API_URL + "/search/classes",
                         requestParams, new JsonHttpResponseHandler(){
 
                             @Override
@@ -4,17 +4,17 @@ import android.content.Context;
 import android.util.Log;
 
 import com.huntercollab.app.config.GlobalConfig;
+import com.huntercollab.app.network.loopjtasks.http.AuthSession;
+import com.huntercollab.app.network.loopjtasks.http.ConnectionWarmer;
 import com.huntercollab.app.utils.GeneralTools;
 import com.loopj.android.http.AsyncHttpClient;
 import com.loopj.android.http.JsonHttpResponseHandler;
-import com.loopj.android.http.PersistentCookieStore;
 import com.loopj.android.http.RequestParams;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import cz.msebera.android.httpclient.Header;
-import cz.msebera.android.httpclient.impl.cookie.BasicClientCookie;
 
 public class DoLogin {
 
@@ -41,8 +41,8 @@ public class DoLogin {
     //@params: [String username] [String password]
     //@pre condition: No request sent to the server to login
     //@post condition: Request sent to server to login, receive response for interface
-    public void doLogin(String username, String password){
-        AsyncHttpClient asyncHttpClient = GeneralTools.createAsyncHttpClient(context);
+    public void doLogin(final String username, String password){
+        AsyncHttpClient asyncHttpClient = GeneralTools.getAsyncHttpClient(context);
         RequestParams requestParams = new RequestParams();
         requestParams.put("username", username);
         requestParams.put("password", password);
@@ -56,14 +56,10 @@ public class DoLogin {
                 try {
                     if (response.has("success") && response.getBoolean("success") == true) { //Success variable is true.
                         String token = response.getString("token"); //Extract the token
-                        // Retrieve cookie store for this application context.
-                        PersistentCookieStore myCookieStore = new PersistentCookieStore(context.getApplicationContext());
-                        myCookieStore.clear();
-                        // Create & save cookie into the cookie store.
-                        BasicClientCookie newCookie = new BasicClientCookie("capstoneAuth", token);
-                        newCookie.setDomain(GlobalConfig.HOST);
-                        newCookie.setPath("/");
-                        myCookieStore.addCookie(newCookie);
+                        // Save the token in the cookie store and in memory.
+                        AuthSession.setToken(context, username, token);
+                        // Start loading the home screen data while the next activity is created
+                        ConnectionWarmer.afterLogin(context);
 
                         Log.i ("token", "Token successfully retrieved and saved to cookie store: " + token);
                         loginCompleteListener.loginCompleted(true, token);
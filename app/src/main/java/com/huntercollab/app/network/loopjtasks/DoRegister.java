@@ -4,16 +4,15 @@ import android.content.Context;
 import android.util.Log;
 
 import com.huntercollab.app.config.GlobalConfig;
+import com.huntercollab.app.network.loopjtasks.http.AuthSession;
 import com.huntercollab.app.utils.GeneralTools;
 import com.loopj.android.http.AsyncHttpClient;
 import com.loopj.android.http.JsonHttpResponseHandler;
-import com.loopj.android.http.PersistentCookieStore;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import cz.msebera.android.httpclient.Header;
-import cz.msebera.android.httpclient.impl.cookie.BasicClientCookie;
 
 public class DoRegister {
 
@@ -40,10 +39,10 @@ public class DoRegister {
     //@params: [String email] [String password]
     //@pre condition: No request sent to the server to register
     //@post condition: Request sent to server to register, receive response for interface
-    public void doRegister(String email, String password) {
+    public void doRegister(final String email, String password) {
         // Second Step: Use AsyncHttpClient to execute HTTP requests
         // This creates the client
-        AsyncHttpClient asyncHttpClient = GeneralTools.createAsyncHttpClient(context);
+        AsyncHttpClient asyncHttpClient = GeneralTools.getAsyncHttpClient(context);
 
         //https://huntercollabapi.herokuapp.com/user?username=testuser69@myhunter.cuny.edu&password=password
         asyncHttpClient.put(GlobalConfig.BASE_API_URL + "/user?username=" + email + "&password=" + password, new JsonHttpResponseHandler() {
@@ -53,13 +52,8 @@ public class DoRegister {
                     if (response.has("success") && response.getBoolean("success") == true) { //Success variable is true.
                         // extract the token
                         String token = response.getString("token"); //Extract the token
-                        // Retrieve cookie store for this application context.
-                        PersistentCookieStore myCookieStore = new PersistentCookieStore(context.getApplicationContext());
-                        // Create & save cookie into the cookie store.
-                        BasicClientCookie newCookie = new BasicClientCookie("capstoneAuth", token);
-                        newCookie.setDomain("13.58.204.157");
-                        newCookie.setPath("/");
-                        myCookieStore.addCookie(newCookie);
+                        // Save the token in the cookie store and in memory.
+                        AuthSession.setToken(context, email, token);
                         Log.i ( "token", "Token successfully retrieved and saved to cookie store: " + token);
                         registerCompleteListener.registerCompleted(true, token);
                     } else {
@@ -41,13 +41,13 @@ public class DoSkillSearch {
     //@post condition: Data set for autocomplete matches user input
     public void doSkillSearch(String constraint){
 
-        AsyncHttpClient asyncHttpClient = GeneralTools.createAsyncHttpClient(context);
+        AsyncHttpClient asyncHttpClient = GeneralTools.getAsyncHttpClient(context);
 
         final RequestParams requestParams = new RequestParams();
         requestParams.put("query", constraint);
 
         asyncHttpClient.get
-                (GlobalConfig.BASE_API_URL + "/search/skills",
+                (context, GlobalConfig.BASE_API_URL + "/search/skills",
                         requestParams, new JsonHttpResponseHandler(){
             @Override
             public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
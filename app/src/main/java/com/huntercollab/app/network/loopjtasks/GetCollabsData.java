@@ -4,6 +4,9 @@ import android.content.Context;
 import android.util.Log;
 
 import com.huntercollab.app.config.GlobalConfig;
+import com.huntercollab.app.network.loopjtasks.http.ApiClient;
+import com.huntercollab.app.network.loopjtasks.http.ListDelta;
+import com.huntercollab.app.network.loopjtasks.http.Outbox;
 import com.huntercollab.app.utils.GeneralTools;
 import com.loopj.android.http.AsyncHttpClient;
 import com.loopj.android.http.JsonHttpResponseHandler;
@@ -12,6 +15,8 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 
@@ -44,33 +49,17 @@ public class GetCollabsData {
     //@brief:
     //Used for the spinner in CollabListActivity.java
     //Takes in a 'collabType' parameter and sends the request to the server
-    //AsyncHttpClient asyncHttpClient
-    //ASYNC HTTP GET request, receives a JSON from the server
+    //ApiClient.get
+    //ASYNC HTTP GET request, receives a JSON from the server (or the cache if unchanged)
     //Returns Boolean 'true' or false' to the interface
     //See: CollabListActivity.java
-    //If request is successful, build the dataset with public void setCollabDetails(JSONArray collabData)
+    //If request is successful, build the dataset with setCollabDetails(ArrayList<CollabModel> decoded)
     //@params: [String collabType]
     //@pre condition: No collaborations retrieved from database
     //@post condition: Collaborations retrieved from database based on parameter
     public void getCollabs(String collabType){
 
-        AsyncHttpClient asyncHttpClient = GeneralTools.createAsyncHttpClient(context);
-
-        asyncHttpClient.get(GlobalConfig.BASE_API_URL + "/collab/" + collabType, new JsonHttpResponseHandler(){
-            @Override
-            public void onSuccess(int statusCode, Header[] headers, JSONArray response) {
-                super.onSuccess(statusCode, headers, response);
-                Log.i("response" , String.valueOf(response));
-                setCollabDetails(response);
-                listener.getAllCollabs(true);
-            }
-
-            @Override
-            public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                super.onFailure(statusCode, headers, responseString, throwable);
-                listener.getAllCollabs(false);
-            }
-        });
+        ApiClient.get(context, GlobalConfig.BASE_API_URL + "/collab/" + collabType, null, COLLABS_DECODER, collabsListener());
 
     }
 
@@ -79,18 +68,16 @@ public class GetCollabsData {
     //Used for the spinner in CollabListActivity.java for recommended collaborations
     //Takes in the user's 'skills' and 'classes' as arguments and sends request to the server
     //'skills' and 'classes' sent as JSONArrays inside a JSONObject
-    //AsyncHttpClient asyncHttpClient
+    //ApiClient.post
     //ASYNC HTTP POST request, sends the JSONObject to the server
     //Returns Boolean 'true' or 'false' to the interface
     //See: CollabListActivity.java
-    //If request is successful, build the dataset with public void setCollabDetails(JSONArray collabData)
+    //If request is successful, build the dataset with setCollabDetails(ArrayList<CollabModel> decoded)
     //@params: [ArrayList<String> skills] [ArrayList<String> classes]
     //@pre condition: No collaborations retrieved from database
     //@post condition: Recommended collaborations retrieved from database
     public void getCollabs(ArrayList<String> skills, ArrayList<String> classes){
 
-        AsyncHttpClient asyncHttpClient = GeneralTools.createAsyncHttpClient(context);
-
         String restApiUrl = GlobalConfig.BASE_API_URL + "/collab/getRecommendedCollabs";
 
         JSONObject jsonParams = new JSONObject();
@@ -106,104 +93,64 @@ public class GetCollabsData {
                 jsonParams.put("classes", classArray);
             }
 
-            StringEntity entity = new StringEntity(jsonParams.toString());
-            entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, "application/json"));
+            ApiClient.post(context, restApiUrl, jsonParams, COLLABS_DECODER, collabsListener());
 
-            asyncHttpClient.post(context, restApiUrl, entity,"application/json", new JsonHttpResponseHandler(){
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+
+    }
+
+    //@brief: Decodes a '/collab/*' response as a stream directly into CollabModel(s), runs off the main thread
+    //See: CollabDecoder.java
+    private static final ApiClient.Decoder<ArrayList<CollabModel>> COLLABS_DECODER = new ApiClient.Decoder<ArrayList<CollabModel>>() {
+        @Override
+        public ArrayList<CollabModel> decode(String body) throws IOException {
+            return CollabDecoder.readCollabs(new StringReader(body));
+        }
+    };
+
+    //@brief: Passes the decoded collaborations to the interface, body could not be decoded or request failed returns 'false'
+    private ApiClient.DecodedListener<ArrayList<CollabModel>> collabsListener(){
+        return new ApiClient.DecodedListener<ArrayList<CollabModel>>() {
             @Override
-            public void onSuccess(int statusCode, Header[] headers, JSONArray response) {
-                super.onSuccess(statusCode, headers, response);
-                Log.i("response" , String.valueOf(response));
-                setCollabDetails(response);
+            public void onDecoded(int statusCode, ArrayList<CollabModel> result) {
+                setCollabDetails(result);
                 listener.getAllCollabs(true);
             }
 
             @Override
-            public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                super.onFailure(statusCode, headers, responseString, throwable);
+            public void onFailure(int statusCode, String body, Throwable throwable) {
                 listener.getAllCollabs(false);
             }
-        });
-
-        } catch (JSONException | UnsupportedEncodingException e) {
-            e.printStackTrace();
-        }
-
+        };
     }
 
     //@author: Hugh Leow & Edwin Quintuna
-    //@brief: Takes the data returned from getCollabs() and builds the dataset with an array of CollabModel(s)
-    //@params: [JSONArray collabData]
+    //@brief:
+    //Takes the collaborations decoded from the getCollabs() response and builds the dataset
+    //@params: [ArrayList<CollabModel> decoded]
     //@pre condition: Collaboration data not created
     //@post condition: Collaboration created in a data set
-    public void setCollabDetails(JSONArray collabData){
-
-        for(int i = 0; i < collabData.length(); i++){
-            try {
-                JSONObject tmp = collabData.getJSONObject(i);
-
-                JSONObject collabId = (JSONObject) tmp.getJSONObject("_id");
-                String id = collabId.getString("$oid");
-
-                String owner = tmp.getString("owner");
-                int size = tmp.getInt("size");
-
-                long duration = tmp.getLong("duration");
-                String location = tmp.getString("location");
-                Boolean status = tmp.getBoolean("status");
-                String title = tmp.getString("title");
-                String description = tmp.getString("description");
-
-                long dateStr = tmp.getLong("date");
-
-                JSONArray classes = tmp.getJSONArray("classes");
-                ArrayList<String> classArray = new ArrayList<String>();
-                if (classes != null){
-                    int len = classes.length();
-                    for (int j = 0; j < len; j++){
-                        classArray.add(classes.get(j).toString());
-                    }
-                }
-
-                JSONArray skills = tmp.getJSONArray("skills");
-                ArrayList<String> skillArray = new ArrayList<String>();
-                if (skills != null){
-                    int len = skills.length();
-                    for (int j = 0; j < len; j++){
-                        skillArray.add(skills.get(j).toString());
-                    }
-                }
-
-                JSONArray applicants = tmp.getJSONArray("applicants");
-                ArrayList<String> applicantArray = new ArrayList<String>();
-                if (applicants != null){
-                    int len = applicants.length();
-                    for (int j = 0; j < len; j++){
-                        applicantArray.add(applicants.get(j).toString());
-                    }
-                }
-
-                JSONArray members = tmp.getJSONArray("members");
-                ArrayList<String> memberArray = new ArrayList<String>();
-                if (members != null){
-                    int len = members.length();
-                    for (int j = 0; j < len; j++){
-                        memberArray.add(members.get(j).toString());
-                    }
-                }
-
-                CollabModel tmpCollab =
-                        new CollabModel( i, owner, size, duration, dateStr,
-                                location, status, title, description, classArray, skillArray, applicantArray, memberArray, id);
-
-                collabs.add(tmpCollab);
-
-            } catch (JSONException e) {
-                e.printStackTrace();
-            }
+    private void setCollabDetails(ArrayList<CollabModel> decoded){
+        collabs.addAll(decoded);
+        rememberLists(decoded);
+    }
 
+    //@brief:
+    //Records each collab's skills and classes as the server state that collab list edits are diffed against
+    //Skipped while edits are still queued, the response may be older than them
+    //See: ListDelta.java, UpdateCollabData.java
+    //@params: [ArrayList<CollabModel> decoded]
+    private void rememberLists(ArrayList<CollabModel> decoded){
+        if (Outbox.getInstance(context).size() > 0) {
+            return;
+        }
+        String restApiUrl = GlobalConfig.BASE_API_URL + "/collab/editCollab";
+        for (CollabModel collab : decoded) {
+            ListDelta.remember(restApiUrl, collab.getCollabId(), "skills", collab.getSkills());
+            ListDelta.remember(restApiUrl, collab.getCollabId(), "classes", collab.getClasses());
         }
-
     }
 
     //@author: Hugh Leow
@@ -227,7 +174,7 @@ public class GetCollabsData {
     //@post condition: Request to add collaboration, receive response for interface
     public void addCollab(String title, String location, String description, Integer size, ArrayList<String> skills, ArrayList<String> classes, long time, long duration){
 
-        AsyncHttpClient client = GeneralTools.createAsyncHttpClient(context);
+        AsyncHttpClient client = GeneralTools.getAsyncHttpClient(context);
 
         String restApiUrl = GlobalConfig.BASE_API_URL + "/collab/createCollab";
 
@@ -277,7 +224,7 @@ public class GetCollabsData {
     }
 
     //@author: Hugh Leow & Edwin Quintuna
-    //@brief: Returns 'collabs' dataset created from setCollabDetails(JSONArray collabData)
+    //@brief: Returns 'collabs' dataset created from setCollabDetails(ArrayList<CollabModel> decoded)
     //@return: An ArrayList<CollabModel> of all the collaborations retrieved
     public ArrayList<CollabModel> returnCollabs(){
         return collabs;
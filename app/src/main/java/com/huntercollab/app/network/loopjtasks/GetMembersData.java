@@ -0,0 +1,196 @@
+package com.huntercollab.app.network.loopjtasks;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.huntercollab.app.config.GlobalConfig;
+import com.huntercollab.app.network.loopjtasks.http.ApiClient;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public class GetMembersData {
+
+    //Set once the server says it has no '/user/batch' (see: batchMissing()), after that only the fallback is used
+    private static volatile boolean batchUnsupported = false;
+
+    private Context context;
+    private MembersDownloadComplete listener;
+
+    //Results of the current lookup, indexed like the 'usernames' passed in
+    private ArrayList<String> usernames;
+    private String[] nicknames;
+    private int nextToSend;
+    private int pending;
+
+    //@brief: Constructor with a listener to pass the resolved members to the activity/fragment
+    //@params: [Context context] [MembersDownloadComplete listener]
+    public GetMembersData(Context context, MembersDownloadComplete listener){
+        this.context = context;
+        this.listener = listener;
+    }
+
+    //@brief:
+    //Used to display the 'preferred names' of all members of a collaboration, CollabDetailFragment.java
+    //Takes the list of member e-mails and resolves all of them in one request to '/user/batch'
+    //ASYNC HTTP POST request, sends the e-mails as a JSON
+    //If the server does not support the batch route, falls back to one GET per member with at most
+    //GlobalConfig.MEMBER_LOOKUP_CONCURRENCY requests in flight
+    //Returns the members in the same order as 'usernames' to the interface
+    //@params: [ArrayList<String> usernames]
+    //@pre condition: Member names not retrieved
+    //@post condition: Request(s) sent, resolved names passed to the interface
+    public void getMembersData(ArrayList<String> usernames){
+        this.usernames = new ArrayList<>(usernames);
+        this.nicknames = new String[usernames.size()];
+
+        if (usernames.isEmpty()) {
+            finish();
+            return;
+        }
+        if (batchUnsupported) {
+            getMembersIndividually();
+            return;
+        }
+
+        String restApiUrl = GlobalConfig.BASE_API_URL + "/user/batch";
+
+        JSONObject jsonParams = new JSONObject();
+        try {
+            JSONArray array = new JSONArray();
+            for (String username : usernames) {
+                array.put(username);
+            }
+            jsonParams.put("usernames", array);
+        } catch (JSONException e) {
+            e.printStackTrace();
+            getMembersIndividually();
+            return;
+        }
+
+        //Goes through ApiClient.java like the fallback: retries, circuit breaker and decoding off the main thread
+        ApiClient.post(context, restApiUrl, jsonParams, new ApiClient.Decoder<HashMap<String, String>>() {
+            @Override
+            public HashMap<String, String> decode(String body) throws JSONException {
+                return parseMembers(new JSONArray(body));
+            }
+        }, new ApiClient.DecodedListener<HashMap<String, String>>() {
+            @Override
+            public void onDecoded(int statusCode, HashMap<String, String> names) {
+                setMemberDetails(names);
+                finish();
+            }
+
+            @Override
+            public void onFailure(int statusCode, String body, Throwable throwable) {
+                Log.i("response", String.valueOf(body));
+                if (batchMissing(statusCode)) {
+                    batchUnsupported = true;
+                }
+                //Not a list of members (older server) or no answer, ask for each member instead
+                getMembersIndividually();
+            }
+        });
+    }
+
+    //@brief: 404 for a server without the route, 405 when POST lands on the '/user/<email>' route, 501 for a method not implemented
+    //@params: [int statusCode]
+    //@return: Boolean 'true' if '/user/batch' does not exist on this server and the fallback should be used from now on
+    static boolean batchMissing(int statusCode) {
+        return statusCode == 404 || statusCode == 405 || statusCode == 501;
+    }
+
+    //@brief: Reads the '/user/batch' response, called on the decode thread
+    //@params: [JSONArray response]
+    //@return: HashMap of e-mail -> 'preferred name'
+    private static HashMap<String, String> parseMembers(JSONArray response){
+        HashMap<String, String> names = new HashMap<>();
+        for (int i = 0; i < response.length(); i++) {
+            try {
+                JSONObject user = response.getJSONObject(i);
+                names.put(user.getString("username"), user.getString("name"));
+            } catch (JSONException e) {
+                e.printStackTrace();
+            }
+        }
+        return names;
+    }
+
+    //@brief: Stores each member's 'preferred name' at its original position
+    //@params: [HashMap<String, String> names]
+    private void setMemberDetails(HashMap<String, String> names){
+        for (int i = 0; i < usernames.size(); i++) {
+            nicknames[i] = names.get(usernames.get(i));
+        }
+    }
+
+    //@brief: Fallback, one GET per member with a cap on how many are in flight at once
+    private void getMembersIndividually(){
+        nextToSend = 0;
+        pending = usernames.size();
+        int start = Math.min(GlobalConfig.MEMBER_LOOKUP_CONCURRENCY, usernames.size());
+        for (int i = 0; i < start; i++) {
+            sendNext();
+        }
+    }
+
+    //@brief: Sends the GET for the next member that has not been requested yet
+    private void sendNext(){
+        if (nextToSend >= usernames.size()) {
+            return;
+        }
+        final int index = nextToSend++;
+        ApiClient.get(context, GlobalConfig.BASE_API_URL + "/user/" + usernames.get(index), null, new ApiClient.ResponseListener() {
+            @Override
+            public void onSuccess(int statusCode, String body) {
+                try {
+                    nicknames[index] = new JSONObject(body).getString("name");
+                } catch (JSONException e) {
+                    e.printStackTrace();
+                }
+                memberDone();
+            }
+
+            @Override
+            public void onFailure(int statusCode, String body, Throwable throwable) {
+                memberDone();
+            }
+        });
+    }
+
+    private void memberDone(){
+        pending--;
+        if (pending == 0) {
+            finish();
+        } else {
+            sendNext();
+        }
+    }
+
+    //@brief:
+    //Passes resolved members to the interface in the original order, members that could not be resolved are left out
+    //'success' is false when members were asked for and none could be resolved
+    private void finish(){
+        ArrayList<String> resolvedUsernames = new ArrayList<>();
+        ArrayList<String> resolvedNicknames = new ArrayList<>();
+        for (int i = 0; i < usernames.size(); i++) {
+            if (nicknames[i] != null) {
+                resolvedUsernames.add(usernames.get(i));
+                resolvedNicknames.add(nicknames[i]);
+            }
+        }
+        boolean success = usernames.isEmpty() || !resolvedUsernames.isEmpty();
+        listener.membersDownloadComplete(success, resolvedUsernames, resolvedNicknames);
+    }
+
+    //@brief: Interface function to pass the members' e-mails and 'preferred names' to CollabDetailFragment.java
+    //@pre condition: No request sent and/or response not received
+    //@post condition: Response received and values passed
+    public interface MembersDownloadComplete {
+        public void membersDownloadComplete(Boolean success, ArrayList<String> usernames, ArrayList<String> nicknames);
+    }
+}
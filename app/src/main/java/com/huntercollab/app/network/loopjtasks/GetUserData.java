@@ -3,10 +3,10 @@ package com.huntercollab.app.network.loopjtasks;
 import android.content.Context;
 
 import com.huntercollab.app.config.GlobalConfig;
-import com.huntercollab.app.utils.GeneralTools;
+import com.huntercollab.app.network.loopjtasks.http.ApiClient;
+import com.huntercollab.app.network.loopjtasks.http.ListDelta;
+import com.huntercollab.app.network.loopjtasks.http.Outbox;
 import com.huntercollab.app.utils.Interfaces;
-import com.loopj.android.http.AsyncHttpClient;
-import com.loopj.android.http.JsonHttpResponseHandler;
 import com.loopj.android.http.RequestParams;
 
 import org.json.JSONArray;
@@ -15,8 +15,6 @@ import org.json.JSONObject;
 
 import java.util.ArrayList;
 
-import cz.msebera.android.httpclient.Header;
-
 public class GetUserData {
 
     private RequestParams requestParams;
@@ -60,8 +58,8 @@ public class GetUserData {
     //@author: Hugh Leow & Edwin Quintuna
     //@brief:
     //Used for the logged in user's profile, ProfileActivity.java
-    //AsyncHttpClient asyncHttpClient
-    //ASYNC HTTP GET request, receives a JSON from the server
+    //ApiClient.get
+    //ASYNC HTTP GET request, receives a JSON from the server (or the cache if unchanged), decoded off the main thread
     //Returns Boolean 'true' or 'false' to the interface
     //See: ProfileActivity.java
     //If request is successful, return Boolean 'true' to the interface function and set user data to appropriate variables
@@ -70,25 +68,16 @@ public class GetUserData {
     //@pre condition: Request not sent to retrieve user data
     //@post condition: Request sent and response received for interface
     public void getUserData(){
-        AsyncHttpClient asyncHttpClient = GeneralTools.createAsyncHttpClient(context);
-
-        asyncHttpClient.get(GlobalConfig.BASE_API_URL + "/user/", requestParams, new JsonHttpResponseHandler(){
+        ApiClient.get(context, GlobalConfig.BASE_API_URL + "/user/", requestParams, PROFILE_DECODER, new ApiClient.DecodedListener<Profile>(){
             @Override
-            public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                super.onSuccess(statusCode, headers, response);
-                setUserSkills(response);
-                setUserClasses(response);
-                setUserName(response);
-                setUserLinkedIn(response);
-                setUserGithub(response);
-                setUserNickname(response);
-                setUserProfilePic(response);
+            public void onDecoded(int statusCode, Profile profile) {
+                setProfile(profile);
+                rememberLists(profile);
                 dataDownloadComplete.downloadComplete(true);
             }
 
             @Override
-            public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                super.onFailure(statusCode, headers, responseString, throwable);
+            public void onFailure(int statusCode, String body, Throwable throwable) {
                 dataDownloadComplete.downloadComplete(false);
             }
         });
@@ -98,8 +87,8 @@ public class GetUserData {
     //@brief:
     //Used to view other member profiles, OtherProfileActivity.java
     //Takes in a 'userEmail' parameter to determine what user info we want to retrieve from the server
-    //AsyncHttpClient asyncHttpClient
-    //ASYNC HTTP GET request, receives a JSON from the server
+    //ApiClient.get
+    //ASYNC HTTP GET request, receives a JSON from the server (or the cache if unchanged), decoded off the main thread
     //Returns Boolean 'true' or 'false' to the interface
     //See: OtherProfileActivity.java
     //If request is successful, return Boolean 'true' to the interface function and set user data to appropriate variables
@@ -109,25 +98,15 @@ public class GetUserData {
     //@pre condition: Request not sent to retrieve user data
     //@post condition: Request sent and response received for interface
     public void getOtherUserData(String userEmail){
-        AsyncHttpClient asyncHttpClient = GeneralTools.createAsyncHttpClient(context);
-
-        asyncHttpClient.get(GlobalConfig.BASE_API_URL + "/user/" + userEmail, requestParams, new JsonHttpResponseHandler(){
+        ApiClient.get(context, GlobalConfig.BASE_API_URL + "/user/" + userEmail, requestParams, PROFILE_DECODER, new ApiClient.DecodedListener<Profile>(){
             @Override
-            public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                super.onSuccess(statusCode, headers, response);
-                setUserSkills(response);
-                setUserClasses(response);
-                setUserName(response);
-                setUserLinkedIn(response);
-                setUserGithub(response);
-                setUserNickname(response);
-                setUserProfilePic(response);
+            public void onDecoded(int statusCode, Profile profile) {
+                setProfile(profile);
                 downloadProfleComplete.downloadProfileComplete(true);
             }
 
             @Override
-            public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                super.onFailure(statusCode, headers, responseString, throwable);
+            public void onFailure(int statusCode, String body, Throwable throwable) {
                 downloadProfleComplete.downloadProfileComplete(false);
             }
         });
@@ -137,8 +116,8 @@ public class GetUserData {
     //@brief:
     //Used to retrieve collaboration owner information in CollabDetailFragment.java
     //Takes in a 'userEmail' parameter to determine what user info we want to retrieve from the server
-    //AsyncHttpClient asyncHttpClient
-    //ASYNC HTTP GET request, receives a JSON from the server
+    //ApiClient.get
+    //ASYNC HTTP GET request, receives a JSON from the server (or the cache if unchanged), decoded off the main thread
     //Returns Boolean 'true' or 'false' to the interface
     //See: CollabDetailFragment.java
     //If request is successful, return Boolean 'true' to the interface function and set user data to appropriate variables
@@ -148,38 +127,84 @@ public class GetUserData {
     //@pre condition: Request not sent to retrieve user data
     //@post condition: Request sent and response received for interface
     public void getOwnerUserData(String userEmail){
-        AsyncHttpClient asyncHttpClient = GeneralTools.createAsyncHttpClient(context);
-
-        asyncHttpClient.get(GlobalConfig.BASE_API_URL + "/user/" + userEmail, requestParams, new JsonHttpResponseHandler(){
+        ApiClient.get(context, GlobalConfig.BASE_API_URL + "/user/" + userEmail, requestParams, PROFILE_DECODER, new ApiClient.DecodedListener<Profile>(){
             @Override
-            public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                super.onSuccess(statusCode, headers, response);
-                setUserSkills(response);
-                setUserClasses(response);
-                setUserName(response);
-                setUserLinkedIn(response);
-                setUserGithub(response);
-                setUserNickname(response);
-                setUserProfilePic(response);
+            public void onDecoded(int statusCode, Profile profile) {
+                setProfile(profile);
                 ownerDownloadComplete.ownerDownloadComplete(true);
             }
 
             @Override
-            public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                super.onFailure(statusCode, headers, responseString, throwable);
+            public void onFailure(int statusCode, String body, Throwable throwable) {
                 ownerDownloadComplete.ownerDownloadComplete(false);
             }
         });
     }
 
+    //@brief: Values decoded from one '/user/' response, built on the decode thread and handed to the main thread
+    private static class Profile {
+        final ArrayList<String> skills = new ArrayList<>();
+        final ArrayList<String> classes = new ArrayList<>();
+        String username;
+        String github;
+        String linkedIn;
+        String userNickname;
+        String userProfileLink;
+    }
+
+    //@brief: Parses the response body into a Profile, runs off the main thread
+    private static final ApiClient.Decoder<Profile> PROFILE_DECODER = new ApiClient.Decoder<Profile>() {
+        @Override
+        public Profile decode(String body) throws JSONException {
+            JSONObject response = new JSONObject(body);
+            Profile profile = new Profile();
+            setUserSkills(response, profile);
+            setUserClasses(response, profile);
+            setUserName(response, profile);
+            setUserLinkedIn(response, profile);
+            setUserGithub(response, profile);
+            setUserNickname(response, profile);
+            setUserProfilePic(response, profile);
+            return profile;
+        }
+    };
+
+    //@brief: Copies a decoded profile into the fields read by the activity/fragment
+    //Only a few assignments, so it is cheap on the main thread. Fields missing from the response keep their old value
+    //@params: [Profile profile]
+    //@pre condition: 'profile' fully decoded
+    //@post condition: variables updated from 'profile'
+    private void setProfile(Profile profile){
+        skillStringList.addAll(profile.skills);
+        classStringList.addAll(profile.classes);
+        if (profile.username != null) username = profile.username;
+        if (profile.github != null) github = profile.github;
+        if (profile.linkedIn != null) linkedIn = profile.linkedIn;
+        if (profile.userNickname != null) userNickname = profile.userNickname;
+        if (profile.userProfileLink != null) userProfileLink = profile.userProfileLink;
+    }
+
+    //@brief:
+    //Records the logged in user's skills and classes as the server state that list edits are diffed against
+    //Skipped while edits are still queued, the response may be older than them
+    //See: ListDelta.java
+    //@params: [Profile profile]
+    private void rememberLists(Profile profile){
+        if (Outbox.getInstance(context).size() > 0) {
+            return;
+        }
+        ListDelta.remember(GlobalConfig.BASE_API_URL + "/user/skills", "", "skills", profile.skills);
+        ListDelta.remember(GlobalConfig.BASE_API_URL + "/user/classes", "", "classes", profile.classes);
+    }
+
     //@author: Hugh Leow
     //@brief: Sets the user profile pic URL
-    //@params: [JSONObject response]
+    //@params: [JSONObject response] [Profile profile]
     //@pre condition: variable empty or not updated
-    //@post condition: variable updated from 'response'
-    private void setUserProfilePic(JSONObject response){
+    //@post condition: variable in 'profile' updated from 'response'
+    private static void setUserProfilePic(JSONObject response, Profile profile){
         try {
-            userProfileLink = response.getString("profilePicture");
+            profile.userProfileLink = response.getString("profilePicture");
         } catch (JSONException e) {
             e.printStackTrace();
         }
@@ -187,12 +212,12 @@ public class GetUserData {
 
     //@author: Hugh Leow & Edwin Quintuna
     //@brief: Sets the user email/username
-    //@params: [JSONObject response]
+    //@params: [JSONObject response] [Profile profile]
     //@pre condition: variable empty or not updated
-    //@post condition: variable updated from 'response'
-    private void setUserName(JSONObject response){
+    //@post condition: variable in 'profile' updated from 'response'
+    private static void setUserName(JSONObject response, Profile profile){
         try {
-            username = response.getString("username");
+            profile.username = response.getString("username");
         } catch (JSONException e) {
             e.printStackTrace();
         }
@@ -200,12 +225,12 @@ public class GetUserData {
 
     //@author: Hugh Leow
     //@brief: Sets the user's 'preferred name'
-    //@params: [JSONObject response]
+    //@params: [JSONObject response] [Profile profile]
     //@pre condition: variable empty or not updated
-    //@post condition: variable updated from 'response'
-    private void setUserNickname(JSONObject response){
+    //@post condition: variable in 'profile' updated from 'response'
+    private static void setUserNickname(JSONObject response, Profile profile){
         try {
-            userNickname = response.getString("name");
+            profile.userNickname = response.getString("name");
         } catch (JSONException e) {
             e.printStackTrace();
         }
@@ -213,12 +238,12 @@ public class GetUserData {
 
     //@author: Hugh Leow
     //@brief: Sets the user Github link
-    //@params: [JSONObject response]
+    //@params: [JSONObject response] [Profile profile]
     //@pre condition: variable empty or not updated
-    //@post condition: variable updated from 'response'
-    private void setUserGithub(JSONObject response){
+    //@post condition: variable in 'profile' updated from 'response'
+    private static void setUserGithub(JSONObject response, Profile profile){
         try {
-            github = response.getString("github");
+            profile.github = response.getString("github");
         } catch (JSONException e) {
             e.printStackTrace();
         }
@@ -227,12 +252,12 @@ public class GetUserData {
 
     //@author: Hugh Leow
     //@brief: Sets the user LinkedIn link
-    //@params: [JSONObject response]
+    //@params: [JSONObject response] [Profile profile]
     //@pre condition: variable empty or not updated
-    //@post condition: variable updated from 'response'
-    private void setUserLinkedIn(JSONObject response){
+    //@post condition: variable in 'profile' updated from 'response'
+    private static void setUserLinkedIn(JSONObject response, Profile profile){
         try {
-            linkedIn = response.getString("linkedin");
+            profile.linkedIn = response.getString("linkedin");
         } catch (JSONException e) {
             e.printStackTrace();
         }
@@ -241,17 +266,17 @@ public class GetUserData {
 
     //@author: Edwin Quintuna
     //@brief: Sets the user's skills
-    //@params: [JSONObject response]
+    //@params: [JSONObject response] [Profile profile]
     //@pre condition: variable empty or not updated
-    //@post condition: variable updated from 'response'
-    private void setUserSkills(JSONObject response){
+    //@post condition: variable in 'profile' updated from 'response'
+    private static void setUserSkills(JSONObject response, Profile profile){
         try {
             JSONArray terms = null;
             terms = response.getJSONArray("skills");
 
             for(int i=0; i < terms.length(); i++){
                 String term = terms.getString(i);
-                skillStringList.add(term);
+                profile.skills.add(term);
             }
         } catch (JSONException e) {
             e.printStackTrace();
@@ -260,17 +285,17 @@ public class GetUserData {
 
     //@author: Edwin Quintuna
     //@brief: Sets the user's classes
-    //@params: [JSONObject response]
+    //@params: [JSONObject response] [Profile profile]
     //@pre condition: variable empty or not updated
-    //@post condition: variable updated from 'response'
-    private void setUserClasses(JSONObject response){
+    //@post condition: variable in 'profile' updated from 'response'
+    private static void setUserClasses(JSONObject response, Profile profile){
         try {
             JSONArray terms = null;
             terms = response.getJSONArray("classes");
 
             for(int i=0; i < terms.length(); i++){
                 String term = terms.getString(i);
-                classStringList.add(term);
+                profile.classes.add(term);
             }
         } catch (JSONException e) {
             e.printStackTrace();
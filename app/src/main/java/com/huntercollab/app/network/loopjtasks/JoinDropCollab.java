@@ -4,20 +4,11 @@ import android.content.Context;
 import android.util.Log;
 
 import com.huntercollab.app.config.GlobalConfig;
-import com.huntercollab.app.utils.GeneralTools;
-import com.loopj.android.http.AsyncHttpClient;
-import com.loopj.android.http.JsonHttpResponseHandler;
+import com.huntercollab.app.network.loopjtasks.http.Outbox;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.UnsupportedEncodingException;
-
-import cz.msebera.android.httpclient.Header;
-import cz.msebera.android.httpclient.entity.StringEntity;
-import cz.msebera.android.httpclient.message.BasicHeader;
-import cz.msebera.android.httpclient.protocol.HTTP;
-
 public class JoinDropCollab {
 
     private Context context;
@@ -26,6 +17,10 @@ public class JoinDropCollab {
     private EditComplete editListener;
     private DeleteComplete deleteListener;
 
+    private static final String OFFLINE_MESSAGE = "No connection. You will join when you are back online.";
+    //Merge key shared by join and leave, a repeated tap is queued once but the last choice is always sent, see: Outbox.enqueueOnce()
+    private static final String MEMBERSHIP = "membership:";
+
     //@author: Hugh Leow
     //@brief:
     //Constructor with multiple listeners for different API calls
@@ -48,20 +43,19 @@ public class JoinDropCollab {
     //@brief:
     //Used to join a collaboration with the 'collabid'
     //See: CollabDetailFragment.java
-    //AsyncHttpClient client
-    //ASYNC HTTP POST request, puts 'collabid' into a JSON
+    //Outbox
+    //ASYNC HTTP POST request, puts 'collabid' into a JSON, queued in the outbox so it is sent once the connection is back
     //Sends JSON to the server to request to join the collaboration
     //Returns Boolean 'true' or 'false' to the interface
     //See: CollabDetailFragment.java
-    //If request is successful, return Boolean 'true' with a 'message' from the server to the interface
-    //if request failed, return Boolean 'false' to the interface
+    //If request is successful or is waiting for a connection, return Boolean 'true' with a 'message' to the interface
+    //if request failed, return Boolean 'false' to the interface, also after a queued request was reported as 'true'
+    //A second join of the same collab while the first is still queued is not sent again, unless a leave was queued after it
     //@params: [String collabId]
     //@pre condition: No request sent to server to join collaboration
     //@post condition: Request sent to server, receive response for interface
     public void joinCollab(String collabId){
 
-        AsyncHttpClient client = GeneralTools.createAsyncHttpClient(context);
-
         String restApiUrl = GlobalConfig.BASE_API_URL + "/collab/joinCollab";
 
         JSONObject jsonParams = new JSONObject();
@@ -69,32 +63,33 @@ public class JoinDropCollab {
         try {
 
             jsonParams.accumulate("id",collabId);
-            StringEntity entity = new StringEntity(jsonParams.toString());
-            entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, "application/json"));
 
-            client.post(context, restApiUrl, entity,"application/json", new JsonHttpResponseHandler(){
+            Outbox.getInstance(context).enqueueOnce("POST", restApiUrl, jsonParams, MEMBERSHIP + collabId, Outbox.untilDone(context, new Optimistic() {
                 @Override
-                public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                    super.onSuccess(statusCode, headers, response);
-                    Log.i("response", String.valueOf(response));
-                    if (response.has("success")){
+                void onResult(boolean success, boolean queued, String body) {
+                    Log.i("response", String.valueOf(body));
+                    if (queued) {
+                        joinListener.joinComplete(true, OFFLINE_MESSAGE);
+                    }
+                    else if (success && hasSuccess(body)) {
                         joinListener.joinComplete(true, "You have joined the collab!");
                     }
-                    else {
+                    else if (success) {
                         joinListener.joinComplete(false, "Cannot join.");
                     }
+                    else {
+                        String error = body;
+                        joinListener.joinComplete(false, error);
+                    }
                 }
 
                 @Override
-                public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                    super.onFailure(statusCode, headers, responseString, throwable);
-                    Log.i("response", String.valueOf(responseString));
-                    String error = responseString;
-                    joinListener.joinComplete(false, error);
+                boolean accepted(String body) {
+                    return hasSuccess(body);
                 }
-            });
+            }));
 
-        } catch (JSONException | UnsupportedEncodingException e) {
+        } catch (JSONException e) {
             e.printStackTrace();
         }
     }
@@ -103,20 +98,19 @@ public class JoinDropCollab {
     //@brief:
     //Used to leave a collaboration with the 'collabid'
     //See: CollabDetailFragment.java
-    //AsyncHttpClient client
-    //ASYNC HTTP POST request, puts 'collabid' into a JSON
+    //Outbox
+    //ASYNC HTTP POST request, puts 'collabid' into a JSON, queued in the outbox so it is sent once the connection is back
     //Sends JSON to the server to request to leave the collaboration
     //Returns Boolean 'true' or 'false' to the interface
     //See: CollabDetailFragment.java
-    //If request is successful, return Boolean 'true' with a 'message' from the server to the interface
-    //if request failed, return Boolean 'false' to the interface
+    //If request is successful or is waiting for a connection, return Boolean 'true' to the interface
+    //if request failed, return Boolean 'false' to the interface, also after a queued request was reported as 'true'
+    //A second leave of the same collab while the first is still queued is not sent again, unless a join was queued after it
     //@params: [String collabId]
     //@pre condition: No request sent to server to leave collaboration
     //@post condition: Request sent to server, receive response for interface
     public void leaveCollab(String collabId){
 
-        AsyncHttpClient client = GeneralTools.createAsyncHttpClient(context);
-
         String restApiUrl = GlobalConfig.BASE_API_URL + "/collab/leaveCollab";
 
         JSONObject jsonParams = new JSONObject();
@@ -124,26 +118,16 @@ public class JoinDropCollab {
         try {
 
             jsonParams.accumulate("id",collabId);
-            StringEntity entity = new StringEntity(jsonParams.toString());
-            entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, "application/json"));
-
-            client.post(context, restApiUrl, entity,"application/json", new JsonHttpResponseHandler(){
-                @Override
-                public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                    super.onSuccess(statusCode, headers, response);
-                    Log.i("response", String.valueOf(response));
-                    leaveListener.leaveComplete(true);
-                }
 
+            Outbox.getInstance(context).enqueueOnce("POST", restApiUrl, jsonParams, MEMBERSHIP + collabId, Outbox.untilDone(context, new Optimistic() {
                 @Override
-                public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                    super.onFailure(statusCode, headers, responseString, throwable);
-                    Log.i("response", String.valueOf(responseString));
-                    leaveListener.leaveComplete(false);
+                void onResult(boolean success, boolean queued, String body) {
+                    Log.i("response", String.valueOf(body));
+                    leaveListener.leaveComplete(success);
                 }
-            });
+            }));
 
-        } catch (JSONException | UnsupportedEncodingException e) {
+        } catch (JSONException e) {
             e.printStackTrace();
         }
     }
@@ -152,47 +136,84 @@ public class JoinDropCollab {
     //@brief:
     //Used to delete a collaboration with the 'collabid' for OWNER of the collaboration
     //See: CollabDetailFragment.java
-    //AsyncHttpClient client
-    //ASYNC HTTP DELETE request, puts 'collabid' into a JSON
+    //Outbox
+    //ASYNC HTTP DELETE request, puts 'collabid' into a JSON, queued in the outbox so it is sent once the connection is back
     //Sends JSON to the server to request to delete the collaboration
     //Returns Boolean 'true' or 'false' to the interface
     //See: CollabDetailFragment.java
-    //If request is successful, return Boolean 'true' to the interface
-    //if request failed, return Boolean 'false' to the interface
+    //If request is successful or is waiting for a connection, return Boolean 'true' to the interface
+    //if request failed, return Boolean 'false' to the interface, also after a queued request was reported as 'true'
+    //A second delete of the same collab while the first is still queued is not sent again
     //@params: [String collabId]
     //@pre condition: No request sent to server to delete collaboration
     //@post condition: Request sent to server, receive response for interface
     public void deleteCollab(String collabId){
 
-        AsyncHttpClient client = GeneralTools.createAsyncHttpClient(context);
-
         String restApiUrl = GlobalConfig.BASE_API_URL + "/collab/deleteCollabForReal";
 
         JSONObject jsonParams = new JSONObject();
 
         try {
             jsonParams.accumulate("id",collabId);
-            StringEntity entity = new StringEntity(jsonParams.toString());
-            entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, "application/json"));
 
-            client.delete(context, restApiUrl, entity,"application/json", new JsonHttpResponseHandler(){
+            Outbox.getInstance(context).enqueueOnce("DELETE", restApiUrl, jsonParams, "deleteCollab:" + collabId, Outbox.untilDone(context, new Optimistic() {
                 @Override
-                public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                    super.onSuccess(statusCode, headers, response);
-                    Log.i("response", String.valueOf(response));
-                    deleteListener.deleteComplete(true);
+                void onResult(boolean success, boolean queued, String body) {
+                    Log.i("response", String.valueOf(body));
+                    deleteListener.deleteComplete(success);
                 }
+            }));
 
-                @Override
-                public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                    super.onFailure(statusCode, headers, responseString, throwable);
-                    Log.i("response", String.valueOf(responseString));
-                    deleteListener.deleteComplete(false);
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+    }
+
+    //@brief:
+    //Outbox listener that shows a queued request as done right away (optimistic) and reports each outcome to the screen once
+    //After QUEUED a later delivery is not reported again, so the screen does not apply the change twice
+    //A failure or a delivery the server did not accept is still reported, so the screen can tell the user
+    private static abstract class Optimistic implements Outbox.StatusListener {
+
+        private boolean reportedQueued = false;
+
+        //@params: [boolean success] request delivered, or waiting for a connection when 'queued'
+        //         [boolean queued] request stored in the outbox, not sent yet
+        //         [String body] server response, null while queued
+        abstract void onResult(boolean success, boolean queued, String body);
+
+        //@return: Boolean 'true' if a delivered response means the server did what was asked
+        boolean accepted(String body) {
+            return true;
+        }
+
+        @Override
+        public void onStatus(Outbox.Status status, int statusCode, String body) {
+            if (status == Outbox.Status.QUEUED) {
+                if (!reportedQueued) {
+                    reportedQueued = true;
+                    onResult(true, true, body);
                 }
-            });
+            }
+            else if (status == Outbox.Status.DELIVERED) {
+                if (!reportedQueued || !accepted(body)) {
+                    onResult(true, false, body);
+                }
+            }
+            else {
+                onResult(false, false, body);
+            }
+        }
+    }
 
-        } catch (JSONException | UnsupportedEncodingException e) {
-            e.printStackTrace();
+    //@brief: Checks the join response for the 'success' field
+    //@params: [String body]
+    //@return: Boolean 'true' if the server reported success
+    private static boolean hasSuccess(String body){
+        try {
+            return body != null && new JSONObject(body).has("success");
+        } catch (JSONException e) {
+            return false;
         }
     }
 
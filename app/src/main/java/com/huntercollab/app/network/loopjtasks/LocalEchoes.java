@@ -0,0 +1,97 @@
+package com.huntercollab.app.network.loopjtasks;
+
+import java.util.ArrayList;
+
+//@brief:
+//Messages sent from an open chat, shown before the server pushes them back (see: RealtimeHub.java)
+//A send is registered when it is made, so the server's copy is matched whether it is pushed before or after the send completes:
+//pushed after, it replaces the local copy, pushed before, the local copy is never shown
+//Matched by sender and text, oldest send first
+//Main thread only
+public class LocalEchoes {
+
+    //@brief: One send, 'echo' is the local copy once shown, 'pushed' once the server's copy was shown instead
+    private static class Send {
+        final String text;
+        MessageModel echo;
+        boolean pushed;
+
+        Send(String text) {
+            this.text = text;
+        }
+    }
+
+    private final ArrayList<Send> sends = new ArrayList<>();
+
+    //@brief: A message was handed to MessagingAPI.sendMessage()
+    //@params: [String text]
+    public void sending(String text) {
+        sends.add(new Send(text));
+    }
+
+    //@brief: The send of 'text' completed
+    //@params: [String user] e-mail of the user sending from this screen [String text]
+    //@return: MessageModel local copy to show, null if the server's copy is shown already
+    public MessageModel sent(String user, String text) {
+        for (int i = 0; i < sends.size(); i++) {
+            Send send = sends.get(i);
+            if (send.echo == null && send.text.equals(text)) {
+                if (send.pushed) {
+                    sends.remove(i);
+                    return null;
+                }
+                send.echo = new MessageModel(user, text, System.currentTimeMillis(), "");
+                return send.echo;
+            }
+        }
+        return new MessageModel(user, text, System.currentTimeMillis(), "");
+    }
+
+    //@brief: The send of 'text' failed, the server will not push it
+    //@params: [String text]
+    public void failed(String text) {
+        for (int i = 0; i < sends.size(); i++) {
+            Send send = sends.get(i);
+            if (send.echo == null && !send.pushed && send.text.equals(text)) {
+                sends.remove(i);
+                return;
+            }
+        }
+    }
+
+    //@brief: Checks a message pushed by the server against the sends of this screen
+    //@params: [String user] e-mail of the user sending from this screen [MessageModel message]
+    //@return: MessageModel local copy 'message' replaces, null if 'message' is to be added
+    public MessageModel pushed(String user, MessageModel message) {
+        if (!user.equals(message.getSender())) {
+            return null;
+        }
+        for (int i = 0; i < sends.size(); i++) {
+            Send send = sends.get(i);
+            if (!send.pushed && send.text.equals(message.getMessage())) {
+                if (send.echo != null) {
+                    sends.remove(i);
+                    return send.echo;
+                }
+                //Pushed before the send completed, sent() will not show it again
+                send.pushed = true;
+                return null;
+            }
+        }
+        return null;
+    }
+
+    //@brief: The chat was downloaded again, it holds every message shown, only sends still in flight are kept
+    public void pageLoaded() {
+        for (int i = sends.size() - 1; i >= 0; i--) {
+            if (sends.get(i).echo != null) {
+                sends.remove(i);
+            }
+        }
+    }
+
+    //@return: int sends waiting for their server copy or their completion
+    public int size() {
+        return sends.size();
+    }
+}
@@ -5,16 +5,25 @@ public class MessageModel {
     private String displayName;
     private String message;
     private long time;
+    private long seq;
 
     //@author: Hugh Leow
     //@brief: Constructor for Messages using the parameters given
     //@params:
     //[String sender] [String message] [long time] [String displayName]
     public MessageModel (String sender, String message, long time, String displayName){
+        this(sender, message, time, displayName, ChatSequence.UNKNOWN);
+    }
+
+    //@brief: Constructor for Messages numbered by the server within their chat, see: ChatSequence.java
+    //@params:
+    //[String sender] [String message] [long time] [String displayName] [long seq] ChatSequence.UNKNOWN if not sent
+    public MessageModel (String sender, String message, long time, String displayName, long seq){
         this.sender = sender;
         this.message = message;
         this.time = time;
         this.displayName = displayName;
+        this.seq = seq;
     }
 
     public String getSender(){ return sender; }
@@ -24,4 +33,6 @@ public class MessageModel {
     public String getMessage() { return message; }
 
     public long getTime(){ return time; }
+
+    public long getSeq(){ return seq; }
 }
\ No newline at end of file
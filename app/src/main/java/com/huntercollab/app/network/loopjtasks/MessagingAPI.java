@@ -3,23 +3,16 @@ package com.huntercollab.app.network.loopjtasks;
 import android.content.Context;
 
 import com.huntercollab.app.config.GlobalConfig;
-import com.huntercollab.app.utils.GeneralTools;
-import com.loopj.android.http.AsyncHttpClient;
-import com.loopj.android.http.JsonHttpResponseHandler;
+import com.huntercollab.app.network.loopjtasks.http.ApiClient;
+import com.huntercollab.app.network.loopjtasks.http.Outbox;
 import com.loopj.android.http.RequestParams;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 
-import cz.msebera.android.httpclient.Header;
-import cz.msebera.android.httpclient.entity.StringEntity;
-import cz.msebera.android.httpclient.message.BasicHeader;
-import cz.msebera.android.httpclient.protocol.HTTP;
-
 // FOLLOWED TUTORIAL FROM
 // https://blog.sendbird.com/android-chat-tutorial-building-a-messaging-ui
 
@@ -29,6 +22,9 @@ public class MessagingAPI {
     private Context context;
 
     private ArrayList<MessageModel> messages;
+    private long latestSeq = ChatSequence.UNKNOWN;
+    //Number of the last retrieveChatroom() call, older responses are stale
+    private int chatroomRequest = 0;
     private ArrayList<String> chatIds;
     private ArrayList<String> chatTitles;
     private MessageDownloadComplete dataDownloadComplete;
@@ -56,25 +52,26 @@ public class MessagingAPI {
     //@author: Hugh Leow
     //@brief:
     //Used to retrieve a list of active conversations for the user
-    //AsyncHttpClient asyncHttpClient
+    //ApiClient.get
     //ASYNC HTTP GET request, receives JSON from the server
-    //Returns Boolean 'true' to the interface if successful and sets 'chat id' and 'chat title' to their respective arrays using setChatList(JSONArray data)
+    //The response is decoded off the main thread with decodeChatList(JSONArray data)
+    //Returns Boolean 'true' to the interface if successful and sets 'chat id' and 'chat title' to their respective arrays
     //@pre condition: List of active conversations not up to date
     //@post condition: Request for up to date list of conversations sent
     public void getListOfMessages(){
-        AsyncHttpClient asyncHttpClient = GeneralTools.createAsyncHttpClient(context);
-
-        asyncHttpClient.get(GlobalConfig.BASE_API_URL + "/messaging/myConvos", requestParams, new JsonHttpResponseHandler(){
+        ApiClient.get(context, GlobalConfig.BASE_API_URL + "/messaging/myConvos", requestParams, CHAT_LIST_DECODER, new ApiClient.DecodedListener<ChatList>(){
             @Override
-            public void onSuccess(int statusCode, Header[] headers, JSONArray response) {
-                super.onSuccess(statusCode, headers, response);
-                setChatList(response);
+            public void onDecoded(int statusCode, ChatList chatList) {
+                //Replaces the list of an earlier call, the screen may refresh it
+                chatIds.clear();
+                chatTitles.clear();
+                chatIds.addAll(chatList.ids);
+                chatTitles.addAll(chatList.titles);
                 dataDownloadComplete.messageDownloadComplete(true);
             }
 
             @Override
-            public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                super.onFailure(statusCode, headers, responseString, throwable);
+            public void onFailure(int statusCode, String body, Throwable throwable) {
                 dataDownloadComplete.messageDownloadComplete(false);
             }
         });
@@ -85,17 +82,17 @@ public class MessagingAPI {
     //Used to retrieve messages from a specific chat (collaboration, or user to user)
     //Takes the chat id and page we want to view as arguments
     //Puts the arguments into a JSON
-    //AsyncHttpClient asyncHttpClient
+    //ApiClient.post
     //ASYNC HTTP POST request, sends JSON to the server for request
-    //If successful, return Boolean 'true' to the interface and call setMessageDetails(JSONArray data) to create the dataset of messages for the chatroom
+    //The response is decoded off the main thread with decodeMessages(JSONArray data) to create the dataset of messages for the chatroom
+    //If successful, return Boolean 'true' to the interface
     //Failure to retrieve returns Boolean 'false' to the interface
+    //A response that arrives after a newer call was made is dropped, so an older page never replaces a newer one
     //@params: [int page] [String id]
     //@pre condition: Request for chatroom not sent to server
     //@post condition: Request for up to date chatroom sent to server
     public void retrieveChatroom(int page, String id){
 
-        AsyncHttpClient client = GeneralTools.createAsyncHttpClient(context);
-
         String restApiUrl = GlobalConfig.BASE_API_URL + "/messaging/getMessages";
 
         String lastThreeChars = id.substring(id.length() - 3);
@@ -109,45 +106,46 @@ public class MessagingAPI {
             else {
                 jsonParams.put("collabId", id);
             }
+        } catch (JSONException e) {
+            e.printStackTrace();
+            return;
+        }
 
-            StringEntity entity = new StringEntity(jsonParams.toString());
-            entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, "application/json"));
-
-            client.post(context, restApiUrl, entity,"application/json", new JsonHttpResponseHandler(){
-                @Override
-                public void onSuccess(int statusCode, Header[] headers, JSONArray response) {
-                    super.onSuccess(statusCode, headers, response);
-                    setMessageDetails(response);
-                    dataDownloadComplete.messageDownloadComplete(true);
+        final int request = ++chatroomRequest;
+        ApiClient.post(context, restApiUrl, jsonParams, MESSAGES_DECODER, new ApiClient.DecodedListener<ArrayList<MessageModel>>(){
+            @Override
+            public void onDecoded(int statusCode, ArrayList<MessageModel> result) {
+                if (request != chatroomRequest) {
+                    return;
                 }
+                messages = result;
+                latestSeq = latestSeqOf(result);
+                dataDownloadComplete.messageDownloadComplete(true);
+            }
 
-                @Override
-                public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                    super.onFailure(statusCode, headers, responseString, throwable);
-                    dataDownloadComplete.messageDownloadComplete(false);
+            @Override
+            public void onFailure(int statusCode, String body, Throwable throwable) {
+                if (request != chatroomRequest) {
+                    return;
                 }
-            });
-
-        } catch (JSONException | UnsupportedEncodingException e) {
-            e.printStackTrace();
-        }
+                dataDownloadComplete.messageDownloadComplete(false);
+            }
+        });
     }
 
     //@author: Hugh Leow
     //@brief:
     //Used to send messages to the database using the chat id
     //Takes the chat id and message and puts it into a JSON
-    //AsyncHttpClient asyncHttpClient
-    //ASYNC HTTP POST request, sends JSON to the server for request
-    //If successful, return Boolean 'true' to the interface function
-    //If unsuccessful, return Boolean 'false' to the interface function
+    //Outbox
+    //ASYNC HTTP POST request, queued in the outbox so the message is sent once the connection is back
+    //If delivered or queued for later, return Boolean 'true' to the interface function
+    //If rejected by the server, return Boolean 'false' to the interface function
     //@params: [String message] [String id]
     //@pre condition: No request sent to deliver user's message
-    //@post condition: Request sent to server to deliver user's message
+    //@post condition: Request queued to deliver user's message
     public void sendMessage(String message, String id){
 
-        AsyncHttpClient client = GeneralTools.createAsyncHttpClient(context);
-
         String restApiUrl = GlobalConfig.BASE_API_URL + "/messaging/sendMessage";
 
         String lastThreeChars = id.substring(id.length() - 3);
@@ -162,60 +160,91 @@ public class MessagingAPI {
                 jsonParams.put("collabId", id);
             }
 
-            StringEntity entity = new StringEntity(jsonParams.toString());
-            entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, "application/json"));
-
-            client.post(context, restApiUrl, entity,"application/json", new JsonHttpResponseHandler(){
+            Outbox.getInstance(context).enqueue("POST", restApiUrl, jsonParams, Outbox.firstStatusOnly(context, new Outbox.StatusListener() {
                 @Override
-                public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                    super.onSuccess(statusCode, headers, response);
-                    messageSent.messageSendComplete(true);
+                public void onStatus(Outbox.Status status, int statusCode, String body) {
+                    messageSent.messageSendComplete(status != Outbox.Status.FAILED);
                 }
+            }));
 
-                @Override
-                public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                    super.onFailure(statusCode, headers, responseString, throwable);
-                    messageSent.messageSendComplete(false);
-                }
-            });
-
-        } catch (JSONException | UnsupportedEncodingException e) {
+        } catch (JSONException e) {
             e.printStackTrace();
         }
     }
 
+    //@brief: Active conversations decoded from one '/messaging/myConvos' response
+    private static class ChatList {
+        final ArrayList<String> ids = new ArrayList<>();
+        final ArrayList<String> titles = new ArrayList<>();
+    }
+
+    //@brief: Parses the '/messaging/myConvos' response, runs off the main thread
+    private static final ApiClient.Decoder<ChatList> CHAT_LIST_DECODER = new ApiClient.Decoder<ChatList>() {
+        @Override
+        public ChatList decode(String body) throws JSONException {
+            return decodeChatList(new JSONArray(body));
+        }
+    };
+
+    //@brief: Parses the '/messaging/getMessages' response, runs off the main thread
+    private static final ApiClient.Decoder<ArrayList<MessageModel>> MESSAGES_DECODER = new ApiClient.Decoder<ArrayList<MessageModel>>() {
+        @Override
+        public ArrayList<MessageModel> decode(String body) throws JSONException {
+            return decodeMessages(new JSONArray(body));
+        }
+    };
+
     //@author: Hugh Leow
     //@brief:
     //Creates the dataset of messages for a particular chatroom (collaboration or user to user) using data returned to us from the API call
     //@params: [JSONArray data]
     //@pre condition: No dataset created for the messages received
     //@post condition: Messages created in a dataset
-    public void setMessageDetails(JSONArray data){
+    //@return: ArrayList<MessageModel> of all messages in 'data'
+    private static ArrayList<MessageModel> decodeMessages(JSONArray data){
         // parse JSON array (list of ALL chats)
-        messages = new ArrayList<>();
+        ArrayList<MessageModel> messages = new ArrayList<>();
         for (int i = 0; i < data.length(); i++) {
             try {
                 JSONObject jsonobject = data.getJSONObject(i);
-                ArrayList<String> temp = new ArrayList<>();
 
                 // parse JSON array (messages)
                 JSONArray message = jsonobject.getJSONArray("messages");
                 for(int j = 0; j < message.length(); j++){
-                    JSONObject tmp = message.getJSONObject(j);
-
-                    String sender = tmp.getString("sender");
-                    String msg = tmp.getString("message");
-                    String displayName = tmp.getString("dispName");
-                    long time = tmp.getLong("time");
-
                     // create message and store in array list
-                    MessageModel tmpMessage = new MessageModel(sender, msg, time, displayName);
-                    messages.add(tmpMessage);
+                    messages.add(decodeMessage(message.getJSONObject(j)));
                 }
             } catch (JSONException e) {
                 e.printStackTrace();
             }
         }
+        return messages;
+    }
+
+    //@brief:
+    //One message as the server sends it, in a '/messaging/getMessages' page or pushed over the realtime connection
+    //'seq' is the message's number within its chat, see: ChatSequence.java
+    //@params: [JSONObject data]
+    //@return: MessageModel, seq ChatSequence.UNKNOWN if the server did not send it
+    public static MessageModel decodeMessage(JSONObject data) throws JSONException {
+        String sender = data.getString("sender");
+        String msg = data.getString("message");
+        String displayName = data.getString("dispName");
+        long time = data.getLong("time");
+        long seq = data.optLong("seq", ChatSequence.UNKNOWN);
+        return new MessageModel(sender, msg, time, displayName, seq);
+    }
+
+    //@return: long number of the newest message in 'page', 0 for an empty chat, ChatSequence.UNKNOWN if one has no number
+    private static long latestSeqOf(ArrayList<MessageModel> page) {
+        long latest = 0;
+        for (MessageModel message : page) {
+            if (message.getSeq() == ChatSequence.UNKNOWN) {
+                return ChatSequence.UNKNOWN;
+            }
+            latest = Math.max(latest, message.getSeq());
+        }
+        return latest;
     }
 
     //@author: Hugh Leow
@@ -223,7 +252,9 @@ public class MessagingAPI {
     //@params: [JSONArray data]
     //@pre condition: List of active conversations not created
     //@post condition: List of active conversations created in a dataset
-    public void setChatList (JSONArray data){
+    //@return: ChatList with the chat ids and titles in 'data'
+    private static ChatList decodeChatList(JSONArray data){
+        ChatList chatList = new ChatList();
         // parse JSON array (list of ALL chats)
         for (int i = 0; i < data.length(); i++) {
             try {
@@ -241,19 +272,25 @@ public class MessagingAPI {
                 }
 
                 // add chatId's and titles to respective arrays
-                chatIds.add(chatId);
-                chatTitles.add(chatTitle);
+                chatList.ids.add(chatId);
+                chatList.titles.add(chatTitle);
 
             } catch (JSONException e) {
                 e.printStackTrace();
             }
         }
+        return chatList;
     }
 
     public ArrayList<MessageModel> getMessages(){
         return messages;
     }
 
+    //@return: long number of the newest message of the last page retrieved, see: ChatSequence.java
+    public long getLatestSeq(){
+        return latestSeq;
+    }
+
     public ArrayList<String> getChatIds(){
         return chatIds;
     }
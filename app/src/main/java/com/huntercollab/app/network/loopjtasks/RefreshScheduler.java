@@ -0,0 +1,101 @@
+package com.huntercollab.app.network.loopjtasks;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.huntercollab.app.config.GlobalConfig;
+
+//@brief:
+//Turns refresh requests (realtime PINGs, missed messages, see: MessagingActivity.java) into as few downloads as possible
+//Requests within GlobalConfig.REFRESH_COALESCE_WINDOW of the first one share one download, at most one download is
+//in flight, and requests made while it is become one more download after it
+//The owner runs the download in 'fetch' and calls finished() when its response (or failure) arrives
+//Main thread only
+public class RefreshScheduler {
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable fetch;
+    private final long window;
+    private boolean scheduled = false;
+    private boolean inFlight = false;
+    private boolean queued = false;
+    private int requests = 0;
+    private int fetches = 0;
+
+    private final Runnable start = new Runnable() {
+        @Override
+        public void run() {
+            scheduled = false;
+            inFlight = true;
+            fetches++;
+            fetch.run();
+        }
+    };
+
+    //@params: [Runnable fetch] starts one download
+    public RefreshScheduler(Runnable fetch) {
+        this(fetch, GlobalConfig.REFRESH_COALESCE_WINDOW);
+    }
+
+    //@params: [Runnable fetch] starts one download [long window] ms that requests are gathered for
+    public RefreshScheduler(Runnable fetch, long window) {
+        this.fetch = fetch;
+        this.window = window;
+    }
+
+    //@brief: Asks for a download within the window
+    //@pre condition: Main thread
+    //@post condition: Download scheduled, or queued after the one in flight
+    public void request() {
+        requests++;
+        if (inFlight) {
+            queued = true;
+        } else if (!scheduled) {
+            scheduled = true;
+            handler.postDelayed(start, window);
+        }
+    }
+
+    //@brief: Asks for a download at once, for the first load of a screen
+    public void requestNow() {
+        requests++;
+        if (inFlight) {
+            queued = true;
+            return;
+        }
+        handler.removeCallbacks(start);
+        start.run();
+    }
+
+    //@brief: The download started by 'fetch' ended, starts the queued one if there is one
+    public void finished() {
+        inFlight = false;
+        if (queued) {
+            queued = false;
+            scheduled = true;
+            handler.postDelayed(start, window);
+        }
+    }
+
+    //@brief: Drops the scheduled and queued downloads, for a screen that is going away
+    public void cancel() {
+        handler.removeCallbacks(start);
+        scheduled = false;
+        queued = false;
+    }
+
+    //@return: Boolean 'true' if nothing is scheduled, queued or in flight
+    public boolean isIdle() {
+        return !scheduled && !inFlight && !queued;
+    }
+
+    //@return: int requests made
+    public int getRequests() {
+        return requests;
+    }
+
+    //@return: int downloads started
+    public int getFetches() {
+        return fetches;
+    }
+}
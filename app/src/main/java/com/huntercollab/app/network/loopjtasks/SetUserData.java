@@ -4,27 +4,18 @@ import android.content.Context;
 import android.util.Log;
 
 import com.huntercollab.app.config.GlobalConfig;
-import com.huntercollab.app.utils.GeneralTools;
-import com.loopj.android.http.AsyncHttpClient;
-import com.loopj.android.http.JsonHttpResponseHandler;
+import com.huntercollab.app.network.loopjtasks.http.Outbox;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 
-import cz.msebera.android.httpclient.Header;
-import cz.msebera.android.httpclient.entity.StringEntity;
-import cz.msebera.android.httpclient.message.BasicHeader;
-import cz.msebera.android.httpclient.protocol.HTTP;
-
 public class SetUserData {
 
     private Context context = null;
     private UpdateComplete updateComplete;
-    private AsyncHttpClient client;
 
     //@author: Hugh Leow
     //@brief: Constructor with a listener to pass Boolean 'true' or 'false' for API call to the activity
@@ -37,247 +28,166 @@ public class SetUserData {
     //@author: Hugh Leow
     //@brief:
     //Used to update the user's 'preferred name'
-    //Takes the newName parameter and puts it into a JSON
-    //AsyncHttpClient asyncHttpClient
-    //ASYNC HTTP POST request, sends JSON to the server for request
-    //If successful, return Boolean 'true' to the interface function
-    //If unsuccessful, return Boolean 'false' to the interface function
+    //Takes the newName parameter
+    //Single field ProfilePatch, see: ProfilePatch.commit()
     //@params: [String newName]
     //@pre condition: Request not sent to server to update user info
-    //@post condition: Request sent to server, receive response for interface
+    //@post condition: Request queued, receive response for interface
     public void setUserNickname(String newName){
-
-        client = GeneralTools.createAsyncHttpClient(context);
-
-        String restApiUrl = GlobalConfig.BASE_API_URL + "/user";
-
-        JSONObject jsonParams = new JSONObject();
-        try {
-            jsonParams.put("name", newName);
-            StringEntity entity = new StringEntity(jsonParams.toString());
-            entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, "application/json"));
-
-            client.post(context, restApiUrl, entity,"application/json", new JsonHttpResponseHandler(){
-                @Override
-                public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                    super.onSuccess(statusCode, headers, response);
-                    Log.i("response", String.valueOf(response));
-                }
-
-                @Override
-                public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                    super.onFailure(statusCode, headers, responseString, throwable);
-                    Log.i("response", String.valueOf(responseString));
-                }
-            });
-
-        } catch (JSONException | UnsupportedEncodingException e) {
-            e.printStackTrace();
-        }
-
-        updateComplete.dataUpdateComplete(true, "Name Updated");
-
+        edit().setName(newName).commit();
     }
 
     //@author: Hugh Leow
     //@brief:
     //Used to update the user's Github link
-    //Takes the newGithub parameter and puts it into a JSON
-    //AsyncHttpClient asyncHttpClient
-    //ASYNC HTTP POST request, sends JSON to the server for request
-    //If successful, return Boolean 'true' to the interface function
-    //If unsuccessful, return Boolean 'false' to the interface function
+    //Takes the newGithub parameter
+    //Single field ProfilePatch, see: ProfilePatch.commit()
     //@params: [String newGithub]
     //@pre condition: Request not sent to server to update user info
-    //@post condition: Request sent to server, receive response for interface
+    //@post condition: Request queued, receive response for interface
     public void setUserGithub(String newGithub){
-
-        client = GeneralTools.createAsyncHttpClient(context);
-
-        String restApiUrl = GlobalConfig.BASE_API_URL + "/user";
-
-        JSONObject jsonParams = new JSONObject();
-        try {
-            jsonParams.put("github", newGithub);
-            StringEntity entity = new StringEntity(jsonParams.toString());
-            entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, "application/json"));
-
-            client.post(context, restApiUrl, entity,"application/json", new JsonHttpResponseHandler(){
-                @Override
-                public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                    super.onSuccess(statusCode, headers, response);
-                    Log.i("response", String.valueOf(response));
-                }
-
-                @Override
-                public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                    super.onFailure(statusCode, headers, responseString, throwable);
-                    Log.i("response", String.valueOf(responseString));
-                }
-            });
-
-        } catch (JSONException | UnsupportedEncodingException e) {
-            e.printStackTrace();
-        }
-
-        updateComplete.dataUpdateComplete(true, "Github Updated");
-
+        edit().setGithub(newGithub).commit();
     }
 
     //@author: Hugh Leow
     //@brief:
     //Used to update the user's LinkedIn link
-    //Takes the newLinkedIn parameter and puts it into a JSON
-    //AsyncHttpClient asyncHttpClient
-    //ASYNC HTTP POST request, sends JSON to the server for request
-    //If successful, return Boolean 'true' to the interface function
-    //If unsuccessful, return Boolean 'false' to the interface function
+    //Takes the newLinkedIn parameter
+    //Single field ProfilePatch, see: ProfilePatch.commit()
     //@params: [String newLinkedIn]
     //@pre condition: Request not sent to server to update user info
-    //@post condition: Request sent to server, receive response for interface
+    //@post condition: Request queued, receive response for interface
     public void setUserLinkedIn(String newLinkedIn){
-
-        client = GeneralTools.createAsyncHttpClient(context);
-
-        String restApiUrl = GlobalConfig.BASE_API_URL + "/user";
-
-        JSONObject jsonParams = new JSONObject();
-        try {
-            jsonParams.put("linkedin", newLinkedIn);
-            StringEntity entity = new StringEntity(jsonParams.toString());
-            entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, "application/json"));
-
-            client.post(context, restApiUrl, entity,"application/json", new JsonHttpResponseHandler(){
-                @Override
-                public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                    super.onSuccess(statusCode, headers, response);
-                    Log.i("response", String.valueOf(response));
-                }
-
-                @Override
-                public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                    super.onFailure(statusCode, headers, responseString, throwable);
-                    Log.i("response", String.valueOf(responseString));
-                }
-            });
-
-        } catch (JSONException | UnsupportedEncodingException e) {
-            e.printStackTrace();
-        }
-
-        updateComplete.dataUpdateComplete(true, "LinkedIn Updated");
-
+        edit().setLinkedIn(newLinkedIn).commit();
     }
 
     //@author: Hugh Leow & Edwin Quintuna
     //@brief:
     //Used to update the user's skills
-    //Takes the skillList parameter and puts it into a JSON
-    //AsyncHttpClient asyncHttpClient
-    //ASYNC HTTP POST request, sends JSON to the server for request
-    //If successful, return Boolean 'true' to the interface function
-    //If unsuccessful, return Boolean 'false' to the interface function
+    //Takes the skillList parameter
+    //See: commit()
     //@params: [ArrayList<String> skillList]
     //@pre condition: Request not sent to server to update user info
-    //@post condition: Request sent to server, receive response for interface
+    //@post condition: Request queued, receive response for interface
     public void setUserSkills(ArrayList<String> skillList){
-
-        client = GeneralTools.createAsyncHttpClient(context);
-
-        String restApiUrl = GlobalConfig.BASE_API_URL + "/user/skills";
-
-        JSONObject jsonParams = new JSONObject();
-
-        try {
-
-                JSONArray array = new JSONArray();
-                for (String skill : skillList) {
-                    array.put(skill);
-                }
-                jsonParams.accumulate("skills",array);
-
-            StringEntity entity = new StringEntity(jsonParams.toString());
-            entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, "application/json"));
-
-            client.post(context, restApiUrl, entity,"application/json", new JsonHttpResponseHandler(){
-                @Override
-                public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                    super.onSuccess(statusCode, headers, response);
-                    Log.i("response", String.valueOf(response));
-                }
-
-                @Override
-                public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                    super.onFailure(statusCode, headers, responseString, throwable);
-                    Log.i("response", String.valueOf(responseString));
-                }
-            });
-
-        } catch (JSONException | UnsupportedEncodingException e) {
-            e.printStackTrace();
-        }
-
-
-        updateComplete.dataUpdateComplete(true, "SKills Update Completed");
-
+        commit("/user/skills", "skills", new JSONArray(skillList), "SKills Update Completed");
     }
 
     //@author: Hugh Leow & Edwin Quintuna
     //@brief:
     //Used to update the user's classes
-    //Takes the classList parameter and puts it into a JSON
-    //AsyncHttpClient asyncHttpClient
-    //ASYNC HTTP POST request, sends JSON to the server for request
-    //If successful, return Boolean 'true' to the interface function
-    //If unsuccessful, return Boolean 'false' to the interface function
+    //Takes the classList parameter
+    //See: commit()
     //@params: [ArrayList<String> classList]
     //@pre condition: Request not sent to server to update user info
-    //@post condition: Request sent to server, receive response for interface
+    //@post condition: Request queued, receive response for interface
     public void setUserClasses(ArrayList<String> classList){
-        client = GeneralTools.createAsyncHttpClient(context);
+        commit("/user/classes", "classes", new JSONArray(classList), "Classes Update Completed");
+    }
 
-        String restApiUrl = GlobalConfig.BASE_API_URL + "/user/classes";
+    //@brief: Starts collecting changes to the user's '/user' fields, see: EditProfileActivity.java
+    //@return: ProfilePatch with no changes
+    public ProfilePatch edit(){
+        return new ProfilePatch();
+    }
 
-        JSONObject jsonParams = new JSONObject();
-        try {
+    //@brief:
+    //Changes to the 'preferred name', GitHub and LinkedIn links, committed together as one '/user' request
+    //A field set more than once is sent with its last value
+    public class ProfilePatch {
+        private JSONObject changes = new JSONObject();
+        //Passed to the interface with the result, names the one field changed or says several were
+        private String message = null;
+
+        private ProfilePatch(){
+        }
 
-            JSONArray array = new JSONArray();
-            for (String oneClass : classList) {
-                array.put(oneClass);
-            }
-            jsonParams.accumulate("classes",array);
+        public ProfilePatch setName(String newName){
+            return put("name", newName, "Name Updated");
+        }
 
-            System.out.println("classList" + classList);
-            System.out.println("jsonParams: " + jsonParams);
-            StringEntity entity = new StringEntity(jsonParams.toString());
-            entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, "application/json"));
+        public ProfilePatch setGithub(String newGithub){
+            return put("github", newGithub, "Github Updated");
+        }
 
-            client.post(context, restApiUrl, entity,"application/json", new JsonHttpResponseHandler(){
-                @Override
-                public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                    super.onSuccess(statusCode, headers, response);
-                    Log.i("response", String.valueOf(response));
-                }
+        public ProfilePatch setLinkedIn(String newLinkedIn){
+            return put("linkedin", newLinkedIn, "LinkedIn Updated");
+        }
 
-                @Override
-                public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                    super.onFailure(statusCode, headers, responseString, throwable);
-                    Log.i("response", String.valueOf(responseString));
-                }
-            });
+        //@return: Boolean 'true' if a field was set since the last commit()
+        public boolean hasChanges(){
+            return changes.length() > 0;
+        }
 
-        } catch (JSONException | UnsupportedEncodingException e) {
-            e.printStackTrace();
+        private ProfilePatch put(String field, String value, String fieldMessage){
+            try {
+                changes.put(field, value);
+            } catch (JSONException e) {
+                e.printStackTrace();
+                return this;
+            }
+            message = changes.length() == 1 ? fieldMessage : "Profile Updated";
+            return this;
         }
 
+        //@brief:
+        //Sends every field set since the last commit() in one '/user' request, the patch is empty again afterwards
+        //Nothing changed returns Boolean 'true' without a request
+        //See: SetUserData.commit()
+        //@pre condition: Changes collected, request not sent to server to update user info
+        //@post condition: Request queued, receive response for interface
+        public void commit(){
+            if (!hasChanges()) {
+                updateComplete.dataUpdateComplete(true, "Nothing Updated");
+                return;
+            }
+            JSONObject jsonParams = changes;
+            changes = new JSONObject();
+            SetUserData.this.commit("/user", jsonParams, message);
+        }
+    }
 
-        updateComplete.dataUpdateComplete(true, "Classes Update Completed");
+    //@brief:
+    //Sends changed profile fields
+    //'name', 'github' and 'linkedin' go to '/user', skills and classes have their own routes on the server
+    //Outbox
+    //ASYNC HTTP POST request, queued in the outbox so it is not lost if the connection drops
+    //Profile changes to the same route still waiting in the outbox are merged into one request,
+    //e.g. name and GitHub edited offline go out as one '/user' request, see: Outbox.enqueueMerged()
+    //Skills and classes are sent as add/remove deltas against the last fetched profile when GlobalConfig.LIST_DELTAS is on and that is smaller, see ListDelta.java
+    //If delivered or queued for later, return Boolean 'true' to the interface function
+    //If rejected by the server, return Boolean 'false' to the interface function
+    //@params: [String route] e.g. "/user" [JSONObject jsonParams] changed fields [String message] passed to the interface with the result
+    //@pre condition: Request not sent to server to update user info
+    //@post condition: Request queued, receive response for interface
+    private void commit(String route, JSONObject jsonParams, final String message){
+        String restApiUrl = GlobalConfig.BASE_API_URL + route;
+
+        Outbox.getInstance(context).enqueueMerged(restApiUrl, jsonParams, "profile:" + route, Outbox.firstStatusOnly(context, new Outbox.StatusListener() {
+            @Override
+            public void onStatus(Outbox.Status status, int statusCode, String body) {
+                Log.i("response", String.valueOf(body));
+                updateComplete.dataUpdateComplete(status != Outbox.Status.FAILED, message);
+            }
+        }));
+    }
 
+    //@brief: One field as its own request, see: commit(route, jsonParams, message)
+    private void commit(String route, String field, Object value, String message){
+        JSONObject jsonParams = new JSONObject();
+        try {
+            jsonParams.put(field, value);
+        } catch (JSONException e) {
+            e.printStackTrace();
+            return;
+        }
+        commit(route, jsonParams, message);
     }
 
     //@author: Hugh Leow
     //@brief:
     //Interface function to pass the Boolean to:
+    //EditProfileActivity.java, which passes it to the fragment shown:
     //EditNameFragment.java
     //EditGithubFragment.java
     //EditLinkedInFragment.java
@@ -4,22 +4,14 @@ import android.content.Context;
 import android.util.Log;
 
 import com.huntercollab.app.config.GlobalConfig;
-import com.huntercollab.app.utils.GeneralTools;
-import com.loopj.android.http.AsyncHttpClient;
-import com.loopj.android.http.JsonHttpResponseHandler;
+import com.huntercollab.app.network.loopjtasks.http.Outbox;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 
-import cz.msebera.android.httpclient.Header;
-import cz.msebera.android.httpclient.entity.StringEntity;
-import cz.msebera.android.httpclient.message.BasicHeader;
-import cz.msebera.android.httpclient.protocol.HTTP;
-
 public class UpdateCollabData {
 
     //Listener variables
@@ -37,371 +29,203 @@ public class UpdateCollabData {
     //@author: Hugh Leow
     //@brief:
     //Used to update the collaboration title
-    //Takes the newTitle and collabId parameter and puts it into a JSON
-    //AsyncHttpClient asyncHttpClient
-    //ASYNC HTTP POST request, sends JSON to the server for request
-    //If successful, return Boolean 'true' to the interface function
-    //If unsuccessful, return Boolean 'false' to the interface function
+    //Takes the newTitle and collabId parameter
+    //Single field EditSession, see: EditSession.commit()
     //@params: [String newTitle] [String collabId]
     //@pre condition: Request not sent to server to update collab info
-    //@post condition: Request sent to server, receive response for interface
+    //@post condition: Request queued, receive response for interface
     public void updateCollabTitle(String newTitle, String collabId){
-
-        AsyncHttpClient client = GeneralTools.createAsyncHttpClient(context);
-
-        String restApiUrl = GlobalConfig.BASE_API_URL + "/collab/editCollab";
-
-        JSONObject jsonParams = new JSONObject();
-        try {
-            jsonParams.put("title", newTitle);
-            jsonParams.put("id", collabId);
-
-            StringEntity entity = new StringEntity(jsonParams.toString());
-            entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, "application/json"));
-
-            client.post(context, restApiUrl, entity,"application/json", new JsonHttpResponseHandler(){
-                @Override
-                public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                    super.onSuccess(statusCode, headers, response);
-                    Log.i("response", String.valueOf(response));
-                    updateCollabListener.updateCollabComplete(true);
-                }
-                @Override
-                public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                    super.onFailure(statusCode, headers, responseString, throwable);
-                    Log.i("response", String.valueOf(responseString));
-                    updateCollabListener.updateCollabComplete(false);
-                }
-            });
-        } catch (JSONException | UnsupportedEncodingException e) {
-            e.printStackTrace();
-        }
+        edit(collabId).setTitle(newTitle).commit();
     }
 
     //@author: Hugh Leow
     //@brief:
     //Used to update the collaboration size
-    //Takes the newSize and collabId parameter and puts it into a JSON
-    //AsyncHttpClient asyncHttpClient
-    //ASYNC HTTP POST request, sends JSON to the server for request
-    //If successful, return Boolean 'true' to the interface function
-    //If unsuccessful, return Boolean 'false' to the interface function
+    //Takes the newSize and collabId parameter
+    //Single field EditSession, see: EditSession.commit()
     //@params: [String newSize] [String collabId]
     //@pre condition: Request not sent to server to update collab info
-    //@post condition: Request sent to server, receive response for interface
+    //@post condition: Request queued, receive response for interface
     public void updateCollabSize(int newSize, String collabId){
-
-        AsyncHttpClient client = GeneralTools.createAsyncHttpClient(context);
-
-        String restApiUrl = GlobalConfig.BASE_API_URL + "/collab/editCollab";
-
-        JSONObject jsonParams = new JSONObject();
-        try {
-            jsonParams.put("size", newSize);
-            jsonParams.put("id", collabId);
-
-            StringEntity entity = new StringEntity(jsonParams.toString());
-            entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, "application/json"));
-
-            client.post(context, restApiUrl, entity,"application/json", new JsonHttpResponseHandler(){
-                @Override
-                public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                    super.onSuccess(statusCode, headers, response);
-                    Log.i("response", String.valueOf(response));
-                    updateCollabListener.updateCollabComplete(true);
-                }
-                @Override
-                public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                    super.onFailure(statusCode, headers, responseString, throwable);
-                    Log.i("response", String.valueOf(responseString));
-                    updateCollabListener.updateCollabComplete(false);
-                }
-            });
-        } catch (JSONException | UnsupportedEncodingException e) {
-            e.printStackTrace();
-        }
+        edit(collabId).setSize(newSize).commit();
     }
 
     //@author: Hugh Leow
     //@brief:
     //Used to update the collaboration description
-    //Takes the newDescription and collabId parameter and puts it into a JSON
-    //AsyncHttpClient asyncHttpClient
-    //ASYNC HTTP POST request, sends JSON to the server for request
-    //If successful, return Boolean 'true' to the interface function
-    //If unsuccessful, return Boolean 'false' to the interface function
+    //Takes the newDescription and collabId parameter
+    //Single field EditSession, see: EditSession.commit()
     //@params: [String newDescription] [String collabId]
     //@pre condition: Request not sent to server to update collab info
-    //@post condition: Request sent to server, receive response for interface
+    //@post condition: Request queued, receive response for interface
     public void updateCollabDescription(String newDescription, String collabId){
-
-        AsyncHttpClient client = GeneralTools.createAsyncHttpClient(context);
-
-        String restApiUrl = GlobalConfig.BASE_API_URL + "/collab/editCollab";
-
-        JSONObject jsonParams = new JSONObject();
-        try {
-            jsonParams.put("description", newDescription);
-            jsonParams.put("id", collabId);
-
-            StringEntity entity = new StringEntity(jsonParams.toString());
-            entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, "application/json"));
-
-            client.post(context, restApiUrl, entity,"application/json", new JsonHttpResponseHandler(){
-                @Override
-                public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                    super.onSuccess(statusCode, headers, response);
-                    Log.i("response", String.valueOf(response));
-                    updateCollabListener.updateCollabComplete(true);
-                }
-                @Override
-                public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                    super.onFailure(statusCode, headers, responseString, throwable);
-                    Log.i("response", String.valueOf(responseString));
-                    updateCollabListener.updateCollabComplete(false);
-                }
-            });
-        } catch (JSONException | UnsupportedEncodingException e) {
-            e.printStackTrace();
-        }
+        edit(collabId).setDescription(newDescription).commit();
     }
 
     //@author: Hugh Leow
     //@brief:
     //Used to update the collaboration location
-    //Takes the newLocation and collabId parameter and puts it into a JSON
-    //AsyncHttpClient asyncHttpClient
-    //ASYNC HTTP POST request, sends JSON to the server for request
-    //If successful, return Boolean 'true' to the interface function
-    //If unsuccessful, return Boolean 'false' to the interface function
+    //Takes the newLocation and collabId parameter
+    //Single field EditSession, see: EditSession.commit()
     //@params: [String newLocation] [String collabId]
     //@pre condition: Request not sent to server to update collab info
-    //@post condition: Request sent to server, receive response for interface
+    //@post condition: Request queued, receive response for interface
     public void updateCollabLocation(String newLocation, String collabId){
-
-        AsyncHttpClient client = GeneralTools.createAsyncHttpClient(context);
-
-        String restApiUrl = GlobalConfig.BASE_API_URL + "/collab/editCollab";
-
-        JSONObject jsonParams = new JSONObject();
-        try {
-            jsonParams.put("location", newLocation);
-            jsonParams.put("id", collabId);
-
-            StringEntity entity = new StringEntity(jsonParams.toString());
-            entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, "application/json"));
-
-            client.post(context, restApiUrl, entity,"application/json", new JsonHttpResponseHandler(){
-                @Override
-                public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                    super.onSuccess(statusCode, headers, response);
-                    Log.i("response", String.valueOf(response));
-                    updateCollabListener.updateCollabComplete(true);
-                }
-                @Override
-                public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                    super.onFailure(statusCode, headers, responseString, throwable);
-                    Log.i("response", String.valueOf(responseString));
-                    updateCollabListener.updateCollabComplete(false);
-                }
-            });
-        } catch (JSONException | UnsupportedEncodingException e) {
-            e.printStackTrace();
-        }
+        edit(collabId).setLocation(newLocation).commit();
     }
 
     //@author: Hugh Leow
     //@brief:
     //Used to update the collaboration start date and time
-    //Takes the newStartDate and collabId parameter and puts it into a JSON
-    //AsyncHttpClient asyncHttpClient
-    //ASYNC HTTP POST request, sends JSON to the server for request
-    //If successful, return Boolean 'true' to the interface function
-    //If unsuccessful, return Boolean 'false' to the interface function
+    //Takes the newStartDate and collabId parameter
+    //Single field EditSession, see: EditSession.commit()
     //@params: [long newStartDate] [String collabId]
     //@pre condition: Request not sent to server to update collab info
-    //@post condition: Request sent to server, receive response for interface
+    //@post condition: Request queued, receive response for interface
     public void updateCollabStartDate(long newStartDate, String collabId){
-
-        AsyncHttpClient client = GeneralTools.createAsyncHttpClient(context);
-
-        String restApiUrl = GlobalConfig.BASE_API_URL + "/collab/editCollab";
-
-        JSONObject jsonParams = new JSONObject();
-        try {
-            jsonParams.put("date", newStartDate);
-            jsonParams.put("id", collabId);
-
-            StringEntity entity = new StringEntity(jsonParams.toString());
-            entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, "application/json"));
-
-            client.post(context, restApiUrl, entity,"application/json", new JsonHttpResponseHandler(){
-                @Override
-                public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                    super.onSuccess(statusCode, headers, response);
-                    Log.i("response", String.valueOf(response));
-                    updateCollabListener.updateCollabComplete(true);
-                }
-                @Override
-                public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                    super.onFailure(statusCode, headers, responseString, throwable);
-                    Log.i("response", String.valueOf(responseString));
-                    updateCollabListener.updateCollabComplete(false);
-                }
-            });
-        } catch (JSONException | UnsupportedEncodingException e) {
-            e.printStackTrace();
-        }
+        edit(collabId).setStartDate(newStartDate).commit();
     }
 
     //@author: Hugh Leow
     //@brief:
     //Used to update the collaboration end date and time
-    //Takes the newDuration and collabId parameter and puts it into a JSON
-    //AsyncHttpClient asyncHttpClient
-    //ASYNC HTTP POST request, sends JSON to the server for request
-    //If successful, return Boolean 'true' to the interface function
-    //If unsuccessful, return Boolean 'false' to the interface function
+    //Takes the newDuration and collabId parameter
+    //Single field EditSession, see: EditSession.commit()
     //@params: [long newDuration] [String collabId]
     //@pre condition: Request not sent to server to update collab info
-    //@post condition: Request sent to server, receive response for interface
+    //@post condition: Request queued, receive response for interface
     public void updateCollabEndDate(long newDuration, String collabId){
-
-        AsyncHttpClient client = GeneralTools.createAsyncHttpClient(context);
-
-        String restApiUrl = GlobalConfig.BASE_API_URL + "/collab/editCollab";
-
-        JSONObject jsonParams = new JSONObject();
-        try {
-            jsonParams.put("duration", newDuration);
-            jsonParams.put("id", collabId);
-
-            StringEntity entity = new StringEntity(jsonParams.toString());
-            entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, "application/json"));
-
-            client.post(context, restApiUrl, entity,"application/json", new JsonHttpResponseHandler(){
-                @Override
-                public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                    super.onSuccess(statusCode, headers, response);
-                    Log.i("response", String.valueOf(response));
-                    updateCollabListener.updateCollabComplete(true);
-                }
-                @Override
-                public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                    super.onFailure(statusCode, headers, responseString, throwable);
-                    Log.i("response", String.valueOf(responseString));
-                    updateCollabListener.updateCollabComplete(false);
-                }
-            });
-        } catch (JSONException | UnsupportedEncodingException e) {
-            e.printStackTrace();
-        }
+        edit(collabId).setEndDate(newDuration).commit();
     }
 
     //@author: Hugh Leow
     //@brief:
     //Used to update the collaboration skills requested
-    //Takes the skillList and collabId parameter and puts it into a JSON
-    //AsyncHttpClient asyncHttpClient
-    //ASYNC HTTP POST request, sends JSON to the server for request
-    //If successful, return Boolean 'true' to the interface function
-    //If unsuccessful, return Boolean 'false' to the interface function
+    //Takes the skillList and collabId parameter
+    //Single field EditSession, see: EditSession.commit()
     //@params: [ArrayList<String> skillList] [String collabId]
     //@pre condition: Request not sent to server to update collab info
-    //@post condition: Request sent to server, receive response for interface
+    //@post condition: Request queued, receive response for interface
     public void updateCollabSkills(ArrayList<String> skillList, String collabId){
+        edit(collabId).setSkills(skillList).commit();
+    }
 
-        AsyncHttpClient client = GeneralTools.createAsyncHttpClient(context);
+    //@author: Hugh Leow
+    //@brief:
+    //Used to update the collaboration classes requested
+    //Takes the classList and collabId parameter
+    //Single field EditSession, see: EditSession.commit()
+    //@params: [ArrayList<String> classList] [String collabId]
+    //@pre condition: Request not sent to server to update collab info
+    //@post condition: Request queued, receive response for interface
+    public void updateCollabClasses(ArrayList<String> classList, String collabId){
+        edit(collabId).setClasses(classList).commit();
+    }
 
-        String restApiUrl = GlobalConfig.BASE_API_URL + "/collab/editCollab";
+    //@brief: Starts collecting changes to a collaboration, see: EditCollabActivity.java
+    //@params: [String collabId]
+    //@return: EditSession with no changes
+    public EditSession edit(String collabId){
+        return new EditSession(collabId);
+    }
 
-        JSONObject jsonParams = new JSONObject();
-        try {
-            JSONArray array = new JSONArray();
-            for (String oneClass : skillList) {
-                array.put(oneClass);
-            }
-            jsonParams.accumulate("skills",array);
-            jsonParams.put("id", collabId);
+    //@brief:
+    //Changes to one collaboration that are committed together as one '/collab/editCollab' request
+    //A field set more than once is sent with its last value
+    //Edits of the same collaboration that are still waiting in the outbox are merged with it, see: Outbox.enqueueMerged()
+    public class EditSession {
+        private final String collabId;
+        private JSONObject changes = new JSONObject();
+
+        private EditSession(String collabId){
+            this.collabId = collabId;
+        }
 
-            StringEntity entity = new StringEntity(jsonParams.toString());
-            entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, "application/json"));
+        public EditSession setTitle(String newTitle){
+            return put("title", newTitle);
+        }
 
-            client.post(context, restApiUrl, entity,"application/json", new JsonHttpResponseHandler(){
-                @Override
-                public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                    super.onSuccess(statusCode, headers, response);
-                    Log.i("response", String.valueOf(response));
-                    updateCollabListener.updateCollabComplete(true);
-                }
+        public EditSession setSize(int newSize){
+            return put("size", newSize);
+        }
 
-                @Override
-                public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                    super.onFailure(statusCode, headers, responseString, throwable);
-                    Log.i("response", String.valueOf(responseString));
-                    updateCollabListener.updateCollabComplete(false);
-                }
-            });
+        public EditSession setDescription(String newDescription){
+            return put("description", newDescription);
+        }
 
-        } catch (JSONException | UnsupportedEncodingException e) {
-            e.printStackTrace();
+        public EditSession setLocation(String newLocation){
+            return put("location", newLocation);
         }
 
-    }
+        public EditSession setStartDate(long newStartDate){
+            return put("date", newStartDate);
+        }
 
-    //@author: Hugh Leow
-    //@brief:
-    //Used to update the collaboration classes requested
-    //Takes the classList and collabId parameter and puts it into a JSON
-    //AsyncHttpClient asyncHttpClient
-    //ASYNC HTTP POST request, sends JSON to the server for request
-    //If successful, return Boolean 'true' to the interface function
-    //If unsuccessful, return Boolean 'false' to the interface function
-    //@params: [ArrayList<String> classList] [String collabId]
-    //@pre condition: Request not sent to server to update collab info
-    //@post condition: Request sent to server, receive response for interface
-    public void updateCollabClasses(ArrayList<String> classList, String collabId){
+        public EditSession setEndDate(long newDuration){
+            return put("duration", newDuration);
+        }
+
+        public EditSession setSkills(ArrayList<String> skillList){
+            return put("skills", new JSONArray(skillList));
+        }
 
-        AsyncHttpClient client = GeneralTools.createAsyncHttpClient(context);
+        public EditSession setClasses(ArrayList<String> classList){
+            return put("classes", new JSONArray(classList));
+        }
 
-        String restApiUrl = GlobalConfig.BASE_API_URL + "/collab/editCollab";
+        //@return: Boolean 'true' if a field was set since the last commit()
+        public boolean hasChanges(){
+            return changes.length() > 0;
+        }
 
-        JSONObject jsonParams = new JSONObject();
-        try {
-            JSONArray array = new JSONArray();
-            for (String oneClass : classList) {
-                array.put(oneClass);
+        private EditSession put(String field, Object value){
+            try {
+                changes.put(field, value);
+            } catch (JSONException e) {
+                e.printStackTrace();
             }
-            jsonParams.accumulate("classes",array);
-            jsonParams.put("id", collabId);
-
-            StringEntity entity = new StringEntity(jsonParams.toString());
-            entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, "application/json"));
+            return this;
+        }
 
-            client.post(context, restApiUrl, entity,"application/json", new JsonHttpResponseHandler(){
-                @Override
-                public void onSuccess(int statusCode, Header[] headers, JSONObject response) {
-                    super.onSuccess(statusCode, headers, response);
-                    Log.i("response", String.valueOf(response));
-                    updateCollabListener.updateCollabComplete(true);
-                }
+        //@brief:
+        //Sends every field set since the last commit() in one request, the session is empty again afterwards
+        //Outbox
+        //ASYNC HTTP POST request, queued in the outbox so it is not lost if the connection drops
+        //If delivered or queued for later, return Boolean 'true' to the interface function
+        //If rejected by the server, return Boolean 'false' to the interface function
+        //Nothing changed returns Boolean 'true' without a request
+        //@pre condition: Changes collected, request not sent to server to update collab info
+        //@post condition: Request queued, receive response for interface
+        public void commit(){
+            if (!hasChanges()) {
+                updateCollabListener.updateCollabComplete(true);
+                return;
+            }
+            String restApiUrl = GlobalConfig.BASE_API_URL + "/collab/editCollab";
+
+            JSONObject jsonParams = changes;
+            changes = new JSONObject();
+            try {
+                jsonParams.put("id", collabId);
+            } catch (JSONException e) {
+                e.printStackTrace();
+                return;
+            }
 
+            Outbox.getInstance(context).enqueueMerged(restApiUrl, jsonParams, "editCollab:" + collabId, Outbox.firstStatusOnly(context, new Outbox.StatusListener() {
                 @Override
-                public void onFailure(int statusCode, Header[] headers, String responseString, Throwable throwable) {
-                    super.onFailure(statusCode, headers, responseString, throwable);
-                    Log.i("response", String.valueOf(responseString));
-                    updateCollabListener.updateCollabComplete(false);
+                public void onStatus(Outbox.Status status, int statusCode, String body) {
+                    Log.i("response", String.valueOf(body));
+                    updateCollabListener.updateCollabComplete(status != Outbox.Status.FAILED);
                 }
-            });
-
-        } catch (JSONException | UnsupportedEncodingException e) {
-            e.printStackTrace();
+            }));
         }
     }
 
     //@author: Hugh Leow
     //@brief:
     //Interface function to pass Boolean:
+    //EditCollabActivity.java, which passes it to the fragment shown:
     //EditCollabDescripFragment.java
     //EditCollabEndFragment.java
     //EditCollabLocationFragment.java
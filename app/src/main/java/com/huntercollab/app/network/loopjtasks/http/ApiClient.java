@@ -0,0 +1,621 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+
+import com.huntercollab.app.config.GlobalConfig;
+import com.huntercollab.app.utils.GeneralTools;
+import com.loopj.android.http.AsyncHttpClient;
+import com.loopj.android.http.AsyncHttpResponseHandler;
+import com.loopj.android.http.RequestHandle;
+import com.loopj.android.http.RequestParams;
+
+import org.json.JSONObject;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import cz.msebera.android.httpclient.Header;
+import cz.msebera.android.httpclient.entity.StringEntity;
+import cz.msebera.android.httpclient.message.BasicHeader;
+import cz.msebera.android.httpclient.protocol.HTTP;
+
+//@brief:
+//Requests for the API classes in network.loopjtasks
+//Every GET is sent as a conditional request when a cached copy exists (If-None-Match / If-Modified-Since)
+//A '304 Not Modified' answer is served from DiskResponseCache.java so unchanged payloads cost one header exchange
+//Identical GETs issued while one is already in flight share that request and all listeners receive its result
+//Cache lookups happen on a background thread before the request is sent, reads and writes of bodies on the HTTP pool thread
+//Failed attempts are retried with exponential backoff and jitter (RetryPolicy.java) while the host's CircuitBreaker.java
+//lets requests through, an open breaker fails requests at once instead of waiting for the HTTP timeout
+//Responses requested with a Decoder are parsed on a background thread, listeners are always called on the main thread
+//Requests made with a RequestScope.java as their Context are cancelled with the scope, see cancelAll()
+//GETs started by prefetch() are kept for a short time and handed to the first screen asking for the same URL
+public class ApiClient {
+
+    private static final int NOT_MODIFIED = 304;
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    //GETs currently on the network, keyed by full URL
+    private static final HashMap<String, Call> inFlight = new HashMap<>();
+    //Every unfinished call (GET and POST), guarded by 'inFlight'
+    private static final HashSet<Call> calls = new HashSet<>();
+    //Prefetched responses no screen has asked for yet, keyed like 'inFlight' and guarded by it
+    private static final HashMap<String, Prefetched> prefetched = new HashMap<>();
+    //One background thread for cache lookups before a GET is sent, see lookupAndAttempt()
+    private static final ExecutorService cacheExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, "api-cache");
+        }
+    });
+    //One background thread, responses are decoded in the order they arrive
+    private static final ExecutorService decodeExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    r.run();
+                }
+            }, "api-decode");
+        }
+    });
+
+    //@brief: Receives the body of a finished request on the main thread
+    public interface ResponseListener {
+        public void onSuccess(int statusCode, String body);
+        public void onFailure(int statusCode, String body, Throwable throwable);
+    }
+
+    //@brief: Turns a response body into a finished result, called on the decode thread
+    public interface Decoder<T> {
+        public T decode(String body) throws Exception;
+    }
+
+    //@brief: Receives the decoded result on the main thread
+    //onFailure() is also called when the body could not be decoded
+    public interface DecodedListener<T> {
+        public void onDecoded(int statusCode, T result);
+        public void onFailure(int statusCode, String body, Throwable throwable);
+    }
+
+    //@brief: Where a finished response goes, called on the HTTP pool thread
+    //'scope' is the RequestScope.java the request was made with, or null
+    private abstract static class Receiver {
+        final RequestScope scope;
+
+        Receiver(Context context) {
+            this.scope = context instanceof RequestScope ? (RequestScope) context : null;
+        }
+
+        boolean isCancelled() {
+            return scope != null && scope.isCancelled();
+        }
+
+        abstract void onSuccess(int statusCode, String body);
+        abstract void onFailure(int statusCode, String body, Throwable throwable);
+    }
+
+    //@brief:
+    //ASYNC HTTP GET request through the shared client, revalidating any cached copy of the response
+    //If an identical GET (same URL and params) is already in flight, 'listener' joins it instead of sending another request
+    //@params: [Context context] [String url] [RequestParams params] [ResponseListener listener]
+    //@pre condition: No request sent
+    //@post condition: Request sent or joined, body passed to 'listener' from the network, the cache or a prefetch
+    //@return: RequestHandle of the attempt on the network, null while the cached copy is looked up, during a backoff
+    //or if a prefetched response was used, cancel through a RequestScope.java to cover every case
+    public static RequestHandle get(Context context, String url, RequestParams params, ResponseListener listener) {
+        return get(context, url, params, onMainThread(context, listener));
+    }
+
+    //@brief: Same as get() above, but the body is decoded by 'decoder' off the main thread and only the result is passed to 'listener'
+    //@params: [Context context] [String url] [RequestParams params] [Decoder<T> decoder] [DecodedListener<T> listener]
+    //@pre condition: No request sent
+    //@post condition: Request sent or joined, decoded result passed to 'listener'
+    //@return: RequestHandle as for get() above
+    public static <T> RequestHandle get(Context context, String url, RequestParams params, Decoder<T> decoder, DecodedListener<T> listener) {
+        return get(context, url, params, decoding(context, decoder, listener));
+    }
+
+    //@brief:
+    //ASYNC HTTP POST request through the shared client, sends 'json' as the body
+    //Only for read-only queries: POST responses are never cached or shared, and failed attempts are sent again
+    //The body is decoded by 'decoder' off the main thread
+    //@params: [Context context] [String url] [JSONObject json] [Decoder<T> decoder] [DecodedListener<T> listener]
+    //@pre condition: No request sent
+    //@post condition: Request sent, decoded result passed to 'listener'
+    //@return: RequestHandle of the first attempt that can be used to cancel the request, null if the breaker is open
+    public static <T> RequestHandle post(Context context, String url, JSONObject json, Decoder<T> decoder, DecodedListener<T> listener) {
+        StringEntity entity = new StringEntity(json.toString(), "UTF-8");
+        entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, "application/json"));
+
+        Call call = new Call(null);
+        call.receivers.add(decoding(context, decoder, listener));
+        synchronized (inFlight) {
+            calls.add(call);
+        }
+        attemptPost(context, url, entity, call);
+        return call.handle;
+    }
+
+    //@brief: Sends the next attempt of a POST if the breaker allows it
+    private static void attemptPost(final Context context, final String url, final StringEntity entity, final Call call) {
+        if (call.cancelled) {
+            return;
+        }
+        final CircuitBreaker breaker = CircuitBreaker.forUrl(url);
+        if (!breaker.allowRequest()) {
+            deliverFailure(call, 0, null, new CircuitBreaker.CircuitOpenException(breaker.getHost()));
+            return;
+        }
+        call.attempts++;
+
+        AsyncHttpClient client = GeneralTools.getAsyncHttpClient(context);
+        //No Context: calls are cancelled through their handle, so one screen cannot cancel a call another screen shares
+        RequestHandle handle = client.post(null, url, entity, "application/json", new AsyncHttpResponseHandler(true) {
+            @Override
+            public void onSuccess(int statusCode, Header[] headers, byte[] responseBody) {
+                breaker.onSuccess();
+                deliverSuccess(call, statusCode, responseBody);
+            }
+
+            @Override
+            public void onFailure(int statusCode, Header[] headers, byte[] responseBody, Throwable error) {
+                recordFailure(breaker, statusCode);
+                if (scheduleRetry(call, statusCode, new Runnable() {
+                    @Override
+                    public void run() {
+                        attemptPost(context, url, entity, call);
+                    }
+                })) {
+                    return;
+                }
+                deliverFailure(call, statusCode, responseBody, error);
+            }
+
+            @Override
+            public void onCancel() {
+                //Cancelled by cancelAll(), loopj reports neither success nor failure
+                breaker.onCancelled();
+            }
+        });
+        call.handle = handle;
+    }
+
+    //@brief:
+    //Starts a GET now so a screen opened shortly after finds its response ready
+    //The response is kept for GlobalConfig.PREFETCH_MAX_AGE and used once, by the first get() with the same URL and params
+    //A get() made while the prefetch is still on the network joins it like any identical GET, then nothing is kept
+    //Failed prefetches keep nothing, the screen sends its own request
+    //@params: [Context context] [String url] [RequestParams params] must match what the screen will send
+    //@pre condition: No identical GET in flight or prefetched
+    //@post condition: Request sent, response kept for the next identical get()
+    public static void prefetch(Context context, String url, RequestParams params) {
+        String key = AsyncHttpClient.getUrlWithQueryString(true, url, params);
+        synchronized (inFlight) {
+            Prefetched ready = prefetched.get(key);
+            if (inFlight.containsKey(key) || (ready != null && !ready.isStale())) {
+                return;
+            }
+        }
+        get(context.getApplicationContext(), url, params, new PrefetchReceiver(key));
+    }
+
+    //@brief: Drops every prefetched response, they belong to the previous user after a login
+    static void clearPrefetched() {
+        synchronized (inFlight) {
+            prefetched.clear();
+        }
+    }
+
+    private static RequestHandle get(Context context, String url, RequestParams params, Receiver receiver) {
+        String key = AsyncHttpClient.getUrlWithQueryString(true, url, params);
+        Call call = null;
+        Prefetched ready;
+        synchronized (inFlight) {
+            ready = prefetched.remove(key);
+            if (ready == null || ready.isStale()) {
+                call = inFlight.get(key);
+                if (call != null) {
+                    call.receivers.add(receiver);
+                    return call.handle;
+                }
+                call = new Call(key);
+                call.receivers.add(receiver);
+                inFlight.put(key, call);
+                calls.add(call);
+                ready = null;
+            }
+        }
+        if (ready != null) {
+            receiver.onSuccess(ready.statusCode, ready.body);
+            return null;
+        }
+        lookupAndAttempt(context, url, params, call);
+        return call.handle;
+    }
+
+    //@brief:
+    //Looks up the cached copy of 'call' on the cache thread, then sends the next attempt with its validators
+    //Opening the cache reads its index from disk and put() holds its lock while writing, neither may block the main thread
+    //@params: [Context context] [String url] [RequestParams params] [Call call]
+    private static void lookupAndAttempt(final Context context, final String url, final RequestParams params, final Call call) {
+        cacheExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (call.cancelled) {
+                    return;
+                }
+                DiskResponseCache cache = DiskResponseCache.getInstance(context);
+                attempt(context, url, params, cache, cache.get(call.key), call);
+            }
+        });
+    }
+
+    //@brief: One network request and every receiver waiting for its result
+    //'key' is null for requests that are not shared (POST)
+    private static class Call {
+        final String key;
+        final ArrayList<Receiver> receivers = new ArrayList<>();
+        volatile RequestHandle handle;
+        volatile int attempts = 0;
+        //Every receiver's scope was cancelled, no further attempts are sent
+        volatile boolean cancelled = false;
+
+        Call(String key) {
+            this.key = key;
+        }
+    }
+
+    //@brief: Sends the next attempt of a GET if the breaker allows it, otherwise fails 'call' at once
+    private static void attempt(Context context, String url, RequestParams params,
+                                DiskResponseCache cache, DiskResponseCache.Entry cached, Call call) {
+        if (call.cancelled) {
+            return;
+        }
+        CircuitBreaker breaker = CircuitBreaker.forUrl(url);
+        if (!breaker.allowRequest()) {
+            deliverFailure(call, 0, null, new CircuitBreaker.CircuitOpenException(breaker.getHost()));
+            return;
+        }
+        call.attempts++;
+        call.handle = send(context, url, params, cache, cached, call, breaker);
+    }
+
+    private static RequestHandle send(final Context context, final String url, final RequestParams params,
+                                      final DiskResponseCache cache, final DiskResponseCache.Entry cached,
+                                      final Call call, final CircuitBreaker breaker) {
+        AsyncHttpClient client = GeneralTools.getAsyncHttpClient(context);
+        final String key = call.key;
+
+        //usePoolThread = true, so the cache is read/written off the main thread
+        //No Context: see attemptPost()
+        return client.get(null, url, conditionalHeaders(cached), params, new AsyncHttpResponseHandler(true) {
+            @Override
+            public void onSuccess(int statusCode, Header[] headers, byte[] responseBody) {
+                breaker.onSuccess();
+                String etag = headerValue(headers, "ETag");
+                String lastModified = headerValue(headers, "Last-Modified");
+                if (responseBody != null && (etag != null || lastModified != null)) {
+                    cache.put(key, etag, lastModified, responseBody);
+                } else if (cached != null) {
+                    cache.remove(key);
+                }
+                deliverSuccess(call, statusCode, responseBody);
+            }
+
+            @Override
+            public void onFailure(int statusCode, Header[] headers, byte[] responseBody, Throwable error) {
+                if (statusCode == NOT_MODIFIED && cached != null) {
+                    breaker.onSuccess();
+                    byte[] body = cache.readBody(cached);
+                    if (body != null) {
+                        deliverSuccess(call, statusCode, body);
+                    } else {
+                        //Cached copy was evicted while the request was in flight, ask for the full response
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                attempt(context, url, params, cache, null, call);
+                            }
+                        });
+                    }
+                    return;
+                }
+                recordFailure(breaker, statusCode);
+                if (scheduleRetry(call, statusCode, new Runnable() {
+                    @Override
+                    public void run() {
+                        lookupAndAttempt(context, url, params, call);
+                    }
+                })) {
+                    return;
+                }
+                deliverFailure(call, statusCode, responseBody, error);
+            }
+
+            @Override
+            public void onCancel() {
+                //Cancelled by cancelAll(), see attemptPost()
+                breaker.onCancelled();
+            }
+        });
+    }
+
+    //@brief: Reports a failed attempt to the breaker, errors from the client side (4xx) mean the host is up
+    private static void recordFailure(CircuitBreaker breaker, int statusCode) {
+        if (RetryPolicy.isRetryable(statusCode)) {
+            breaker.onFailure();
+        } else {
+            breaker.onSuccess();
+        }
+    }
+
+    //@brief:
+    //Schedules 'retry' after the backoff delay if 'call' may be attempted again
+    //A call that was cancelled in the meantime is dropped instead of being sent again
+    //@params: [Call call] [int statusCode] [Runnable retry]
+    //@return: Boolean 'true' if a retry was scheduled, 'false' if the failure should be delivered
+    private static boolean scheduleRetry(final Call call, int statusCode, final Runnable retry) {
+        if (!RetryPolicy.shouldRetry(call.attempts, statusCode)) {
+            if (RetryPolicy.isRetryable(statusCode)) {
+                HttpMetrics.retriesExhausted();
+            }
+            return false;
+        }
+        HttpMetrics.retried();
+        mainHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                if (call.cancelled) {
+                    return;
+                }
+                retry.run();
+            }
+        }, RetryPolicy.delayFor(call.attempts));
+        return true;
+    }
+
+    //@brief: Validators of the cached copy as request headers
+    //@params: [DiskResponseCache.Entry cached]
+    //@return: Header[] to send, empty if nothing is cached
+    private static Header[] conditionalHeaders(DiskResponseCache.Entry cached) {
+        ArrayList<Header> headers = new ArrayList<>();
+        if (cached != null) {
+            if (cached.etag != null) {
+                headers.add(new BasicHeader("If-None-Match", cached.etag));
+            }
+            if (cached.lastModified != null) {
+                headers.add(new BasicHeader("If-Modified-Since", cached.lastModified));
+            }
+        }
+        return headers.toArray(new Header[headers.size()]);
+    }
+
+    //@brief: Case insensitive lookup of a response header
+    //@params: [Header[] headers] [String name]
+    //@return: header value or null
+    static String headerValue(Header[] headers, String name) {
+        if (headers == null) {
+            return null;
+        }
+        for (Header h : headers) {
+            if (h.getName().equalsIgnoreCase(name)) {
+                return h.getValue();
+            }
+        }
+        return null;
+    }
+
+    //@brief: Decodes the response body as UTF-8
+    static String bodyToString(byte[] body) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            return new String(body, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return new String(body);
+        }
+    }
+
+    //@brief: Removes 'call' from the in flight map, later GETs for the same key start a new request
+    //@return: receivers that were waiting on 'call'
+    private static ArrayList<Receiver> complete(Call call) {
+        synchronized (inFlight) {
+            if (call.key != null && inFlight.get(call.key) == call) {
+                inFlight.remove(call.key);
+            }
+            calls.remove(call);
+            ArrayList<Receiver> receivers = new ArrayList<>(call.receivers);
+            call.receivers.clear();
+            return receivers;
+        }
+    }
+
+    //@brief:
+    //Detaches every receiver of 'scope', calls left without receivers are cancelled and removed from the in flight map
+    //Calls shared with other screens keep running for them
+    //See: RequestScope.cancel()
+    //@params: [RequestScope scope]
+    //@pre condition: 'scope' cancelled
+    //@post condition: No call holds a receiver of 'scope', breakers of cancelled calls are released through onCancel()
+    static void cancelAll(RequestScope scope) {
+        ArrayList<Call> cancelled = new ArrayList<>();
+        synchronized (inFlight) {
+            Iterator<Call> it = calls.iterator();
+            while (it.hasNext()) {
+                Call call = it.next();
+                Iterator<Receiver> receivers = call.receivers.iterator();
+                while (receivers.hasNext()) {
+                    if (receivers.next().scope == scope) {
+                        receivers.remove();
+                    }
+                }
+                if (call.receivers.isEmpty()) {
+                    call.cancelled = true;
+                    it.remove();
+                    if (call.key != null && inFlight.get(call.key) == call) {
+                        inFlight.remove(call.key);
+                    }
+                    cancelled.add(call);
+                }
+            }
+        }
+        for (Call call : cancelled) {
+            RequestHandle handle = call.handle;
+            if (handle != null) {
+                handle.cancel(true);
+            }
+        }
+    }
+
+    //@brief: Number of unfinished calls, shown in NetworkMetrics.report()
+    static int callsInFlight() {
+        synchronized (inFlight) {
+            return calls.size();
+        }
+    }
+
+    private static void deliverSuccess(Call call, int statusCode, byte[] body) {
+        String text = body == null ? "" : bodyToString(body);
+        ArrayList<Receiver> receivers = complete(call);
+        for (Receiver receiver : receivers) {
+            //A screen joined the prefetch and already has the response, nothing is kept
+            if (receiver instanceof PrefetchReceiver && receivers.size() > 1) {
+                continue;
+            }
+            receiver.onSuccess(statusCode, text);
+        }
+    }
+
+    private static void deliverFailure(Call call, int statusCode, byte[] body, Throwable error) {
+        String text = bodyToString(body);
+        for (Receiver receiver : complete(call)) {
+            receiver.onFailure(statusCode, text, error);
+        }
+    }
+
+    //@brief: Response of a prefetch() waiting for its screen
+    private static class Prefetched {
+        final int statusCode;
+        final String body;
+        final long storedAt = SystemClock.elapsedRealtime();
+
+        Prefetched(int statusCode, String body) {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+
+        boolean isStale() {
+            return SystemClock.elapsedRealtime() - storedAt > GlobalConfig.PREFETCH_MAX_AGE;
+        }
+    }
+
+    //@brief: Receiver of a prefetch(), keeps the response instead of passing it on
+    private static class PrefetchReceiver extends Receiver {
+        private final String key;
+
+        PrefetchReceiver(String key) {
+            super(null);
+            this.key = key;
+        }
+
+        @Override
+        void onSuccess(int statusCode, String body) {
+            synchronized (inFlight) {
+                prefetched.put(key, new Prefetched(statusCode, body));
+            }
+        }
+
+        @Override
+        void onFailure(int statusCode, String body, Throwable throwable) {
+        }
+    }
+
+    //@brief: Receiver that passes the raw body to 'listener' on the main thread
+    //Nothing is passed once the receiver's scope is cancelled
+    private static Receiver onMainThread(Context context, final ResponseListener listener) {
+        return new Receiver(context) {
+            @Override
+            public void onSuccess(final int statusCode, final String body) {
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!isCancelled()) {
+                            listener.onSuccess(statusCode, body);
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(final int statusCode, final String body, final Throwable throwable) {
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!isCancelled()) {
+                            listener.onFailure(statusCode, body, throwable);
+                        }
+                    }
+                });
+            }
+        };
+    }
+
+    //@brief: Receiver that decodes the body on the decode thread and posts only the finished result to the main thread
+    //Nothing is decoded or passed once the receiver's scope is cancelled
+    private static <T> Receiver decoding(Context context, final Decoder<T> decoder, final DecodedListener<T> listener) {
+        return new Receiver(context) {
+            @Override
+            public void onSuccess(final int statusCode, final String body) {
+                decodeExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (isCancelled()) {
+                            return;
+                        }
+                        final T result;
+                        try {
+                            result = decoder.decode(body);
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                            onFailure(statusCode, body, e);
+                            return;
+                        }
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (!isCancelled()) {
+                                    listener.onDecoded(statusCode, result);
+                                }
+                            }
+                        });
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(final int statusCode, final String body, final Throwable throwable) {
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!isCancelled()) {
+                            listener.onFailure(statusCode, body, throwable);
+                        }
+                    }
+                });
+            }
+        };
+    }
+}
@@ -0,0 +1,120 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.AsyncTask;
+
+import com.huntercollab.app.config.GlobalConfig;
+import com.loopj.android.http.PersistentCookieStore;
+
+import java.util.List;
+
+import cz.msebera.android.httpclient.cookie.Cookie;
+import cz.msebera.android.httpclient.impl.cookie.BasicClientCookie;
+
+//@brief:
+//Keeps the 'capstoneAuth' JWT token in memory for the lifetime of the process
+//The token is read from the cookie store once at startup and afterwards only changes on login/register
+//Readers (HTTP layer, RealtimeClient.java) get the current value without locking or touching SharedPreferences
+//The username of the last login is kept too, data cached for one user is dropped when another user logs in
+public class AuthSession {
+
+    public static final String AUTH_COOKIE = "capstoneAuth";
+    private static final String PREFS = "AuthSession";
+    private static final String PREF_USER = "user";
+
+    private static volatile String token;
+    private static volatile String user;
+    private static volatile boolean loaded = false;
+
+    //@brief: Loads the stored token from the shared cookie store, only the first call does any work
+    //See: HunterCollabApp.java
+    //@params: [Context context]
+    //@pre condition: Token not loaded in memory
+    //@post condition: Token loaded in memory, null if the user never logged in
+    public static void init(Context context) {
+        if (loaded) {
+            return;
+        }
+        synchronized (AuthSession.class) {
+            if (!loaded) {
+                token = readToken(SharedHttpClient.getCookieStore(context));
+                user = prefs(context).getString(PREF_USER, null);
+                loaded = true;
+            }
+        }
+    }
+
+    //@brief: Returns the current auth token
+    //@params: [Context context]
+    //@return: JWT token, or null if not logged in
+    public static String getToken(Context context) {
+        if (!loaded) {
+            init(context);
+        }
+        return token;
+    }
+
+    //@brief:
+    //Replaces the auth token after a successful login/register
+    //Cookie store is updated first so the shared HTTP client sends the new token, then the in memory copy is swapped
+    //If 'username' is not the user of the previous login, cached responses and unsent changes of that user are dropped,
+    //logging in again as the same user (e.g. after the token expired) keeps the changes still queued in the outbox
+    //@params: [Context context] [String username] e-mail the user logged in with [String newToken]
+    //@pre condition: Old or no token stored
+    //@post condition: New token stored in the cookie store and in memory
+    public static synchronized void setToken(Context context, String username, String newToken) {
+        if (!loaded) {
+            init(context);
+        }
+        PersistentCookieStore cookieStore = SharedHttpClient.getCookieStore(context);
+        cookieStore.clear();
+        BasicClientCookie newCookie = new BasicClientCookie(AUTH_COOKIE, newToken);
+        newCookie.setDomain(GlobalConfig.HOST);
+        newCookie.setPath("/");
+        cookieStore.addCookie(newCookie);
+
+        if (user == null || !user.equalsIgnoreCase(username)) {
+            clearUserData(context.getApplicationContext());
+            user = username;
+            prefs(context).edit().putString(PREF_USER, username).apply();
+        }
+
+        token = newToken;
+        loaded = true;
+    }
+
+    //@brief:
+    //Drops what belongs to the previous user
+    //Outbox.clear() is queued on the outbox thread now, so it runs before anything the new user queues
+    //The response cache is cleared on a background thread, it deletes files and may first have to load its index
+    //@params: [Context context] application context
+    private static void clearUserData(final Context context) {
+        Outbox.getInstance(context).clear();
+        ListDelta.clear();
+        ApiClient.clearPrefetched();
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                DiskResponseCache.getInstance(context).clear();
+            }
+        });
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    //@brief: Scans the cookie store for the auth cookie
+    //@params: [PersistentCookieStore cookieStore]
+    //@return: token value or null
+    private static String readToken(PersistentCookieStore cookieStore) {
+        List<Cookie> cks = cookieStore.getCookies();
+        for (Cookie c : cks) {
+            if (c.getName().equals(AUTH_COOKIE)) {
+                return c.getValue();
+            }
+        }
+        return null;
+    }
+}
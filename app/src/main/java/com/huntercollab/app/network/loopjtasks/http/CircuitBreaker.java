@@ -0,0 +1,162 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import android.net.Uri;
+import android.os.SystemClock;
+
+import com.huntercollab.app.config.GlobalConfig;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+//@brief:
+//Per host circuit breaker for the API
+//After GlobalConfig.BREAKER_FAILURE_THRESHOLD consecutive failures the breaker opens and requests to that host fail
+//immediately with CircuitOpenException instead of waiting for the HTTP timeout
+//After GlobalConfig.BREAKER_OPEN_TIME one trial request is let through (half open), its result closes or re-opens the breaker
+//A trial that is cancelled, or not answered within GlobalConfig.BREAKER_TRIAL_TIMEOUT, lets the next request be the trial
+//See: ApiClient.java
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final HashMap<String, CircuitBreaker> breakers = new HashMap<>();
+
+    private final String host;
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+    private boolean trialInFlight = false;
+    private long trialStartedAt = 0;
+
+    CircuitBreaker(String host) {
+        this.host = host;
+    }
+
+    //@return: current time in ms, SystemClock.elapsedRealtime()
+    long now() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    //@brief: Returns the breaker for the host of 'url', one instance per host
+    //@params: [String url]
+    //@return: CircuitBreaker
+    public static CircuitBreaker forUrl(String url) {
+        String host = Uri.parse(url).getHost();
+        return forHost(host == null ? GlobalConfig.HOST : host);
+    }
+
+    //@params: [String host]
+    //@return: CircuitBreaker for 'host'
+    public static CircuitBreaker forHost(String host) {
+        synchronized (breakers) {
+            CircuitBreaker breaker = breakers.get(host);
+            if (breaker == null) {
+                breaker = new CircuitBreaker(host);
+                breakers.put(host, breaker);
+            }
+            return breaker;
+        }
+    }
+
+    //@brief: Current state of every breaker, used by HttpMetrics.java
+    //@return: HashMap of host -> State
+    public static HashMap<String, State> states() {
+        HashMap<String, State> states = new HashMap<>();
+        synchronized (breakers) {
+            for (Map.Entry<String, CircuitBreaker> entry : breakers.entrySet()) {
+                states.put(entry.getKey(), entry.getValue().getState());
+            }
+        }
+        return states;
+    }
+
+    //@brief:
+    //Asks for permission to send a request
+    //While open, only one trial request is allowed once the open time has passed
+    //@pre condition: Request not sent
+    //@post condition: Caller must report the result with onSuccess() or onFailure() if 'true' was returned
+    //@return: Boolean 'true' if the request may be sent
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now() - openedAt < GlobalConfig.BREAKER_OPEN_TIME) {
+                    HttpMetrics.shortCircuited();
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                startTrial();
+                return true;
+            default:
+                if (trialInFlight && now() - trialStartedAt < GlobalConfig.BREAKER_TRIAL_TIMEOUT) {
+                    HttpMetrics.shortCircuited();
+                    return false;
+                }
+                startTrial();
+                return true;
+        }
+    }
+
+    //@brief: For callers that wait instead of asking allowRequest() again and again, see: Outbox.java
+    //@return: long ms until allowRequest() may say 'true' again, 0 if it may now
+    public synchronized long timeUntilAllowed() {
+        long left;
+        if (state == State.OPEN) {
+            left = openedAt + GlobalConfig.BREAKER_OPEN_TIME - now();
+        } else if (state == State.HALF_OPEN && trialInFlight) {
+            left = trialStartedAt + GlobalConfig.BREAKER_TRIAL_TIMEOUT - now();
+        } else {
+            left = 0;
+        }
+        return Math.max(0, left);
+    }
+
+    private void startTrial() {
+        trialInFlight = true;
+        trialStartedAt = now();
+    }
+
+    //@brief:
+    //A request allowed by allowRequest() was cancelled before it was answered, nothing is known about the host
+    //If it was the trial, the next request becomes the trial, the failure count is left as it was
+    public synchronized void onCancelled() {
+        trialInFlight = false;
+    }
+
+    //@brief: The host answered, closes the breaker
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    //@brief: The host could not be reached or answered with a server error, may open the breaker
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= GlobalConfig.BREAKER_FAILURE_THRESHOLD) {
+            if (state != State.OPEN) {
+                HttpMetrics.breakerOpened();
+            }
+            state = State.OPEN;
+            openedAt = now();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    //@brief: Failure passed to listeners when a request was not sent because the breaker is open
+    public static class CircuitOpenException extends IOException {
+        public CircuitOpenException(String host) {
+            super("Circuit open for " + host);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import com.huntercollab.app.config.GlobalConfig;
+import com.huntercollab.app.network.loopjtasks.realtime.RMSConnector;
+import com.loopj.android.http.AsyncHttpClient;
+import com.loopj.android.http.AsyncHttpResponseHandler;
+import com.loopj.android.http.RequestParams;
+
+import cz.msebera.android.httpclient.Header;
+
+//@brief:
+//Gets the network ready before the user needs it, so the first screens after login do not pay for connection setup
+//warm():        while the login form is shown, opens pooled connections to the API and a socket to the realtime server,
+//               which also starts the HTTP pool threads
+//afterLogin():  right after a successful login, fetches the home screen data in parallel (ApiClient.prefetch())
+//HOST is an IP address, so there is no DNS lookup to do ahead of time
+public class ConnectionWarmer {
+
+    //Guarded by the class
+    private static long warmedAt = 0;
+
+    //@brief:
+    //Opens GlobalConfig.PREWARM_CONNECTIONS connections to the API and one to the realtime server
+    //Does nothing if it ran within the keep alive time, the pooled connections are still open then
+    //Each connection is opened by a HEAD request on the API root, its status does not matter
+    //@params: [Context context]
+    //@pre condition: Connections to the server may be closed
+    //@post condition: Idle connections to the server in the shared client's pool, realtime socket waiting in RMSConnector.java
+    public static synchronized void warm(Context context) {
+        long now = SystemClock.elapsedRealtime();
+        if (warmedAt != 0 && now - warmedAt < GlobalConfig.HTTP_KEEP_ALIVE) {
+            return;
+        }
+        warmedAt = now;
+        AsyncHttpClient client = SharedHttpClient.getClient(context);
+        //Sent together, so each one takes its own connection from the pool
+        for (int i = 0; i < GlobalConfig.PREWARM_CONNECTIONS; i++) {
+            client.head(null, GlobalConfig.BASE_API_URL + "/", new AsyncHttpResponseHandler(true) {
+                @Override
+                public void onSuccess(int statusCode, Header[] headers, byte[] responseBody) {
+                }
+
+                @Override
+                public void onFailure(int statusCode, Header[] headers, byte[] responseBody, Throwable error) {
+                }
+            });
+        }
+        RMSConnector.prewarm();
+    }
+
+    //@brief:
+    //Prefetches what CollabListActivity.java and the screens next to it load first, all in parallel
+    //The requests match GetUserData.getUserData(), MessagingAPI.getListOfMessages() and GetCollabsData.getCollabs("getAllCollabs")
+    //@params: [Context context]
+    //@pre condition: Auth token stored (AuthSession.setToken())
+    //@post condition: Requests sent, responses kept for the screens, see: ApiClient.prefetch()
+    public static void afterLogin(Context context) {
+        ApiClient.prefetch(context, GlobalConfig.BASE_API_URL + "/user/", new RequestParams());
+        ApiClient.prefetch(context, GlobalConfig.BASE_API_URL + "/messaging/myConvos", new RequestParams());
+        ApiClient.prefetch(context, GlobalConfig.BASE_API_URL + "/collab/getAllCollabs", null);
+    }
+}
@@ -0,0 +1,265 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.huntercollab.app.config.GlobalConfig;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//@brief:
+//Disk backed cache of GET response bodies, keyed by full request URL
+//Only responses with an ETag or Last-Modified validator are stored so they can be revalidated with a conditional GET
+//Total size is bounded, least recently used entries are deleted first
+//See: ApiClient.java
+public class DiskResponseCache {
+
+    private static final String TAG = "DiskResponseCache";
+    private static final int FORMAT_VERSION = 1;
+
+    private static DiskResponseCache instance;
+
+    private final File directory;
+    private final long maxBytes;
+    private long size = 0;
+    //Access ordered, first entry is the least recently used
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    //@brief: Returns the application wide cache stored in the app's cache directory
+    //@params: [Context context]
+    //@return: DiskResponseCache instance
+    public static synchronized DiskResponseCache getInstance(Context context) {
+        if (instance == null) {
+            File dir = new File(context.getApplicationContext().getCacheDir(), "http");
+            instance = new DiskResponseCache(dir, GlobalConfig.HTTP_CACHE_SIZE);
+        }
+        return instance;
+    }
+
+    //@brief: Creates a cache in 'directory' holding at most 'maxBytes', existing entries are loaded
+    //@params: [File directory] [long maxBytes]
+    public DiskResponseCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.w(TAG, "Could not create cache directory " + directory);
+        }
+        load();
+    }
+
+    //@brief: Validators and location of one cached response
+    public static class Entry {
+        public final String key;
+        public final String etag;
+        public final String lastModified;
+        final File file;
+        final long length;
+
+        Entry(String key, String etag, String lastModified, File file, long length) {
+            this.key = key;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.file = file;
+            this.length = length;
+        }
+    }
+
+    //@brief: Looks up the validators for 'key' and marks the entry as recently used, no disk access
+    //@params: [String key]
+    //@return: Entry or null if not cached
+    public synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    //@brief: Reads the cached body of 'entry' from disk
+    //@params: [Entry entry]
+    //@return: body bytes, or null if the entry was evicted or unreadable
+    public byte[] readBody(Entry entry) {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(entry.file)));
+            readHeader(in);
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            entry.file.setLastModified(System.currentTimeMillis());
+            return body;
+        } catch (IOException e) {
+            removeIfCurrent(entry);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    //@brief:
+    //Stores a response body with its validators, replacing any older entry for 'key'
+    //Evicts least recently used entries until the cache fits in 'maxBytes'
+    //@params: [String key] [String etag] [String lastModified] [byte[] body]
+    //@pre condition: 'etag' or 'lastModified' is not null
+    //@post condition: Response stored on disk
+    public synchronized void put(String key, String etag, String lastModified, byte[] body) {
+        File file = new File(directory, fileName(key));
+        File tmp = new File(directory, file.getName() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(key);
+            out.writeUTF(etag == null ? "" : etag);
+            out.writeUTF(lastModified == null ? "" : lastModified);
+            out.writeInt(body.length);
+            out.write(body);
+            out.close();
+            out = null;
+
+            removeEntry(key);
+            if (!tmp.renameTo(file)) {
+                throw new IOException("rename failed for " + file);
+            }
+            Entry entry = new Entry(key, etag, lastModified, file, file.length());
+            entries.put(key, entry);
+            size += entry.length;
+            trimToSize();
+        } catch (IOException e) {
+            Log.w(TAG, "Could not cache " + key, e);
+            tmp.delete();
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    //@brief: Removes the entry for 'key' if present
+    //@params: [String key]
+    public synchronized void remove(String key) {
+        removeEntry(key);
+    }
+
+    //@brief: Removes 'entry' unless a put() has replaced it since it was looked up, the new file has the same name
+    //@params: [Entry entry]
+    synchronized void removeIfCurrent(Entry entry) {
+        if (entries.get(entry.key) == entry) {
+            removeEntry(entry.key);
+        }
+    }
+
+    //@brief: Deletes every cached response, used when the logged in user changes
+    public synchronized void clear() {
+        for (Entry entry : entries.values()) {
+            entry.file.delete();
+        }
+        entries.clear();
+        size = 0;
+    }
+
+    //@return: total bytes on disk used by cached entries
+    public synchronized long size() {
+        return size;
+    }
+
+    //@return: number of cached entries
+    public synchronized int count() {
+        return entries.size();
+    }
+
+    private void removeEntry(String key) {
+        Entry old = entries.remove(key);
+        if (old != null) {
+            size -= old.length;
+            old.file.delete();
+        }
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (size > maxBytes && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            it.remove();
+            size -= eldest.length;
+            eldest.file.delete();
+        }
+    }
+
+    //@brief: Rebuilds the index from disk, files touched least recently are treated as least recently used
+    private synchronized void load() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long diff = a.lastModified() - b.lastModified();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+        for (File file : files) {
+            if (file.getName().endsWith(".tmp")) {
+                file.delete();
+                continue;
+            }
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                String[] header = readHeader(in);
+                Entry entry = new Entry(header[0], emptyToNull(header[1]), emptyToNull(header[2]), file, file.length());
+                entries.put(entry.key, entry);
+                size += entry.length;
+            } catch (IOException e) {
+                file.delete();
+            } finally {
+                closeQuietly(in);
+            }
+        }
+        trimToSize();
+    }
+
+    private static String[] readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != FORMAT_VERSION) {
+            throw new IOException("unknown cache format");
+        }
+        return new String[]{in.readUTF(), in.readUTF(), in.readUTF()};
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    //@brief: File name derived from the key, MD5 keeps it short and filesystem safe
+    private static String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException | IOException e) {
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                //Nothing....
+            }
+        }
+    }
+}
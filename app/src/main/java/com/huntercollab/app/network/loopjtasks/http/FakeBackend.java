@@ -0,0 +1,413 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+
+import cz.msebera.android.httpclient.HttpEntity;
+import cz.msebera.android.httpclient.HttpEntityEnclosingRequest;
+import cz.msebera.android.httpclient.NameValuePair;
+import cz.msebera.android.httpclient.client.methods.CloseableHttpResponse;
+import cz.msebera.android.httpclient.client.methods.HttpUriRequest;
+import cz.msebera.android.httpclient.client.utils.URLEncodedUtils;
+import cz.msebera.android.httpclient.protocol.HttpContext;
+import cz.msebera.android.httpclient.util.EntityUtils;
+
+//@brief:
+//In-process fake of the HunterCollab API, used as a Transport.java to run the client stack without a network or server
+//Implements the routes the app calls under /auth, /user, /collab, /messaging and /search with the same JSON shapes as the server
+//Answers are deterministic: seeded data is generated from a counter, every response waits the same fixed latency,
+//so latency and throughput benchmarks of the client (decoding, caching, outbox, metrics) can be compared run to run
+//Everything is kept in memory. The logged in user is the last one to log in or register, there is no token check
+//See: GlobalConfig.HTTP_TRANSPORT, SharedHttpClient.setTransport()
+public class FakeBackend implements Transport {
+
+    private static final String[] SKILLS = {"Java", "Python", "C++", "Android", "SQL", "JavaScript", "Git", "Design"};
+    private static final String[] CLASSES = {"CSCI 127", "CSCI 135", "CSCI 235", "CSCI 335", "CSCI 340", "CSCI 493"};
+
+    private final long latencyMillis;
+    //Guarded by 'this'
+    private final LinkedHashMap<String, JSONObject> users = new LinkedHashMap<>();
+    private final HashMap<String, String> passwords = new HashMap<>();
+    private final LinkedHashMap<String, JSONObject> collabs = new LinkedHashMap<>();
+    //Chat id (collab id or "<user>|<user>") -> messages
+    private final HashMap<String, JSONArray> chats = new HashMap<>();
+    private String currentUser = null;
+    private int nextId = 1;
+
+    //@params: [long latencyMillis] fixed delay before each response, 0 for none
+    public FakeBackend(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    //@brief: Fills the fake with generated users and collabs, the first user is logged in
+    //@params: [int userCount] users named user0@hunter.cuny.edu, user1@... with password "password" [int collabCount]
+    //@return: this
+    public synchronized FakeBackend seed(int userCount, int collabCount) {
+        try {
+            for (int i = 0; i < userCount; i++) {
+                JSONObject user = newUser("user" + i + "@hunter.cuny.edu", "password");
+                user.put("name", "User " + i);
+                user.put("skills", new JSONArray().put(SKILLS[i % SKILLS.length]).put(SKILLS[(i + 3) % SKILLS.length]));
+                user.put("classes", new JSONArray().put(CLASSES[i % CLASSES.length]));
+            }
+            ArrayList<String> usernames = new ArrayList<>(users.keySet());
+            for (int i = 0; i < collabCount && !usernames.isEmpty(); i++) {
+                JSONObject collab = new JSONObject();
+                collab.put("title", "Collab " + i);
+                collab.put("description", "Generated collab number " + i);
+                collab.put("location", "Room " + (100 + i));
+                collab.put("size", 2 + i % 5);
+                collab.put("date", 1546300800000L + i * 86400000L);
+                collab.put("duration", 7 + i % 30);
+                collab.put("skills", new JSONArray().put(SKILLS[i % SKILLS.length]));
+                collab.put("classes", new JSONArray().put(CLASSES[i % CLASSES.length]));
+                createCollab(usernames.get(i % usernames.size()), collab);
+            }
+            if (!usernames.isEmpty()) {
+                currentUser = usernames.get(0);
+            }
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public CloseableHttpResponse execute(HttpUriRequest request, HttpContext context) throws IOException {
+        NetworkMetrics.connected();
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                //The request was cancelled
+                throw new InterruptedIOException();
+            }
+        }
+        String path = request.getURI().getPath();
+        HashMap<String, String> query = new HashMap<>();
+        for (NameValuePair pair : URLEncodedUtils.parse(request.getURI(), "UTF-8")) {
+            query.put(pair.getName(), pair.getValue());
+        }
+        JSONObject body = new JSONObject();
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            String text = entity == null ? "" : EntityUtils.toString(entity, "UTF-8");
+            if (!text.isEmpty()) {
+                try {
+                    body = new JSONObject(text);
+                } catch (JSONException e) {
+                    return error(400, "Body is not JSON");
+                }
+            }
+        }
+        try {
+            synchronized (this) {
+                return route(request.getMethod(), path == null ? "/" : path, query, body);
+            }
+        } catch (JSONException e) {
+            return error(400, e.getMessage());
+        }
+    }
+
+    //@brief: Dispatches one request, runs with the lock held
+    private CloseableHttpResponse route(String method, String path, HashMap<String, String> query, JSONObject body) throws JSONException {
+        switch (method + " " + path) {
+            case "GET /auth/login":
+                return login(query.get("username"), query.get("password"));
+            case "PUT /user":
+                return register(query.get("username"), query.get("password"));
+            case "GET /user/":
+            case "GET /user":
+                return currentUser == null ? error(401, "Not logged in") : ok(users.get(currentUser));
+            case "POST /user":
+                return updateUser(body);
+            case "POST /user/skills":
+                return updateUserList("skills", body);
+            case "POST /user/classes":
+                return updateUserList("classes", body);
+            case "POST /user/batch":
+                return batchUsers(body.optJSONArray("usernames"));
+            case "POST /collab/getRecommendedCollabs":
+            case "GET /collab/getAllCollabs":
+                return ok(new JSONArray(collabs.values()));
+            case "GET /collab/getCollabDetails":
+                return ok(collabsOf(currentUser));
+            case "POST /collab/createCollab":
+                createCollab(currentUser, body);
+                return success();
+            case "POST /collab/editCollab":
+                return editCollab(body);
+            case "POST /collab/joinCollab":
+                return joinCollab(body.optString("id"), true);
+            case "POST /collab/leaveCollab":
+                return joinCollab(body.optString("id"), false);
+            case "DELETE /collab/deleteCollabForReal":
+                return collabs.remove(body.optString("id")) != null ? success() : error(404, "No such collab");
+            case "GET /messaging/myConvos":
+                return myConvos();
+            case "POST /messaging/getMessages":
+                return getMessages(body);
+            case "POST /messaging/sendMessage":
+                return sendMessage(body);
+            case "GET /search/skills":
+                return search(SKILLS, query.get("query"));
+            case "GET /search/classes":
+                return search(CLASSES, query.get("query"));
+            default:
+                if ("GET".equals(method) && path.startsWith("/user/")) {
+                    JSONObject user = users.get(path.substring("/user/".length()));
+                    return user != null ? ok(user) : error(404, "No such user");
+                }
+                return error(404, "Not found: " + method + " " + path);
+        }
+    }
+
+    private CloseableHttpResponse login(String username, String password) throws JSONException {
+        JSONObject user = username == null ? null : users.get(username);
+        if (user == null || !passwords.get(username).equals(password)) {
+            return ok(new JSONObject().put("success", false).put("error", "Invalid username or password"));
+        }
+        currentUser = username;
+        return ok(new JSONObject().put("success", true).put("token", "fake-" + username));
+    }
+
+    private CloseableHttpResponse register(String username, String password) throws JSONException {
+        if (username == null || password == null || users.containsKey(username)) {
+            return ok(new JSONObject().put("success", false).put("error", "Username taken"));
+        }
+        newUser(username, password);
+        currentUser = username;
+        return ok(new JSONObject().put("success", true).put("token", "fake-" + username));
+    }
+
+    private CloseableHttpResponse updateUser(JSONObject body) throws JSONException {
+        JSONObject user = currentUser == null ? null : users.get(currentUser);
+        if (user == null) {
+            return error(401, "Not logged in");
+        }
+        for (String field : new String[]{"name", "github", "linkedin"}) {
+            if (body.has(field)) {
+                user.put(field, body.getString(field));
+            }
+        }
+        return success();
+    }
+
+    private CloseableHttpResponse updateUserList(String field, JSONObject body) throws JSONException {
+        JSONObject user = currentUser == null ? null : users.get(currentUser);
+        if (user == null) {
+            return error(401, "Not logged in");
+        }
+        if (!body.has(field)) {
+            return error(400, "Missing " + field);
+        }
+        user.put(field, applyList(user.getJSONArray(field), body.get(field)));
+        return success();
+    }
+
+    private CloseableHttpResponse batchUsers(JSONArray usernames) throws JSONException {
+        if (usernames == null) {
+            return error(400, "Missing usernames");
+        }
+        JSONArray result = new JSONArray();
+        for (int i = 0; i < usernames.length(); i++) {
+            JSONObject user = users.get(usernames.getString(i));
+            if (user != null) {
+                result.put(new JSONObject().put("username", user.getString("username")).put("name", user.getString("name")));
+            }
+        }
+        return ok(result);
+    }
+
+    private CloseableHttpResponse editCollab(JSONObject body) throws JSONException {
+        JSONObject collab = collabs.get(body.optString("id"));
+        if (collab == null) {
+            return error(404, "No such collab");
+        }
+        if (!collab.getString("owner").equals(currentUser)) {
+            return error(403, "Not the owner");
+        }
+        for (String field : new String[]{"title", "description", "location", "size", "date", "duration"}) {
+            if (body.has(field)) {
+                collab.put(field, body.get(field));
+            }
+        }
+        for (String field : new String[]{"skills", "classes"}) {
+            if (body.has(field)) {
+                collab.put(field, applyList(collab.getJSONArray(field), body.get(field)));
+            }
+        }
+        return success();
+    }
+
+    private CloseableHttpResponse joinCollab(String id, boolean join) throws JSONException {
+        JSONObject collab = collabs.get(id);
+        if (collab == null) {
+            return error(404, "No such collab");
+        }
+        JSONArray members = collab.getJSONArray("members");
+        ArrayList<String> list = toList(members);
+        if (join) {
+            if (list.contains(currentUser) || list.size() >= collab.getInt("size")) {
+                return ok(new JSONObject().put("error", "Cannot join"));
+            }
+            members.put(currentUser);
+        } else {
+            list.remove(currentUser);
+            collab.put("members", new JSONArray(list));
+        }
+        return success();
+    }
+
+    private CloseableHttpResponse myConvos() throws JSONException {
+        JSONArray convos = new JSONArray();
+        for (JSONObject collab : collabs.values()) {
+            if (toList(collab.getJSONArray("members")).contains(currentUser)) {
+                convos.put(new JSONObject().put("_id", collab.get("_id")).put("title", collab.getString("title")));
+            }
+        }
+        for (String chatId : chats.keySet()) {
+            String[] pair = chatId.split("\\|");
+            if (pair.length == 2 && (pair[0].equals(currentUser) || pair[1].equals(currentUser))) {
+                String other = pair[0].equals(currentUser) ? pair[1] : pair[0];
+                convos.put(new JSONObject().put("otherUser", other).put("title", users.containsKey(other) ? users.get(other).getString("name") : other));
+            }
+        }
+        return ok(convos);
+    }
+
+    private CloseableHttpResponse getMessages(JSONObject body) throws JSONException {
+        JSONArray messages = chats.get(chatIdOf(body, "otherUser"));
+        //The server answers with a list of chat documents, each holding its messages
+        JSONArray result = new JSONArray();
+        result.put(new JSONObject().put("messages", messages != null ? messages : new JSONArray()));
+        return ok(result);
+    }
+
+    private CloseableHttpResponse sendMessage(JSONObject body) throws JSONException {
+        String chatId = chatIdOf(body, "recipient");
+        if (chatId == null || !body.has("message")) {
+            return error(400, "Missing recipient or message");
+        }
+        JSONArray messages = chats.get(chatId);
+        if (messages == null) {
+            messages = new JSONArray();
+            chats.put(chatId, messages);
+        }
+        JSONObject user = users.get(currentUser);
+        messages.put(new JSONObject()
+                .put("sender", currentUser)
+                .put("dispName", user != null ? user.getString("name") : currentUser)
+                .put("message", body.getString("message"))
+                //Deterministic clock, one tick per message
+                .put("time", 1546300800000L + nextId++));
+        return success();
+    }
+
+    private CloseableHttpResponse search(String[] terms, String query) throws JSONException {
+        JSONArray matches = new JSONArray();
+        String needle = query == null ? "" : query.toLowerCase(Locale.US);
+        for (String term : terms) {
+            if (term.toLowerCase(Locale.US).contains(needle)) {
+                matches.put(term);
+            }
+        }
+        return ok(new JSONObject().put("matches", matches));
+    }
+
+    private JSONObject newUser(String username, String password) throws JSONException {
+        JSONObject user = new JSONObject();
+        user.put("username", username);
+        user.put("name", username);
+        user.put("github", "");
+        user.put("linkedin", "");
+        user.put("profilePicture", "");
+        user.put("skills", new JSONArray());
+        user.put("classes", new JSONArray());
+        users.put(username, user);
+        passwords.put(username, password);
+        return user;
+    }
+
+    private void createCollab(String owner, JSONObject collab) throws JSONException {
+        String id = String.format(Locale.US, "%024x", nextId++);
+        collab.put("_id", new JSONObject().put("$oid", id));
+        collab.put("owner", owner);
+        collab.put("status", true);
+        collab.put("members", new JSONArray().put(owner));
+        collab.put("applicants", new JSONArray());
+        if (!collab.has("skills")) collab.put("skills", new JSONArray());
+        if (!collab.has("classes")) collab.put("classes", new JSONArray());
+        collabs.put(id, collab);
+    }
+
+    private JSONArray collabsOf(String username) throws JSONException {
+        JSONArray result = new JSONArray();
+        for (JSONObject collab : collabs.values()) {
+            if (toList(collab.getJSONArray("members")).contains(username)) {
+                result.put(collab);
+            }
+        }
+        return result;
+    }
+
+    //@brief: Collab id for collab chats, "<user>|<user>" in sorted order for direct chats
+    private String chatIdOf(JSONObject body, String userField) {
+        if (body.has("collabId")) {
+            return body.optString("collabId");
+        }
+        String other = body.optString(userField, null);
+        if (other == null || currentUser == null) {
+            return null;
+        }
+        return currentUser.compareTo(other) < 0 ? currentUser + "|" + other : other + "|" + currentUser;
+    }
+
+    //@brief: Applies a full list or a ListDelta.java {"add": [...], "remove": [...]} to 'current'
+    private static JSONArray applyList(JSONArray current, Object value) throws JSONException {
+        if (value instanceof JSONArray) {
+            return (JSONArray) value;
+        }
+        JSONObject delta = (JSONObject) value;
+        ArrayList<String> list = toList(current);
+        list.removeAll(toList(delta.getJSONArray("remove")));
+        for (String added : toList(delta.getJSONArray("add"))) {
+            if (!list.contains(added)) {
+                list.add(added);
+            }
+        }
+        return new JSONArray(list);
+    }
+
+    private static ArrayList<String> toList(JSONArray array) throws JSONException {
+        ArrayList<String> list = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            list.add(array.getString(i));
+        }
+        return list;
+    }
+
+    private static CloseableHttpResponse ok(Object json) {
+        return TransportResponse.json(200, json.toString());
+    }
+
+    private static CloseableHttpResponse success() throws JSONException {
+        return ok(new JSONObject().put("success", true));
+    }
+
+    private static CloseableHttpResponse error(int statusCode, String message) {
+        try {
+            return TransportResponse.json(statusCode, new JSONObject().put("error", String.valueOf(message)).toString());
+        } catch (JSONException e) {
+            return TransportResponse.json(statusCode, "{}");
+        }
+    }
+}
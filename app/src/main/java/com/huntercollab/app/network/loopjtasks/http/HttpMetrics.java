@@ -0,0 +1,50 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+//@brief:
+//Counters for the resilience layer in ApiClient.java, shown after the per endpoint metrics in NetworkMetrics.report()
+//Updated from the HTTP pool thread, read from anywhere with snapshot()
+public class HttpMetrics {
+
+    private static final AtomicLong retries = new AtomicLong();
+    private static final AtomicLong retriesExhausted = new AtomicLong();
+    private static final AtomicLong shortCircuited = new AtomicLong();
+    private static final AtomicLong breakerOpened = new AtomicLong();
+
+    //@brief: A failed request was scheduled to be sent again
+    static void retried() {
+        retries.incrementAndGet();
+    }
+
+    //@brief: A request failed on its last allowed attempt
+    static void retriesExhausted() {
+        retriesExhausted.incrementAndGet();
+    }
+
+    //@brief: A request was failed immediately because the breaker was open
+    static void shortCircuited() {
+        shortCircuited.incrementAndGet();
+    }
+
+    //@brief: A breaker moved to the open state
+    static void breakerOpened() {
+        breakerOpened.incrementAndGet();
+    }
+
+    //@brief: Current counter values and the state of every host's breaker
+    //@return: LinkedHashMap of metric name -> value, e.g. "retries" -> "3", "breaker.13.58.204.157" -> "CLOSED"
+    public static LinkedHashMap<String, String> snapshot() {
+        LinkedHashMap<String, String> values = new LinkedHashMap<>();
+        values.put("retries", String.valueOf(retries.get()));
+        values.put("retries.exhausted", String.valueOf(retriesExhausted.get()));
+        values.put("breaker.shortCircuited", String.valueOf(shortCircuited.get()));
+        values.put("breaker.opened", String.valueOf(breakerOpened.get()));
+        for (Map.Entry<String, CircuitBreaker.State> entry : CircuitBreaker.states().entrySet()) {
+            values.put("breaker." + entry.getKey(), entry.getValue().name());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,88 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+//@brief:
+//Fixed size latency histogram with log-linear buckets (HDR style)
+//Values below 16 ms get their own bucket, above that every power of two is split into 8 buckets,
+//so a recorded value is off by at most 12.5% whatever its size. Values above ~17 minutes land in the last bucket
+//Not thread safe, NetworkMetrics.java records under its own lock
+public class LatencyHistogram {
+
+    private static final int LINEAR = 16;
+    private static final int SUB_BUCKETS = 8;
+    private static final int MAX_EXPONENT = 20;
+    //Last bucket collects everything from 2^MAX_EXPONENT ms up
+    private static final int BUCKETS = LINEAR + (MAX_EXPONENT - 4) * SUB_BUCKETS + 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count = 0;
+    private long sum = 0;
+    private long max = 0;
+
+    //@params: [long millis] negative values are recorded as 0
+    public void record(long millis) {
+        long value = Math.max(millis, 0);
+        counts[indexOf(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    //@return: mean in ms, 0 if empty
+    public long getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    //@brief: Value at or below which 'percentile' percent of the recorded values fall
+    //@params: [double percentile] 0 - 100
+    //@return: upper bound of the bucket holding that value in ms, never more than the max recorded, 0 if empty
+    public long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                //The last bucket has no upper bound, only the max is known
+                return i == BUCKETS - 1 ? max : Math.min(upperBoundOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    //@return: "n=12 mean=80 p50=64 p90=160 p99=240 max=251" in ms
+    public String summary() {
+        return "n=" + count + " mean=" + getMean() + " p50=" + getPercentile(50) + " p90=" + getPercentile(90)
+                + " p99=" + getPercentile(99) + " max=" + max;
+    }
+
+    private static int indexOf(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (value >> (exponent - 3)) - SUB_BUCKETS;
+        return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int exponent = (index - LINEAR) / SUB_BUCKETS + 4;
+        int sub = (index - LINEAR) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - 3)) - 1;
+    }
+}
@@ -0,0 +1,221 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import com.huntercollab.app.config.GlobalConfig;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+//@brief:
+//Add/remove operations between two string lists (skills, classes), used to send list edits as a delta instead of the whole list
+//Mutations in Outbox.java keep the full list, the delta is only worked out right before sending against the list the server
+//is known to hold (last fetched or last delivered), so queued and merged edits always diff against the real server state
+//On the wire a list field becomes {"add": [...], "remove": [...]} in place of the array, e.g. "skills": {"add": ["Java"], "remove": []}
+//Deltas are only sent when GlobalConfig.LIST_DELTAS says the server takes them, an older server would store the object as the list
+//The full list is sent when the server state is unknown, when the delta is not smaller than the list
+//or once the server has rejected a delta, see rejectedDelta()
+//Lists are compared as sets, the server keeps its own order
+public class ListDelta {
+
+    //Fields that hold string lists in profile and collab mutations
+    private static final String[] LIST_FIELDS = {"skills", "classes"};
+
+    //"<url>|<id>|<field>" -> list the server is known to hold
+    private static final HashMap<String, ArrayList<String>> known = new HashMap<>();
+    private static volatile boolean supported = GlobalConfig.LIST_DELTAS;
+
+    private final ArrayList<String> added = new ArrayList<>();
+    private final ArrayList<String> removed = new ArrayList<>();
+
+    private ListDelta() {
+    }
+
+    //@brief: Works out what has to be added to and removed from 'base' to get 'target'
+    //@params: [List<String> base] [List<String> target]
+    //@return: ListDelta, empty if both hold the same strings
+    public static ListDelta between(List<String> base, List<String> target) {
+        ListDelta delta = new ListDelta();
+        HashSet<String> baseSet = new HashSet<>(base);
+        HashSet<String> targetSet = new HashSet<>(target);
+        for (String value : target) {
+            if (!baseSet.contains(value) && !delta.added.contains(value)) {
+                delta.added.add(value);
+            }
+        }
+        for (String value : base) {
+            if (!targetSet.contains(value) && !delta.removed.contains(value)) {
+                delta.removed.add(value);
+            }
+        }
+        return delta;
+    }
+
+    public ArrayList<String> getAdded() {
+        return added;
+    }
+
+    public ArrayList<String> getRemoved() {
+        return removed;
+    }
+
+    //@return: number of operations
+    public int size() {
+        return added.size() + removed.size();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    //@return: JSONObject {"add": [...], "remove": [...]}
+    public JSONObject toJson() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("add", new JSONArray(added));
+        json.put("remove", new JSONArray(removed));
+        return json;
+    }
+
+    //@brief: Records the list the server holds for a field, e.g. after fetching the profile
+    //@params: [String url] route the field is edited through [String id] collab id, or "" for the logged in user [String field] [List<String> list]
+    public static void remember(String url, String id, String field, List<String> list) {
+        if (list == null) {
+            return;
+        }
+        synchronized (known) {
+            known.put(url + "|" + id + "|" + field, new ArrayList<>(list));
+        }
+    }
+
+    //@brief: Turns delta encoding on or off for the rest of the process, GlobalConfig.LIST_DELTAS sets the start value
+    //@params: [boolean enabled]
+    static void setSupported(boolean enabled) {
+        supported = enabled;
+    }
+
+    //@brief: Forgets every known list, used when the logged in user changes
+    public static void clear() {
+        synchronized (known) {
+            known.clear();
+        }
+    }
+
+    //@brief:
+    //Replaces the list fields of a queued mutation with deltas where that is smaller
+    //@params: [String url] [String body] full mutation body
+    //@return: body to send, or null to send 'body' unchanged
+    static String encode(String url, String body) {
+        if (!supported) {
+            return null;
+        }
+        try {
+            JSONObject json = new JSONObject(body);
+            String id = json.optString("id", "");
+            boolean encoded = false;
+            for (String field : LIST_FIELDS) {
+                JSONArray array = json.optJSONArray(field);
+                ArrayList<String> base = array == null ? null : knownList(url, id, field);
+                if (base == null) {
+                    continue;
+                }
+                ArrayList<String> target = toList(array);
+                ListDelta delta = between(base, target);
+                //Full replace is cheaper
+                if (delta.size() >= target.size()) {
+                    continue;
+                }
+                json.put(field, delta.toJson());
+                encoded = true;
+            }
+            return encoded ? json.toString() : null;
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    //@brief: Checks whether a mutation would change nothing: it only holds list fields equal to the known server lists (and the id)
+    //@params: [String url] [String body]
+    //@return: Boolean 'true' if it does not need to be sent
+    static boolean isNoOp(String url, String body) {
+        try {
+            JSONObject json = new JSONObject(body);
+            String id = json.optString("id", "");
+            Iterator<?> names = json.keys();
+            boolean hasList = false;
+            while (names.hasNext()) {
+                String name = (String) names.next();
+                if ("id".equals(name)) {
+                    continue;
+                }
+                JSONArray array = isListField(name) ? json.optJSONArray(name) : null;
+                ArrayList<String> base = array == null ? null : knownList(url, id, name);
+                if (base == null || !between(base, toList(array)).isEmpty()) {
+                    return false;
+                }
+                hasList = true;
+            }
+            return hasList;
+        } catch (JSONException e) {
+            return false;
+        }
+    }
+
+    //@brief: A mutation was accepted, its full lists are now the server state
+    //@params: [String url] [String body] full mutation body
+    static void delivered(String url, String body) {
+        try {
+            JSONObject json = new JSONObject(body);
+            String id = json.optString("id", "");
+            for (String field : LIST_FIELDS) {
+                JSONArray array = json.optJSONArray(field);
+                if (array != null) {
+                    remember(url, id, field, toList(array));
+                }
+            }
+        } catch (JSONException e) {
+            //Nothing....
+        }
+    }
+
+    //@brief:
+    //Called when a delta encoded mutation failed, a server without delta support answers with a client error
+    //After that, only full lists are sent until the app restarts
+    //Server errors (5xx) say nothing about delta support, the mutation is retried as usual
+    //@params: [int statusCode]
+    //@return: Boolean 'true' if the mutation should be sent again right away with full lists
+    static boolean rejectedDelta(int statusCode) {
+        if (statusCode == 400 || statusCode == 404 || statusCode == 415 || statusCode == 422) {
+            supported = false;
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isListField(String name) {
+        for (String field : LIST_FIELDS) {
+            if (field.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ArrayList<String> knownList(String url, String id, String field) {
+        synchronized (known) {
+            return known.get(url + "|" + id + "|" + field);
+        }
+    }
+
+    private static ArrayList<String> toList(JSONArray array) throws JSONException {
+        ArrayList<String> list = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            list.add(array.getString(i));
+        }
+        return list;
+    }
+}
@@ -0,0 +1,333 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import com.loopj.android.http.AsyncHttpRequest;
+import com.loopj.android.http.ResponseHandlerInterface;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import cz.msebera.android.httpclient.HttpEntity;
+import cz.msebera.android.httpclient.HttpEntityEnclosingRequest;
+import cz.msebera.android.httpclient.HttpException;
+import cz.msebera.android.httpclient.HttpRequest;
+import cz.msebera.android.httpclient.HttpRequestInterceptor;
+import cz.msebera.android.httpclient.HttpResponse;
+import cz.msebera.android.httpclient.HttpResponseInterceptor;
+import cz.msebera.android.httpclient.client.methods.HttpUriRequest;
+import cz.msebera.android.httpclient.entity.HttpEntityWrapper;
+import cz.msebera.android.httpclient.impl.client.AbstractHttpClient;
+import cz.msebera.android.httpclient.impl.client.DefaultHttpClient;
+import cz.msebera.android.httpclient.protocol.HttpContext;
+
+//@brief:
+//Per endpoint metrics for every request sent through the shared client (SharedHttpClient.java)
+//For each endpoint (method + path with ids replaced, e.g. "GET /user/{id}"): request and failure counts, status codes,
+//bytes sent and received (on the wire, before gzip) and latency histograms for each phase of the request:
+//queue:   handed to the client -> picked up by a pool thread
+//connect: picked up -> connection ready. The connection manager does not expose DNS lookup on its own, so it is part of connect
+//ttfb:    connection ready -> response headers received (request upload + server time)
+//total:   handed to the client -> response body fully read
+//Connection errors and timeouts are counted with status code 0
+//See: NetworkMetricsActivity.java for the debug screen, dump() for the file export
+public class NetworkMetrics {
+
+    public static final String DUMP_FILE = "network-metrics.txt";
+
+    private static final ThreadLocal<Exchange> current = new ThreadLocal<>();
+    //Guarded by itself
+    private static final TreeMap<String, Endpoint> endpoints = new TreeMap<>();
+
+    //@brief: Totals for one endpoint
+    public static class Endpoint {
+        public final String name;
+        public long requests = 0;
+        public long failures = 0;
+        public long bytesOut = 0;
+        public long bytesIn = 0;
+        public final TreeMap<Integer, Long> statusCodes = new TreeMap<>();
+        public final LatencyHistogram queue = new LatencyHistogram();
+        public final LatencyHistogram connect = new LatencyHistogram();
+        public final LatencyHistogram ttfb = new LatencyHistogram();
+        public final LatencyHistogram total = new LatencyHistogram();
+
+        Endpoint(String name) {
+            this.name = name;
+        }
+    }
+
+    //@brief: Timestamps of one request, only touched by the pool thread running it
+    private static class Exchange {
+        final String endpoint;
+        final long submittedAt;
+        final long bytesOut;
+        long startedAt = 0;
+        long connectedAt = 0;
+        long headersAt = 0;
+        long bodyDoneAt = 0;
+        long bytesIn = 0;
+        int statusCode = 0;
+
+        Exchange(String endpoint, long submittedAt, long bytesOut) {
+            this.endpoint = endpoint;
+            this.submittedAt = submittedAt;
+            this.bytesOut = bytesOut;
+        }
+    }
+
+    //@brief:
+    //Request created by the shared client in place of AsyncHttpRequest, times the whole exchange on its pool thread
+    //See: SharedHttpClient.java
+    public static class MeteredRequest extends AsyncHttpRequest {
+
+        private final Exchange exchange;
+
+        public MeteredRequest(AbstractHttpClient client, HttpContext context, HttpUriRequest request, ResponseHandlerInterface responseHandler) {
+            super(client, context, request, responseHandler);
+            long bytesOut = 0;
+            if (request instanceof HttpEntityEnclosingRequest) {
+                HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+                if (entity != null && entity.getContentLength() > 0) {
+                    bytesOut = entity.getContentLength();
+                }
+            }
+            exchange = new Exchange(endpointOf(request.getMethod(), request.getURI().getPath()), SystemClock.elapsedRealtime(), bytesOut);
+        }
+
+        @Override
+        public void run() {
+            exchange.startedAt = SystemClock.elapsedRealtime();
+            current.set(exchange);
+            try {
+                super.run();
+            } finally {
+                current.remove();
+                if (exchange.bodyDoneAt == 0) {
+                    exchange.bodyDoneAt = SystemClock.elapsedRealtime();
+                }
+                if (!isCancelled()) {
+                    record(exchange);
+                }
+            }
+        }
+    }
+
+    //@brief: Adds the interceptors that time the connection and response headers and count response bytes
+    //@params: [DefaultHttpClient httpClient] the client wrapped by the shared AsyncHttpClient
+    //@pre condition: Client created, no requests sent yet
+    //@post condition: Requests run as MeteredRequest are timed per phase
+    public static void install(DefaultHttpClient httpClient) {
+        //Runs once the connection is open, before the request is written
+        httpClient.addRequestInterceptor(new HttpRequestInterceptor() {
+            @Override
+            public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
+                connected();
+            }
+        });
+        //Index 0 runs before the client's gzip interceptor, so the counted bytes are the compressed ones
+        httpClient.addResponseInterceptor(new HttpResponseInterceptor() {
+            @Override
+            public void process(HttpResponse response, HttpContext context) throws HttpException, IOException {
+                responseReceived(response);
+            }
+        }, 0);
+    }
+
+    //@brief: The connection for the request running on this thread is ready, called by the interceptor or a Transport.java
+    static void connected() {
+        Exchange exchange = current.get();
+        if (exchange != null && exchange.connectedAt == 0) {
+            exchange.connectedAt = SystemClock.elapsedRealtime();
+        }
+    }
+
+    //@brief: Response headers for the request running on this thread arrived, its body is wrapped to count bytes
+    //@params: [HttpResponse response]
+    static void responseReceived(HttpResponse response) {
+        Exchange exchange = current.get();
+        if (exchange == null) {
+            return;
+        }
+        exchange.headersAt = SystemClock.elapsedRealtime();
+        exchange.statusCode = response.getStatusLine().getStatusCode();
+        HttpEntity entity = response.getEntity();
+        if (entity != null) {
+            response.setEntity(new CountingEntity(entity, exchange));
+        }
+    }
+
+    //@brief: Counts response body bytes and notes when the body was fully read
+    private static class CountingEntity extends HttpEntityWrapper {
+
+        private final Exchange exchange;
+
+        CountingEntity(HttpEntity wrapped, Exchange exchange) {
+            super(wrapped);
+            this.exchange = exchange;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new FilterInputStream(wrappedEntity.getContent()) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    count(b < 0 ? -1 : 1);
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int read = super.read(buffer, offset, length);
+                    count(read);
+                    return read;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    count(-1);
+                    super.close();
+                }
+            };
+        }
+
+        private void count(int read) {
+            if (read > 0) {
+                exchange.bytesIn += read;
+            } else if (read < 0 && exchange.bodyDoneAt == 0) {
+                exchange.bodyDoneAt = SystemClock.elapsedRealtime();
+            }
+        }
+    }
+
+    //@brief: Groups URLs by endpoint, path segments that are ids or emails become "{id}"
+    //@params: [String method] [String path]
+    //@return: String e.g. "POST /collab/getAllCollabs", "GET /user/{id}"
+    static String endpointOf(String method, String path) {
+        StringBuilder name = new StringBuilder(method).append(' ');
+        if (path == null || path.isEmpty()) {
+            return name.append('/').toString();
+        }
+        String[] segments = path.split("/", -1);
+        for (int i = 1; i < segments.length; i++) {
+            String segment = segments[i];
+            name.append('/').append(isId(segment) ? "{id}" : segment);
+        }
+        return name.toString();
+    }
+
+    private static boolean isId(String segment) {
+        if (segment.isEmpty()) {
+            return false;
+        }
+        if (segment.indexOf('@') >= 0 || segment.indexOf('%') >= 0) {
+            return true;
+        }
+        boolean digits = true;
+        boolean hex = segment.length() == 24;
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            digits &= c >= '0' && c <= '9';
+            hex &= (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f');
+        }
+        return digits || hex;
+    }
+
+    private static void record(Exchange exchange) {
+        synchronized (endpoints) {
+            Endpoint endpoint = endpoints.get(exchange.endpoint);
+            if (endpoint == null) {
+                endpoint = new Endpoint(exchange.endpoint);
+                endpoints.put(exchange.endpoint, endpoint);
+            }
+            endpoint.requests++;
+            if (exchange.statusCode == 0 || exchange.statusCode >= 400) {
+                endpoint.failures++;
+            }
+            Long seen = endpoint.statusCodes.get(exchange.statusCode);
+            endpoint.statusCodes.put(exchange.statusCode, seen == null ? 1 : seen + 1);
+            endpoint.bytesOut += exchange.bytesOut;
+            endpoint.bytesIn += exchange.bytesIn;
+            endpoint.queue.record(exchange.startedAt - exchange.submittedAt);
+            if (exchange.connectedAt != 0) {
+                endpoint.connect.record(exchange.connectedAt - exchange.startedAt);
+            }
+            if (exchange.headersAt != 0 && exchange.connectedAt != 0) {
+                endpoint.ttfb.record(exchange.headersAt - exchange.connectedAt);
+            }
+            endpoint.total.record(exchange.bodyDoneAt - exchange.submittedAt);
+        }
+    }
+
+    //@brief: Drops every recorded value
+    public static void reset() {
+        synchronized (endpoints) {
+            endpoints.clear();
+        }
+    }
+
+    //@brief: Human readable report of every endpoint followed by the calls in flight in ApiClient.java and the retry/breaker counters from HttpMetrics.java
+    //@return: String, one block per endpoint sorted by name
+    public static String report() {
+        StringBuilder report = new StringBuilder();
+        synchronized (endpoints) {
+            if (endpoints.isEmpty()) {
+                report.append("No requests recorded\n");
+            }
+            for (Endpoint endpoint : endpoints.values()) {
+                report.append(endpoint.name).append('\n');
+                report.append("  requests=").append(endpoint.requests)
+                        .append(" failures=").append(endpoint.failures)
+                        .append(" out=").append(endpoint.bytesOut).append("B")
+                        .append(" in=").append(endpoint.bytesIn).append("B\n");
+                report.append("  status");
+                for (Map.Entry<Integer, Long> status : endpoint.statusCodes.entrySet()) {
+                    report.append(' ').append(status.getKey() == 0 ? "error" : String.valueOf(status.getKey()))
+                            .append('=').append(status.getValue());
+                }
+                report.append('\n');
+                report.append("  queue   ").append(endpoint.queue.summary()).append('\n');
+                report.append("  connect ").append(endpoint.connect.summary()).append('\n');
+                report.append("  ttfb    ").append(endpoint.ttfb.summary()).append('\n');
+                report.append("  total   ").append(endpoint.total.summary()).append('\n');
+            }
+        }
+        report.append('\n');
+        report.append("calls.inFlight=").append(ApiClient.callsInFlight()).append('\n');
+        for (Map.Entry<String, String> counter : HttpMetrics.snapshot().entrySet()) {
+            report.append(counter.getKey()).append('=').append(counter.getValue()).append('\n');
+        }
+        return report.toString();
+    }
+
+    //@brief:
+    //Writes report() to DUMP_FILE in the app's external files directory (internal files directory if there is none)
+    //Pull it with: adb pull /sdcard/Android/data/<package>/files/network-metrics.txt
+    //@params: [Context context]
+    //@return: File written
+    public static File dump(Context context) throws IOException {
+        File dir = context.getExternalFilesDir(null);
+        if (dir == null) {
+            dir = context.getFilesDir();
+        }
+        File file = new File(dir, DUMP_FILE);
+        String header = "# " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(new Date()) + "\n";
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write((header + report()).getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,656 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.huntercollab.app.utils.GeneralTools;
+import com.loopj.android.http.AsyncHttpClient;
+import com.loopj.android.http.AsyncHttpResponseHandler;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import cz.msebera.android.httpclient.Header;
+import cz.msebera.android.httpclient.entity.StringEntity;
+import cz.msebera.android.httpclient.message.BasicHeader;
+import cz.msebera.android.httpclient.protocol.HTTP;
+
+//@brief:
+//Durable, ordered queue for requests that change data on the server (profile edits, collab edits, join/leave, messages)
+//Every mutation is written to an append only log file before it is sent, so it survives a dropped connection or the app being killed
+//Mutations are sent one at a time in the order they were queued, the next one is only sent after the server answered the previous one
+//Connection errors and server errors keep the mutation queued and retry it with RetryPolicy.java backoff or when connectivity returns
+//Each mutation carries an 'Idempotency-Key' header that stays the same across retries so the server can drop duplicates
+//Mutations queued with a merge key (e.g. edits of the same collab) are combined into one request while still waiting to be sent,
+//or with enqueueOnce() not queued a second time (e.g. joining the same collab twice, unless a leave was queued in between)
+//Skill and class lists are sent as add/remove deltas against the last known server lists when GlobalConfig.LIST_DELTAS is on, see ListDelta.java
+//Log format: one JSON object per line, {"op":"add", ...} when queued, {"op":"merge", ...} when combined and {"op":"done","key":...} when finished
+public class Outbox {
+
+    private static final String TAG = "Outbox";
+    private static final String LOG_FILE = "outbox.log";
+    public static final String IDEMPOTENCY_HEADER = "Idempotency-Key";
+
+    //@brief: What happened to a queued mutation
+    //QUEUED: could not be delivered yet, stored and retried later
+    //DELIVERED: server accepted it
+    //FAILED: server rejected it (4xx), it will not be retried
+    public enum Status { QUEUED, DELIVERED, FAILED }
+
+    //@brief: Receives status updates for one mutation on the main thread
+    //QUEUED is reported at most once, DELIVERED or FAILED exactly once while the process is alive
+    public interface StatusListener {
+        public void onStatus(Status status, int statusCode, String body);
+    }
+
+    private static Outbox instance;
+
+    //@brief: Wraps 'listener' so it only hears the first status of its mutation
+    //Used by screens that react once: QUEUED already means the change is stored and will be sent
+    //@params: [StatusListener listener]
+    //@return: StatusListener that drops every status after the first
+    public static StatusListener firstStatusOnly(StatusListener listener) {
+        return firstStatusOnly(null, listener);
+    }
+
+    //@brief:
+    //Same as firstStatusOnly(listener), and drops the status too once 'owner' is a cancelled RequestScope.java
+    //The mutation itself is still delivered, only the screen stops hearing about it
+    //'listener' is released after the first status or on cancel, so a queued mutation does not hold the screen
+    //@params: [Context owner] Context the API class was created with
+    //         [StatusListener listener]
+    //@return: StatusListener that drops every status after the first
+    public static StatusListener firstStatusOnly(Context owner, StatusListener listener) {
+        return scoped(owner, listener, true);
+    }
+
+    //@brief:
+    //Wraps 'listener' so it hears QUEUED and then the final DELIVERED or FAILED, until 'owner' is a cancelled RequestScope.java
+    //Used by screens that show a queued change as pending and still need to hear how it ended
+    //'listener' is released after the final status or on cancel
+    //@params: [Context owner] Context the API class was created with
+    //         [StatusListener listener]
+    //@return: StatusListener that drops everything once the scope is cancelled
+    public static StatusListener untilDone(Context owner, StatusListener listener) {
+        return scoped(owner, listener, false);
+    }
+
+    private static StatusListener scoped(Context owner, StatusListener listener, final boolean firstOnly) {
+        final RequestScope scope = owner instanceof RequestScope ? (RequestScope) owner : null;
+        final StatusListener[] delegate = { listener };
+        final Runnable release = new Runnable() {
+            @Override
+            public void run() {
+                delegate[0] = null;
+            }
+        };
+        if (scope != null) {
+            scope.onCancel(release);
+        }
+        return new StatusListener() {
+            @Override
+            public void onStatus(Status status, int statusCode, String body) {
+                StatusListener target = delegate[0];
+                if (target == null) {
+                    return;
+                }
+                if (firstOnly || status != Status.QUEUED) {
+                    delegate[0] = null;
+                    if (scope != null) {
+                        scope.removeOnCancel(release);
+                    }
+                }
+                target.onStatus(status, statusCode, body);
+            }
+        };
+    }
+
+    private final Context context;
+    private final File logFile;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    //Disk and queue work happens on this thread only, so the fields below need no locking
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final LinkedHashMap<String, Entry> pending = new LinkedHashMap<>();
+    private final HashMap<String, ArrayList<StatusListener>> listeners = new HashMap<>();
+    private boolean sending = false;
+    //Key of the entry on the network, it can no longer be merged into
+    private String inFlightKey = null;
+    private boolean retryScheduled = false;
+    //Incremented by clear(), answers and retries of mutations sent before that are dropped
+    private int generation = 0;
+    private int doneSinceCompact = 0;
+    private volatile int queued = 0;
+
+    //@brief: One queued mutation
+    static class Entry {
+        final String key;
+        final String method;
+        final String url;
+        final String mergeKey;
+        String body;
+        int attempts = 0;
+        boolean reportedQueued = false;
+
+        Entry(String key, String method, String url, String body, String mergeKey) {
+            this.key = key;
+            this.method = method;
+            this.url = url;
+            this.body = body;
+            this.mergeKey = mergeKey;
+        }
+
+        //@brief: Log record that recreates this entry
+        JSONObject toRecord() throws JSONException {
+            JSONObject record = new JSONObject();
+            record.put("op", "add");
+            record.put("key", key);
+            record.put("method", method);
+            record.put("url", url);
+            record.put("body", body);
+            if (mergeKey != null) {
+                record.put("merge", mergeKey);
+            }
+            return record;
+        }
+    }
+
+    //@brief: Returns the application wide outbox, loading queued mutations from disk and starting to send them
+    //@params: [Context context]
+    //@return: Outbox instance
+    public static synchronized Outbox getInstance(Context context) {
+        if (instance == null) {
+            instance = new Outbox(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    //CONNECTIVITY_ACTION is deprecated at API 28 in favour of ConnectivityManager.NetworkCallback, which needs API 24,
+    //minSdkVersion is 15 and the broadcast is still delivered to receivers registered at runtime
+    @SuppressWarnings("deprecation")
+    private Outbox(Context context) {
+        this.context = context;
+        this.logFile = new File(context.getFilesDir(), LOG_FILE);
+
+        //Connectivity came back, send whatever is waiting
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context c, Intent intent) {
+                if (isOnline()) {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            drain();
+                        }
+                    });
+                }
+            }
+        }, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+                drain();
+            }
+        });
+    }
+
+    //@brief: Queues a JSON mutation with a new idempotency key
+    //@params: [String method] [String url] [JSONObject body] [StatusListener listener]
+    //@return: idempotency key of the queued mutation
+    public String enqueue(String method, String url, JSONObject body, StatusListener listener) {
+        return enqueue(method, url, body, null, listener);
+    }
+
+    //@brief:
+    //Queues a JSON mutation and starts sending if nothing is ahead of it
+    //If a mutation with the same 'idempotencyKey' is still queued, 'listener' is attached to it and nothing new is queued
+    //@params: [String method] "POST" or "DELETE" [String url] [JSONObject body] [String idempotencyKey] null for a new key [StatusListener listener] may be null
+    //@pre condition: Mutation not sent
+    //@post condition: Mutation written to the outbox log and queued behind earlier mutations
+    //@return: idempotency key of the queued mutation
+    public String enqueue(final String method, final String url, JSONObject body, String idempotencyKey, final StatusListener listener) {
+        final String key = idempotencyKey != null ? idempotencyKey : UUID.randomUUID().toString();
+        final String json = body.toString();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (listener != null) {
+                    addListener(key, listener);
+                }
+                if (pending.containsKey(key)) {
+                    return;
+                }
+                add(new Entry(key, method, url, json, null));
+            }
+        });
+        return key;
+    }
+
+    //@brief:
+    //Queues a JSON mutation unless the latest one with the same 'mergeKey' still queued or on the network is the same request,
+    //e.g. a second tap on 'join'. In that case 'listener' is attached to the waiting mutation and hears its statuses
+    //Opposite requests share a 'mergeKey', so join, leave, join offline sends all three and the user ends up joined
+    //@params: [String method] "POST" or "DELETE" [String url] [JSONObject body] [String mergeKey] e.g. "membership:<id>"
+    //         [StatusListener listener] may be null
+    //@pre condition: Mutation not sent
+    //@post condition: Mutation written to the outbox log and queued behind earlier mutations, or joined to the waiting one
+    public void enqueueOnce(final String method, final String url, JSONObject body, final String mergeKey, final StatusListener listener) {
+        final String json = body.toString();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Entry repeated = repeatedBy(pending.values(), method, url, mergeKey);
+                if (repeated != null) {
+                    if (listener != null) {
+                        addListener(repeated.key, listener);
+                        if (repeated.reportedQueued) {
+                            reportTo(listener, Status.QUEUED);
+                        }
+                    }
+                    return;
+                }
+                String key = UUID.randomUUID().toString();
+                if (listener != null) {
+                    addListener(key, listener);
+                }
+                add(new Entry(key, method, url, json, mergeKey));
+            }
+        });
+    }
+
+    //@brief:
+    //Queues a JSON POST, or merges its fields into a queued POST with the same 'mergeKey' that has not been sent yet
+    //Fields in 'body' replace fields of the same name, so the merged request carries the latest value of each field
+    //@params: [String url] [JSONObject body] [String mergeKey] e.g. "editCollab:<id>" [StatusListener listener] may be null
+    //@pre condition: Mutation not sent
+    //@post condition: Mutation written to the outbox log, either as a new entry or merged into a waiting one
+    public void enqueueMerged(final String url, JSONObject body, final String mergeKey, final StatusListener listener) {
+        final String json = body.toString();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Entry target = null;
+                for (Entry entry : pending.values()) {
+                    if (mergeKey.equals(entry.mergeKey) && !entry.key.equals(inFlightKey)) {
+                        target = entry;
+                    }
+                }
+                if (target == null) {
+                    String key = UUID.randomUUID().toString();
+                    if (listener != null) {
+                        addListener(key, listener);
+                    }
+                    add(new Entry(key, "POST", url, json, mergeKey));
+                    return;
+                }
+                if (listener != null) {
+                    addListener(target.key, listener);
+                }
+                try {
+                    target.body = mergeBodies(target.body, json);
+
+                    JSONObject record = new JSONObject();
+                    record.put("op", "merge");
+                    record.put("key", target.key);
+                    record.put("body", target.body);
+                    append(record);
+                } catch (JSONException | IOException e) {
+                    Log.w(TAG, "Could not persist merge into " + target.key, e);
+                }
+                if (target.reportedQueued && listener != null) {
+                    //Joined a mutation that is already waiting for the network
+                    reportTo(listener, Status.QUEUED);
+                }
+            }
+        });
+    }
+
+    //@brief: The waiting mutation that a new request to 'url' with 'mergeKey' would only repeat
+    //@params: [Iterable<Entry> pending] oldest first [String method] [String url] [String mergeKey]
+    //@return: Entry, the latest one with 'mergeKey' if it is the same request, null if the new one has to be queued
+    static Entry repeatedBy(Iterable<Entry> pending, String method, String url, String mergeKey) {
+        Entry latest = null;
+        for (Entry entry : pending) {
+            if (mergeKey.equals(entry.mergeKey)) {
+                latest = entry;
+            }
+        }
+        return latest != null && latest.method.equals(method) && latest.url.equals(url) ? latest : null;
+    }
+
+    //@brief: Body of a waiting mutation after 'changes' is merged into it, fields in 'changes' replace fields of the same name
+    //@params: [String body] JSON body of the waiting mutation [String changes] JSON body of the new mutation
+    //@return: merged JSON body
+    static String mergeBodies(String body, String changes) throws JSONException {
+        JSONObject merged = new JSONObject(body);
+        JSONObject fields = new JSONObject(changes);
+        Iterator<?> names = fields.keys();
+        while (names.hasNext()) {
+            String name = (String) names.next();
+            merged.put(name, fields.get(name));
+        }
+        return merged.toString();
+    }
+
+    //@brief: Writes a new entry to the log and queues it, runs on the outbox thread
+    private void add(Entry entry) {
+        try {
+            append(entry.toRecord());
+        } catch (JSONException | IOException e) {
+            //Still send it, it is only lost if the app dies before delivery
+            Log.w(TAG, "Could not persist " + entry.url, e);
+        }
+        pending.put(entry.key, entry);
+        queued = pending.size();
+        drain();
+    }
+
+    //@brief: Drops every queued mutation, used when the logged in user changes
+    //A mutation on the network is not cancelled, its answer is ignored
+    public void clear() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                generation++;
+                pending.clear();
+                queued = 0;
+                listeners.clear();
+                logFile.delete();
+                doneSinceCompact = 0;
+                sending = false;
+                inFlightKey = null;
+                retryScheduled = false;
+            }
+        });
+    }
+
+    //@brief: Number of mutations waiting to be delivered, for metrics and debugging
+    public int size() {
+        return queued;
+    }
+
+    private void addListener(String key, StatusListener listener) {
+        ArrayList<StatusListener> list = listeners.get(key);
+        if (list == null) {
+            list = new ArrayList<>();
+            listeners.put(key, list);
+        }
+        list.add(listener);
+    }
+
+    //@brief: Sends the oldest queued mutation if nothing is in flight, runs on the outbox thread
+    private void drain() {
+        if (sending || retryScheduled || pending.isEmpty()) {
+            return;
+        }
+        final Entry entry = pending.values().iterator().next();
+        if (!"DELETE".equals(entry.method) && ListDelta.isNoOp(entry.url, entry.body)) {
+            //Lists already match what the server holds, nothing is sent so the breaker is not asked
+            finish(entry, Status.DELIVERED, 200, null);
+            return;
+        }
+        final CircuitBreaker breaker = CircuitBreaker.forUrl(entry.url);
+        if (!breaker.allowRequest()) {
+            //Not a failed attempt, wait until the breaker lets a trial through instead of asking it again and again
+            retryLater(entry, 0, null, breaker.timeUntilAllowed());
+            return;
+        }
+        sending = true;
+        inFlightKey = entry.key;
+        entry.attempts++;
+        final int sentIn = generation;
+
+        //List fields go out as add/remove deltas when that is smaller, the entry keeps the full lists
+        final String deltaBody = "DELETE".equals(entry.method) ? null : ListDelta.encode(entry.url, entry.body);
+        StringEntity entity = new StringEntity(deltaBody != null ? deltaBody : entry.body, "UTF-8");
+        entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, "application/json"));
+        Header[] headers = new Header[]{new BasicHeader(IDEMPOTENCY_HEADER, entry.key)};
+
+        AsyncHttpResponseHandler handler = new AsyncHttpResponseHandler(true) {
+            @Override
+            public void onSuccess(final int statusCode, Header[] headers, byte[] responseBody) {
+                breaker.onSuccess();
+                final String body = ApiClient.bodyToString(responseBody);
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (sentIn != generation) {
+                            return;
+                        }
+                        if (!"DELETE".equals(entry.method)) {
+                            ListDelta.delivered(entry.url, entry.body);
+                        }
+                        finish(entry, Status.DELIVERED, statusCode, body);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(final int statusCode, Header[] headers, byte[] responseBody, Throwable error) {
+                final String body = ApiClient.bodyToString(responseBody);
+                final boolean retryable = RetryPolicy.isRetryable(statusCode);
+                if (retryable) {
+                    breaker.onFailure();
+                } else {
+                    breaker.onSuccess();
+                }
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (sentIn != generation) {
+                            return;
+                        }
+                        sending = false;
+                        inFlightKey = null;
+                        if (deltaBody != null && ListDelta.rejectedDelta(statusCode)) {
+                            //Server does not take deltas, send the full lists without waiting
+                            entry.attempts--;
+                            drain();
+                        } else if (retryable) {
+                            retryLater(entry, statusCode, body, RetryPolicy.delayFor(entry.attempts));
+                        } else {
+                            finish(entry, Status.FAILED, statusCode, body);
+                        }
+                    }
+                });
+            }
+        };
+
+        AsyncHttpClient client = GeneralTools.getAsyncHttpClient(context);
+        if ("DELETE".equals(entry.method)) {
+            SharedHttpClient.delete(context, entry.url, headers, entity, "application/json", handler);
+        } else {
+            client.post(context, entry.url, headers, entity, "application/json", handler);
+        }
+    }
+
+    //@brief: Keeps 'entry' at the head of the queue and tries again after 'delay' ms, or when connectivity returns if offline
+    private void retryLater(Entry entry, int statusCode, String body, long delay) {
+        if (!entry.reportedQueued) {
+            entry.reportedQueued = true;
+            report(entry.key, Status.QUEUED, statusCode, body, false);
+        }
+        if (!isOnline()) {
+            return;
+        }
+        retryScheduled = true;
+        final int scheduledIn = generation;
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (scheduledIn != generation) {
+                    return;
+                }
+                retryScheduled = false;
+                drain();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    //@brief: Removes a delivered or rejected mutation from the queue and the log, then sends the next one
+    private void finish(Entry entry, Status status, int statusCode, String body) {
+        sending = false;
+        inFlightKey = null;
+        pending.remove(entry.key);
+        queued = pending.size();
+        try {
+            JSONObject record = new JSONObject();
+            record.put("op", "done");
+            record.put("key", entry.key);
+            append(record);
+        } catch (JSONException | IOException e) {
+            Log.w(TAG, "Could not mark " + entry.key + " done", e);
+        }
+        doneSinceCompact++;
+        if (pending.isEmpty() || doneSinceCompact >= 32) {
+            compact();
+        }
+        report(entry.key, status, statusCode, body, true);
+        drain();
+    }
+
+    private void report(String key, final Status status, final int statusCode, final String body, boolean last) {
+        final ArrayList<StatusListener> list = last ? listeners.remove(key) : listeners.get(key);
+        if (list == null) {
+            return;
+        }
+        final ArrayList<StatusListener> copy = new ArrayList<>(list);
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (StatusListener listener : copy) {
+                    listener.onStatus(status, statusCode, body);
+                }
+            }
+        });
+    }
+
+    //@brief: Passes 'status' to one listener that joined a waiting mutation
+    private void reportTo(final StatusListener listener, final Status status) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onStatus(status, 0, null);
+            }
+        });
+    }
+
+    private boolean isOnline() {
+        ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo info = cm == null ? null : cm.getActiveNetworkInfo();
+        //If the state is unknown, try anyway
+        return info == null ? cm == null : info.isConnected();
+    }
+
+    //@brief: Appends one record to the log and flushes it to disk
+    private void append(JSONObject record) throws IOException {
+        FileOutputStream out = new FileOutputStream(logFile, true);
+        try {
+            out.write((record.toString() + "\n").getBytes("UTF-8"));
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+    }
+
+    //@brief: Rewrites the log with only the mutations still queued
+    private void compact() {
+        doneSinceCompact = 0;
+        if (pending.isEmpty()) {
+            logFile.delete();
+            return;
+        }
+        File tmp = new File(logFile.getPath() + ".tmp");
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(tmp);
+            for (Entry entry : pending.values()) {
+                JSONObject record = entry.toRecord();
+                out.write((record.toString() + "\n").getBytes("UTF-8"));
+            }
+            out.getFD().sync();
+            out.close();
+            out = null;
+            if (!tmp.renameTo(logFile)) {
+                throw new IOException("rename failed for " + logFile);
+            }
+        } catch (JSONException | IOException e) {
+            Log.w(TAG, "Could not compact outbox", e);
+            tmp.delete();
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    //@brief: Rebuilds the queue from the log, a record cut off by a crash is skipped
+    private void load() {
+        if (!logFile.exists()) {
+            return;
+        }
+        BufferedReader in = null;
+        try {
+            in = new BufferedReader(new InputStreamReader(new FileInputStream(logFile), "UTF-8"));
+            String line;
+            while ((line = in.readLine()) != null) {
+                try {
+                    JSONObject record = new JSONObject(line);
+                    String key = record.getString("key");
+                    String op = record.getString("op");
+                    if ("done".equals(op)) {
+                        pending.remove(key);
+                    } else if ("merge".equals(op)) {
+                        Entry entry = pending.get(key);
+                        if (entry != null) {
+                            entry.body = record.getString("body");
+                        }
+                    } else if (!pending.containsKey(key)) {
+                        pending.put(key, new Entry(key, record.getString("method"),
+                                record.getString("url"), record.getString("body"), record.optString("merge", null)));
+                    }
+                } catch (JSONException e) {
+                    Log.w(TAG, "Skipping damaged outbox record");
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read outbox", e);
+        } finally {
+            closeQuietly(in);
+        }
+        queued = pending.size();
+        compact();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                //Nothing....
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+
+import java.util.ArrayList;
+
+//@brief:
+//Binds requests to the lifetime of an Activity or Fragment
+//Pass the scope as the Context of the API classes (e.g. new GetUserData(requests, this, ...)) and call cancel() in onDestroy()
+//cancel() stops the scope's requests that no other screen is waiting for, drops every callback that has not run yet
+//and releases the listeners, so a destroyed screen is not kept alive by its requests
+//Queued mutations in Outbox.java are not cancelled, they are still delivered, only their callbacks are dropped
+//Wraps the application context, so holding a scope never holds the Activity
+public class RequestScope extends ContextWrapper {
+
+    private volatile boolean cancelled = false;
+    //Guarded by 'this'
+    private final ArrayList<Runnable> cancelHooks = new ArrayList<>();
+
+    //@params: [Context context] any context of the screen, only its application context is kept
+    public RequestScope(Context context) {
+        super(context.getApplicationContext());
+    }
+
+    //@return: Boolean 'true' once cancel() was called
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    //@params: [Context context] Context given to an API class
+    //@return: Boolean 'true' if 'context' is a cancelled RequestScope
+    public static boolean isCancelled(Context context) {
+        return context instanceof RequestScope && ((RequestScope) context).isCancelled();
+    }
+
+    //@brief:
+    //Cancels the scope, called from onDestroy() on the main thread
+    //@pre condition: Requests of the screen may be in flight
+    //@post condition: Requests only this scope waits for are cancelled, no callback of this scope will run
+    public void cancel() {
+        ArrayList<Runnable> hooks;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            hooks = new ArrayList<>(cancelHooks);
+            cancelHooks.clear();
+        }
+        ApiClient.cancelAll(this);
+        //Requests sent straight through the shared client with this scope as their Context
+        SharedHttpClient.cancelRequests(this);
+        for (Runnable hook : hooks) {
+            hook.run();
+        }
+    }
+
+    //@brief: Runs 'hook' when the scope is cancelled, right away if it already is
+    //@params: [Runnable hook]
+    void onCancel(Runnable hook) {
+        synchronized (this) {
+            if (!cancelled) {
+                cancelHooks.add(hook);
+                return;
+            }
+        }
+        hook.run();
+    }
+
+    //@brief: Forgets a hook whose work finished before the scope was cancelled
+    //@params: [Runnable hook]
+    synchronized void removeOnCancel(Runnable hook) {
+        cancelHooks.remove(hook);
+    }
+}
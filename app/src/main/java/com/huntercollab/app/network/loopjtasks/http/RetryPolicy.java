@@ -0,0 +1,52 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import com.huntercollab.app.config.GlobalConfig;
+
+import java.util.Random;
+
+//@brief:
+//Decides if and when a failed idempotent request is sent again
+//Delays grow exponentially (base * 2^retry) up to a cap, the actual wait is picked at random below that value ("full jitter")
+//so clients that failed together do not retry together
+//See: ApiClient.java, RealtimeHub.java (reconnecting)
+public class RetryPolicy {
+
+    private static final Random random = new Random();
+
+    //@brief: Checks whether a failure is worth another attempt
+    //Connection errors/timeouts (status 0), 408, 429 and 5xx except 501 are retried, other 4xx are answers from the server
+    //@params: [int statusCode]
+    //@return: Boolean 'true' if the request may succeed when sent again
+    public static boolean isRetryable(int statusCode) {
+        return statusCode == 0 || statusCode == 408 || statusCode == 429
+                || (statusCode >= 500 && statusCode != 501);
+    }
+
+    //@brief: Checks whether another attempt is allowed after 'attempt' attempts failed with 'statusCode'
+    //@params: [int attempt] [int statusCode]
+    //@return: Boolean 'true' to retry
+    public static boolean shouldRetry(int attempt, int statusCode) {
+        return attempt < GlobalConfig.HTTP_MAX_ATTEMPTS && isRetryable(statusCode);
+    }
+
+    //@brief: Wait before the next attempt
+    //@params: [int attempt] number of attempts already made, starting at 1
+    //@return: delay in milliseconds, between 0 and min(MAX, BASE * 2^(attempt - 1))
+    public static long delayFor(int attempt) {
+        return delayFor(attempt, GlobalConfig.HTTP_RETRY_BASE_DELAY, GlobalConfig.HTTP_RETRY_MAX_DELAY);
+    }
+
+    //@brief: Same as delayFor(attempt), with another base and cap
+    //@params: [int attempt] [long base] [long max] in milliseconds
+    //@return: delay in milliseconds, between 0 and min(max, base * 2^(attempt - 1))
+    public static long delayFor(int attempt, long base, long max) {
+        long cap = base;
+        for (int i = 1; i < attempt && cap < max; i++) {
+            cap *= 2;
+        }
+        cap = Math.min(cap, max);
+        synchronized (random) {
+            return (long) (random.nextDouble() * cap);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import android.content.Context;
+
+import com.huntercollab.app.config.GlobalConfig;
+import com.loopj.android.http.AsyncHttpClient;
+import com.loopj.android.http.AsyncHttpRequest;
+import com.loopj.android.http.HttpDelete;
+import com.loopj.android.http.PersistentCookieStore;
+import com.loopj.android.http.RequestHandle;
+import com.loopj.android.http.ResponseHandlerInterface;
+
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cz.msebera.android.httpclient.Header;
+import cz.msebera.android.httpclient.HttpEntity;
+import cz.msebera.android.httpclient.HttpResponse;
+import cz.msebera.android.httpclient.client.methods.HttpUriRequest;
+import cz.msebera.android.httpclient.conn.ConnectionKeepAliveStrategy;
+import cz.msebera.android.httpclient.impl.client.DefaultConnectionKeepAliveStrategy;
+import cz.msebera.android.httpclient.impl.client.DefaultHttpClient;
+import cz.msebera.android.httpclient.protocol.HttpContext;
+
+//@brief:
+//Holds the one AsyncHttpClient used by every API class in network.loopjtasks
+//The client keeps a bounded connection pool, keeps idle connections alive and runs requests on a fixed executor
+//so repeated calls to GlobalConfig.BASE_API_URL reuse the same TCP connections and threads
+//What actually sends a request is a Transport.java, loopj's own client unless GlobalConfig.HTTP_TRANSPORT says otherwise
+public class SharedHttpClient {
+
+    private static Client client;
+    private static TransportHttpClient transportClient;
+    private static PersistentCookieStore cookieStore;
+
+    //@brief: Returns the application wide HTTP client, creating it on first use
+    //@params: [Context context]
+    //@pre condition: None
+    //@post condition: Shared client created with cookies attached
+    //@return: AsyncHttpClient shared by all requests
+    public static synchronized AsyncHttpClient getClient(Context context) {
+        if (client == null) {
+            client = new Client();
+            client.setMaxConnections(GlobalConfig.HTTP_MAX_CONNECTIONS);
+            client.setThreadPool(createThreadPool());
+            client.setTimeout(GlobalConfig.HTTP_TIMEOUT);
+            // Retries are decided by ApiClient.java (backoff, jitter, circuit breaker), not by the client's fixed retry loop
+            client.setMaxRetriesAndTimeout(0, 0);
+            client.setCookieStore(getCookieStore(context));
+            NetworkMetrics.install((DefaultHttpClient) client.getHttpClient());
+            transportClient = new TransportHttpClient((DefaultHttpClient) client.getHttpClient());
+            transportClient.setTransport(createTransport(context));
+
+            // Keep idle pooled connections around instead of reconnecting for every small JSON call
+            ((DefaultHttpClient) client.getHttpClient()).setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
+                private final DefaultConnectionKeepAliveStrategy serverStrategy = new DefaultConnectionKeepAliveStrategy();
+
+                @Override
+                public long getKeepAliveDuration(HttpResponse response, HttpContext httpContext) {
+                    long duration = serverStrategy.getKeepAliveDuration(response, httpContext);
+                    return duration > 0 ? duration : GlobalConfig.HTTP_KEEP_ALIVE;
+                }
+            });
+        }
+        return client;
+    }
+
+    //@brief:
+    //Swaps what the shared client sends requests through, e.g. a FakeBackend.java for benchmarks without a network
+    //Requests already running finish on the old transport
+    //@params: [Context context] [Transport transport] null for loopj's client
+    public static synchronized void setTransport(Context context, Transport transport) {
+        getClient(context);
+        transportClient.setTransport(transport);
+    }
+
+    //@brief: DELETE with both a JSON body and headers (e.g. Outbox.IDEMPOTENCY_HEADER), AsyncHttpClient.delete() takes one or the other
+    //@params: [Context context] [String url] [Header[] headers] [HttpEntity entity] [String contentType] [ResponseHandlerInterface handler]
+    //@return: RequestHandle of the request
+    static RequestHandle delete(Context context, String url, Header[] headers, HttpEntity entity, String contentType,
+                                ResponseHandlerInterface handler) {
+        return ((Client) getClient(context)).delete(context, url, headers, entity, contentType, handler);
+    }
+
+    //@brief: Cancels the requests sent with 'context', the client is not created just to find none
+    //@params: [Context context]
+    static void cancelRequests(Context context) {
+        AsyncHttpClient current;
+        synchronized (SharedHttpClient.class) {
+            current = client;
+        }
+        if (current != null) {
+            current.cancelRequests(context, true);
+        }
+    }
+
+    //@brief: The shared client: every request is timed per endpoint (NetworkMetrics.java) and sent through the current Transport.java
+    private static class Client extends AsyncHttpClient {
+        @Override
+        protected AsyncHttpRequest newAsyncHttpRequest(DefaultHttpClient httpClient, HttpContext httpContext, HttpUriRequest uriRequest,
+                                                       String contentType, ResponseHandlerInterface responseHandler, Context context) {
+            return new NetworkMetrics.MeteredRequest(transportClient, httpContext, uriRequest, responseHandler);
+        }
+
+        //@brief: Built like AsyncHttpClient.post(context, url, headers, entity, contentType, handler)
+        RequestHandle delete(Context context, String url, Header[] headers, HttpEntity entity, String contentType,
+                             ResponseHandlerInterface handler) {
+            HttpDelete request = new HttpDelete(URI.create(url).normalize());
+            if (entity != null) {
+                request.setEntity(entity);
+            }
+            if (headers != null) {
+                request.setHeaders(headers);
+            }
+            return sendRequest((DefaultHttpClient) getHttpClient(), getHttpContext(), request, contentType, handler, context);
+        }
+    }
+
+    //@brief: Transport named by GlobalConfig.HTTP_TRANSPORT
+    //@params: [Context context]
+    //@return: Transport, null for loopj's client
+    private static Transport createTransport(Context context) {
+        switch (GlobalConfig.HTTP_TRANSPORT) {
+            case "urlconnection":
+                return new UrlConnectionTransport(getCookieStore(context));
+            case "fake":
+                return new FakeBackend(GlobalConfig.FAKE_BACKEND_LATENCY).seed(20, 50);
+            default:
+                return null;
+        }
+    }
+
+    //@brief: Returns the cookie store attached to the shared client
+    //Anything that changes cookies must go through this instance so the client sees the change
+    //@params: [Context context]
+    //@return: PersistentCookieStore shared by all requests
+    public static synchronized PersistentCookieStore getCookieStore(Context context) {
+        if (cookieStore == null) {
+            cookieStore = new PersistentCookieStore(context.getApplicationContext());
+        }
+        return cookieStore;
+    }
+
+    //@brief: Fixed size pool matching the connection limit, idle threads are kept for reuse
+    //@return: ExecutorService used by the shared client
+    private static ExecutorService createThreadPool() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                GlobalConfig.HTTP_MAX_CONNECTIONS, GlobalConfig.HTTP_MAX_CONNECTIONS,
+                GlobalConfig.HTTP_KEEP_ALIVE, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        return new Thread(r, "http-" + count.incrementAndGet());
+                    }
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
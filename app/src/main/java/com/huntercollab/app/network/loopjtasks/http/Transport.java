@@ -0,0 +1,24 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import java.io.IOException;
+
+import cz.msebera.android.httpclient.client.methods.CloseableHttpResponse;
+import cz.msebera.android.httpclient.client.methods.HttpUriRequest;
+import cz.msebera.android.httpclient.protocol.HttpContext;
+
+//@brief:
+//Sends one HTTP request and returns the response, the piece of the shared client that actually talks to a server
+//Every API class goes through SharedHttpClient.java, so swapping the transport there swaps it for the whole app
+//Implementations:
+//TransportHttpClient.LOOPJ: loopj's pooled DefaultHttpClient (default)
+//UrlConnectionTransport.java: the platform HttpURLConnection
+//FakeBackend.java: in-process fake of the API, no network
+//Called on an HTTP pool thread, implementations must be thread safe
+//See: GlobalConfig.HTTP_TRANSPORT, SharedHttpClient.setTransport()
+public interface Transport {
+
+    //@params: [HttpUriRequest request] full URL, headers and body [HttpContext context] loopj's shared context (cookie store)
+    //@return: CloseableHttpResponse, status codes >= 300 are returned as responses, not thrown
+    //@throws: IOException when no response could be received (connection error, timeout)
+    public CloseableHttpResponse execute(HttpUriRequest request, HttpContext context) throws IOException;
+}
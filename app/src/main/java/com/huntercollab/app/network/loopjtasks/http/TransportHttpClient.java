@@ -0,0 +1,55 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import java.io.IOException;
+
+import cz.msebera.android.httpclient.client.methods.CloseableHttpResponse;
+import cz.msebera.android.httpclient.client.methods.HttpUriRequest;
+import cz.msebera.android.httpclient.impl.client.DefaultHttpClient;
+import cz.msebera.android.httpclient.protocol.HttpContext;
+
+//@brief:
+//Client handed to loopj's request runnables in place of its own DefaultHttpClient, forwards every request to the current Transport.java
+//loopj creates its DefaultHttpClient itself and never lets it be replaced, this is the one place a request can be redirected
+//Shares loopj's connection manager, parameters and retry handler so the default transport behaves exactly as before
+//See: SharedHttpClient.java
+public class TransportHttpClient extends DefaultHttpClient {
+
+    private final DefaultHttpClient loopjClient;
+    private volatile Transport transport;
+
+    //@brief: Transport that sends through loopj's DefaultHttpClient with its interceptors (cookies, gzip, metrics)
+    public final Transport LOOPJ = new Transport() {
+        @Override
+        public CloseableHttpResponse execute(HttpUriRequest request, HttpContext context) throws IOException {
+            return loopjClient.execute(request, context);
+        }
+    };
+
+    //@params: [DefaultHttpClient loopjClient] the client created by AsyncHttpClient
+    public TransportHttpClient(DefaultHttpClient loopjClient) {
+        super(loopjClient.getConnectionManager(), loopjClient.getParams());
+        this.loopjClient = loopjClient;
+        this.transport = LOOPJ;
+        setHttpRequestRetryHandler(loopjClient.getHttpRequestRetryHandler());
+    }
+
+    //@params: [Transport transport] null for LOOPJ
+    public void setTransport(Transport transport) {
+        this.transport = transport != null ? transport : LOOPJ;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    @Override
+    public CloseableHttpResponse execute(HttpUriRequest request, HttpContext context) throws IOException {
+        Transport current = transport;
+        CloseableHttpResponse response = current.execute(request, context);
+        if (current != LOOPJ) {
+            //loopj's interceptors did not see this response
+            NetworkMetrics.responseReceived(response);
+        }
+        return response;
+    }
+}
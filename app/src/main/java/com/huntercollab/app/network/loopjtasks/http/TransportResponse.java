@@ -0,0 +1,33 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import java.io.IOException;
+
+import cz.msebera.android.httpclient.HttpVersion;
+import cz.msebera.android.httpclient.client.methods.CloseableHttpResponse;
+import cz.msebera.android.httpclient.entity.ContentType;
+import cz.msebera.android.httpclient.entity.StringEntity;
+import cz.msebera.android.httpclient.message.BasicHttpResponse;
+import cz.msebera.android.httpclient.util.EntityUtils;
+
+//@brief: Response built by a Transport.java that does not use loopj's client
+public class TransportResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+    public TransportResponse(int statusCode, String reason) {
+        super(HttpVersion.HTTP_1_1, statusCode, reason);
+    }
+
+    //@brief: Response with a JSON body
+    //@params: [int statusCode] [String json]
+    //@return: TransportResponse
+    public static TransportResponse json(int statusCode, String json) {
+        TransportResponse response = new TransportResponse(statusCode, statusCode < 300 ? "OK" : "Error");
+        response.setEntity(new StringEntity(json, ContentType.APPLICATION_JSON));
+        return response;
+    }
+
+    //@brief: Releases the body, the connection (if any) goes back to its pool
+    @Override
+    public void close() throws IOException {
+        EntityUtils.consume(getEntity());
+    }
+}
@@ -0,0 +1,118 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import com.huntercollab.app.config.GlobalConfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import cz.msebera.android.httpclient.Header;
+import cz.msebera.android.httpclient.HttpEntity;
+import cz.msebera.android.httpclient.HttpEntityEnclosingRequest;
+import cz.msebera.android.httpclient.client.CookieStore;
+import cz.msebera.android.httpclient.client.methods.CloseableHttpResponse;
+import cz.msebera.android.httpclient.client.methods.HttpUriRequest;
+import cz.msebera.android.httpclient.cookie.Cookie;
+import cz.msebera.android.httpclient.entity.InputStreamEntity;
+import cz.msebera.android.httpclient.protocol.HttpContext;
+
+//@brief:
+//Transport.java on top of the platform HttpURLConnection (OkHttp based from Android 4.4), which pools connections,
+//handles gzip on its own and does not go through the legacy HttpClient stack
+//Cookies come from the shared cookie store, cookies set by the server are not stored (the API only uses the auth cookie)
+public class UrlConnectionTransport implements Transport {
+
+    private final CookieStore cookieStore;
+
+    //@params: [CookieStore cookieStore] store the auth cookie is read from, see SharedHttpClient.getCookieStore()
+    public UrlConnectionTransport(CookieStore cookieStore) {
+        this.cookieStore = cookieStore;
+    }
+
+    @Override
+    public CloseableHttpResponse execute(HttpUriRequest request, HttpContext context) throws IOException {
+        URL url = request.getURI().toURL();
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(GlobalConfig.HTTP_TIMEOUT);
+        connection.setReadTimeout(GlobalConfig.HTTP_TIMEOUT);
+        connection.setInstanceFollowRedirects(true);
+        connection.setRequestMethod(request.getMethod());
+        for (Header header : request.getAllHeaders()) {
+            connection.addRequestProperty(header.getName(), header.getValue());
+        }
+        String cookies = cookieHeader(url.getHost());
+        if (cookies != null) {
+            connection.setRequestProperty("Cookie", cookies);
+        }
+
+        HttpEntity body = request instanceof HttpEntityEnclosingRequest ? ((HttpEntityEnclosingRequest) request).getEntity() : null;
+        try {
+            if (body != null) {
+                connection.setDoOutput(true);
+                if (body.getContentType() != null) {
+                    connection.setRequestProperty("Content-Type", body.getContentType().getValue());
+                }
+                long length = body.getContentLength();
+                if (length >= 0 && length <= Integer.MAX_VALUE) {
+                    connection.setFixedLengthStreamingMode((int) length);
+                }
+                connection.connect();
+                NetworkMetrics.connected();
+                OutputStream out = connection.getOutputStream();
+                try {
+                    body.writeTo(out);
+                } finally {
+                    out.close();
+                }
+            } else {
+                connection.connect();
+                NetworkMetrics.connected();
+            }
+
+            int statusCode = connection.getResponseCode();
+            TransportResponse response = new TransportResponse(statusCode, connection.getResponseMessage());
+            for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+                //The status line is listed under a null name
+                if (header.getKey() == null) {
+                    continue;
+                }
+                for (String value : header.getValue()) {
+                    response.addHeader(header.getKey(), value);
+                }
+            }
+            InputStream in = statusCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            if (in != null) {
+                InputStreamEntity entity = new InputStreamEntity(in, connection.getContentLength());
+                entity.setContentType(connection.getContentType());
+                response.setEntity(entity);
+            }
+            return response;
+        } catch (IOException e) {
+            connection.disconnect();
+            throw e;
+        }
+    }
+
+    //@brief: Builds the Cookie header from the non expired cookies for 'host'
+    //@params: [String host]
+    //@return: String "name=value; name2=value2", or null if there are none
+    private String cookieHeader(String host) {
+        StringBuilder header = new StringBuilder();
+        Date now = new Date();
+        for (Cookie cookie : cookieStore.getCookies()) {
+            if (cookie.isExpired(now) || (cookie.getDomain() != null && !host.endsWith(cookie.getDomain()))) {
+                continue;
+            }
+            if (header.length() > 0) {
+                header.append("; ");
+            }
+            header.append(cookie.getName()).append('=').append(cookie.getValue());
+        }
+        return header.length() > 0 ? header.toString() : null;
+    }
+}
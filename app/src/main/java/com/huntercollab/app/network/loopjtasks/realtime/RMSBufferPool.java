@@ -0,0 +1,72 @@
+package com.huntercollab.app.network.loopjtasks.realtime;
+
+import com.huntercollab.app.config.GlobalConfig;
+
+import java.util.ArrayDeque;
+
+//@brief:
+//Reusable byte arrays for RMS frames, so reading a frame does not allocate a new array each time
+//Sizes are powers of two from MIN_SIZE up to GlobalConfig.RMS_MAX_FRAME, at most MAX_PER_SIZE arrays of each size are kept
+public class RMSBufferPool {
+
+    private static final int MIN_SHIFT = 8;
+    public static final int MIN_SIZE = 1 << MIN_SHIFT;
+    private static final int MAX_PER_SIZE = 4;
+
+    //Index i holds arrays of MIN_SIZE << i bytes, guarded by itself
+    private static final ArrayDeque<?>[] free = new ArrayDeque<?>[sizeClassOf(GlobalConfig.RMS_MAX_FRAME) + 1];
+
+    static {
+        for (int i = 0; i < free.length; i++) {
+            free[i] = new ArrayDeque<byte[]>();
+        }
+    }
+
+    //@brief: Array of at least 'size' bytes, taken from the pool when one is free
+    //@params: [int size] arrays above GlobalConfig.RMS_MAX_FRAME are allocated and never pooled
+    //@return: byte[] of a power of two length, contents undefined
+    public static byte[] acquire(int size) {
+        int sizeClass = sizeClassOf(size);
+        if (sizeClass >= free.length) {
+            return new byte[MIN_SIZE << sizeClass];
+        }
+        ArrayDeque<byte[]> arrays = arraysOf(sizeClass);
+        synchronized (free) {
+            byte[] array = arrays.poll();
+            if (array != null) {
+                return array;
+            }
+        }
+        return new byte[MIN_SIZE << sizeClass];
+    }
+
+    //@brief: Gives 'array' back for reuse, arrays that did not come from acquire() are dropped
+    //@params: [byte[] array] no longer used by the caller
+    public static void release(byte[] array) {
+        if (array == null || array.length < MIN_SIZE || Integer.bitCount(array.length) != 1) {
+            return;
+        }
+        int sizeClass = sizeClassOf(array.length);
+        if (sizeClass >= free.length) {
+            return;
+        }
+        ArrayDeque<byte[]> arrays = arraysOf(sizeClass);
+        synchronized (free) {
+            if (arrays.size() < MAX_PER_SIZE) {
+                arrays.push(array);
+            }
+        }
+    }
+
+    private static int sizeClassOf(int size) {
+        if (size <= MIN_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArrayDeque<byte[]> arraysOf(int sizeClass) {
+        return (ArrayDeque<byte[]>) free[sizeClass];
+    }
+}
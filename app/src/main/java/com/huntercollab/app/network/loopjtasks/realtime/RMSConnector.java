@@ -0,0 +1,79 @@
+package com.huntercollab.app.network.loopjtasks.realtime;
+
+import android.os.AsyncTask;
+import android.os.SystemClock;
+
+import com.huntercollab.app.config.GlobalConfig;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+
+//@brief:
+//Connects a channel to the realtime server (GlobalConfig.RMS_PORT) ahead of time
+//prewarm() connects one in the background, RealtimeClient.java takes it for its next session and skips the TCP handshake
+//A prewarmed channel is only used within GlobalConfig.RMS_PREWARM_IDLE, the server may drop an idle unauthorized socket after that
+public class RMSConnector {
+
+    //Guarded by the class
+    private static SocketChannel warm;
+    private static long warmAt = 0;
+
+    //@brief: Address of the realtime server, HOST is an IP address so nothing is looked up
+    static InetSocketAddress address() {
+        return new InetSocketAddress(GlobalConfig.HOST, GlobalConfig.RMS_PORT);
+    }
+
+    //@brief: Connects a channel in the background and keeps it for the next takePrewarmed()
+    //@pre condition: No channel waiting, or an old one
+    //@post condition: Fresh connected channel waiting, unless the server could not be reached
+    public static void prewarm() {
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                SocketChannel channel = null;
+                try {
+                    channel = SocketChannel.open();
+                    channel.socket().connect(address(), GlobalConfig.RMS_TIMEOUT);
+                } catch (IOException e) {
+                    close(channel);
+                    return;
+                }
+                SocketChannel old;
+                synchronized (RMSConnector.class) {
+                    old = warm;
+                    warm = channel;
+                    warmAt = SystemClock.elapsedRealtime();
+                }
+                close(old);
+            }
+        });
+    }
+
+    //@brief: The prewarmed channel if it is still fresh, in blocking mode
+    //@return: SocketChannel connected to GlobalConfig.HOST:RMS_PORT, null if there is none
+    static SocketChannel takePrewarmed() {
+        SocketChannel channel;
+        long age;
+        synchronized (RMSConnector.class) {
+            channel = warm;
+            age = SystemClock.elapsedRealtime() - warmAt;
+            warm = null;
+        }
+        if (channel != null && age <= GlobalConfig.RMS_PREWARM_IDLE && channel.isConnected()) {
+            return channel;
+        }
+        close(channel);
+        return null;
+    }
+
+    private static void close(SocketChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                //Nothing to do
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.huntercollab.app.network.loopjtasks.realtime;
+
+import com.huntercollab.app.config.GlobalConfig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+//@brief:
+//Splits the bytes read from a non-blocking channel into RMS frames (v1 or v2, see: RMSProtocol.java)
+//The channel reads into readTarget(), then next() returns true for each complete frame, and compact() keeps what is left
+//Bytes are kept in one array from RMSBufferPool.java that only grows for a frame larger than it, so idle reading allocates nothing
+//payload() views are only valid until the next call to next()
+//Not thread safe, used by the I/O thread of RealtimeClient.java
+class RMSFrameDecoder {
+
+    private static final int INITIAL_SIZE = 8 * 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private byte[] array;
+    //Write mode: bytes [0, position) were read and not compacted yet
+    private ByteBuffer in;
+    private ByteBuffer view;
+    //Start of the bytes not parsed yet, and the size a frame being received needs
+    private int parsed = 0;
+    private int needed = 0;
+    private int version = RMSProtocol.V1;
+    private int type = 0;
+    private int start = 0;
+    private int length = 0;
+
+    RMSFrameDecoder() {
+        array = RMSBufferPool.acquire(INITIAL_SIZE);
+        in = ByteBuffer.wrap(array);
+    }
+
+    //@brief: Frame format of the frames after the current one
+    void setVersion(int version) {
+        this.version = version;
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    //@brief: Buffer to read from the channel into, always with room left
+    //@return: ByteBuffer in write mode
+    ByteBuffer readTarget() {
+        compact();
+        int size = Math.max(needed, in.position() + 1);
+        if (size > array.length) {
+            byte[] larger = RMSBufferPool.acquire(size);
+            System.arraycopy(array, 0, larger, 0, in.position());
+            int position = in.position();
+            RMSBufferPool.release(array);
+            array = larger;
+            in = ByteBuffer.wrap(array);
+            in.position(position);
+            view = null;
+        }
+        return in;
+    }
+
+    //@brief: Parses the next complete frame, if the bytes read so far hold one
+    //@return: Boolean 'true' if a frame is ready, see: type() and payload()
+    //@throws: IOException if the length is negative or above GlobalConfig.RMS_MAX_FRAME
+    boolean next() throws IOException {
+        int available = in.position() - parsed;
+        int header = version == RMSProtocol.V2 ? 5 : 4;
+        if (available < header) {
+            return false;
+        }
+        int frameLength = in.getInt(parsed);
+        if (frameLength < 0 || frameLength > GlobalConfig.RMS_MAX_FRAME) {
+            throw new IOException("Invalid RMS frame length " + frameLength);
+        }
+        if (available < header + frameLength) {
+            needed = header + frameLength;
+            return false;
+        }
+        needed = 0;
+        int frameType = version == RMSProtocol.V2 ? array[parsed + 4] & 0xff : RMSProtocol.TYPE_TEXT;
+        start = parsed + header;
+        length = frameLength;
+        parsed += header + frameLength;
+        type = frameType == RMSProtocol.TYPE_TEXT && version == RMSProtocol.V1 && payloadEquals(RMSProtocol.PING_BYTES)
+                ? RMSProtocol.TYPE_PING : frameType;
+        return true;
+    }
+
+    //@return: int RMSProtocol.TYPE_* of the current frame
+    int type() {
+        return type;
+    }
+
+    //@brief: Payload of the current frame without copying it
+    //@return: ByteBuffer positioned on the payload, valid until the next call to next()
+    ByteBuffer payload() {
+        if (view == null) {
+            view = ByteBuffer.wrap(array);
+        }
+        view.clear();
+        view.position(start);
+        view.limit(start + length);
+        return view;
+    }
+
+    //@brief: Payload of the current frame as a String, v1 decoded like RMSProtocol.readUTF(), v2 as UTF-8
+    String text() {
+        if (type == RMSProtocol.TYPE_PING) {
+            return RMSProtocol.PING;
+        }
+        return version == RMSProtocol.V2 ? new String(array, start, length, UTF_8) : new String(array, start, length);
+    }
+
+    //@brief: Whether the current frame's payload is exactly 'expected'
+    boolean payloadEquals(byte[] expected) {
+        if (length != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (array[start + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //@brief: Moves the bytes not parsed yet to the front of the array
+    void compact() {
+        if (parsed > 0) {
+            int remaining = in.position() - parsed;
+            System.arraycopy(array, parsed, array, 0, remaining);
+            in.position(remaining);
+            parsed = 0;
+            start = 0;
+            length = 0;
+        }
+    }
+
+    //@brief: Gives the array back to the pool
+    //@pre condition: The decoder is not used anymore
+    void release() {
+        RMSBufferPool.release(array);
+        array = new byte[0];
+        in = ByteBuffer.wrap(array);
+        view = null;
+        parsed = 0;
+    }
+}
@@ -3,9 +3,86 @@ package com.huntercollab.app.network.loopjtasks.realtime;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 
+//@brief:
+//Framing of the realtime messaging server (RMS) connection
+//v1: [int length][payload], 'length' is the String's char count and each char is sent as its low byte,
+//    so only ASCII survives. The original format, still what every connection starts with
+//v2: [int length][byte type][payload], 'length' is the payload's byte count, TEXT payloads are UTF-8
+//    Small control frames (PING) carry their meaning in the type byte and are never decoded
+//Negotiation: after AUTH_SUCCESS the client sends VERSION_OFFER as a v1 frame. A v2 server answers VERSION_ACCEPT
+//as a v1 frame and uses v2 for everything after it. VERSION_REJECT, or no answer within GlobalConfig.RMS_VERSION_TIMEOUT,
+//means the server only speaks v1 and the connection goes on in v1, see: RealtimeClient.java
+//Other v1 frames before the answer (a PING sent before the server read the offer) are ordinary frames, not an answer
+//The client sends nothing after the offer until it has the answer, so the server can switch its reading to v2 when it accepts
+//A v2 server sends a new chat message as a MESSAGE frame instead of a PING, the payload is the message as UTF-8 JSON:
+//{"chatId", "seq", "sender", "message", "dispName", "time"}, 'chatId' as the receiving user knows the chat
+//(collab id, or the other user's email) and 'seq' the message's number within it, see: ChatSequence.java
+//HEARTBEAT (v2, empty): sent by the client after a quiet time, the server answers with a HEARTBEAT, see: RealtimeClient.java
+//RESUME (v2, UTF-8 JSON {"<chatId>": lastSeq, ...}): sent by the client once negotiated, the server sends again as MESSAGE
+//frames the messages of those chats numbered above 'lastSeq', so nothing sent while the client was away is lost
+//Channels (v2): a chat or collab, named by its chat id (the other user's email) or collab id
+//SUBSCRIBE / UNSUBSCRIBE (UTF-8 channel id): sent by the client, for each subscribed channel the server sends MESSAGE frames
+//for new messages and CHANGED (UTF-8 channel id) for any other change. PING is only sent for channels not subscribed to
 public class RMSProtocol {
 
+    public static final int V1 = 1;
+    public static final int V2 = 2;
+
+    //@brief: v2 frame types, v1 frames are read as TYPE_TEXT, or TYPE_PING when the payload is "PING"
+    public static final int TYPE_TEXT = 1;
+    public static final int TYPE_PING = 2;
+    public static final int TYPE_MESSAGE = 3;
+    public static final int TYPE_HEARTBEAT = 4;
+    public static final int TYPE_RESUME = 5;
+    public static final int TYPE_SUBSCRIBE = 6;
+    public static final int TYPE_UNSUBSCRIBE = 7;
+    public static final int TYPE_CHANGED = 8;
+
+    public static final String AUTH_SUCCESS = "AUTH_SUCCESS";
+    public static final String PING = "PING";
+    public static final String VERSION_OFFER = "VERSION 2";
+    public static final String VERSION_ACCEPT = "VERSION_OK 2";
+    public static final String VERSION_REJECT = "VERSION_NO";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    //@brief: Control frames pre encoded, so they can be recognised by comparing bytes, see: RMSFrameDecoder.payloadEquals()
+    static final byte[] AUTH_SUCCESS_BYTES = ascii(AUTH_SUCCESS);
+    static final byte[] PING_BYTES = ascii(PING);
+    static final byte[] VERSION_ACCEPT_BYTES = ascii(VERSION_ACCEPT);
+    static final byte[] VERSION_REJECT_BYTES = ascii(VERSION_REJECT);
+
+    //@brief: One frame ready to be written to a channel, see: RealtimeClient.java
+    //v1 frames are the same bytes as rawWriteMessage() writes, only TEXT and PING have a v1 form
+    //@params: [int version] [int type] RMSProtocol.TYPE_* [String message] payload, null for none, ignored for PING
+    //@return: ByteBuffer holding the whole frame, ready to be read
+    static ByteBuffer encode(int version, int type, String message) {
+        if (version == V2) {
+            byte[] payload = type == TYPE_PING || message == null ? new byte[0] : message.getBytes(UTF_8);
+            ByteBuffer frame = ByteBuffer.allocate(5 + payload.length);
+            frame.putInt(payload.length).put((byte) type).put(payload);
+            frame.flip();
+            return frame;
+        }
+        byte[] payload = type == TYPE_PING ? PING_BYTES : ascii(message);
+        ByteBuffer frame = ByteBuffer.allocate(4 + payload.length);
+        frame.putInt(payload.length).put(payload);
+        frame.flip();
+        return frame;
+    }
+
+    //@brief: Low byte of each char, the way DataOutputStream.writeBytes() sends a String
+    private static byte[] ascii(String text) {
+        byte[] bytes = new byte[text.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) text.charAt(i);
+        }
+        return bytes;
+    }
+
     //@author: Hugh Leow & Ram Vakada
     //@brief: wrapper for 'rawWriteMessage'
     //@params: [String msg] [DataOutputStream dout]
@@ -43,14 +120,14 @@ public class RMSProtocol {
     }
 
     //@author: Hugh Leow & Ram Vakada
-    //@brief: Reads n bytes from the socket's stream
+    //@brief:
+    //Reads n bytes from the socket's stream in one bulk read
+    //RealtimeClient.java reads frames with RMSFrameDecoder.java, which reuses its array
     //@params: [DataInputStream dis] [int n]
     //@return: array of bytes for message
     public static byte[] readN(DataInputStream dis, int n) throws IOException {
         byte[] data = new byte[n];
-        for (int i = 0; i < n; i++) {
-            data[i] = dis.readByte();
-        }
+        dis.readFully(data);
         return data;
     }
 }
@@ -0,0 +1,583 @@
+package com.huntercollab.app.network.loopjtasks.realtime;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.huntercollab.app.config.GlobalConfig;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Set;
+
+//@brief:
+//Non-blocking client for the realtime messaging server (RMS)
+//Every session (one authorized connection, see: Session) is a SocketChannel on one Selector, run by a single
+//"rms-io" thread. The thread starts with the first session and ends when the last one is closed,
+//so no AsyncTask executor slot or thread per connection is held
+//Connecting and authorizing each have GlobalConfig.RMS_TIMEOUT, close() wakes the thread and ends a session at once
+//A server that rejects the v2 offer, or leaves it unanswered for GlobalConfig.RMS_VERSION_TIMEOUT, is taken to speak v1,
+//the session goes on. Frames that come before the answer are delivered as v1 frames
+//On a v2 connection quiet for GlobalConfig.RMS_HEARTBEAT_INTERVAL the client sends a HEARTBEAT, and ends the session if
+//nothing comes back within RMS_HEARTBEAT_TIMEOUT, so a dead server or network is noticed (see: RMSProtocol.TYPE_HEARTBEAT)
+//v1 servers have no heartbeat, their sockets only get TCP keepalive
+//Listener methods are called on the I/O thread and must not block it
+public class RealtimeClient {
+
+    private static final String TAG = "RealtimeClient";
+
+    private static RealtimeClient instance;
+
+    //@brief: Events of one session, called on the I/O thread
+    public interface Listener {
+        //Authorized, frames may follow
+        void onOpen(Session session);
+
+        //One frame from the server, PINGs included. 'payload' is only valid during the call, see: Session.text()
+        void onFrame(Session session, int type, ByteBuffer payload);
+
+        //The version offer was accepted, rejected or went unanswered, 'version' is what the server speaks
+        //Not called for a session that made no offer or ended before the answer, see: RMSProtocol.java
+        void onVersion(Session session, int version);
+
+        //Session ended, 'error' is null after close(). Called once, also if it never opened
+        void onClosed(Session session, IOException error);
+    }
+
+    private final Object lock = new Object();
+    //Guarded by 'lock'
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private Thread thread;
+    private Selector selector;
+    //Touched by the I/O thread only
+    private final ArrayList<Session> sessions = new ArrayList<>();
+    //Version the server is known to speak, 0 until a session found out or setServerVersion() was called
+    //A server that does not accept v2 is not offered it again by this client
+    private volatile int serverVersion = 0;
+    //Sessions in a row that ended while the offer waited for its answer, I/O thread only, see: Session.finish()
+    private int offerHangUps = 0;
+    private static final int OFFER_HANG_UPS = 2;
+
+    //@return: RealtimeClient shared by the app
+    public static synchronized RealtimeClient getInstance() {
+        if (instance == null) {
+            instance = new RealtimeClient();
+        }
+        return instance;
+    }
+
+    //@brief: Starts a session: connects (taking a prewarmed channel from RMSConnector.java if there is one) and authorizes
+    //@params: [String token] auth token, see: AuthSession.java [Listener listener]
+    //@pre condition: None, any thread
+    //@post condition: Session connecting, 'listener' hears onOpen() or onClosed()
+    //@return: Session, can be closed right away
+    public Session open(String token, Listener listener) throws IOException {
+        return open(token, listener, null);
+    }
+
+    //@brief: Same as open(token, listener), to another server
+    //@params: [InetSocketAddress address] null for the RMS server, another one for tests
+    Session open(String token, Listener listener, InetSocketAddress address) throws IOException {
+        final Session session = new Session(token, listener, address);
+        post(new Runnable() {
+            @Override
+            public void run() {
+                session.start();
+            }
+        });
+        return session;
+    }
+
+    //@brief: Closes every session, the I/O thread ends once they are closed
+    public void shutdown() {
+        synchronized (lock) {
+            if (thread == null) {
+                return;
+            }
+        }
+        postQuietly(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = sessions.size() - 1; i >= 0; i--) {
+                    sessions.get(i).finish(null);
+                }
+            }
+        });
+    }
+
+    //@brief: Number of open or opening sessions, read on the I/O thread so only a hint elsewhere
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    //@return: int RMSProtocol.V1 or V2 once a session negotiated, 0 before
+    int getServerVersion() {
+        return serverVersion;
+    }
+
+    //@brief: Version learned by an earlier process, see: RealtimeHub.java. A known v1 server is not offered v2
+    //@params: [int version] RMSProtocol.V1 or V2, 0 to offer v2 again
+    void setServerVersion(int version) {
+        serverVersion = version;
+    }
+
+    //@return: current time in ms, SystemClock.elapsedRealtime()
+    long now() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    //@brief: Runs 'task' on the I/O thread, starting the thread if it is not running
+    private void post(Runnable task) throws IOException {
+        synchronized (lock) {
+            if (thread == null) {
+                selector = Selector.open();
+                final Selector threadSelector = selector;
+                thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        loop(threadSelector);
+                    }
+                }, "rms-io");
+                tasks.add(task);
+                thread.start();
+                return;
+            }
+            tasks.add(task);
+            selector.wakeup();
+        }
+    }
+
+    //@brief: Same as post(), for calls from sessions that are already running, which have a thread and selector
+    private void postQuietly(Runnable task) {
+        try {
+            post(task);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not reach the I/O thread", e);
+        }
+    }
+
+    private Runnable nextTask() {
+        synchronized (lock) {
+            return tasks.poll();
+        }
+    }
+
+    //@brief: The I/O thread: runs posted tasks, handles ready channels and timeouts until no session is left
+    private void loop(Selector selector) {
+        while (true) {
+            Runnable task;
+            while ((task = nextTask()) != null) {
+                task.run();
+            }
+            synchronized (lock) {
+                if (sessions.isEmpty() && tasks.isEmpty()) {
+                    thread = null;
+                    this.selector = null;
+                    try {
+                        selector.close();
+                    } catch (IOException e) {
+                        //Nothing to do
+                    }
+                    return;
+                }
+            }
+            try {
+                long wait = timeUntilNextDeadline();
+                if (wait > 0) {
+                    selector.select(wait);
+                } else if (wait == 0) {
+                    selector.select();
+                } else {
+                    selector.selectNow();
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "select failed", e);
+            }
+            //The sessions are walked instead of the set, its iterator would be garbage on every wake up
+            Set<SelectionKey> ready = selector.selectedKeys();
+            if (!ready.isEmpty()) {
+                for (int i = sessions.size() - 1; i >= 0; i--) {
+                    Session session = sessions.get(i);
+                    if (session.key != null && ready.contains(session.key)) {
+                        session.ready(session.key);
+                    }
+                }
+                ready.clear();
+            }
+            long now = now();
+            for (int i = sessions.size() - 1; i >= 0; i--) {
+                sessions.get(i).tick(now);
+            }
+        }
+    }
+
+    //@return: ms until the nearest session deadline, 0 if there is none, negative if one passed
+    private long timeUntilNextDeadline() {
+        long nearest = 0;
+        for (int i = 0; i < sessions.size(); i++) {
+            long deadline = sessions.get(i).wakeAt();
+            if (deadline != 0 && (nearest == 0 || deadline < nearest)) {
+                nearest = deadline;
+            }
+        }
+        if (nearest == 0) {
+            return 0;
+        }
+        long wait = nearest - now();
+        return wait > 0 ? wait : -1;
+    }
+
+    //@brief: A frame waiting in Session.send()
+    private static class Outgoing {
+        final int type;
+        final String message;
+
+        Outgoing(int type, String message) {
+            this.type = type;
+            this.message = message;
+        }
+    }
+
+    //@brief:
+    //One connection to the RMS server, a logical channel of the client
+    //Frames sent with send() wait while the connection is not open or the version offer is unanswered (see: RMSProtocol.java)
+    public class Session {
+
+        static final int CONNECTING = 0;
+        static final int AUTHORIZING = 1;
+        static final int OPEN = 2;
+        static final int CLOSED = 3;
+
+        private final String token;
+        private final Listener listener;
+        private final InetSocketAddress address;
+        private final RMSFrameDecoder decoder = new RMSFrameDecoder();
+        //Handshake frames, sent before anything else, I/O thread only
+        private final ArrayDeque<ByteBuffer> control = new ArrayDeque<>();
+        //Frames from send(), guarded by itself
+        private final ArrayDeque<Outgoing> outgoing = new ArrayDeque<>();
+        private ByteBuffer writing;
+        private SocketChannel channel;
+        private SelectionKey key;
+        private boolean negotiating = false;
+        volatile int state = CONNECTING;
+        //Connect or auth deadline, 0 once open
+        private long deadline = 0;
+        //When the last bytes came in, and when the unanswered HEARTBEAT went out (0 if none), I/O thread only
+        private long lastRead = 0;
+        private long heartbeatSent = 0;
+
+        Session(String token, Listener listener, InetSocketAddress address) {
+            this.token = token;
+            this.listener = listener;
+            this.address = address;
+        }
+
+        //@brief: Sends 'message' as a TEXT frame once the session is open, any thread
+        //@params: [String message]
+        public void send(String message) {
+            send(RMSProtocol.TYPE_TEXT, message);
+        }
+
+        //@brief: Sends a frame of any type once the session is open, any thread
+        //Frames other than TEXT only exist in v2 and are dropped if the server speaks v1
+        //@params: [int type] RMSProtocol.TYPE_* [String message] payload, null for none
+        public void send(int type, String message) {
+            synchronized (outgoing) {
+                outgoing.add(new Outgoing(type, message));
+            }
+            postQuietly(new Runnable() {
+                @Override
+                public void run() {
+                    updateInterest();
+                }
+            });
+        }
+
+        //@brief: Ends the session, any thread. onClosed() follows with a null error unless it already ended
+        public void close() {
+            postQuietly(new Runnable() {
+                @Override
+                public void run() {
+                    finish(null);
+                }
+            });
+        }
+
+        //@return: Boolean 'true' once authorized and until closed
+        public boolean isOpen() {
+            return state == OPEN;
+        }
+
+        //@return: int RMSProtocol.V1 or V2, the format of the frames being read
+        public int getVersion() {
+            return decoder.getVersion();
+        }
+
+        //@brief: Payload of the frame passed to onFrame() as a String, only during that call
+        public String text() {
+            return decoder.text();
+        }
+
+        //@brief: Connects, on the I/O thread
+        void start() {
+            if (state == CLOSED) {
+                return;
+            }
+            sessions.add(this);
+            try {
+                channel = address == null ? RMSConnector.takePrewarmed() : null;
+                if (channel != null) {
+                    channel.socket().setKeepAlive(true);
+                    channel.configureBlocking(false);
+                    key = channel.register(selector, 0, this);
+                    connected();
+                    return;
+                }
+                channel = SocketChannel.open();
+                channel.socket().setKeepAlive(true);
+                channel.configureBlocking(false);
+                key = channel.register(selector, SelectionKey.OP_CONNECT, this);
+                deadline = now() + GlobalConfig.RMS_TIMEOUT;
+                if (channel.connect(address == null ? RMSConnector.address() : address)) {
+                    connected();
+                }
+            } catch (IOException e) {
+                finish(e);
+            }
+        }
+
+        //@brief: Connection ready, sends the auth token
+        private void connected() {
+            state = AUTHORIZING;
+            deadline = now() + GlobalConfig.RMS_TIMEOUT;
+            control.add(RMSProtocol.encode(RMSProtocol.V1, RMSProtocol.TYPE_TEXT, token));
+            updateInterest();
+        }
+
+        //@brief: Handles a ready channel, on the I/O thread
+        void ready(SelectionKey readyKey) {
+            try {
+                if (readyKey.isValid() && readyKey.isConnectable() && channel.finishConnect()) {
+                    connected();
+                }
+                if (readyKey.isValid() && readyKey.isReadable()) {
+                    read();
+                }
+                if (readyKey.isValid() && readyKey.isWritable()) {
+                    flush();
+                }
+            } catch (IOException e) {
+                finish(e);
+            } catch (RuntimeException e) {
+                //A listener threw, the session cannot be trusted anymore but the I/O thread goes on
+                Log.e(TAG, "Realtime session failed", e);
+                finish(new IOException(e.getMessage()));
+            }
+        }
+
+        private void read() throws IOException {
+            int read = channel.read(decoder.readTarget());
+            if (read < 0) {
+                throw new EOFException("RMS server closed the connection");
+            }
+            lastRead = now();
+            heartbeatSent = 0;
+            while (state != CLOSED && decoder.next()) {
+                onFrame();
+            }
+            if (state != CLOSED) {
+                decoder.compact();
+            }
+        }
+
+        private void onFrame() throws IOException {
+            int type = decoder.type();
+            if (state == AUTHORIZING) {
+                if (!decoder.payloadEquals(RMSProtocol.AUTH_SUCCESS_BYTES)) {
+                    throw new AuthFailedException();
+                }
+                state = OPEN;
+                deadline = 0;
+                lastRead = now();
+                if (GlobalConfig.RMS_PROTOCOL_VERSION >= RMSProtocol.V2 && serverVersion != RMSProtocol.V1) {
+                    control.add(RMSProtocol.encode(RMSProtocol.V1, RMSProtocol.TYPE_TEXT, RMSProtocol.VERSION_OFFER));
+                    negotiating = true;
+                    deadline = lastRead + GlobalConfig.RMS_VERSION_TIMEOUT;
+                }
+                updateInterest();
+                listener.onOpen(this);
+                return;
+            }
+            if (negotiating && type == RMSProtocol.TYPE_TEXT) {
+                if (decoder.payloadEquals(RMSProtocol.VERSION_ACCEPT_BYTES)) {
+                    negotiated(RMSProtocol.V2);
+                    return;
+                }
+                if (decoder.payloadEquals(RMSProtocol.VERSION_REJECT_BYTES)) {
+                    negotiated(RMSProtocol.V1);
+                    return;
+                }
+            }
+            //Anything else while the offer waits was sent before the server read it, still a v1 frame
+            if (type == RMSProtocol.TYPE_HEARTBEAT) {
+                //Answer to ours, read() already noted that the server is there
+                return;
+            }
+            listener.onFrame(this, type, decoder.payload());
+        }
+
+        //@brief: The version offer was answered or given up on, the session goes on in 'version' and send() frames may go out
+        //@params: [int version] RMSProtocol.V1 or V2
+        private void negotiated(int version) {
+            negotiating = false;
+            offerHangUps = 0;
+            deadline = 0;
+            serverVersion = version;
+            decoder.setVersion(version);
+            updateInterest();
+            listener.onVersion(this, version);
+        }
+
+        //@brief: Writes queued frames until the channel would block
+        private void flush() throws IOException {
+            while (true) {
+                if (writing == null) {
+                    writing = nextFrame();
+                    if (writing == null) {
+                        break;
+                    }
+                }
+                channel.write(writing);
+                if (writing.hasRemaining()) {
+                    break;
+                }
+                writing = null;
+            }
+            updateInterest();
+        }
+
+        //@return: next frame to write, handshake frames first, send() frames only once open and negotiated
+        private ByteBuffer nextFrame() {
+            ByteBuffer frame = control.poll();
+            if (frame != null || state != OPEN || negotiating) {
+                return frame;
+            }
+            int version = decoder.getVersion();
+            while (true) {
+                Outgoing next;
+                synchronized (outgoing) {
+                    next = outgoing.poll();
+                }
+                if (next == null) {
+                    return null;
+                }
+                if (next.type == RMSProtocol.TYPE_TEXT || version == RMSProtocol.V2) {
+                    return RMSProtocol.encode(version, next.type, next.message);
+                }
+            }
+        }
+
+        //@brief: When the I/O thread has to look at this session again without it being ready
+        //@return: long now() of the connect/auth/offer deadline or the next heartbeat step, 0 for none
+        long wakeAt() {
+            if (state == CONNECTING || state == AUTHORIZING || negotiating) {
+                return deadline;
+            }
+            if (state != OPEN || negotiating || decoder.getVersion() != RMSProtocol.V2) {
+                return 0;
+            }
+            return heartbeatSent != 0 ? heartbeatSent + GlobalConfig.RMS_HEARTBEAT_TIMEOUT
+                    : lastRead + GlobalConfig.RMS_HEARTBEAT_INTERVAL;
+        }
+
+        //@brief: Handles the time given by wakeAt() once it has passed, on the I/O thread
+        //@params: [long now] now()
+        void tick(long now) {
+            long wakeAt = wakeAt();
+            if (wakeAt == 0 || now < wakeAt) {
+                return;
+            }
+            if (state != OPEN) {
+                finish(new SocketTimeoutException(state == CONNECTING ? "RMS connect timed out" : "RMS auth timed out"));
+            } else if (negotiating) {
+                //A server that ignores the offer only speaks v1, the session goes on in v1 and the next one does not offer
+                negotiated(RMSProtocol.V1);
+            } else if (heartbeatSent != 0) {
+                finish(new SocketTimeoutException("RMS server stopped answering"));
+            } else {
+                heartbeatSent = now;
+                control.add(RMSProtocol.encode(RMSProtocol.V2, RMSProtocol.TYPE_HEARTBEAT, null));
+                updateInterest();
+            }
+        }
+
+        private boolean hasFrameToWrite() {
+            if (writing != null || !control.isEmpty()) {
+                return true;
+            }
+            if (state != OPEN || negotiating) {
+                return false;
+            }
+            synchronized (outgoing) {
+                return !outgoing.isEmpty();
+            }
+        }
+
+        //@brief: Reads while connected, also writes while frames wait
+        private void updateInterest() {
+            if (key == null || !key.isValid() || state == CONNECTING || state == CLOSED) {
+                return;
+            }
+            key.interestOps(SelectionKey.OP_READ | (hasFrameToWrite() ? SelectionKey.OP_WRITE : 0));
+        }
+
+        //@brief: Ends the session and tells the listener, on the I/O thread
+        //@params: [IOException error] null for close()
+        void finish(IOException error) {
+            if (state == CLOSED) {
+                return;
+            }
+            boolean hungUpOnOffer = negotiating && error != null && !(error instanceof SocketTimeoutException)
+                    && !(error instanceof ClosedChannelException);
+            state = CLOSED;
+            sessions.remove(this);
+            if (key != null) {
+                key.cancel();
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    //Nothing to do
+                }
+            }
+            decoder.release();
+            if (hungUpOnOffer && ++offerHangUps >= OFFER_HANG_UPS) {
+                //A server that hangs up on every offer only speaks v1. One dropped connection proves nothing, so this takes
+                //more than one and is not passed to onVersion(), the next start of the app offers again
+                serverVersion = RMSProtocol.V1;
+            }
+            try {
+                listener.onClosed(this, error);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Realtime listener failed", e);
+            }
+        }
+    }
+
+    //@brief: Failure passed to onClosed() when the server did not accept the token, a session with the same token fails again
+    public static class AuthFailedException extends IOException {
+        public AuthFailedException() {
+            super("RMS auth failed");
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.huntercollab.app.network.loopjtasks.realtime;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.util.Log;
+
+import com.huntercollab.app.config.GlobalConfig;
+import com.huntercollab.app.network.loopjtasks.ChatSequence;
+import com.huntercollab.app.network.loopjtasks.MessageModel;
+import com.huntercollab.app.network.loopjtasks.MessagingAPI;
+import com.huntercollab.app.network.loopjtasks.http.AuthSession;
+import com.huntercollab.app.network.loopjtasks.http.RetryPolicy;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+//@brief:
+//The app's one realtime session (see: RealtimeClient.java), shared by every screen
+//It opens when a screen of the app is started and the user is logged in, and closes GlobalConfig.RMS_BACKGROUND_LINGER
+//after the last screen is stopped, so going from one chat to another does not reconnect
+//Screens subscribe() in onResume()/onStart() and unsubscribe() when they leave, subscribers are called on the main thread
+//A screen subscribes to everything, or to channels (a chat or collab, see: RMSProtocol.TYPE_SUBSCRIBE) that the server
+//is asked to report on by themselves, so many screens share the one connection and each hears about its own channels
+//(see: Subscriptions.java)
+//New chat messages pushed by a v2 server are decoded here, off the main thread, see: RMSProtocol.TYPE_MESSAGE
+//A session lost while a screen is visible is opened again after a growing delay (see: RetryPolicy.java), and a v2 server
+//is told the last message seen in each chat (see: markSeen(), ResumePoints.java) so it sends what was missed
+//A token the server rejects is not tried again, the session waits for AuthSession.java to hold another one
+//The server's version is kept in SharedPreferences, so a v1 server is not offered v2 on every start of the app,
+//only again after GlobalConfig.RMS_VERSION_RECHECK in case it was updated
+//Main thread only, except the Listener methods which hand over to the main thread
+public class RealtimeHub implements RealtimeClient.Listener, Application.ActivityLifecycleCallbacks {
+
+    private static final String TAG = "RealtimeHub";
+    private static final String PREFS = "RealtimeHub";
+    private static final String PREF_VERSION = "serverVersion";
+    private static final String PREF_VERSION_TIME = "serverVersionTime";
+
+    private static final int MSG_PING = 1;
+    private static final int MSG_CLOSED = 2;
+    private static final int MSG_STOP = 3;
+    private static final int MSG_MESSAGE = 4;
+    private static final int MSG_OPENED = 5;
+    private static final int MSG_RECONNECT = 6;
+    private static final int MSG_CHANGED = 7;
+    private static final int MSG_REJECTED = 8;
+
+    private static RealtimeHub instance;
+
+    //@brief: Realtime events for a screen, on the main thread
+    public interface Subscriber {
+        //The server signalled that there is something new, see: RMSProtocol.PING
+        void onRealtimePing();
+
+        //A new message in chat 'chatId', the subscriber checks that it is the chat it shows
+        void onRealtimeMessage(String chatId, MessageModel message);
+
+        //Something other than a message changed in 'channel', see: RMSProtocol.TYPE_CHANGED
+        void onRealtimeChanged(String channel);
+    }
+
+    //@brief: A pushed message and the chat it belongs to
+    private static class ChatMessage {
+        final String chatId;
+        final MessageModel message;
+
+        ChatMessage(String chatId, MessageModel message) {
+            this.chatId = chatId;
+            this.message = message;
+        }
+    }
+
+    private final Context context;
+    private final Subscriptions subscriptions = new Subscriptions();
+    private final Handler main;
+    private RealtimeClient.Session session;
+    //Token sessions authorize with, the stored one when the last session was opened
+    private String token;
+    //Sessions lost in a row, 0 once one opens
+    private int attempts = 0;
+    //The server did not accept 'token', no session is opened until the user logs in again
+    private boolean rejected = false;
+    //Last message shown in each chat subscribed to, sent to the server after reconnecting
+    private final ResumePoints lastSeen = new ResumePoints();
+    private int startedActivities = 0;
+
+    //@brief: Creates the hub and follows the app's screens, see: HunterCollabApp.java
+    //@params: [Application application]
+    //@pre condition: Called once, on the main thread
+    //@post condition: Session opens with the first started screen when logged in
+    public static void init(Application application) {
+        if (instance == null) {
+            instance = new RealtimeHub(application);
+            application.registerActivityLifecycleCallbacks(instance);
+        }
+    }
+
+    //@return: RealtimeHub shared by the app
+    //@pre condition: init() called
+    public static RealtimeHub getInstance() {
+        return instance;
+    }
+
+    private RealtimeHub(Context context) {
+        this.context = context.getApplicationContext();
+        loadServerVersion();
+        this.main = new Handler(Looper.getMainLooper()) {
+            @Override
+            public void handleMessage(Message msg) {
+                switch (msg.what) {
+                    case MSG_PING:
+                        dispatchPing();
+                        break;
+                    case MSG_MESSAGE:
+                        dispatchChatMessage((ChatMessage) msg.obj);
+                        break;
+                    case MSG_CHANGED:
+                        dispatchChanged((String) msg.obj);
+                        break;
+                    case MSG_OPENED:
+                        if (msg.obj == session) {
+                            opened();
+                        }
+                        break;
+                    case MSG_CLOSED:
+                        if (msg.obj == session) {
+                            session = null;
+                            subscriptions.closed();
+                            //Lost, not closed by stop(): back as soon as the backoff allows while a screen is visible
+                            if (msg.arg1 != 0 && startedActivities > 0) {
+                                scheduleReconnect();
+                            }
+                        }
+                        break;
+                    case MSG_REJECTED:
+                        if (msg.obj == session) {
+                            session = null;
+                            subscriptions.closed();
+                            rejected = true;
+                            attempts = 0;
+                            Log.w(TAG, "Realtime server rejected the token, waiting for a new login");
+                        }
+                        break;
+                    case MSG_RECONNECT:
+                        if (session == null && token != null && !rejected) {
+                            open();
+                        }
+                        break;
+                    case MSG_STOP:
+                        stop();
+                        break;
+                }
+            }
+        };
+    }
+
+    //@brief: Starts sending realtime events to 'subscriber', opening the session if it is not open
+    //@params: [Subscriber subscriber]
+    //@pre condition: Main thread
+    //@post condition: 'subscriber' hears every PING until unsubscribe()
+    public void subscribe(Subscriber subscriber) {
+        subscriptions.add(subscriber);
+        start();
+    }
+
+    //@brief:
+    //Starts sending the events of one channel to 'subscriber', the server is asked for them if it was not yet
+    //A session still opening is asked in opened()
+    //@params: [Subscriber subscriber] [String channel] chat id or collab id, null subscribes to everything
+    //@pre condition: Main thread
+    //@post condition: 'subscriber' hears the channel's messages and changes, and PINGs, until unsubscribe()
+    public void subscribe(Subscriber subscriber, String channel) {
+        if (channel == null) {
+            subscribe(subscriber);
+            return;
+        }
+        subscriptions.add(subscriber, channel);
+        start();
+    }
+
+    //@brief:
+    //Subscribes a chat screen again when it comes back, asking a v2 server for the messages after 'seq'
+    //Pushes made while the screen was away were not delivered to it, see: unsubscribe()
+    //@params: [Subscriber subscriber] [String chatId] [long seq] last message shown, ChatSequence.UNKNOWN if none
+    //@pre condition: Main thread
+    //@return: Boolean 'true' if the server will push the messages missed, otherwise the screen downloads the chat
+    public boolean resubscribe(Subscriber subscriber, String chatId, long seq) {
+        subscribe(subscriber, chatId);
+        lastSeen.seen(chatId, seq);
+        if (seq == ChatSequence.UNKNOWN || session == null
+                || RealtimeClient.getInstance().getServerVersion() != RMSProtocol.V2) {
+            return false;
+        }
+        if (subscriptions.isOpened()) {
+            //A session still opening resumes every chat in opened()
+            try {
+                session.send(RMSProtocol.TYPE_RESUME, new JSONObject().put(chatId, seq).toString());
+            } catch (JSONException e) {
+                Log.w(TAG, "Could not build the resume frame", e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //@brief: Stops sending realtime events to 'subscriber', channels nobody listens to anymore are left and forgotten
+    //The session stays open for the other screens
+    //@params: [Subscriber subscriber]
+    public void unsubscribe(Subscriber subscriber) {
+        for (String channel : subscriptions.remove(subscriber)) {
+            lastSeen.forget(channel);
+        }
+    }
+
+    //@brief: Opens the session, or reopens it if it was authorized with another token
+    //@pre condition: Main thread
+    //@post condition: Session opening, unless the user is not logged in, the server rejected the token
+    //or a reconnect is waiting for its delay
+    public void start() {
+        main.removeMessages(MSG_STOP);
+        String current = AuthSession.getToken(context);
+        if (current == null) {
+            return;
+        }
+        if (!current.equals(token)) {
+            //Another user, the chats seen belong to the previous one
+            stop();
+            lastSeen.clear();
+            token = current;
+            rejected = false;
+        } else if (rejected || session != null || main.hasMessages(MSG_RECONNECT)) {
+            return;
+        }
+        open();
+    }
+
+    //@brief: Closes the session, the next start() or subscribe() opens a new one
+    public void stop() {
+        main.removeMessages(MSG_STOP);
+        main.removeMessages(MSG_RECONNECT);
+        attempts = 0;
+        if (session != null) {
+            session.close();
+            session = null;
+            subscriptions.closed();
+        }
+    }
+
+    //@brief: Remembers the last message a screen showed in 'chatId', so a reconnect resumes after it
+    //Chats nobody is subscribed to are not kept
+    //@params: [String chatId] [long seq] number of the message, see: ChatSequence.java
+    public void markSeen(String chatId, long seq) {
+        if (subscriptions.contains(chatId)) {
+            lastSeen.seen(chatId, seq);
+        }
+    }
+
+    //@brief: Tells the client what an earlier start of the app learned about the server's version
+    private void loadServerVersion() {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        int version = prefs.getInt(PREF_VERSION, 0);
+        long age = System.currentTimeMillis() - prefs.getLong(PREF_VERSION_TIME, 0);
+        if (version == RMSProtocol.V2 || (version == RMSProtocol.V1 && age >= 0 && age < GlobalConfig.RMS_VERSION_RECHECK)) {
+            RealtimeClient.getInstance().setServerVersion(version);
+        }
+    }
+
+    private void open() {
+        try {
+            session = RealtimeClient.getInstance().open(token, this);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not open the realtime session", e);
+            scheduleReconnect();
+        }
+    }
+
+    private void scheduleReconnect() {
+        attempts++;
+        long delay = RetryPolicy.delayFor(attempts, GlobalConfig.RMS_RECONNECT_BASE_DELAY, GlobalConfig.RMS_RECONNECT_MAX_DELAY);
+        main.sendEmptyMessageDelayed(MSG_RECONNECT, delay);
+    }
+
+    //@brief: The session is authorized, subscribes to the channels again and asks a v2 server for the messages missed while away
+    private void opened() {
+        boolean reconnected = attempts > 0;
+        attempts = 0;
+        subscriptions.opened(session);
+        try {
+            String resume = lastSeen.toFrame();
+            if (resume != null) {
+                session.send(RMSProtocol.TYPE_RESUME, resume);
+            }
+        } catch (JSONException e) {
+            Log.w(TAG, "Could not build the resume frame", e);
+        }
+        if (reconnected && RealtimeClient.getInstance().getServerVersion() == RMSProtocol.V1) {
+            //A v1 server cannot resume, the screens download what they missed
+            dispatchPing();
+        }
+    }
+
+    //@return: Boolean 'true' while the session is authorized
+    public boolean isConnected() {
+        return session != null && session.isOpen();
+    }
+
+    private void dispatchPing() {
+        for (Subscriber subscriber : subscriptions.pinged(RealtimeClient.getInstance().getServerVersion())) {
+            subscriber.onRealtimePing();
+        }
+    }
+
+    private void dispatchChatMessage(ChatMessage pushed) {
+        for (Subscriber subscriber : subscriptions.recipients(pushed.chatId)) {
+            subscriber.onRealtimeMessage(pushed.chatId, pushed.message);
+        }
+    }
+
+    private void dispatchChanged(String channel) {
+        for (Subscriber subscriber : subscriptions.recipients(channel)) {
+            subscriber.onRealtimeChanged(channel);
+        }
+    }
+
+    //RealtimeClient.Listener, on the I/O thread
+
+    @Override
+    public void onOpen(RealtimeClient.Session session) {
+        main.obtainMessage(MSG_OPENED, session).sendToTarget();
+    }
+
+    @Override
+    public void onFrame(RealtimeClient.Session session, int type, ByteBuffer payload) {
+        //Several PINGs waiting on the main thread refresh the screens once
+        if (type == RMSProtocol.TYPE_PING && !main.hasMessages(MSG_PING)) {
+            main.sendEmptyMessage(MSG_PING);
+        } else if (type == RMSProtocol.TYPE_MESSAGE) {
+            try {
+                JSONObject data = new JSONObject(session.text());
+                ChatMessage pushed = new ChatMessage(data.getString("chatId"), MessagingAPI.decodeMessage(data));
+                main.obtainMessage(MSG_MESSAGE, pushed).sendToTarget();
+            } catch (JSONException e) {
+                //Something new that cannot be shown, the screens download it instead
+                Log.w(TAG, "Unreadable pushed message", e);
+                main.sendEmptyMessage(MSG_PING);
+            }
+        } else if (type == RMSProtocol.TYPE_CHANGED) {
+            main.obtainMessage(MSG_CHANGED, session.text()).sendToTarget();
+        }
+    }
+
+    @Override
+    public void onVersion(RealtimeClient.Session session, int version) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        prefs.edit().putInt(PREF_VERSION, version).putLong(PREF_VERSION_TIME, System.currentTimeMillis()).apply();
+    }
+
+    @Override
+    public void onClosed(RealtimeClient.Session session, IOException error) {
+        if (error instanceof RealtimeClient.AuthFailedException) {
+            main.obtainMessage(MSG_REJECTED, session).sendToTarget();
+            return;
+        }
+        if (error != null) {
+            Log.i(TAG, "Realtime connection ended: " + error.getMessage());
+        }
+        main.obtainMessage(MSG_CLOSED, error != null ? 1 : 0, 0, session).sendToTarget();
+    }
+
+    //Application.ActivityLifecycleCallbacks, the session follows whether a screen of the app is visible
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+        startedActivities++;
+        start();
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+        startedActivities--;
+        if (startedActivities <= 0) {
+            startedActivities = 0;
+            main.sendEmptyMessageDelayed(MSG_STOP, GlobalConfig.RMS_BACKGROUND_LINGER);
+        }
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+    }
+}
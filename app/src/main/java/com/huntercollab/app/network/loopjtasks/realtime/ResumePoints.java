@@ -0,0 +1,55 @@
+package com.huntercollab.app.network.loopjtasks.realtime;
+
+import com.huntercollab.app.network.loopjtasks.ChatSequence;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//@brief:
+//Number of the last message shown in each chat a screen listens to, sent to a v2 server after reconnecting so it
+//pushes what was missed, see: RMSProtocol.TYPE_RESUME
+//A chat is forgotten once no screen listens to it, so only the chats open in the app are kept
+//Main thread only, see: RealtimeHub.java
+class ResumePoints {
+
+    private final HashMap<String, Long> lastSeen = new HashMap<>();
+
+    //@brief: Keeps 'seq' if it is newer than the one kept for 'chatId'
+    //@params: [String chatId] [long seq] number of the message, see: ChatSequence.java
+    void seen(String chatId, long seq) {
+        if (seq == ChatSequence.UNKNOWN) {
+            return;
+        }
+        Long seen = lastSeen.get(chatId);
+        if (seen == null || seq > seen) {
+            lastSeen.put(chatId, seq);
+        }
+    }
+
+    void forget(String chatId) {
+        lastSeen.remove(chatId);
+    }
+
+    void clear() {
+        lastSeen.clear();
+    }
+
+    int size() {
+        return lastSeen.size();
+    }
+
+    //@return: String payload of a RESUME frame for every chat kept, null if there is none
+    String toFrame() throws JSONException {
+        if (lastSeen.isEmpty()) {
+            return null;
+        }
+        JSONObject resume = new JSONObject();
+        for (Map.Entry<String, Long> seen : lastSeen.entrySet()) {
+            resume.put(seen.getKey(), seen.getValue().longValue());
+        }
+        return resume.toString();
+    }
+}
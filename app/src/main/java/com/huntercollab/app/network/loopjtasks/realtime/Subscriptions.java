@@ -0,0 +1,126 @@
+package com.huntercollab.app.network.loopjtasks.realtime;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+//@brief:
+//Who RealtimeHub.java passes each event to, and which channels the server is asked to report on
+//A channel is subscribed to with the server when its first subscriber comes, and left when its last one goes
+//The session is only told once it is open and has been given the whole list, see: opened()
+//Main thread only
+class Subscriptions {
+
+    //Subscribers to everything, and to single channels
+    private final ArrayList<RealtimeHub.Subscriber> everything = new ArrayList<>();
+    private final HashMap<String, ArrayList<RealtimeHub.Subscriber>> channels = new HashMap<>();
+    //The session that was given the channels in opened(), null before and after
+    private RealtimeClient.Session session;
+
+    //@params: [RealtimeHub.Subscriber subscriber] hears every PING
+    void add(RealtimeHub.Subscriber subscriber) {
+        if (!everything.contains(subscriber)) {
+            everything.add(subscriber);
+        }
+    }
+
+    //@brief: Adds 'subscriber' to 'channel', the open session is asked for the channel if it is its first subscriber
+    //@params: [RealtimeHub.Subscriber subscriber] [String channel]
+    void add(RealtimeHub.Subscriber subscriber, String channel) {
+        ArrayList<RealtimeHub.Subscriber> listeners = channels.get(channel);
+        if (listeners == null) {
+            listeners = new ArrayList<>();
+            channels.put(channel, listeners);
+            if (session != null) {
+                session.send(RMSProtocol.TYPE_SUBSCRIBE, channel);
+            }
+        }
+        if (!listeners.contains(subscriber)) {
+            listeners.add(subscriber);
+        }
+    }
+
+    //@brief: Removes 'subscriber' from everything, the open session leaves the channels nobody listens to anymore
+    //@params: [RealtimeHub.Subscriber subscriber]
+    //@return: ArrayList<String> channels left
+    ArrayList<String> remove(RealtimeHub.Subscriber subscriber) {
+        everything.remove(subscriber);
+        ArrayList<String> left = new ArrayList<>();
+        Iterator<Map.Entry<String, ArrayList<RealtimeHub.Subscriber>>> entries = channels.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, ArrayList<RealtimeHub.Subscriber>> entry = entries.next();
+            entry.getValue().remove(subscriber);
+            if (entry.getValue().isEmpty()) {
+                entries.remove();
+                left.add(entry.getKey());
+                if (session != null) {
+                    session.send(RMSProtocol.TYPE_UNSUBSCRIBE, entry.getKey());
+                }
+            }
+        }
+        return left;
+    }
+
+    //@return: Boolean 'true' if someone listens to 'channel'
+    boolean contains(String channel) {
+        return channels.containsKey(channel);
+    }
+
+    //@brief: 'session' is open, it is asked for every channel and told about changes from now on
+    //Like RESUME these wait for the version answer and are dropped by a v1 server's session
+    //@params: [RealtimeClient.Session session]
+    void opened(RealtimeClient.Session session) {
+        this.session = session;
+        for (String channel : channels.keySet()) {
+            session.send(RMSProtocol.TYPE_SUBSCRIBE, channel);
+        }
+    }
+
+    //@brief: The session is gone, the next one is given the channels in opened()
+    void closed() {
+        session = null;
+    }
+
+    //@return: Boolean 'true' once opened() gave the session the channels
+    boolean isOpened() {
+        return session != null;
+    }
+
+    //@brief: A v2 server only PINGs for channels not subscribed to, so channel subscribers need it from v1 servers only
+    //@params: [int serverVersion] RMSProtocol.V1 or V2
+    //@return: RealtimeHub.Subscriber[] who hears a PING, each once
+    RealtimeHub.Subscriber[] pinged(int serverVersion) {
+        ArrayList<RealtimeHub.Subscriber> recipients = new ArrayList<>(everything);
+        if (serverVersion != RMSProtocol.V2) {
+            for (ArrayList<RealtimeHub.Subscriber> listeners : channels.values()) {
+                addMissing(recipients, listeners);
+            }
+        }
+        return toArray(recipients);
+    }
+
+    //@params: [String channel]
+    //@return: RealtimeHub.Subscriber[] who hears a message or change in 'channel': subscribers to everything and to it, each once
+    RealtimeHub.Subscriber[] recipients(String channel) {
+        ArrayList<RealtimeHub.Subscriber> recipients = new ArrayList<>(everything);
+        ArrayList<RealtimeHub.Subscriber> listeners = channels.get(channel);
+        if (listeners != null) {
+            addMissing(recipients, listeners);
+        }
+        return toArray(recipients);
+    }
+
+    private static void addMissing(ArrayList<RealtimeHub.Subscriber> recipients, ArrayList<RealtimeHub.Subscriber> listeners) {
+        for (RealtimeHub.Subscriber listener : listeners) {
+            if (!recipients.contains(listener)) {
+                recipients.add(listener);
+            }
+        }
+    }
+
+    //@brief: Copied so a subscriber can unsubscribe while being called
+    private static RealtimeHub.Subscriber[] toArray(ArrayList<RealtimeHub.Subscriber> recipients) {
+        return recipients.toArray(new RealtimeHub.Subscriber[recipients.size()]);
+    }
+}
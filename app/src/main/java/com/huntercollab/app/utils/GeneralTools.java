@@ -1,31 +1,23 @@
 package com.huntercollab.app.utils;
 import com.huntercollab.app.activity.LoginActivity;
+import com.huntercollab.app.network.loopjtasks.http.AuthSession;
+import com.huntercollab.app.network.loopjtasks.http.SharedHttpClient;
 import com.loopj.android.http.AsyncHttpClient;
-import com.loopj.android.http.PersistentCookieStore;
 
 import android.content.Context;
 import android.content.Intent;
 
-import java.util.List;
-
-import cz.msebera.android.httpclient.cookie.Cookie;
-
 public class GeneralTools {
 
     //@author: Hugh Leow & Edwin Quintuna
-    //@brief: Creates an ASYNC HTTP client, sets cookies and returns it
+    //@brief: Returns the shared ASYNC HTTP client with cookies attached
+    //See: SharedHttpClient.java
     //@params: [Context context]
     //@pre condition: No authentication in cookies set, or cookies are invalid
     //@post condition: New authentication token set in cookies
     //@return: AsyncHttpClient returned
-    public static AsyncHttpClient createAsyncHttpClient(Context context) {
-        AsyncHttpClient client = new AsyncHttpClient();
-        //Retrieve cookie store for this application context.
-        PersistentCookieStore cookieStore = new PersistentCookieStore(context.getApplicationContext());
-        //attach those cookies to the HttpClient which will be making the request
-        client.setCookieStore(cookieStore);
-        client.setTimeout(30 * 1000); // 60 second timeout
-        return client;
+    public static AsyncHttpClient getAsyncHttpClient(Context context) {
+        return SharedHttpClient.getClient(context);
     }
 
     //@author: Hugh Leow & Edwin Quintuna
@@ -43,15 +35,9 @@ public class GeneralTools {
     //@brief: Gets JWT authentication token from the server
     //@pre condition: No valid JWT token locally stored
     //@post condition: Valid JWT token retrieved and stored
+    //See: AuthSession.java, token is kept in memory after the first read
     public static String getAuthToken(Context context) {
-        PersistentCookieStore cookieStore = new PersistentCookieStore(context.getApplicationContext());
-        List<Cookie> cks = cookieStore.getCookies();
-        for (Cookie c : cks) {
-            if (c.getName().equals("capstoneAuth")) {
-                return c.getValue();
-            }
-        }
-        return null;
+        return AuthSession.getToken(context);
     }
 
     //@author: Hugh Leow
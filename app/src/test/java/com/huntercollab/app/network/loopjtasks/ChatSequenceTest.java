@@ -0,0 +1,80 @@
+package com.huntercollab.app.network.loopjtasks;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+//@brief: Pushed messages checked by ChatSequence.java against the last one shown
+public class ChatSequenceTest {
+
+    private final ChatSequence sequence = new ChatSequence();
+
+    @Test
+    public void nextMessageIsAdded() {
+        sequence.pageLoaded(4);
+        assertEquals(ChatSequence.ADD, sequence.pushed(message(5)));
+        assertEquals(ChatSequence.ADD, sequence.pushed(message(6)));
+        assertEquals(6, sequence.getLast());
+    }
+
+    @Test
+    public void messageAlreadyShownIsSkipped() {
+        sequence.pageLoaded(4);
+        assertEquals(ChatSequence.SKIP, sequence.pushed(message(4)));
+        assertEquals(ChatSequence.SKIP, sequence.pushed(message(2)));
+        assertEquals(4, sequence.getLast());
+    }
+
+    @Test
+    public void gapAsksForADownload() {
+        sequence.pageLoaded(4);
+        assertEquals(ChatSequence.REFETCH, sequence.pushed(message(6)));
+        assertEquals(4, sequence.getLast());
+    }
+
+    @Test
+    public void withoutNumbersEveryPushAsksForADownload() {
+        assertEquals(ChatSequence.REFETCH, sequence.pushed(message(1)));
+        sequence.pageLoaded(ChatSequence.UNKNOWN);
+        assertEquals(ChatSequence.REFETCH, sequence.pushed(message(1)));
+        sequence.pageLoaded(4);
+        assertEquals(ChatSequence.REFETCH, sequence.pushed(message(ChatSequence.UNKNOWN)));
+    }
+
+    @Test
+    public void pushesDuringADownloadAreHeldInOrder() {
+        sequence.pageLoaded(2);
+        sequence.fetchStarted();
+        assertEquals(ChatSequence.SKIP, sequence.pushed(message(7)));
+        assertEquals(ChatSequence.SKIP, sequence.pushed(message(5)));
+        assertEquals(ChatSequence.SKIP, sequence.pushed(message(6)));
+
+        ArrayList<MessageModel> held = sequence.pageLoaded(5);
+        assertEquals(3, held.size());
+        assertEquals(5, held.get(0).getSeq());
+        assertEquals(6, held.get(1).getSeq());
+        assertEquals(7, held.get(2).getSeq());
+        assertEquals(ChatSequence.SKIP, sequence.pushed(held.get(0)));
+        assertEquals(ChatSequence.ADD, sequence.pushed(held.get(1)));
+        assertEquals(ChatSequence.ADD, sequence.pushed(held.get(2)));
+        assertTrue(sequence.pageLoaded(7).isEmpty());
+    }
+
+    @Test
+    public void failedDownloadDropsWhatWasHeld() {
+        sequence.pageLoaded(2);
+        sequence.fetchStarted();
+        sequence.pushed(message(3));
+        sequence.fetchFailed();
+        assertEquals(ChatSequence.UNKNOWN, sequence.getLast());
+        assertEquals(ChatSequence.REFETCH, sequence.pushed(message(4)));
+        assertTrue(sequence.pageLoaded(4).isEmpty());
+    }
+
+    private static MessageModel message(long seq) {
+        return new MessageModel("ada@hunter.cuny.edu", "message " + seq, 1000 + seq, "Ada", seq);
+    }
+}
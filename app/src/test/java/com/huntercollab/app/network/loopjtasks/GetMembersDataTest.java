@@ -0,0 +1,25 @@
+package com.huntercollab.app.network.loopjtasks;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+//@brief: Answers to '/user/batch' that make GetMembersData.java use the per member GETs from then on
+public class GetMembersDataTest {
+
+    @Test
+    public void missingRouteFallsBackForGood() {
+        assertTrue(GetMembersData.batchMissing(404));
+        assertTrue(GetMembersData.batchMissing(405));
+        assertTrue(GetMembersData.batchMissing(501));
+    }
+
+    @Test
+    public void otherFailuresTryTheBatchAgain() {
+        assertFalse(GetMembersData.batchMissing(0));
+        assertFalse(GetMembersData.batchMissing(400));
+        assertFalse(GetMembersData.batchMissing(500));
+        assertFalse(GetMembersData.batchMissing(503));
+    }
+}
@@ -0,0 +1,149 @@
+package com.huntercollab.app.network.loopjtasks;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+//@brief:
+//Messages sent from a chat and pushed back by the server, LocalEchoes.java and ChatSequence.java driven like
+//MessagingActivity.java drives them: each send shows at most once, whichever of push and send completion comes first
+public class LocalEchoesTest {
+
+    private static final String USER = "ada@hunter.cuny.edu";
+
+    private final ChatSequence sequence = new ChatSequence();
+    private final LocalEchoes echoes = new LocalEchoes();
+    //What the chat shows
+    private final ArrayList<MessageModel> messages = new ArrayList<>();
+
+    @Test
+    public void pushAfterTheSendReplacesTheLocalCopy() {
+        sequence.pageLoaded(4);
+        echoes.sending("hello");
+        sendComplete("hello");
+        assertEquals(1, messages.size());
+        assertEquals(ChatSequence.UNKNOWN, messages.get(0).getSeq());
+
+        MessageModel pushed = message(USER, "hello", 5);
+        push(pushed);
+        assertEquals(1, messages.size());
+        assertSame(pushed, messages.get(0));
+        assertEquals(0, echoes.size());
+    }
+
+    @Test
+    public void pushBeforeTheSendCompletesIsShownOnce() {
+        sequence.pageLoaded(4);
+        echoes.sending("hello");
+        MessageModel pushed = message(USER, "hello", 5);
+        push(pushed);
+        assertEquals(1, messages.size());
+
+        sendComplete("hello");
+        assertEquals(1, messages.size());
+        assertSame(pushed, messages.get(0));
+        assertEquals(0, echoes.size());
+    }
+
+    @Test
+    public void pushThatAsksForADownloadIsNotShownAgainBySendCompletion() {
+        echoes.sending("hello");
+        //No page yet, the push is shown by the download
+        push(message(USER, "hello", 5));
+        assertEquals(0, messages.size());
+
+        sendComplete("hello");
+        assertEquals(0, messages.size());
+        assertEquals(0, echoes.size());
+    }
+
+    @Test
+    public void sameTextFromSomeoneElseIsNotTakenForTheSend() {
+        sequence.pageLoaded(4);
+        echoes.sending("ok");
+        push(message("grace@hunter.cuny.edu", "ok", 5));
+        sendComplete("ok");
+        assertEquals(2, messages.size());
+
+        push(message(USER, "ok", 6));
+        assertEquals(2, messages.size());
+        assertEquals(6, messages.get(1).getSeq());
+        assertEquals(0, echoes.size());
+    }
+
+    @Test
+    public void repeatedTextIsMatchedOldestFirst() {
+        sequence.pageLoaded(4);
+        echoes.sending("ok");
+        sendComplete("ok");
+        echoes.sending("ok");
+        push(message(USER, "ok", 5));
+        sendComplete("ok");
+        assertEquals(2, messages.size());
+        assertEquals(5, messages.get(0).getSeq());
+
+        push(message(USER, "ok", 6));
+        assertEquals(2, messages.size());
+        assertEquals(6, messages.get(1).getSeq());
+        assertEquals(0, echoes.size());
+    }
+
+    @Test
+    public void failedSendIsForgotten() {
+        sequence.pageLoaded(4);
+        echoes.sending("hello");
+        echoes.failed("hello");
+        assertEquals(0, echoes.size());
+
+        push(message(USER, "hello", 5));
+        assertEquals(1, messages.size());
+    }
+
+    @Test
+    public void downloadDropsTheShownCopiesAndKeepsSendsInFlight() {
+        sequence.pageLoaded(4);
+        echoes.sending("first");
+        sendComplete("first");
+        echoes.sending("second");
+        echoes.pageLoaded();
+        assertEquals(1, echoes.size());
+
+        MessageModel pushed = message(USER, "second", 6);
+        echoes.pushed(USER, pushed);
+        assertNull(echoes.sent(USER, "second"));
+    }
+
+    //@brief: MessagingActivity.messageSendComplete() for a successful send
+    private void sendComplete(String text) {
+        MessageModel echo = echoes.sent(USER, text);
+        if (echo != null) {
+            messages.add(echo);
+        }
+    }
+
+    //@brief: MessagingActivity.onRealtimeMessage() and addPushedMessage()
+    private void push(MessageModel message) {
+        switch (sequence.pushed(message)) {
+            case ChatSequence.ADD:
+                MessageModel echo = echoes.pushed(USER, message);
+                int position = echo != null ? messages.indexOf(echo) : -1;
+                if (position >= 0) {
+                    messages.set(position, message);
+                } else {
+                    messages.add(message);
+                }
+                break;
+            case ChatSequence.REFETCH:
+                echoes.pushed(USER, message);
+                break;
+        }
+    }
+
+    private static MessageModel message(String sender, String text, long seq) {
+        return new MessageModel(sender, text, 1000 + seq, "", seq);
+    }
+}
@@ -0,0 +1,119 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import com.huntercollab.app.config.GlobalConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+//@brief: State changes of CircuitBreaker.java on a clock the test moves by hand
+public class CircuitBreakerTest {
+
+    private long time;
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() {
+        time = 1000;
+        breaker = new CircuitBreaker("host") {
+            @Override
+            long now() {
+                return time;
+            }
+        };
+    }
+
+    @Test
+    public void opensAfterThresholdFailures() {
+        for (int i = 0; i < GlobalConfig.BREAKER_FAILURE_THRESHOLD - 1; i++) {
+            assertTrue(breaker.allowRequest());
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void successResetsFailureCount() {
+        for (int i = 0; i < GlobalConfig.BREAKER_FAILURE_THRESHOLD - 1; i++) {
+            breaker.onFailure();
+        }
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void oneTrialAfterOpenTime() {
+        open();
+        time += GlobalConfig.BREAKER_OPEN_TIME;
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void failedTrialOpensAgain() {
+        open();
+        time += GlobalConfig.BREAKER_OPEN_TIME;
+        assertTrue(breaker.allowRequest());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void cancelledTrialLetsTheNextRequestThrough() {
+        open();
+        time += GlobalConfig.BREAKER_OPEN_TIME;
+        assertTrue(breaker.allowRequest());
+        breaker.onCancelled();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void unansweredTrialTimesOut() {
+        open();
+        time += GlobalConfig.BREAKER_OPEN_TIME;
+        assertTrue(breaker.allowRequest());
+        time += GlobalConfig.BREAKER_TRIAL_TIMEOUT - 1;
+        assertFalse(breaker.allowRequest());
+        time += 1;
+        assertTrue(breaker.allowRequest());
+    }
+
+    //@brief: How long Outbox.java waits before asking an open breaker again
+    @Test
+    public void timeUntilAllowedIsTheRestOfTheOpenTime() {
+        assertEquals(0, breaker.timeUntilAllowed());
+        open();
+        assertEquals(GlobalConfig.BREAKER_OPEN_TIME, breaker.timeUntilAllowed());
+        time += 1000;
+        assertEquals(GlobalConfig.BREAKER_OPEN_TIME - 1000, breaker.timeUntilAllowed());
+        time += GlobalConfig.BREAKER_OPEN_TIME;
+        assertEquals(0, breaker.timeUntilAllowed());
+        assertTrue(breaker.allowRequest());
+        //Trial in flight
+        assertEquals(GlobalConfig.BREAKER_TRIAL_TIMEOUT, breaker.timeUntilAllowed());
+        breaker.onSuccess();
+        assertEquals(0, breaker.timeUntilAllowed());
+    }
+
+    private void open() {
+        for (int i = 0; i < GlobalConfig.BREAKER_FAILURE_THRESHOLD; i++) {
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
@@ -0,0 +1,118 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+//@brief: Storage, eviction and reload of DiskResponseCache.java in a temporary directory
+public class DiskResponseCacheTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("http-cache").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void storedBodyIsReadBackWithItsValidators() throws Exception {
+        DiskResponseCache cache = new DiskResponseCache(directory, 1024 * 1024);
+        cache.put("http://host/a", "\"v1\"", null, bytes("body a"));
+
+        DiskResponseCache.Entry entry = cache.get("http://host/a");
+        assertEquals("\"v1\"", entry.etag);
+        assertNull(entry.lastModified);
+        assertArrayEquals(bytes("body a"), cache.readBody(entry));
+    }
+
+    @Test
+    public void newerResponseReplacesTheEntry() throws Exception {
+        DiskResponseCache cache = new DiskResponseCache(directory, 1024 * 1024);
+        cache.put("http://host/a", "\"v1\"", null, bytes("old"));
+        cache.put("http://host/a", "\"v2\"", null, bytes("new"));
+
+        assertEquals(1, cache.count());
+        DiskResponseCache.Entry entry = cache.get("http://host/a");
+        assertEquals("\"v2\"", entry.etag);
+        assertArrayEquals(bytes("new"), cache.readBody(entry));
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvictedFirst() throws Exception {
+        byte[] body = new byte[400];
+        DiskResponseCache cache = new DiskResponseCache(directory, 1000);
+        cache.put("a", "\"a\"", null, body);
+        cache.put("b", "\"b\"", null, body);
+        //'a' is now more recently used than 'b'
+        cache.get("a");
+        cache.put("c", "\"c\"", null, body);
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    public void entriesSurviveARestart() throws Exception {
+        new DiskResponseCache(directory, 1024 * 1024).put("http://host/a", null, "Mon, 01 Jan 2018 00:00:00 GMT", bytes("body a"));
+
+        DiskResponseCache reloaded = new DiskResponseCache(directory, 1024 * 1024);
+        DiskResponseCache.Entry entry = reloaded.get("http://host/a");
+        assertEquals("Mon, 01 Jan 2018 00:00:00 GMT", entry.lastModified);
+        assertArrayEquals(bytes("body a"), reloaded.readBody(entry));
+    }
+
+    @Test
+    public void evictedBodyReadsAsNull() throws Exception {
+        DiskResponseCache cache = new DiskResponseCache(directory, 1024 * 1024);
+        cache.put("http://host/a", "\"v1\"", null, bytes("body a"));
+        DiskResponseCache.Entry entry = cache.get("http://host/a");
+        cache.clear();
+
+        assertNull(cache.readBody(entry));
+        assertEquals(0, cache.size());
+    }
+
+    //@brief: A read of an entry looked up before a put() replaced it must not drop the new entry, it has the same file
+    @Test
+    public void failedReadOfAReplacedEntryKeepsTheNewOne() throws Exception {
+        DiskResponseCache cache = new DiskResponseCache(directory, 1024 * 1024);
+        cache.put("http://host/a", "\"v1\"", null, bytes("old"));
+        DiskResponseCache.Entry stale = cache.get("http://host/a");
+        cache.put("http://host/a", "\"v2\"", null, bytes("new"));
+
+        cache.removeIfCurrent(stale);
+        DiskResponseCache.Entry entry = cache.get("http://host/a");
+        assertNotNull(entry);
+        assertEquals("\"v2\"", entry.etag);
+        assertArrayEquals(bytes("new"), cache.readBody(entry));
+
+        cache.removeIfCurrent(entry);
+        assertNull(cache.get("http://host/a"));
+        assertEquals(0, cache.size());
+    }
+
+    private static byte[] bytes(String text) throws Exception {
+        return text.getBytes("UTF-8");
+    }
+}
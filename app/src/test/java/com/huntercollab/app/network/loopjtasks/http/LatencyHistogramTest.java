@@ -0,0 +1,65 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+//@brief: Percentiles of LatencyHistogram.java stay within its 12.5% bucket error
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 16; i++) {
+            histogram.record(i);
+        }
+        assertEquals(7, histogram.getPercentile(50));
+        assertEquals(15, histogram.getPercentile(100));
+        assertEquals(15, histogram.getMax());
+    }
+
+    @Test
+    public void percentilesAreWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+        assertNear(5000, histogram.getPercentile(50));
+        assertNear(9000, histogram.getPercentile(90));
+        assertNear(9900, histogram.getPercentile(99));
+        assertEquals(5000, histogram.getMean());
+    }
+
+    @Test
+    public void percentileNeverExceedsMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        histogram.record(101);
+        assertEquals(101, histogram.getPercentile(100));
+        assertTrue(histogram.getPercentile(50) >= 100);
+    }
+
+    @Test
+    public void outliersLandInTheLastBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE / 4);
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(Long.MAX_VALUE / 4, histogram.getPercentile(100));
+        assertEquals(2, histogram.getCount());
+    }
+
+    private static void assertNear(long expected, long actual) {
+        assertTrue("expected ~" + expected + " got " + actual,
+                actual >= expected && actual <= expected + expected / 8);
+    }
+}
@@ -0,0 +1,131 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import com.huntercollab.app.config.GlobalConfig;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+//@brief: Delta encoding of skill and class list edits, see ListDelta.java
+public class ListDeltaTest {
+
+    private static final String URL = "http://host/user/skills";
+
+    @Before
+    public void setUp() {
+        ListDelta.clear();
+        ListDelta.setSupported(true);
+    }
+
+    @After
+    public void tearDown() {
+        ListDelta.clear();
+        ListDelta.setSupported(GlobalConfig.LIST_DELTAS);
+    }
+
+    @Test
+    public void betweenListsAddedAndRemovedOnce() {
+        ListDelta delta = ListDelta.between(Arrays.asList("Java", "C", "C"), Arrays.asList("Java", "Go", "Go"));
+        assertEquals(Arrays.asList("Go"), delta.getAdded());
+        assertEquals(Arrays.asList("C"), delta.getRemoved());
+        assertEquals(2, delta.size());
+    }
+
+    @Test
+    public void betweenIgnoresOrder() {
+        assertTrue(ListDelta.between(Arrays.asList("a", "b"), Arrays.asList("b", "a")).isEmpty());
+    }
+
+    @Test
+    public void encodeSendsDeltaWhenSmaller() throws Exception {
+        ListDelta.remember(URL, "", "skills", Arrays.asList("a", "b", "c", "d"));
+        String encoded = ListDelta.encode(URL, body("a", "b", "c", "d", "e"));
+
+        JSONObject skills = new JSONObject(encoded).getJSONObject("skills");
+        assertEquals(Arrays.asList("e"), toList(skills.getJSONArray("add")));
+        assertEquals(0, skills.getJSONArray("remove").length());
+    }
+
+    @Test
+    public void encodeSendsFullListWhenServerStateUnknown() throws Exception {
+        assertNull(ListDelta.encode(URL, body("a", "b")));
+    }
+
+    @Test
+    public void encodeSendsFullListWhenDeltaIsNotSmaller() throws Exception {
+        ListDelta.remember(URL, "", "skills", Arrays.asList("a", "b"));
+        assertNull(ListDelta.encode(URL, body("c", "d")));
+    }
+
+    @Test
+    public void encodeSendsFullListWhenDeltasAreOff() throws Exception {
+        ListDelta.setSupported(false);
+        ListDelta.remember(URL, "", "skills", Arrays.asList("a", "b", "c", "d"));
+        assertNull(ListDelta.encode(URL, body("a", "b", "c", "d", "e")));
+    }
+
+    @Test
+    public void serverErrorDoesNotTurnDeltasOff() throws Exception {
+        ListDelta.remember(URL, "", "skills", Arrays.asList("a", "b", "c", "d"));
+        assertFalse(ListDelta.rejectedDelta(500));
+        assertFalse(ListDelta.rejectedDelta(503));
+        assertTrue(ListDelta.encode(URL, body("a", "b", "c", "d", "e")) != null);
+    }
+
+    @Test
+    public void clientErrorTurnsDeltasOff() throws Exception {
+        ListDelta.remember(URL, "", "skills", Arrays.asList("a", "b", "c", "d"));
+        assertTrue(ListDelta.rejectedDelta(400));
+        assertNull(ListDelta.encode(URL, body("a", "b", "c", "d", "e")));
+    }
+
+    @Test
+    public void isNoOpOnlyForUnchangedLists() throws Exception {
+        ListDelta.remember(URL, "", "skills", Arrays.asList("a", "b"));
+        assertTrue(ListDelta.isNoOp(URL, body("b", "a")));
+        assertFalse(ListDelta.isNoOp(URL, body("a")));
+
+        JSONObject withName = new JSONObject(body("a", "b"));
+        withName.put("name", "x");
+        assertFalse(ListDelta.isNoOp(URL, withName.toString()));
+    }
+
+    @Test
+    public void deliveredBecomesServerState() throws Exception {
+        ListDelta.remember(URL, "", "skills", Arrays.asList("a"));
+        ListDelta.delivered(URL, body("a", "b"));
+        assertTrue(ListDelta.isNoOp(URL, body("a", "b")));
+    }
+
+    @Test
+    public void listsAreKeptPerId() throws Exception {
+        ListDelta.remember(URL, "1", "skills", Arrays.asList("a", "b"));
+        JSONObject other = new JSONObject(body("a", "b"));
+        other.put("id", "2");
+        assertFalse(ListDelta.isNoOp(URL, other.toString()));
+    }
+
+    private static String body(String... skills) throws Exception {
+        JSONObject json = new JSONObject();
+        json.put("skills", new JSONArray(Arrays.asList(skills)));
+        return json.toString();
+    }
+
+    private static ArrayList<String> toList(JSONArray array) throws Exception {
+        ArrayList<String> list = new ArrayList<>();
+        for (int i = 0; i < array.length(); i++) {
+            list.add(array.getString(i));
+        }
+        return list;
+    }
+}
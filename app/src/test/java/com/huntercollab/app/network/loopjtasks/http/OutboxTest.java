@@ -0,0 +1,85 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+//@brief: Payload of profile and collab edits merged while waiting in Outbox.java, and which repeated taps are queued once
+public class OutboxTest {
+
+    private static final String JOIN = "http://host/collab/joinCollab";
+    private static final String LEAVE = "http://host/collab/leaveCollab";
+    private static final String MEMBERSHIP = "membership:c1";
+
+    private final ArrayList<Outbox.Entry> pending = new ArrayList<>();
+
+    @Test
+    public void profileFieldsEditedOfflineShareOneBody() throws Exception {
+        String body = new JSONObject().put("name", "Ada").toString();
+        body = Outbox.mergeBodies(body, new JSONObject().put("github", "github.com/ada").toString());
+        body = Outbox.mergeBodies(body, new JSONObject().put("linkedin", "linkedin.com/in/ada").toString());
+
+        JSONObject merged = new JSONObject(body);
+        assertEquals(3, merged.length());
+        assertEquals("Ada", merged.getString("name"));
+        assertEquals("github.com/ada", merged.getString("github"));
+        assertEquals("linkedin.com/in/ada", merged.getString("linkedin"));
+    }
+
+    @Test
+    public void laterValueOfAFieldWins() throws Exception {
+        String body = new JSONObject().put("id", "c1").put("title", "Old").put("size", 3).toString();
+        body = Outbox.mergeBodies(body, new JSONObject().put("id", "c1").put("title", "New").toString());
+
+        JSONObject merged = new JSONObject(body);
+        assertEquals("c1", merged.getString("id"));
+        assertEquals("New", merged.getString("title"));
+        assertEquals(3, merged.getInt("size"));
+    }
+
+    @Test
+    public void listIsReplacedNotAppended() throws Exception {
+        String body = new JSONObject().put("skills", new JSONArray().put("Java").put("C")).toString();
+        body = Outbox.mergeBodies(body, new JSONObject().put("skills", new JSONArray().put("Java").put("Go")).toString());
+
+        JSONArray skills = new JSONObject(body).getJSONArray("skills");
+        assertEquals(2, skills.length());
+        assertEquals("Java", skills.getString(0));
+        assertEquals("Go", skills.getString(1));
+    }
+
+    @Test
+    public void secondJoinJoinsTheWaitingOne() {
+        Outbox.Entry join = queue(JOIN);
+        assertSame(join, Outbox.repeatedBy(pending, "POST", JOIN, MEMBERSHIP));
+    }
+
+    @Test
+    public void joinAfterLeaveIsQueued() {
+        queue(JOIN);
+        queue(LEAVE);
+        //join, leave, join: the last choice has to reach the server after the leave
+        assertNull(Outbox.repeatedBy(pending, "POST", JOIN, MEMBERSHIP));
+        Outbox.Entry join = queue(JOIN);
+        assertSame(join, Outbox.repeatedBy(pending, "POST", JOIN, MEMBERSHIP));
+        assertEquals(3, pending.size());
+    }
+
+    @Test
+    public void otherCollabsAreNotTouched() {
+        queue(JOIN);
+        assertNull(Outbox.repeatedBy(pending, "POST", JOIN, "membership:c2"));
+    }
+
+    private Outbox.Entry queue(String url) {
+        Outbox.Entry entry = new Outbox.Entry("key" + pending.size(), "POST", url, "{\"id\":\"c1\"}", MEMBERSHIP);
+        pending.add(entry);
+        return entry;
+    }
+}
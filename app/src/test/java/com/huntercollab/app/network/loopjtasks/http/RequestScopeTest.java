@@ -0,0 +1,130 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import android.content.ContextWrapper;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+//@brief: A cancelled RequestScope.java must not keep its screen's listeners alive or call them
+public class RequestScopeTest {
+
+    @Test
+    public void cancelReleasesQueuedMutationListener() throws Exception {
+        RequestScope scope = new RequestScope(new ContextWrapper(null));
+        final AtomicInteger calls = new AtomicInteger();
+        Outbox.StatusListener screen = new Outbox.StatusListener() {
+            @Override
+            public void onStatus(Outbox.Status status, int statusCode, String body) {
+                calls.incrementAndGet();
+            }
+        };
+        WeakReference<Outbox.StatusListener> ref = new WeakReference<>(screen);
+        Outbox.StatusListener wrapped = Outbox.firstStatusOnly(scope, screen);
+        screen = null;
+
+        scope.cancel();
+        wrapped.onStatus(Outbox.Status.DELIVERED, 200, null);
+        assertEquals(0, calls.get());
+
+        //'wrapped' stays reachable like a listener held by the outbox, the screen's listener must not
+        for (int i = 0; i < 20 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(ref.get());
+        assertTrue(wrapped != null);
+    }
+
+    @Test
+    public void listenerHearsOnlyTheFirstStatus() {
+        RequestScope scope = new RequestScope(new ContextWrapper(null));
+        final AtomicInteger calls = new AtomicInteger();
+        Outbox.StatusListener wrapped = Outbox.firstStatusOnly(scope, new Outbox.StatusListener() {
+            @Override
+            public void onStatus(Outbox.Status status, int statusCode, String body) {
+                calls.incrementAndGet();
+            }
+        });
+        wrapped.onStatus(Outbox.Status.DELIVERED, 200, null);
+        wrapped.onStatus(Outbox.Status.DELIVERED, 200, null);
+        scope.cancel();
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void untilDoneHearsQueuedThenTheOutcome() {
+        RequestScope scope = new RequestScope(new ContextWrapper(null));
+        final List<Outbox.Status> heard = new ArrayList<>();
+        Outbox.StatusListener wrapped = Outbox.untilDone(scope, new Outbox.StatusListener() {
+            @Override
+            public void onStatus(Outbox.Status status, int statusCode, String body) {
+                heard.add(status);
+            }
+        });
+        wrapped.onStatus(Outbox.Status.QUEUED, 0, null);
+        wrapped.onStatus(Outbox.Status.DELIVERED, 200, null);
+        wrapped.onStatus(Outbox.Status.DELIVERED, 200, null);
+        assertEquals(Arrays.asList(Outbox.Status.QUEUED, Outbox.Status.DELIVERED), heard);
+    }
+
+    @Test
+    public void untilDoneStopsAtCancel() {
+        RequestScope scope = new RequestScope(new ContextWrapper(null));
+        final AtomicInteger calls = new AtomicInteger();
+        Outbox.StatusListener wrapped = Outbox.untilDone(scope, new Outbox.StatusListener() {
+            @Override
+            public void onStatus(Outbox.Status status, int statusCode, String body) {
+                calls.incrementAndGet();
+            }
+        });
+        wrapped.onStatus(Outbox.Status.QUEUED, 0, null);
+        scope.cancel();
+        wrapped.onStatus(Outbox.Status.DELIVERED, 200, null);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void hooksRunOnceAndAtOnceAfterCancel() {
+        RequestScope scope = new RequestScope(new ContextWrapper(null));
+        final AtomicInteger runs = new AtomicInteger();
+        Runnable hook = new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        };
+        scope.onCancel(hook);
+        scope.cancel();
+        scope.cancel();
+        assertEquals(1, runs.get());
+        assertTrue(scope.isCancelled());
+
+        scope.onCancel(hook);
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    public void removedHookDoesNotRun() {
+        RequestScope scope = new RequestScope(new ContextWrapper(null));
+        final AtomicInteger runs = new AtomicInteger();
+        Runnable hook = new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        };
+        scope.onCancel(hook);
+        scope.removeOnCancel(hook);
+        scope.cancel();
+        assertEquals(0, runs.get());
+    }
+}
@@ -0,0 +1,57 @@
+package com.huntercollab.app.network.loopjtasks.http;
+
+import com.huntercollab.app.config.GlobalConfig;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+//@brief: Which failures RetryPolicy.java retries and the bounds of its jittered delays
+public class RetryPolicyTest {
+
+    @Test
+    public void connectionAndServerErrorsAreRetryable() {
+        assertTrue(RetryPolicy.isRetryable(0));
+        assertTrue(RetryPolicy.isRetryable(408));
+        assertTrue(RetryPolicy.isRetryable(429));
+        assertTrue(RetryPolicy.isRetryable(500));
+        assertTrue(RetryPolicy.isRetryable(503));
+    }
+
+    @Test
+    public void clientErrorsAndNotImplementedAreNot() {
+        assertFalse(RetryPolicy.isRetryable(400));
+        assertFalse(RetryPolicy.isRetryable(401));
+        assertFalse(RetryPolicy.isRetryable(404));
+        assertFalse(RetryPolicy.isRetryable(501));
+    }
+
+    @Test
+    public void attemptsStopAtTheLimit() {
+        assertTrue(RetryPolicy.shouldRetry(GlobalConfig.HTTP_MAX_ATTEMPTS - 1, 503));
+        assertFalse(RetryPolicy.shouldRetry(GlobalConfig.HTTP_MAX_ATTEMPTS, 503));
+        assertFalse(RetryPolicy.shouldRetry(1, 404));
+    }
+
+    @Test
+    public void delayStaysBelowTheDoublingCap() {
+        for (int attempt = 1; attempt <= 10; attempt++) {
+            long cap = Math.min(1000L << (attempt - 1), 8000);
+            long highest = 0;
+            for (int i = 0; i < 2000; i++) {
+                long delay = RetryPolicy.delayFor(attempt, 1000, 8000);
+                assertTrue(delay >= 0 && delay < cap);
+                highest = Math.max(highest, delay);
+            }
+            //Full jitter spreads over the whole range, not just its bottom
+            assertTrue(highest > cap / 2);
+        }
+    }
+
+    @Test
+    public void largeAttemptCountDoesNotOverflow() {
+        long delay = RetryPolicy.delayFor(Integer.MAX_VALUE, 1000, 60000);
+        assertTrue(delay >= 0 && delay < 60000);
+    }
+}
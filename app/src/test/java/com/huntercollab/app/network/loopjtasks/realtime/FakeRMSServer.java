@@ -0,0 +1,130 @@
+package com.huntercollab.app.network.loopjtasks.realtime;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//@brief:
+//RMS server on loopback for tests, each client is served by 'script' on its own "fake-rms" thread
+//The connection is closed when the script returns
+class FakeRMSServer {
+
+    static final String THREAD = "fake-rms";
+
+    //@brief: What the server does with one client
+    interface Script {
+        void serve(Client client) throws IOException, InterruptedException;
+    }
+
+    //@brief: One accepted client, frames are read and written like the real server does
+    static class Client {
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        Client(Socket socket) throws IOException {
+            in = new DataInputStream(socket.getInputStream());
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        //@return: String payload of the next v1 frame
+        String readV1() throws IOException {
+            return new String(RMSProtocol.rawReadMessage(in), "ISO-8859-1");
+        }
+
+        //@return: int type of the next v2 frame, its payload is in 'payload'
+        int readV2(StringBuilder payload) throws IOException {
+            byte[] data = new byte[in.readInt()];
+            int type = in.readByte();
+            in.readFully(data);
+            payload.setLength(0);
+            payload.append(new String(data, "UTF-8"));
+            return type;
+        }
+
+        void writeV1(String message) throws IOException {
+            RMSProtocol.rawWriteMessage(out, message);
+            out.flush();
+        }
+
+        void writeV2(int type, String message) throws IOException {
+            ByteBuffer frame = RMSProtocol.encode(RMSProtocol.V2, type, message);
+            out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+            out.flush();
+        }
+
+        //@brief: Reads the token and answers AUTH_SUCCESS
+        //@return: String token the client sent
+        String authorize() throws IOException {
+            String token = readV1();
+            writeV1(RMSProtocol.AUTH_SUCCESS);
+            return token;
+        }
+
+        //@brief: Blocks until the client hangs up
+        void awaitClose() throws IOException {
+            while (in.read() >= 0) {
+            }
+        }
+    }
+
+    private final ServerSocket server;
+    private final AtomicInteger connections = new AtomicInteger();
+
+    FakeRMSServer(final Script script) throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptAll(script);
+            }
+        }, THREAD).start();
+    }
+
+    InetSocketAddress address() {
+        return new InetSocketAddress(server.getInetAddress(), server.getLocalPort());
+    }
+
+    //@return: int clients accepted so far
+    int getConnections() {
+        return connections.get();
+    }
+
+    void shutdown() throws IOException {
+        server.close();
+    }
+
+    private void acceptAll(final Script script) {
+        while (true) {
+            final Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                return;
+            }
+            connections.incrementAndGet();
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        script.serve(new Client(socket));
+                    } catch (IOException | InterruptedException e) {
+                        //Client gone or test over
+                    } finally {
+                        try {
+                            socket.close();
+                        } catch (IOException e) {
+                            //Nothing to do
+                        }
+                    }
+                }
+            }, THREAD).start();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.huntercollab.app.network.loopjtasks.realtime;
+
+import com.huntercollab.app.config.GlobalConfig;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+//@brief:
+//Framing of RMSFrameDecoder.java, and a microbenchmark against the original byte by byte reader of RMSProtocol.readN()
+//Allocations are counted with the JVM's per thread counter, there is no such counter in the android.jar stubs
+public class RMSFrameDecoderTest {
+
+    private static final int[] FRAME_SIZES = {16, 256, 4 * 1024, 64 * 1024};
+    //Bytes of frames read per measurement, and a cap for the small sizes
+    private static final int BYTES_PER_RUN = 2 * 1024 * 1024;
+    private static final int MAX_FRAMES = 50 * 1000;
+
+    private RMSFrameDecoder decoder = new RMSFrameDecoder();
+
+    @After
+    public void tearDown() {
+        decoder.release();
+    }
+
+    @Test
+    public void v1TextAndPing() throws Exception {
+        feed(v1("AUTH_SUCCESS", "PING", "hello"));
+
+        assertTrue(decoder.next());
+        assertEquals(RMSProtocol.TYPE_TEXT, decoder.type());
+        assertTrue(decoder.payloadEquals(RMSProtocol.AUTH_SUCCESS_BYTES));
+        assertTrue(decoder.next());
+        assertEquals(RMSProtocol.TYPE_PING, decoder.type());
+        assertTrue(decoder.next());
+        assertEquals("hello", decoder.text());
+        assertFalse(decoder.next());
+    }
+
+    @Test
+    public void v2TypesAndUtf8() throws Exception {
+        decoder.setVersion(RMSProtocol.V2);
+        String text = "caf\u00e9 \u4f60\u597d";
+        feed(RMSProtocol.encode(RMSProtocol.V2, RMSProtocol.TYPE_PING, null));
+        feed(RMSProtocol.encode(RMSProtocol.V2, RMSProtocol.TYPE_MESSAGE, text));
+
+        assertTrue(decoder.next());
+        assertEquals(RMSProtocol.TYPE_PING, decoder.type());
+        assertEquals(0, decoder.payload().remaining());
+        assertTrue(decoder.next());
+        assertEquals(RMSProtocol.TYPE_MESSAGE, decoder.type());
+        assertEquals(text, decoder.text());
+        assertEquals(text.getBytes("UTF-8").length, decoder.payload().remaining());
+    }
+
+    @Test
+    public void frameSplitAcrossReads() throws Exception {
+        byte[] data = v1("first", "second");
+        int frames = 0;
+        StringBuilder texts = new StringBuilder();
+        for (byte b : data) {
+            decoder.readTarget().put(b);
+            while (decoder.next()) {
+                frames++;
+                texts.append(decoder.text()).append(' ');
+            }
+            decoder.compact();
+        }
+        assertEquals(2, frames);
+        assertEquals("first second ", texts.toString());
+    }
+
+    @Test
+    public void frameLargerThanTheBufferIsRead() throws Exception {
+        byte[] data = frames(64 * 1024, 3);
+        int offset = 0;
+        int frames = 0;
+        while (offset < data.length) {
+            offset += feed(data, offset);
+            while (decoder.next()) {
+                assertEquals(64 * 1024, decoder.payload().remaining());
+                frames++;
+            }
+        }
+        assertEquals(3, frames);
+    }
+
+    @Test
+    public void invalidLengthFails() {
+        ByteBuffer frame = ByteBuffer.allocate(4);
+        frame.putInt(GlobalConfig.RMS_MAX_FRAME + 1);
+        frame.flip();
+        feed(frame);
+        try {
+            decoder.next();
+            fail("Frame above RMS_MAX_FRAME accepted");
+        } catch (IOException e) {
+            //Expected
+        }
+    }
+
+    @Test
+    public void readingPingsAllocatesNothing() throws Exception {
+        com.sun.management.ThreadMXBean threads = allocationCounter();
+        byte[] v1Pings = v1Pings(1000);
+        //Warm up
+        readAll(v1Pings);
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        int frames = readAll(v1Pings);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertEquals(1000, frames);
+        assertTrue(allocated + " B for " + frames + " PINGs", allocated < frames);
+    }
+
+    //@brief: Frames/sec and bytes allocated per frame of both readers for 16 B to 64 KB frames, printed to stdout
+    @Test
+    public void benchmark() throws Exception {
+        com.sun.management.ThreadMXBean threads = allocationCounter();
+        long thread = Thread.currentThread().getId();
+        for (int size : FRAME_SIZES) {
+            int frames = Math.max(1, Math.min(MAX_FRAMES, BYTES_PER_RUN / (size + 4)));
+            byte[] data = frames(size, frames);
+            StringBuilder report = new StringBuilder(String.format(Locale.US, "%d B x %d frames\n", size, frames));
+            for (int reader = 0; reader < 2; reader++) {
+                //Warm up so the timed run is not measuring the interpreter
+                read(reader, data, frames);
+                long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+                long start = System.nanoTime();
+                read(reader, data, frames);
+                long elapsed = Math.max(1, System.nanoTime() - start);
+                long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+                report.append(String.format(Locale.US, "  %s %12.0f frames/s %10.1f B allocated/frame\n",
+                        reader == 0 ? "byte by byte" : "decoder view", frames * 1e9 / elapsed, (double) allocated / frames));
+            }
+            System.out.print(report);
+        }
+    }
+
+    private void read(int reader, byte[] data, int frames) throws IOException {
+        if (reader == 0) {
+            readByteByByte(data, frames);
+        } else {
+            assertEquals(frames, readAll(data));
+        }
+    }
+
+    //@brief: The original reader: one readByte() per byte, a new array and String per frame
+    private static void readByteByByte(byte[] data, int frames) throws IOException {
+        DataInputStream dis = new DataInputStream(new ByteArrayInputStream(data));
+        for (int f = 0; f < frames; f++) {
+            int length = dis.readInt();
+            byte[] payload = new byte[length];
+            for (int i = 0; i < length; i++) {
+                payload[i] = dis.readByte();
+            }
+            new String(payload);
+        }
+    }
+
+    //@brief: Reads 'data' the way RealtimeClient.Session.read() does, in chunks of what fits in the decoder's buffer
+    //@return: int frames read
+    private int readAll(byte[] data) throws IOException {
+        int frames = 0;
+        int offset = 0;
+        while (offset < data.length) {
+            offset += feed(data, offset);
+            while (decoder.next()) {
+                if (decoder.type() != RMSProtocol.TYPE_PING) {
+                    decoder.payload();
+                }
+                frames++;
+            }
+            decoder.compact();
+        }
+        return frames;
+    }
+
+    //@return: int bytes of 'data' from 'offset' copied into the decoder
+    private int feed(byte[] data, int offset) {
+        ByteBuffer target = decoder.readTarget();
+        int count = Math.min(target.remaining(), data.length - offset);
+        target.put(data, offset, count);
+        return count;
+    }
+
+    private void feed(byte[] data) {
+        int offset = 0;
+        while (offset < data.length) {
+            offset += feed(data, offset);
+        }
+    }
+
+    private void feed(ByteBuffer frame) {
+        byte[] data = new byte[frame.remaining()];
+        frame.get(data);
+        feed(data);
+    }
+
+    //@brief: v1 frames, framed like RMSProtocol.rawWriteMessage()
+    private static byte[] v1(String... messages) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (String message : messages) {
+            RMSProtocol.rawWriteMessage(out, message);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] v1Pings(int count) throws IOException {
+        String[] pings = new String[count];
+        for (int i = 0; i < count; i++) {
+            pings[i] = RMSProtocol.PING;
+        }
+        return v1(pings);
+    }
+
+    //@brief: 'frames' v1 frames of 'size' ASCII bytes
+    private static byte[] frames(int size, int frames) throws IOException {
+        StringBuilder payload = new StringBuilder(size);
+        for (int i = 0; i < size; i++) {
+            payload.append((char) ('a' + i % 26));
+        }
+        String[] messages = new String[frames];
+        for (int f = 0; f < frames; f++) {
+            messages[f] = payload.toString();
+        }
+        return v1(messages);
+    }
+
+    //@return: the JVM's per thread allocation counter, the test is skipped where there is none
+    static com.sun.management.ThreadMXBean allocationCounter() {
+        Object bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        return threads;
+    }
+}
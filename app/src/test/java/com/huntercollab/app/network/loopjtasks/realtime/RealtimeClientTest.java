@@ -0,0 +1,618 @@
+package com.huntercollab.app.network.loopjtasks.realtime;
+
+import com.huntercollab.app.config.GlobalConfig;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+//@brief: Sessions of RealtimeClient.java against a FakeRMSServer.java on loopback
+public class RealtimeClientTest {
+
+    //Connections opened at once by connectTeardown()
+    private static final int CONNECTIONS = 20;
+    private static final String IO_THREAD = "rms-io";
+    //PINGs sent to an idle session, and the bytes each may cost the I/O thread
+    private static final int IDLE_PINGS = 1000;
+    private static final int ALLOWED_PER_PING = 1;
+
+    private FakeRMSServer server;
+
+    @After
+    public void tearDown() throws IOException {
+        if (server != null) {
+            server.shutdown();
+        }
+    }
+
+    //@brief:
+    //Opens CONNECTIONS sessions and closes them: all run on one I/O thread, which ends with the last session
+    //Connect and teardown times are printed to stdout
+    @Test
+    public void connectTeardown() throws Exception {
+        server = new FakeRMSServer(new FakeRMSServer.Script() {
+            @Override
+            public void serve(FakeRMSServer.Client client) throws IOException {
+                client.authorize();
+                client.awaitClose();
+            }
+        });
+        final CountDownLatch opened = new CountDownLatch(CONNECTIONS);
+        final CountDownLatch closed = new CountDownLatch(CONNECTIONS);
+        RealtimeClient.Listener listener = new Listener() {
+            @Override
+            public void onOpen(RealtimeClient.Session session) {
+                opened.countDown();
+            }
+
+            @Override
+            public void onClosed(RealtimeClient.Session session, IOException error) {
+                closed.countDown();
+            }
+        };
+        int ioThreadsBefore = ioThreads();
+        RealtimeClient client = new RealtimeClient();
+        RealtimeClient.Session[] sessions = new RealtimeClient.Session[CONNECTIONS];
+        long start = System.nanoTime();
+        for (int i = 0; i < CONNECTIONS; i++) {
+            sessions[i] = client.open("token", listener, server.address());
+        }
+        assertTrue(opened.await(10, TimeUnit.SECONDS));
+        long connect = System.nanoTime() - start;
+        assertEquals(1, ioThreads() - ioThreadsBefore);
+
+        start = System.nanoTime();
+        for (RealtimeClient.Session session : sessions) {
+            session.close();
+        }
+        assertTrue(closed.await(10, TimeUnit.SECONDS));
+        long teardown = System.nanoTime() - start;
+        for (int i = 0; i < 100 && ioThreads() > ioThreadsBefore; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(ioThreadsBefore, ioThreads());
+        System.out.printf(Locale.US, "%d sessions: %.2f ms connect, %.2f ms teardown, 1 I/O thread%n",
+                CONNECTIONS, connect / 1e6, teardown / 1e6);
+    }
+
+    //@brief:
+    //A server that rejects the version offer: the session goes on in v1, a frame sent before the answer still
+    //reaches the listener and send() frames go out as v1 frames
+    @Test
+    public void v1ServerKeepsTheSession() throws Exception {
+        final String[] received = new String[2];
+        final CountDownLatch read = new CountDownLatch(1);
+        server = new FakeRMSServer(new FakeRMSServer.Script() {
+            @Override
+            public void serve(FakeRMSServer.Client client) throws IOException {
+                client.authorize();
+                received[0] = client.readV1();
+                client.writeV1("UNKNOWN COMMAND");
+                client.writeV1(RMSProtocol.VERSION_REJECT);
+                received[1] = client.readV1();
+                read.countDown();
+                client.awaitClose();
+            }
+        });
+        final int[] version = {0};
+        final String[] text = {null};
+        final CountDownLatch answered = new CountDownLatch(1);
+        final CountDownLatch closed = new CountDownLatch(1);
+        final IOException[] error = {null};
+        RealtimeClient client = new RealtimeClient();
+        RealtimeClient.Session session = client.open("token", new Listener() {
+            @Override
+            public void onFrame(RealtimeClient.Session session, int type, ByteBuffer payload) {
+                text[0] = session.text();
+                answered.countDown();
+            }
+
+            @Override
+            public void onVersion(RealtimeClient.Session session, int v) {
+                version[0] = v;
+            }
+
+            @Override
+            public void onClosed(RealtimeClient.Session session, IOException e) {
+                error[0] = e;
+                closed.countDown();
+            }
+        }, server.address());
+        session.send("hello");
+        assertTrue(answered.await(10, TimeUnit.SECONDS));
+        assertEquals("UNKNOWN COMMAND", text[0]);
+        assertTrue(read.await(10, TimeUnit.SECONDS));
+        assertEquals(RMSProtocol.V1, version[0]);
+        assertEquals(RMSProtocol.V1, session.getVersion());
+        assertEquals(RMSProtocol.V1, client.getServerVersion());
+        assertTrue(session.isOpen());
+        session.close();
+        assertTrue(closed.await(10, TimeUnit.SECONDS));
+        assertEquals(null, error[0]);
+        assertEquals(RMSProtocol.VERSION_OFFER, received[0]);
+        assertEquals("hello", received[1]);
+    }
+
+    //@brief:
+    //A server known to speak v1, from an earlier start of the app, is not offered v2 and the first frame is ours
+    //No offer means no onVersion()
+    @Test
+    public void knownV1ServerIsNotOffered() throws Exception {
+        final String[] received = new String[1];
+        final CountDownLatch read = new CountDownLatch(1);
+        server = new FakeRMSServer(new FakeRMSServer.Script() {
+            @Override
+            public void serve(FakeRMSServer.Client client) throws IOException {
+                client.authorize();
+                received[0] = client.readV1();
+                read.countDown();
+                client.awaitClose();
+            }
+        });
+        final int[] version = {0};
+        RealtimeClient client = new RealtimeClient();
+        client.setServerVersion(RMSProtocol.V1);
+        RealtimeClient.Session session = client.open("token", new Listener() {
+            @Override
+            public void onVersion(RealtimeClient.Session session, int v) {
+                version[0] = v;
+            }
+        }, server.address());
+        try {
+            session.send("hello");
+            assertTrue(read.await(10, TimeUnit.SECONDS));
+            assertEquals("hello", received[0]);
+            assertEquals(RMSProtocol.V1, session.getVersion());
+            assertEquals(0, version[0]);
+        } finally {
+            session.close();
+        }
+    }
+
+    //@brief: A token the server does not accept ends the session with AuthFailedException, RealtimeHub.java does not retry it
+    @Test
+    public void rejectedTokenFailsWithAuthFailed() throws Exception {
+        server = new FakeRMSServer(new FakeRMSServer.Script() {
+            @Override
+            public void serve(FakeRMSServer.Client client) throws IOException {
+                client.readV1();
+                client.writeV1("AUTH_FAILED");
+                client.awaitClose();
+            }
+        });
+        final boolean[] opened = {false};
+        Closed closed = new Closed() {
+            @Override
+            public void onOpen(RealtimeClient.Session session) {
+                opened[0] = true;
+            }
+        };
+        new RealtimeClient().open("expired", closed, server.address());
+        assertTrue(closed.latch.await(10, TimeUnit.SECONDS));
+        assertFalse(opened[0]);
+        assertTrue(String.valueOf(closed.error), closed.error instanceof RealtimeClient.AuthFailedException);
+    }
+
+    //@brief:
+    //A v2 server that leaves the offer unanswered for RMS_VERSION_TIMEOUT is taken to speak v1: the session stays
+    //open and send() frames go out as v1 frames
+    @Test
+    public void unansweredOfferGoesOnInV1() throws Exception {
+        final CountDownLatch offered = new CountDownLatch(1);
+        final CountDownLatch read = new CountDownLatch(1);
+        final String[] received = new String[1];
+        server = new FakeRMSServer(new FakeRMSServer.Script() {
+            @Override
+            public void serve(FakeRMSServer.Client client) throws IOException {
+                client.authorize();
+                client.readV1();
+                offered.countDown();
+                received[0] = client.readV1();
+                read.countDown();
+                client.awaitClose();
+            }
+        });
+        final int[] version = {0};
+        ClockedClient client = new ClockedClient();
+        RealtimeClient.Session session = client.open("token", new Listener() {
+            @Override
+            public void onVersion(RealtimeClient.Session session, int v) {
+                version[0] = v;
+            }
+        }, server.address());
+        try {
+            assertTrue(offered.await(10, TimeUnit.SECONDS));
+            client.time += GlobalConfig.RMS_VERSION_TIMEOUT;
+            session.send("hello");
+            assertTrue(read.await(10, TimeUnit.SECONDS));
+            assertEquals("hello", received[0]);
+            assertEquals(RMSProtocol.V1, version[0]);
+            assertTrue(session.isOpen());
+        } finally {
+            session.close();
+        }
+    }
+
+    //@brief:
+    //A v2 server may PING before it has read the offer: the PING reaches the listener as a v1 frame, the session
+    //keeps waiting for the answer and goes on in v2 once it comes
+    @Test
+    public void pingBeforeTheAnswerKeepsV2() throws Exception {
+        final String[] received = new String[1];
+        final CountDownLatch pinged = new CountDownLatch(1);
+        final CountDownLatch read = new CountDownLatch(1);
+        server = new FakeRMSServer(new FakeRMSServer.Script() {
+            @Override
+            public void serve(FakeRMSServer.Client client) throws IOException, InterruptedException {
+                client.authorize();
+                client.writeV1(RMSProtocol.PING);
+                pinged.await(10, TimeUnit.SECONDS);
+                client.readV1();
+                client.writeV1(RMSProtocol.VERSION_ACCEPT);
+                client.writeV2(RMSProtocol.TYPE_MESSAGE, "chat-1");
+                StringBuilder payload = new StringBuilder();
+                if (client.readV2(payload) == RMSProtocol.TYPE_TEXT) {
+                    received[0] = payload.toString();
+                }
+                read.countDown();
+                client.awaitClose();
+            }
+        });
+        final List<Integer> types = new CopyOnWriteArrayList<>();
+        final int[] version = {0};
+        final CountDownLatch message = new CountDownLatch(1);
+        RealtimeClient client = new RealtimeClient();
+        RealtimeClient.Session session = client.open("token", new Listener() {
+            @Override
+            public void onFrame(RealtimeClient.Session session, int type, ByteBuffer payload) {
+                types.add(type);
+                if (type == RMSProtocol.TYPE_PING) {
+                    pinged.countDown();
+                } else if (type == RMSProtocol.TYPE_MESSAGE) {
+                    message.countDown();
+                }
+            }
+
+            @Override
+            public void onVersion(RealtimeClient.Session session, int v) {
+                version[0] = v;
+            }
+        }, server.address());
+        try {
+            session.send("hello");
+            assertTrue(message.await(10, TimeUnit.SECONDS));
+            assertTrue(read.await(10, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList(RMSProtocol.TYPE_PING, RMSProtocol.TYPE_MESSAGE), types);
+            assertEquals(RMSProtocol.V2, version[0]);
+            assertEquals(RMSProtocol.V2, session.getVersion());
+            assertEquals(RMSProtocol.V2, client.getServerVersion());
+            assertEquals("hello", received[0]);
+            assertTrue(session.isOpen());
+        } finally {
+            session.close();
+        }
+    }
+
+    //@brief:
+    //A connection dropped while the offer waits says nothing about the server: onVersion() is not called, so nothing is
+    //saved, and the next session offers again. Only a server that hangs up on the offer twice in a row is taken to speak v1
+    @Test
+    public void droppedOfferIsNotTakenAsV1() throws Exception {
+        final AtomicInteger offers = new AtomicInteger();
+        server = new FakeRMSServer(new FakeRMSServer.Script() {
+            @Override
+            public void serve(FakeRMSServer.Client client) throws IOException {
+                client.authorize();
+                if (RMSProtocol.VERSION_OFFER.equals(client.readV1())) {
+                    offers.incrementAndGet();
+                }
+            }
+        });
+        final int[] version = {0};
+        RealtimeClient client = new RealtimeClient();
+        for (int i = 1; i <= 3; i++) {
+            Closed closed = new Closed() {
+                @Override
+                public void onVersion(RealtimeClient.Session session, int v) {
+                    version[0] = v;
+                }
+            };
+            //Read by the server only when no offer comes first
+            client.open("token", closed, server.address()).send("hello");
+            assertTrue(closed.latch.await(10, TimeUnit.SECONDS));
+            assertNotNull(closed.error);
+            assertEquals(Math.min(i, 2), offers.get());
+            assertEquals(i < 2 ? 0 : RMSProtocol.V1, client.getServerVersion());
+        }
+        assertEquals(0, version[0]);
+    }
+
+    //@brief:
+    //A v2 session quiet for RMS_HEARTBEAT_INTERVAL sends a HEARTBEAT, an answer keeps it open past RMS_HEARTBEAT_TIMEOUT
+    @Test
+    public void answeredHeartbeatKeepsTheSession() throws Exception {
+        final CountDownLatch heartbeat = new CountDownLatch(1);
+        final CountDownLatch second = new CountDownLatch(1);
+        server = new FakeRMSServer(new FakeRMSServer.Script() {
+            @Override
+            public void serve(FakeRMSServer.Client client) throws IOException {
+                acceptV2(client);
+                StringBuilder payload = new StringBuilder();
+                while (client.readV2(payload) != RMSProtocol.TYPE_HEARTBEAT) {
+                }
+                client.writeV2(RMSProtocol.TYPE_HEARTBEAT, null);
+                //Lets the test know the answer was read, frames come in order
+                client.writeV2(RMSProtocol.TYPE_PING, null);
+                heartbeat.countDown();
+                while (!(client.readV2(payload) == RMSProtocol.TYPE_TEXT && "second".equals(payload.toString()))) {
+                }
+                second.countDown();
+                client.awaitClose();
+            }
+        });
+        final CountDownLatch pinged = new CountDownLatch(1);
+        Closed closed = new Closed() {
+            @Override
+            public void onFrame(RealtimeClient.Session session, int type, ByteBuffer payload) {
+                if (type == RMSProtocol.TYPE_PING) {
+                    pinged.countDown();
+                }
+            }
+        };
+        ClockedClient client = new ClockedClient();
+        RealtimeClient.Session session = client.open("token", closed, server.address());
+        try {
+            awaitVersion(session, RMSProtocol.V2);
+            //Sending wakes the I/O thread so it looks at the clock
+            client.time += GlobalConfig.RMS_HEARTBEAT_INTERVAL;
+            session.send("first");
+            assertTrue(heartbeat.await(10, TimeUnit.SECONDS));
+            assertTrue(pinged.await(10, TimeUnit.SECONDS));
+            client.time += GlobalConfig.RMS_HEARTBEAT_TIMEOUT;
+            session.send("second");
+            assertTrue(second.await(10, TimeUnit.SECONDS));
+            assertTrue(session.isOpen());
+            assertEquals(1, closed.latch.getCount());
+        } finally {
+            session.close();
+        }
+    }
+
+    //@brief: A HEARTBEAT left unanswered for RMS_HEARTBEAT_TIMEOUT ends the session, so a dead server is noticed
+    @Test
+    public void unansweredHeartbeatEndsTheSession() throws Exception {
+        final CountDownLatch heartbeat = new CountDownLatch(1);
+        server = new FakeRMSServer(new FakeRMSServer.Script() {
+            @Override
+            public void serve(FakeRMSServer.Client client) throws IOException {
+                acceptV2(client);
+                StringBuilder payload = new StringBuilder();
+                while (client.readV2(payload) != RMSProtocol.TYPE_HEARTBEAT) {
+                }
+                heartbeat.countDown();
+                client.awaitClose();
+            }
+        });
+        Closed closed = new Closed();
+        ClockedClient client = new ClockedClient();
+        RealtimeClient.Session session = client.open("token", closed, server.address());
+        awaitVersion(session, RMSProtocol.V2);
+        client.time += GlobalConfig.RMS_HEARTBEAT_INTERVAL;
+        session.send("first");
+        assertTrue(heartbeat.await(10, TimeUnit.SECONDS));
+        client.time += GlobalConfig.RMS_HEARTBEAT_TIMEOUT;
+        session.send("second");
+        assertTrue(closed.latch.await(10, TimeUnit.SECONDS));
+        assertTrue(String.valueOf(closed.error), closed.error instanceof SocketTimeoutException);
+    }
+
+    //@brief: Authorizes and accepts the version offer
+    private static void acceptV2(FakeRMSServer.Client client) throws IOException {
+        client.authorize();
+        client.readV1();
+        client.writeV1(RMSProtocol.VERSION_ACCEPT);
+    }
+
+    private static void awaitVersion(RealtimeClient.Session session, int version) throws InterruptedException {
+        for (int i = 0; i < 1000 && session.getVersion() != version; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(version, session.getVersion());
+    }
+
+    //@brief:
+    //An idle v1 and v2 session that only receives PINGs allocates nothing per PING on the I/O thread
+    //beyond what the JVM's Selector itself allocates per wake up, see: selectorCostPerWakeup()
+    //Bytes are counted with the JVM's per thread counter, from the first PING on
+    @Test
+    public void idleV1SessionAllocatesNothingPerPing() throws Exception {
+        idleSession(RMSProtocol.V1);
+    }
+
+    @Test
+    public void idleV2SessionAllocatesNothingPerPing() throws Exception {
+        idleSession(RMSProtocol.V2);
+    }
+
+    private void idleSession(final int version) throws Exception {
+        final com.sun.management.ThreadMXBean threads = RMSFrameDecoderTest.allocationCounter();
+        final CountDownLatch start = new CountDownLatch(1);
+        server = new FakeRMSServer(new FakeRMSServer.Script() {
+            @Override
+            public void serve(FakeRMSServer.Client client) throws IOException, InterruptedException {
+                client.authorize();
+                boolean v2 = version == RMSProtocol.V2;
+                if (v2) {
+                    client.readV1();
+                    client.writeV1(RMSProtocol.VERSION_ACCEPT);
+                }
+                start.await(10, TimeUnit.SECONDS);
+                for (int i = 0; i < IDLE_PINGS + 1; i++) {
+                    if (v2) {
+                        client.writeV2(RMSProtocol.TYPE_PING, null);
+                    } else {
+                        client.writeV1(RMSProtocol.PING);
+                    }
+                    //One PING per read, like an idle connection
+                    Thread.sleep(1);
+                }
+                client.awaitClose();
+            }
+        });
+        final long[] firstPing = {0};
+        final long[] allocated = {0};
+        final int[] pings = {0};
+        final CountDownLatch done = new CountDownLatch(1);
+        final CountDownLatch opened = new CountDownLatch(1);
+        RealtimeClient client = new RealtimeClient();
+        //A v1 server known from an earlier start, not offered v2
+        client.setServerVersion(version);
+        RealtimeClient.Session session = client.open("token", new Listener() {
+            @Override
+            public void onOpen(RealtimeClient.Session session) {
+                opened.countDown();
+            }
+
+            @Override
+            public void onFrame(RealtimeClient.Session session, int type, ByteBuffer payload) {
+                if (type != RMSProtocol.TYPE_PING) {
+                    return;
+                }
+                long thread = Thread.currentThread().getId();
+                if (pings[0] == 0) {
+                    firstPing[0] = threads.getThreadAllocatedBytes(thread);
+                } else if (pings[0] == IDLE_PINGS) {
+                    allocated[0] = threads.getThreadAllocatedBytes(thread) - firstPing[0];
+                    done.countDown();
+                }
+                pings[0]++;
+            }
+        }, server.address());
+        try {
+            assertTrue(opened.await(10, TimeUnit.SECONDS));
+            start.countDown();
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            assertEquals(version, session.getVersion());
+        } finally {
+            session.close();
+        }
+        double selectCost = selectorCostPerWakeup(threads);
+        System.out.printf(Locale.US, "idle v%d session, %d PINGs: %d B allocated on the I/O thread, %.2f B/PING"
+                + " (the JVM's Selector alone: %.2f B per wake up)%n",
+                version, IDLE_PINGS, allocated[0], (double) allocated[0] / IDLE_PINGS, selectCost);
+        assertTrue(allocated[0] + " B for " + IDLE_PINGS + " PINGs",
+                allocated[0] < IDLE_PINGS * (selectCost + ALLOWED_PER_PING));
+    }
+
+    //@brief:
+    //Bytes the JVM's own Selector allocates per select() that returns a ready channel, not something the client can avoid
+    //(Android's Selector differs). The idle session test allows this much per PING on top of ALLOWED_PER_PING
+    private static double selectorCostPerWakeup(com.sun.management.ThreadMXBean threads) throws IOException {
+        ServerSocketChannel listening = ServerSocketChannel.open();
+        listening.socket().bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0));
+        SocketChannel reading = SocketChannel.open(listening.socket().getLocalSocketAddress());
+        SocketChannel writing = listening.accept();
+        Selector selector = Selector.open();
+        try {
+            reading.configureBlocking(false);
+            reading.register(selector, SelectionKey.OP_READ);
+            ByteBuffer ping = ByteBuffer.allocate(1);
+            ByteBuffer in = ByteBuffer.allocate(16);
+            long thread = Thread.currentThread().getId();
+            long allocated = 0;
+            for (int i = 0; i < 2 * IDLE_PINGS; i++) {
+                ping.clear();
+                writing.write(ping);
+                long before = threads.getThreadAllocatedBytes(thread);
+                selector.select();
+                long after = threads.getThreadAllocatedBytes(thread);
+                in.clear();
+                reading.read(in);
+                selector.selectedKeys().clear();
+                //The first half warms up
+                if (i >= IDLE_PINGS) {
+                    allocated += after - before;
+                }
+            }
+            return (double) allocated / IDLE_PINGS;
+        } finally {
+            selector.close();
+            reading.close();
+            writing.close();
+            listening.close();
+        }
+    }
+
+    //@return: int live I/O threads of any RealtimeClient
+    static int ioThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && IO_THREAD.equals(thread.getName())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    //@brief: Client on a clock the test moves by hand, the I/O thread only looks at it when woken
+    static class ClockedClient extends RealtimeClient {
+        volatile long time = 1000 * 1000;
+
+        @Override
+        long now() {
+            return time;
+        }
+    }
+
+    //@brief: Listener that keeps the error the session ended with
+    static class Closed extends Listener {
+        final CountDownLatch latch = new CountDownLatch(1);
+        volatile IOException error;
+
+        @Override
+        public void onClosed(RealtimeClient.Session session, IOException e) {
+            error = e;
+            latch.countDown();
+        }
+    }
+
+    //@brief: Listener with nothing to do, tests override what they need
+    static class Listener implements RealtimeClient.Listener {
+        @Override
+        public void onOpen(RealtimeClient.Session session) {
+        }
+
+        @Override
+        public void onFrame(RealtimeClient.Session session, int type, ByteBuffer payload) {
+        }
+
+        @Override
+        public void onVersion(RealtimeClient.Session session, int version) {
+        }
+
+        @Override
+        public void onClosed(RealtimeClient.Session session, IOException error) {
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.huntercollab.app.network.loopjtasks.realtime;
+
+import com.huntercollab.app.network.loopjtasks.ChatSequence;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+//@brief: RESUME payload kept by ResumePoints.java for RealtimeHub.java
+public class ResumePointsTest {
+
+    private final ResumePoints points = new ResumePoints();
+
+    @Test
+    public void nothingSeenSendsNoResume() throws Exception {
+        points.seen("chat", ChatSequence.UNKNOWN);
+        assertNull(points.toFrame());
+    }
+
+    @Test
+    public void newestMessageOfEachChatIsKept() throws Exception {
+        points.seen("a", 5);
+        points.seen("a", 3);
+        points.seen("b", 1);
+        points.seen("b", 2);
+
+        JSONObject resume = new JSONObject(points.toFrame());
+        assertEquals(2, resume.length());
+        assertEquals(5, resume.getLong("a"));
+        assertEquals(2, resume.getLong("b"));
+    }
+
+    @Test
+    public void forgottenChatIsNotResumed() throws Exception {
+        points.seen("a", 5);
+        points.seen("b", 7);
+        points.forget("a");
+
+        JSONObject resume = new JSONObject(points.toFrame());
+        assertEquals(1, points.size());
+        assertEquals(7, resume.getLong("b"));
+        points.forget("b");
+        assertNull(points.toFrame());
+    }
+}
@@ -0,0 +1,215 @@
+package com.huntercollab.app.network.loopjtasks.realtime;
+
+import com.huntercollab.app.network.loopjtasks.MessageModel;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+//@brief:
+//Channels of RealtimeHub.java shared by several screens over one session to a FakeRMSServer.java:
+//what the server is asked for as screens come and go, and which screen hears what from a v1 and a v2 server
+public class SubscriptionsTest {
+
+    //Sent after the frames under test, the server has read everything before it once it reads this
+    private static final String END = "end";
+
+    private FakeRMSServer server;
+    private RealtimeClient.Session session;
+    //Frames the server read after the handshake, as "<type> <payload>"
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+    private final Subscriptions subscriptions = new Subscriptions();
+    private final Screen chatList = new Screen();
+    private final Screen chatA = new Screen();
+    private final Screen chatB = new Screen();
+
+    @After
+    public void tearDown() throws IOException {
+        if (session != null) {
+            session.close();
+        }
+        if (server != null) {
+            server.shutdown();
+        }
+    }
+
+    //@brief: A channel subscribed to while the session opens is asked for once, when it is open
+    @Test
+    public void channelSubscribedWhileOpeningIsAskedForOnce() throws Exception {
+        open(RMSProtocol.V2);
+        subscriptions.add(chatA, "chat-a");
+        subscriptions.opened(session);
+        subscriptions.add(chatB, "chat-a");
+
+        assertEquals(Arrays.asList(subscribe("chat-a")), frames());
+    }
+
+    //@brief: The server is asked for a channel on its first subscriber and told to leave it when the last one goes
+    @Test
+    public void channelsAreCountedAcrossScreens() throws Exception {
+        open(RMSProtocol.V2);
+        subscriptions.opened(session);
+        subscriptions.add(chatList);
+        subscriptions.add(chatA, "chat-a");
+        subscriptions.add(chatB, "chat-a");
+        subscriptions.add(chatB, "chat-b");
+        assertEquals(Arrays.asList(subscribe("chat-a"), subscribe("chat-b")), frames());
+
+        assertEquals(0, subscriptions.remove(chatA).size());
+        assertEquals(0, subscriptions.remove(chatList).size());
+        assertEquals(new ArrayList<String>(), frames());
+
+        List<String> left = subscriptions.remove(chatB);
+        assertEquals(new HashSet<>(Arrays.asList("chat-a", "chat-b")), new HashSet<>(left));
+        assertEquals(new HashSet<>(Arrays.asList(unsubscribe("chat-a"), unsubscribe("chat-b"))), new HashSet<>(frames()));
+    }
+
+    //@brief: A new session is asked for every channel still subscribed to, nothing is sent while there is none
+    @Test
+    public void channelsAreAskedForAgainAfterAReconnect() throws Exception {
+        open(RMSProtocol.V2);
+        subscriptions.add(chatA, "chat-a");
+        subscriptions.add(chatB, "chat-b");
+        subscriptions.closed();
+        subscriptions.remove(chatB);
+        subscriptions.add(chatB, "chat-c");
+        assertEquals(new ArrayList<String>(), frames());
+
+        subscriptions.opened(session);
+        assertEquals(new HashSet<>(Arrays.asList(subscribe("chat-a"), subscribe("chat-c"))), new HashSet<>(frames()));
+    }
+
+    //@brief: A v1 server knows no channels, the session sends none of it
+    @Test
+    public void v1ServerIsNotAskedForChannels() throws Exception {
+        open(RMSProtocol.V1);
+        subscriptions.opened(session);
+        subscriptions.add(chatA, "chat-a");
+        subscriptions.remove(chatA);
+
+        assertEquals(new ArrayList<String>(), frames());
+    }
+
+    //@brief: A v2 server PINGs only for what no channel covers, so only subscribers to everything hear it
+    @Test
+    public void v2PingReachesSubscribersToEverything() {
+        subscriptions.add(chatList);
+        subscriptions.add(chatA, "chat-a");
+        subscriptions.add(chatB, "chat-b");
+
+        assertArrayEquals(new Object[]{chatList}, subscriptions.pinged(RMSProtocol.V2));
+    }
+
+    //@brief: A v1 server PINGs for every chat, every screen hears it, once
+    @Test
+    public void v1PingReachesEveryScreenOnce() {
+        subscriptions.add(chatList);
+        subscriptions.add(chatA, "chat-a");
+        subscriptions.add(chatB, "chat-a");
+        subscriptions.add(chatB, "chat-b");
+
+        assertEquals(new HashSet<>(Arrays.asList(chatList, chatA, chatB)),
+                new HashSet<>(Arrays.asList(subscriptions.pinged(RMSProtocol.V1))));
+        assertEquals(3, subscriptions.pinged(RMSProtocol.V1).length);
+    }
+
+    //@brief: A message or change in a channel reaches its subscribers and the subscribers to everything, once each
+    @Test
+    public void channelEventsReachTheirSubscribers() {
+        subscriptions.add(chatList);
+        subscriptions.add(chatA, "chat-a");
+        subscriptions.add(chatA, "chat-b");
+        subscriptions.add(chatB, "chat-b");
+
+        assertArrayEquals(new Object[]{chatList, chatA}, subscriptions.recipients("chat-a"));
+        assertArrayEquals(new Object[]{chatList, chatA, chatB}, subscriptions.recipients("chat-b"));
+        assertArrayEquals(new Object[]{chatList}, subscriptions.recipients("chat-c"));
+
+        subscriptions.remove(chatA);
+        assertArrayEquals(new Object[]{chatList}, subscriptions.recipients("chat-a"));
+    }
+
+    //@brief: Opens 'session' to a server that speaks 'version', its frames after the handshake go to 'received'
+    private void open(final int version) throws Exception {
+        server = new FakeRMSServer(new FakeRMSServer.Script() {
+            @Override
+            public void serve(FakeRMSServer.Client client) throws IOException {
+                client.authorize();
+                if (version == RMSProtocol.V2) {
+                    client.readV1();
+                    client.writeV1(RMSProtocol.VERSION_ACCEPT);
+                }
+                StringBuilder payload = new StringBuilder();
+                while (true) {
+                    if (version == RMSProtocol.V2) {
+                        int type = client.readV2(payload);
+                        received.add(type + " " + payload);
+                    } else {
+                        received.add(RMSProtocol.TYPE_TEXT + " " + client.readV1());
+                    }
+                }
+            }
+        });
+        RealtimeClient client = new RealtimeClient();
+        if (version == RMSProtocol.V1) {
+            //Known from an earlier start, not offered v2
+            client.setServerVersion(RMSProtocol.V1);
+        }
+        session = client.open("token", new RealtimeClientTest.Listener(), server.address());
+        for (int i = 0; i < 1000 && session.getVersion() != version; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(version, session.getVersion());
+    }
+
+    //@return: List<String> frames the server read since the last call, up to END
+    private List<String> frames() throws InterruptedException {
+        session.send(END);
+        ArrayList<String> frames = new ArrayList<>();
+        while (true) {
+            String frame = received.poll(10, TimeUnit.SECONDS);
+            assertNotNull(frame);
+            if (frame.equals(RMSProtocol.TYPE_TEXT + " " + END)) {
+                return frames;
+            }
+            frames.add(frame);
+        }
+    }
+
+    private static String subscribe(String channel) {
+        return RMSProtocol.TYPE_SUBSCRIBE + " " + channel;
+    }
+
+    private static String unsubscribe(String channel) {
+        return RMSProtocol.TYPE_UNSUBSCRIBE + " " + channel;
+    }
+
+    //@brief: A screen, only who is called matters here
+    private static class Screen implements RealtimeHub.Subscriber {
+        @Override
+        public void onRealtimePing() {
+        }
+
+        @Override
+        public void onRealtimeMessage(String chatId, MessageModel message) {
+        }
+
+        @Override
+        public void onRealtimeChanged(String channel) {
+        }
+    }
+}